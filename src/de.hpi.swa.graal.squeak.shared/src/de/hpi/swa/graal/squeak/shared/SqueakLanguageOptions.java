@@ -6,9 +6,15 @@
 package de.hpi.swa.graal.squeak.shared;
 
 public final class SqueakLanguageOptions {
+    public static final String BALLOON_TILES = "balloon-tiles";
+    public static final String BALLOON_TILES_HELP = "Rasterize Balloon 2D images in horizontal tiles in parallel";
+    public static final String BITBLT_BANDS = "bitblt-bands";
+    public static final String BITBLT_BANDS_HELP = "Process large 32-bit BitBlt operations in horizontal bands in parallel";
     public static final String CODE_FLAG = "--code";
     public static final String CODE_FLAG_SHORT = "-c";
     public static final String CODE_HELP = "Smalltalk code to be executed without display";
+    public static final String FRAMEBUFFER = "framebuffer";
+    public static final String FRAMEBUFFER_HELP = "Render into an in-memory framebuffer when running headless";
     public static final String HEADLESS = "headless";
     public static final String HEADLESS_FLAG = "--" + HEADLESS;
     public static final String HEADLESS_HELP = "Run without a display";
@@ -23,8 +29,14 @@ public final class SqueakLanguageOptions {
     public static final String INTERRUPTS = "disable-interrupts";
     public static final String INTERRUPTS_FLAG = "--" + INTERRUPTS;
     public static final String INTERRUPTS_HELP = "Disable interrupt handler";
+    public static final String LAYOUT_STATISTICS = "layout-statistics";
+    public static final String LAYOUT_STATISTICS_HELP = "Record layout evolutions, array strategy transitions, and class assumption invalidations (and dump them as JSON to the given file)";
     public static final String LOG_HANDLER_FLAG = "--log-handler";
     public static final String LOG_HANDLER_HELP = "Enable log handler (supported modes are 'mapped', 'file', 'err', 'out')";
+    public static final String MAX_FRAME_RATE = "max-frame-rate";
+    public static final String MAX_FRAME_RATE_HELP = "Maximum number of frames per second in which display updates are drawn (0 for no limit)";
+    public static final String PROFILE_ALLOCATIONS = "profile-allocations";
+    public static final String PROFILE_ALLOCATIONS_HELP = "Profile allocations per class (see --squeak-allocation-profiler.SamplingInterval)";
     public static final String QUIET = "quiet";
     public static final String QUIET_FLAG = "--" + QUIET;
     public static final String QUIET_HELP = "Operate quietly";
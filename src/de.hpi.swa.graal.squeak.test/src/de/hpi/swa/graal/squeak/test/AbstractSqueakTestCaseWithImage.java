@@ -167,6 +167,40 @@ public class AbstractSqueakTestCaseWithImage extends AbstractSqueakTestCase {
         assertNotEquals(NilObject.SINGLETON, patchResult);
     }
 
+    /**
+     * Patches a method like {@link #patchMethod} and remembers the original method in the image, so
+     * that {@link #restorePatchedMethods()} can put it back.
+     */
+    protected static void patchMethodTemporarily(final String className, final String selector, final String body) {
+        evaluate(String.join(" ", "(Smalltalk at: #GraalSqueakPatchedMethods ifAbsentPut: [OrderedCollection new]) addFirst: {", className + ".",
+                        "#" + selector + ".", className, "compiledMethodAt: #" + selector, "ifAbsent: [nil]}"));
+        patchMethod(className, selector, body);
+    }
+
+    /**
+     * Temporarily replaces a method with a call to a named primitive of a plugin. The method answers
+     * #failed if the primitive fails. The selector is taken from the first line of the method source,
+     * for example "kernelAxpy: alpha x: x".
+     */
+    protected static void patchPluginMethod(final String className, final String selectorSource, final String module, final String primitive) {
+        final String[] tokens = selectorSource.trim().split("\\s+");
+        final StringBuilder selector = new StringBuilder(tokens[0]);
+        if (tokens[0].endsWith(":")) {
+            for (int i = 2; i < tokens.length; i += 2) {
+                selector.append(tokens[i]);
+            }
+        }
+        patchMethodTemporarily(className, selector.toString(), selectorSource + " <primitive: ''" + primitive + "'' module: ''" + module + "''> ^ #failed");
+    }
+
+    /** Restores all methods patched with {@link #patchMethodTemporarily}, most recent first. */
+    protected static void restorePatchedMethods() {
+        evaluate("(Smalltalk at: #GraalSqueakPatchedMethods ifAbsent: [#()]) do: [:each | each third" +
+                        " ifNil: [each first removeSelectorSilently: each second]" +
+                        " ifNotNil: [:method | each first addSelectorSilently: each second withMethod: method]]." +
+                        " Smalltalk removeKey: #GraalSqueakPatchedMethods ifAbsent: []");
+    }
+
     protected static TestResult runTestCase(final TestRequest request) {
         return runWithTimeout(request, () -> {
             context.enter();
@@ -5,20 +5,44 @@
  */
 package de.hpi.swa.graal.squeak.test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assume;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
+import de.hpi.swa.graal.squeak.model.AbstractSqueakObjectWithHash;
 import de.hpi.swa.graal.squeak.model.BooleanObject;
+import de.hpi.swa.graal.squeak.model.NativeObject;
+import de.hpi.swa.graal.squeak.model.NilObject;
+import de.hpi.swa.graal.squeak.model.PointersObject;
+import de.hpi.swa.graal.squeak.model.WeakVariablePointersObject;
+import de.hpi.swa.graal.squeak.nodes.ObjectGraphNode;
+import de.hpi.swa.graal.squeak.nodes.plugins.BitBlt;
 import de.hpi.swa.graal.squeak.shared.SqueakLanguageConfig;
+import de.hpi.swa.graal.squeak.util.OSDetector;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class SqueakBasicImageTest extends AbstractSqueakTestCaseWithImage {
 
+    @After
+    public void tearDown() {
+        restorePatchedMethods();
+    }
+
     @Test
     public void test01AsSymbol() {
         assertSame(evaluate("'asSymbol' asSymbol"), evaluate("'asSymbol' asSymbol"));
@@ -124,4 +148,366 @@ public class SqueakBasicImageTest extends AbstractSqueakTestCaseWithImage {
                         "Processor yield.\n" +
                         "result").toString());
     }
+
+    @Test
+    public void test14SqueakSSLLoopback() {
+        // Handshakes and transfers between two SqueakSSL instances, without any sockets involved.
+        // Clients know their peer by name, so later handshakes resume the session of the first one.
+        final Object result = compilerEvaluate("| sessions client server in out plain count bytes |\n" +
+                        "sessions := Smalltalk at: #SqueakSSLTest put: OrderedCollection new.\n" +
+                        "in := ByteArray new: 32768. out := ByteArray new: 32768. plain := ByteArray new: 16000 withAll: 42.\n" +
+                        "5 timesRepeat: [\n" +
+                        "  client := SqueakSSL new. server := SqueakSSL new. sessions add: client; add: server.\n" +
+                        "  client serverName: 'localhost'. server certName: SqueakSSL ensureSampleCert.\n" +
+                        "  count := client connect: in from: 1 to: 0 into: out.\n" +
+                        "  [count > 0] whileTrue: [\n" +
+                        "    count := server accept: out from: 1 to: count into: in.\n" +
+                        "    count > 0 ifTrue: [count := client connect: in from: 1 to: count into: out]].\n" +
+                        "  (client isConnected and: [server isConnected]) ifFalse: [^ 'handshake failed']].\n" +
+                        "bytes := 0.\n" +
+                        "100 timesRepeat: [\n" +
+                        "  count := client encrypt: plain from: 1 to: plain size into: out.\n" +
+                        "  bytes := bytes + (server decrypt: out from: 1 to: count into: in)].\n" +
+                        "bytes = (100 * plain size) ifFalse: [^ 'transfer failed'].\n" +
+                        "((1 to: sessions size by: 2) collect: [:i | (sessions at: i) instVarNamed: 'handle']) asArray printString");
+        try {
+            final String handles = result.toString();
+            assertTrue(handles, handles.startsWith("#("));
+            final String[] clientHandles = handles.substring(2, handles.length() - 1).trim().split(" ");
+            assertEquals(5, clientHandles.length);
+            final byte[] firstId = image.squeakSSLHandles.get(Long.parseLong(clientHandles[0])).getSession().getId();
+            assertTrue(firstId.length > 0);
+            for (int i = 1; i < clientHandles.length; i++) {
+                assertArrayEquals("Session not resumed by handshake " + (i + 1), firstId, image.squeakSSLHandles.get(Long.parseLong(clientHandles[i])).getSession().getId());
+            }
+        } finally {
+            evaluate("(Smalltalk at: #SqueakSSLTest) do: [:each | each destroy]. Smalltalk removeKey: #SqueakSSLTest");
+        }
+    }
+
+    @Test
+    public void test15NumericKernels() {
+        // Compares NumericKernelsPlugin primitives on FloatArrays and on Float64Arrays against the
+        // same loops in Java. A copy of DoubleWordArray named Float64Array stands in for Float64Array,
+        // which not all images have. DoubleWordArrays themselves have the same storage but are rejected.
+        final String module = "NumericKernelsPlugin";
+        for (final String className : new String[]{"FloatArray", "DoubleWordArray"}) {
+            patchPluginMethod(className, "kernelAxpy: alpha x: x", module, "primitiveAxpy");
+            patchPluginMethod(className, "kernelScale: alpha x: x accumulate: beta", module, "primitiveScaledAccumulate");
+            patchPluginMethod(className, "kernelArgMax", module, "primitiveArgMax");
+            patchPluginMethod(className, "kernelMax", module, "primitiveMax");
+            patchPluginMethod(className, "kernelMin", module, "primitiveMin");
+            patchPluginMethod(className, "kernelPrefixSum", module, "primitivePrefixSum");
+            patchPluginMethod(className, "kernelMultiply: a by: b rows: m inner: k columns: n", module, "primitiveMatrixMultiply");
+        }
+        final Random random = new Random(15);
+        evaluate("Smalltalk at: #NumericKernelsClasses put: {FloatArray. DoubleWordArray copy instVarNamed: 'name' put: #Float64Array; yourself}");
+        try {
+            assertEquals("#failed", evaluate("(DoubleWordArray new: 3) kernelMax printString").toString());
+            for (int classIndex = 1; classIndex <= 2; classIndex++) {
+                final boolean isFloat32 = classIndex == 1;
+                final String className = isFloat32 ? "FloatArray" : "Float64Array";
+                evaluate("Smalltalk at: #NumericKernelsTest put: ((1 to: 5) collect: [:i | ((Smalltalk at: #NumericKernelsClasses) at: " + classIndex +
+                                ") new: (#(37 37 12 20 15) at: i)])");
+                try {
+                    final double[] y = randomKernelValues(random, 37, isFloat32);
+                    final double[] x = randomKernelValues(random, 37, isFloat32);
+                    y[11] = 2;
+                    y[29] = 2;
+                    setKernelValues(1, y);
+                    setKernelValues(2, x);
+                    assertEquals(className, 12L, kernelsEvaluate("(arrays at: 1) kernelArgMax"));
+                    assertEquals(className, 2.0, kernelsEvaluate("(arrays at: 1) kernelMax"));
+                    assertEquals(className, Arrays.stream(y).min().getAsDouble(), kernelsEvaluate("(arrays at: 1) kernelMin"));
+                    assertEquals(className, "#failed", kernelsEvaluate("((arrays at: 1) kernelAxpy: 0.5 x: (DoubleWordArray new: 37)) printString").toString());
+
+                    kernelsEvaluate("(arrays at: 1) kernelAxpy: 0.5 x: (arrays at: 2)");
+                    for (int i = 0; i < y.length; i++) {
+                        y[i] = roundKernelValue(y[i] + 0.5 * x[i], isFloat32);
+                    }
+                    assertArrayEquals(className, y, getKernelValues(1), 0);
+
+                    kernelsEvaluate("(arrays at: 1) kernelScale: 1.5 x: (arrays at: 2) accumulate: -0.25");
+                    for (int i = 0; i < y.length; i++) {
+                        y[i] = roundKernelValue(1.5 * x[i] + -0.25 * y[i], isFloat32);
+                    }
+                    assertArrayEquals(className, y, getKernelValues(1), 0);
+
+                    kernelsEvaluate("(arrays at: 1) kernelPrefixSum");
+                    double sum = 0;
+                    for (int i = 0; i < y.length; i++) {
+                        sum += y[i];
+                        y[i] = roundKernelValue(sum, isFloat32);
+                    }
+                    assertArrayEquals(className, y, getKernelValues(1), 0);
+
+                    final double[] a = randomKernelValues(random, 3 * 4, isFloat32);
+                    final double[] b = randomKernelValues(random, 4 * 5, isFloat32);
+                    setKernelValues(3, a);
+                    setKernelValues(4, b);
+                    kernelsEvaluate("(arrays at: 5) kernelMultiply: (arrays at: 3) by: (arrays at: 4) rows: 3 inner: 4 columns: 5");
+                    final double[] c = new double[3 * 5];
+                    for (int i = 0; i < 3; i++) {
+                        for (int j = 0; j < 5; j++) {
+                            double product = 0;
+                            for (int p = 0; p < 4; p++) {
+                                product += a[i * 4 + p] * b[p * 5 + j];
+                            }
+                            c[i * 5 + j] = roundKernelValue(product, isFloat32);
+                        }
+                    }
+                    assertArrayEquals(className, c, getKernelValues(5), 0);
+
+                    x[20] = Double.NaN;
+                    x[30] = Double.NaN;
+                    setKernelValues(2, x);
+                    assertEquals(className, 21L, kernelsEvaluate("(arrays at: 2) kernelArgMax"));
+                    assertEquals(className, Double.NaN, kernelsEvaluate("(arrays at: 2) kernelMax"));
+                    assertEquals(className, Double.NaN, kernelsEvaluate("(arrays at: 2) kernelMin"));
+                } finally {
+                    evaluate("Smalltalk removeKey: #NumericKernelsTest");
+                }
+            }
+        } finally {
+            evaluate("Smalltalk removeKey: #NumericKernelsClasses");
+        }
+    }
+
+    @Test
+    public void test16EphemeronMourning() {
+        // Mourns ephemerons whose keys are only reachable through ephemerons, with their keys intact.
+        patchMethod("SmalltalkImage", "fetchMourner", "fetchMourner <primitive: 172> ^ nil");
+        final Object result = compilerEvaluate("| class mourned replaced strong key oldSemaphore semaphore timedOut first second third |\n" +
+                        "class := Association copy. class setFormat: 5 << 16 + 2.\n" +
+                        "mourned := class basicNew key: Object new value: 1.\n" +
+                        "replaced := class basicNew key: Object new value: 2.\n" +
+                        "key := Object new. strong := class basicNew key: key value: 3.\n" +
+                        "oldSemaphore := Smalltalk specialObjectsArray at: 42. semaphore := Semaphore new.\n" +
+                        "Smalltalk specialObjectsArray at: 42 put: semaphore.\n" +
+                        "[Smalltalk garbageCollect. timedOut := semaphore waitTimeoutMSecs: 1000]\n" +
+                        "  ensure: [Smalltalk specialObjectsArray at: 42 put: oldSemaphore].\n" +
+                        "replaced key: nil.\n" +
+                        "first := Smalltalk fetchMourner. second := Smalltalk fetchMourner.\n" +
+                        "Smalltalk garbageCollect. third := Smalltalk fetchMourner.\n" +
+                        "{timedOut. first == mourned. first key class == Object. second. third. strong key == key} printString");
+        assertEquals("#(false true true nil nil true)", result.toString());
+    }
+
+    @Test
+    public void test17WeakSlotsShareReferences() {
+        // Weak slots share references through the side table and are still excluded from tracing.
+        final WeakVariablePointersObject weakArray = (WeakVariablePointersObject) evaluate(
+                        "Smalltalk at: #WeakSlotsTest put: (WeakArray with: (Array with: 1) with: Smalltalk with: 42 with: nil)");
+        try {
+            final WeakVariablePointersObject copy = (WeakVariablePointersObject) evaluate("(Smalltalk at: #WeakSlotsTest) copy");
+            final WeakVariablePointersObject grown = (WeakVariablePointersObject) evaluate(
+                            "(WeakArray new: 8) replaceFrom: 1 to: 4 with: (Smalltalk at: #WeakSlotsTest) startingAt: 1; yourself");
+            for (int i = 0; i < 2; i++) {
+                assertSame(weakArray.getVariablePart()[i], copy.getVariablePart()[i]);
+                assertSame(weakArray.getVariablePart()[i], grown.getVariablePart()[i]);
+            }
+            assertSame(image.smalltalk, weakArray.getFromVariablePart(1));
+            assertEquals(42L, weakArray.getFromVariablePart(2));
+            assertSame(NilObject.SINGLETON, weakArray.getFromVariablePart(3));
+
+            final Set<AbstractSqueakObjectWithHash> traced = Collections.newSetFromMap(new IdentityHashMap<>());
+            traced.addAll(ObjectGraphNode.create(image).executeAllInstances());
+            assertTrue(traced.contains(weakArray));
+            assertTrue(traced.contains(image.smalltalk));
+            final Object weaklyReferenced = weakArray.getFromVariablePart(0);
+            if (weaklyReferenced != NilObject.SINGLETON) {
+                assertFalse(traced.contains(weaklyReferenced));
+            }
+        } finally {
+            evaluate("Smalltalk removeKey: #WeakSlotsTest");
+        }
+    }
+
+    @Test
+    public void test19UDPDatagrams() {
+        // Sends two datagrams in one batch over loopback and receives both in one batch.
+        patchPluginMethod("Socket", "primSocket: socketID sendDatagrams: buffer table: table count: count", "SocketPlugin", "primitiveSocketSendDatagrams");
+        patchPluginMethod("Socket", "primSocket: socketID receiveDatagrams: buffer table: table", "SocketPlugin", "primitiveSocketReceiveDatagrams");
+        final Object result = compilerEvaluate("| receiver sender port sent nilSent noRoom received buffer table |\n" +
+                        "Socket initializeNetwork.\n" +
+                        "receiver := Socket newUDP. receiver setPort: 0. port := receiver localPort. sender := Socket newUDP.\n" +
+                        "[sent := sender primSocket: (sender instVarNamed: 'socketHandle') sendDatagrams: 'helloabc' asByteArray\n" +
+                        "   table: {1. 5. #[127 0 0 1]. port. 6. 3. #[127 0 0 1]. port} count: 2.\n" +
+                        " nilSent := sender primSocket: (sender instVarNamed: 'socketHandle') sendDatagrams: 'hello' asByteArray table: {1. 5. nil. 0} count: 1.\n" +
+                        " receiver waitForDataFor: 5. (Delay forMilliseconds: 100) wait.\n" +
+                        " noRoom := receiver primSocket: (receiver instVarNamed: 'socketHandle') receiveDatagrams: ByteArray new table: (Array new: 4).\n" +
+                        " buffer := ByteArray new: 64. table := Array new: 12.\n" +
+                        " received := receiver primSocket: (receiver instVarNamed: 'socketHandle') receiveDatagrams: buffer table: table]\n" +
+                        "  ensure: [receiver destroy. sender destroy].\n" +
+                        "{sent. nilSent. noRoom. received. (buffer copyFrom: 1 to: 8) asString. table at: 1. table at: 2. table at: 5. table at: 6. (table at: 3) = #[127 0 0 1]} printString");
+        assertEquals("#(2 #failed #failed 2 'helloabc' 1 5 6 3 true)", result.toString());
+    }
+
+    @Test
+    public void test20OSProcessPipes() {
+        // Runs a shell command through non-blocking pipes until both output pipes reach their end. The
+        // process is released once its exit status has been read and its pipes have been closed.
+        Assume.assumeFalse("requires /bin/sh", OSDetector.SINGLETON.isWindows());
+        final String module = "UnixOSProcessPlugin";
+        patchPluginMethod("SmalltalkImage", "primSpawn: command in: directory", module, "primitiveSpawnWithPipes");
+        patchPluginMethod("SmalltalkImage", "primPipeWrite: handle from: buffer start: start count: count", module, "primitivePipeWrite");
+        patchPluginMethod("SmalltalkImage", "primPipeRead: handle into: buffer start: start count: count", module, "primitivePipeRead");
+        patchPluginMethod("SmalltalkImage", "primPipeAtEnd: handle", module, "primitivePipeAtEnd");
+        patchPluginMethod("SmalltalkImage", "primPipeClose: handle", module, "primitivePipeClose");
+        patchPluginMethod("SmalltalkImage", "primExitStatus: handle", module, "primitiveProcessExitStatus");
+        final Object result = compilerEvaluate("| handles process stdin stdout stderr written out err buffer count deadline status |\n" +
+                        "handles := Smalltalk primSpawn: {'/bin/sh'. '-c'. 'cat; printf oops >&2; exit 3'} in: nil.\n" +
+                        "process := handles at: 1. stdin := handles at: 2. stdout := handles at: 3. stderr := handles at: 4.\n" +
+                        "written := Smalltalk primPipeWrite: stdin from: 'hello' asByteArray start: 1 count: 5.\n" +
+                        "Smalltalk primPipeClose: stdin.\n" +
+                        "out := WriteStream on: String new. err := WriteStream on: String new. buffer := ByteArray new: 100.\n" +
+                        "deadline := Time millisecondClockValue + 10000.\n" +
+                        "[((Smalltalk primPipeAtEnd: stdout) and: [Smalltalk primPipeAtEnd: stderr]) or: [Time millisecondClockValue > deadline]] whileFalse: [\n" +
+                        "  count := Smalltalk primPipeRead: stdout into: buffer start: 1 count: buffer size. out nextPutAll: (buffer first: count) asString.\n" +
+                        "  count := Smalltalk primPipeRead: stderr into: buffer start: 1 count: buffer size. err nextPutAll: (buffer first: count) asString.\n" +
+                        "  (Delay forMilliseconds: 10) wait].\n" +
+                        "[(status := Smalltalk primExitStatus: process) isNil and: [Time millisecondClockValue < deadline]]\n" +
+                        "  whileTrue: [(Delay forMilliseconds: 10) wait].\n" +
+                        "Smalltalk primPipeClose: stdout; primPipeClose: stderr.\n" +
+                        "{written. out contents. err contents. status. Smalltalk primExitStatus: process} printString");
+        assertEquals("#(5 'hello' 'oops' 3 #failed)", result.toString());
+    }
+
+    @Test
+    public void test21BitBltBands() {
+        // Blits large 32-bit forms in parallel bands and in order, which must give the same bits.
+        Assume.assumeTrue("requires parallelism", ForkJoinPool.getCommonPoolParallelism() > 1);
+        final long numCases = (long) compilerEvaluate("| random tile source base blit cases |\n" +
+                        "random := Random seed: 42.\n" +
+                        "tile := Form extent: 61 @ 67 depth: 32.\n" +
+                        "1 to: tile bits size do: [:i | tile bits at: i put: (random nextInt: 16r100000000) - 1].\n" +
+                        "source := Form extent: 640 @ 640 depth: 32. base := Form extent: 1280 @ 640 depth: 32.\n" +
+                        "{source. base} do: [:form | 0 to: form width by: 61 do: [:x | 0 to: form height by: 67 do: [:y |\n" +
+                        "  tile displayOn: form at: x @ y rule: Form over]]].\n" +
+                        "blit := [:form :sourceForm :color :rule :destOrigin :sourceOrigin :extent | BitBlt destForm: form sourceForm: sourceForm\n" +
+                        "  fillColor: color combinationRule: rule destOrigin: destOrigin sourceOrigin: sourceOrigin extent: extent clipRect: form boundingBox].\n" +
+                        "cases := {\n" +
+                        "  [:form | blit value: form value: source value: nil value: Form over value: 5 @ 3 value: 0 @ 0 value: 640 @ 637].\n" +
+                        "  [:form | blit value: form value: nil value: (Color r: 1 g: 0.5 b: 0) value: Form over value: 0 @ 0 value: 0 @ 0 value: form extent].\n" +
+                        "  [:form | blit value: form value: source value: nil value: Form blend value: 600 @ 0 value: 0 @ 0 value: 640 @ 640].\n" +
+                        "  [:form | blit value: form value: source value: nil value: Form blendAlphaScaled value: 11 @ 7 value: 3 @ 1 value: 630 @ 630].\n" +
+                        "  [:form | blit value: form value: form value: nil value: Form over value: 640 @ 0 value: 0 @ 0 value: 640 @ 640].\n" +
+                        "  [:form | blit value: form value: form value: nil value: Form over value: 7 @ 33 value: 0 @ 0 value: 1000 @ 600].\n" +
+                        "  [:form | blit value: form value: form value: nil value: Form over value: 9 @ 0 value: 0 @ 0 value: 1000 @ 640].\n" +
+                        "  [:form | blit value: form value: form value: nil value: Form blend value: 0 @ 0 value: 3 @ 40 value: 1000 @ 600]}.\n" +
+                        "Smalltalk at: #BitBltBandsTest put: (cases collect: [:case | | banded sequential |\n" +
+                        "  banded := base deepCopy. sequential := base deepCopy. {case value: banded. case value: sequential. banded. sequential. base}]).\n" +
+                        "cases size");
+        try {
+            for (int i = 1; i <= numCases; i++) {
+                final String testCase = "((Smalltalk at: #BitBltBandsTest) at: " + i + ")";
+                new BitBlt(true).primitiveCopyBits((PointersObject) evaluate(testCase + " first"), -1L);
+                new BitBlt(false).primitiveCopyBits((PointersObject) evaluate(testCase + " second"), -1L);
+                assertEquals("case " + i, "#(true false)", evaluate("{" + testCase + " third bits = " + testCase + " fourth bits. " +
+                                testCase + " third bits = (" + testCase + " at: 5) bits} printString").toString());
+            }
+        } finally {
+            evaluate("Smalltalk removeKey: #BitBltBandsTest");
+        }
+    }
+
+    @Test
+    public void test22BalloonTiles() {
+        // Renders a Balloon scene in parallel tiles and sequentially, which must give the same bits.
+        Assume.assumeTrue("requires parallelism", ForkJoinPool.getCommonPoolParallelism() > 1);
+        final String render = "| form canvas fill |\n" +
+                        "form := Form extent: 500 @ 600 depth: 32. form fillColor: Color white.\n" +
+                        "canvas := form getCanvas asBalloonCanvas.\n" +
+                        "fill := GradientFillStyle ramp: {0.0 -> Color red. 0.5 -> Color green. 1.0 -> Color blue}.\n" +
+                        "fill origin: 20 @ 30; direction: 400 @ 500.\n" +
+                        "#(1 4) do: [:aaLevel | canvas aaLevel: aaLevel.\n" +
+                        "  canvas fillRectangle: (20 @ 30 corner: 420 @ 530) fillStyle: fill.\n" +
+                        "  canvas drawOval: (50 @ 40 extent: 400 @ 520) color: (Color blue alpha: 0.5) borderWidth: 7 borderColor: Color black.\n" +
+                        "  canvas drawPolygon: {10 @ 590. 250 @ 5. 490 @ 590. 250 @ 300} color: (Color yellow alpha: 0.7) borderWidth: 3 borderColor: Color red.\n" +
+                        "  canvas flush].\n" +
+                        "form bits";
+        try {
+            image.b2d.setUseTiles(false);
+            final int[] sequential = ((NativeObject) compilerEvaluate(render)).getIntStorage().clone();
+            image.b2d.setUseTiles(true);
+            final int[] tiled = ((NativeObject) compilerEvaluate(render)).getIntStorage();
+            assertTrue(Arrays.stream(sequential).distinct().count() > 100);
+            assertArrayEquals(sequential, tiled);
+        } finally {
+            image.b2d.setUseTiles(image.options.useBalloonTiles);
+        }
+    }
+
+    @Test
+    public void test23BitBltFastPaths() {
+        // Blits 32-bit forms with and without the fast paths for store, paint, and alpha blend, which
+        // must give the same bits. Includes fills and overlapping copies within one form.
+        final long numCases = (long) compilerEvaluate("| random source base blit color cases |\n" +
+                        "random := Random seed: 41.\n" +
+                        "source := Form extent: 200 @ 150 depth: 32. base := Form extent: 200 @ 150 depth: 32.\n" +
+                        "{source. base} do: [:form | 1 to: form bits size do: [:i |\n" +
+                        "  form bits at: i put: (i \\\\ 5 = 0 ifTrue: [0] ifFalse: [(random nextInt: 16r100000000) - 1])]].\n" +
+                        "blit := [:form :sourceForm :fillColor :rule :destOrigin :sourceOrigin :extent | BitBlt destForm: form sourceForm: sourceForm\n" +
+                        "  fillColor: fillColor combinationRule: rule destOrigin: destOrigin sourceOrigin: sourceOrigin extent: extent clipRect: form boundingBox].\n" +
+                        "color := Color r: 1 g: 0.5 b: 0 alpha: 0.6.\n" +
+                        "cases := OrderedCollection new.\n" +
+                        "{Form over. Form blend. Form paint. Form blendAlphaScaled} do: [:rule |\n" +
+                        "  cases\n" +
+                        "    add: [:form | blit value: form value: source value: nil value: rule value: 5 @ 3 value: 0 @ 0 value: 150 @ 140];\n" +
+                        "    add: [:form | blit value: form value: nil value: (rule = Form paint ifTrue: [Color blue] ifFalse: [color]) value: rule value: 3 @ 2 value: 0 @ 0 value: 190 @ 140];\n" +
+                        "    add: [:form | blit value: form value: form value: nil value: rule value: 9 @ 0 value: 0 @ 0 value: 180 @ 150];\n" +
+                        "    add: [:form | blit value: form value: form value: nil value: rule value: 0 @ 0 value: 4 @ 0 value: 190 @ 150];\n" +
+                        "    add: [:form | blit value: form value: form value: nil value: rule value: 0 @ 7 value: 0 @ 0 value: 200 @ 140];\n" +
+                        "    add: [:form | blit value: form value: form value: nil value: rule value: 0 @ 0 value: 3 @ 5 value: 190 @ 140]].\n" +
+                        "Smalltalk at: #BitBltFastPathsTest put: (cases collect: [:case | | fast generic |\n" +
+                        "  fast := base deepCopy. generic := base deepCopy. {case value: fast. case value: generic. fast. generic. base}]).\n" +
+                        "cases size");
+        try {
+            for (int i = 1; i <= numCases; i++) {
+                final String testCase = "((Smalltalk at: #BitBltFastPathsTest) at: " + i + ")";
+                new BitBlt(false, true).primitiveCopyBits((PointersObject) evaluate(testCase + " first"), -1L);
+                new BitBlt(false, false).primitiveCopyBits((PointersObject) evaluate(testCase + " second"), -1L);
+                assertEquals("case " + i, "#(true false)", evaluate("{" + testCase + " third bits = " + testCase + " fourth bits. " +
+                                testCase + " third bits = (" + testCase + " at: 5) bits} printString").toString());
+            }
+        } finally {
+            evaluate("Smalltalk removeKey: #BitBltFastPathsTest");
+        }
+    }
+
+    private static Object kernelsEvaluate(final String expression) {
+        return compilerEvaluate("| arrays | arrays := Smalltalk at: #NumericKernelsTest. " + expression);
+    }
+
+    private static double[] randomKernelValues(final Random random, final int size, final boolean isFloat32) {
+        final double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = roundKernelValue(random.nextDouble() * 2 - 1, isFloat32);
+        }
+        return values;
+    }
+
+    private static double roundKernelValue(final double value, final boolean isFloat32) {
+        return isFloat32 ? (float) value : value;
+    }
+
+    private static double[] getKernelValues(final int index) {
+        final NativeObject array = (NativeObject) evaluate("(Smalltalk at: #NumericKernelsTest) at: " + index);
+        if (array.isIntType()) {
+            return Arrays.stream(array.getIntStorage()).mapToDouble(Float::intBitsToFloat).toArray();
+        } else {
+            return Arrays.stream(array.getLongStorage()).mapToDouble(Double::longBitsToDouble).toArray();
+        }
+    }
+
+    private static void setKernelValues(final int index, final double[] values) {
+        final NativeObject array = (NativeObject) evaluate("(Smalltalk at: #NumericKernelsTest) at: " + index);
+        for (int i = 0; i < values.length; i++) {
+            if (array.isIntType()) {
+                array.getIntStorage()[i] = Float.floatToRawIntBits((float) values[i]);
+            } else {
+                array.getLongStorage()[i] = Double.doubleToRawLongBits(values[i]);
+            }
+        }
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.test;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares plugin primitives with the Smalltalk code they replace. The benchmarks only run if the
+ * system property `squeakBenchmarks` is set to `true`. They check that both variants answer the
+ * same results and report their timings, but never fail because of timings.
+ */
+public class SqueakBenchmarks extends AbstractSqueakTestCaseWithImage {
+    private static final String BENCHMARKS_PROPERTY = "squeakBenchmarks";
+
+    @BeforeClass
+    public static void loadTestImage() {
+        Assume.assumeTrue("benchmarks are disabled", Boolean.getBoolean(BENCHMARKS_PROPERTY));
+        AbstractSqueakTestCaseWithImage.loadTestImage();
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        if (image != null) {
+            AbstractSqueakTestCaseWithImage.cleanUp();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        restorePatchedMethods();
+    }
+
+    @Test
+    public void testSqueakSSLLoopback() {
+        // Measures handshakes and transfers between two SqueakSSL instances, without any sockets involved.
+        final Object result = compilerEvaluate("| handshakes bytes handshakeTime transferTime client server in out plain count |\n" +
+                        "handshakes := 50. bytes := 0.\n" +
+                        "in := ByteArray new: 32768. out := ByteArray new: 32768. plain := ByteArray new: 16000 withAll: 42.\n" +
+                        "handshakeTime := [1 to: handshakes do: [:i |\n" +
+                        "  client := SqueakSSL new. server := SqueakSSL new. server certName: SqueakSSL ensureSampleCert.\n" +
+                        "  count := client connect: in from: 1 to: 0 into: out.\n" +
+                        "  [count > 0] whileTrue: [\n" +
+                        "    count := server accept: out from: 1 to: count into: in.\n" +
+                        "    count > 0 ifTrue: [count := client connect: in from: 1 to: count into: out]].\n" +
+                        "  (client isConnected and: [server isConnected]) ifFalse: [client destroy. server destroy. ^ 'handshake failed'].\n" +
+                        "  i < handshakes ifTrue: [client destroy. server destroy]]] timeToRun.\n" +
+                        "transferTime := [1000 timesRepeat: [\n" +
+                        "  count := client encrypt: plain from: 1 to: plain size into: out.\n" +
+                        "  bytes := bytes + (server decrypt: out from: 1 to: count into: in)]] timeToRun.\n" +
+                        "(in first: plain size) = plain ifFalse: [bytes := -1].\n" +
+                        "client destroy. server destroy.\n" +
+                        "bytes = (1000 * plain size) ifFalse: [^ 'transfer failed'].\n" +
+                        "(handshakes * 1000 // (handshakeTime max: 1)) printString, ' handshakes/sec; ',\n" +
+                        "(bytes * 1000 // (transferTime max: 1) // 1048576) printString, ' MiB/sec'");
+        assertTrue(result.toString(), result.toString().contains("handshakes/sec"));
+        image.getOutput().println("SqueakSSL loopback: " + result);
+    }
+
+    @Test
+    public void testNumericKernels() {
+        // Compares NumericKernelsPlugin primitives against the equivalent Smalltalk loops.
+        final String module = "NumericKernelsPlugin";
+        patchPluginMethod("FloatArray", "kernelAxpy: alpha x: x", module, "primitiveAxpy");
+        patchPluginMethod("FloatArray", "kernelArgMax", module, "primitiveArgMax");
+        patchPluginMethod("FloatArray", "kernelPrefixSum", module, "primitivePrefixSum");
+        patchPluginMethod("FloatArray", "kernelMultiply: a by: b rows: m inner: k columns: n", module, "primitiveMatrixMultiply");
+        final Object result = compilerEvaluate("| size x y a b bench report axpy argMax prefixSum multiply |\n" +
+                        "size := 100000. x := FloatArray new: size. y := FloatArray new: size.\n" +
+                        "1 to: size do: [:i | x at: i put: i \\\\ 97 / 7.0. y at: i put: i \\\\ 89 / 3.0].\n" +
+                        "a := FloatArray new: 64 * 64. b := FloatArray new: 64 * 64.\n" +
+                        "1 to: a size do: [:i | a at: i put: i \\\\ 13 / 5.0. b at: i put: i \\\\ 17 / 3.0].\n" +
+                        "axpy := {[:z | z kernelAxpy: 0.5 x: x]. [:z | 1 to: size do: [:i | z at: i put: (z at: i) + (0.5 * (x at: i))]. z]}.\n" +
+                        "argMax := {[:z | z kernelArgMax]. [:z | | max index | max := z at: 1. index := 1.\n" +
+                        "  2 to: size do: [:i | (z at: i) > max ifTrue: [max := z at: i. index := i]]. index]}.\n" +
+                        "prefixSum := {[:z | z kernelPrefixSum]. [:z | | sum | sum := 0.0. 1 to: size do: [:i | sum := sum + (z at: i). z at: i put: sum]. z]}.\n" +
+                        "multiply := {[:z | (FloatArray new: 64 * 64) kernelMultiply: a by: b rows: 64 inner: 64 columns: 64]. [:z | | c sum |\n" +
+                        "  c := FloatArray new: 64 * 64.\n" +
+                        "  0 to: 63 do: [:i | 0 to: 63 do: [:j | sum := 0.0.\n" +
+                        "    0 to: 63 do: [:p | sum := sum + ((a at: i * 64 + p + 1) * (b at: p * 64 + j + 1))].\n" +
+                        "    c at: i * 64 + j + 1 put: sum]]. c]}.\n" +
+                        /* Warm up both variants, check that they agree, then measure microseconds per operation. */
+                        "bench := [:pair | | times |\n" +
+                        "  10 timesRepeat: [pair do: [:block | block value: y copy]].\n" +
+                        "  ((pair first value: y copy) = (pair last value: y copy)) ifFalse: [^ 'results differ'].\n" +
+                        "  times := pair collect: [:block | ([50 timesRepeat: [block value: y copy]] timeToRun * 1000 / 50) rounded].\n" +
+                        "  times first printString, ' us vs. ', times last printString, ' us'].\n" +
+                        "report := WriteStream on: String new.\n" +
+                        "#('axpy' 'argMax' 'prefixSum' 'multiply 64x64') with: {axpy. argMax. prefixSum. multiply} do: [:name :pair |\n" +
+                        "  report nextPutAll: name; nextPutAll: ': '; nextPutAll: (bench value: pair); nextPutAll: '; '].\n" +
+                        "report contents");
+        assertTrue(result.toString(), result.toString().startsWith("axpy: "));
+        image.getOutput().println("NumericKernelsPlugin (primitive vs. Smalltalk): " + result);
+    }
+
+    @Test
+    public void testZipStreams() {
+        // Compares the ZipPlugin stream primitives with ZipWriteStream and ZipReadStream, which use the ported Zip code.
+        final String module = "ZipPlugin";
+        patchPluginMethod("ZipWriteStream class", "graalDeflaterCreate: level", module, "primitiveDeflaterCreate");
+        patchPluginMethod("ZipWriteStream class", "graalInflaterCreate", module, "primitiveInflaterCreate");
+        patchPluginMethod("ZipWriteStream class", "graalStream: handle setInput: bytes from: start to: stop", module, "primitiveZipStreamSetInput");
+        patchPluginMethod("ZipWriteStream class", "graalStream: handle process: bytes from: start to: stop finish: finish", module, "primitiveZipStreamProcess");
+        patchPluginMethod("ZipWriteStream class", "graalStreamStatus: handle", module, "primitiveZipStreamStatus");
+        patchPluginMethod("ZipWriteStream class", "graalStreamClose: handle", module, "primitiveZipStreamClose");
+        final Object result = compilerEvaluate("| size words random out data run portedDeflate portedInflate streamDeflate streamInflate portedDeflated streamDeflated times |\n" +
+                        "size := 4 * 1048576. words := #('the' 'quick' 'brown' 'fox' 'jumps' 'over' 'lazy' 'dog' 'squeak' 'graal' 'truffle' 'zip' '1234567890').\n" +
+                        "random := Random seed: 42. out := WriteStream on: (ByteArray new: size).\n" +
+                        "[out position < size] whileTrue: [out nextPutAll: (words atRandom: random) asByteArray; nextPut: 32].\n" +
+                        "data := out contents.\n" +
+                        /* Drains a stream in chunks until it has finished, failing instead of looping if an inflater runs out of input. */
+                        "run := [:handle :finish | | buffer result count |\n" +
+                        "  handle = #failed ifTrue: [^ 'primitives failed'].\n" +
+                        "  buffer := ByteArray new: 65536. result := WriteStream on: (ByteArray new: 65536).\n" +
+                        "  [((ZipWriteStream graalStreamStatus: handle) at: 2) = 1] whileFalse: [\n" +
+                        "    count := ZipWriteStream graalStream: handle process: buffer from: 1 to: buffer size finish: finish.\n" +
+                        "    (count = 0 and: [((ZipWriteStream graalStreamStatus: handle) at: 1) = 1]) ifTrue: [^ 'stream needs more input'].\n" +
+                        "    result next: count putAll: buffer startingAt: 1].\n" +
+                        "  ZipWriteStream graalStreamClose: handle.\n" +
+                        "  result contents].\n" +
+                        "portedDeflate := [:bytes | | stream | stream := WriteStream on: (ByteArray new: 65536).\n" +
+                        "  (ZipWriteStream on: stream) nextPutAll: bytes; close. stream contents].\n" +
+                        "portedInflate := [:bytes | (ZipReadStream on: bytes) upToEnd asByteArray].\n" +
+                        "streamDeflate := [:bytes | | handle | handle := ZipWriteStream graalDeflaterCreate: 6.\n" +
+                        "  ZipWriteStream graalStream: handle setInput: bytes from: 1 to: bytes size. run value: handle value: true].\n" +
+                        "streamInflate := [:bytes | | handle | handle := ZipWriteStream graalInflaterCreate.\n" +
+                        "  ZipWriteStream graalStream: handle setInput: bytes from: 1 to: bytes size. run value: handle value: false].\n" +
+                        /* Each inflater must restore the output of either deflater. */
+                        "portedDeflated := portedDeflate value: data. streamDeflated := streamDeflate value: data.\n" +
+                        "{portedInflate. streamInflate} do: [:inflate |\n" +
+                        "  {portedDeflated. streamDeflated} do: [:deflated | (inflate value: deflated) = data ifFalse: [^ 'round trip failed']]].\n" +
+                        "times := {[portedDeflate value: data]. [streamDeflate value: data]. [portedInflate value: portedDeflated]. [streamInflate value: streamDeflated]}\n" +
+                        "  collect: [:block | block timeToRun].\n" +
+                        "(size // 1048576) printString, ' MiB, deflate: ', (times at: 1) printString, ' ms vs. ', (times at: 2) printString,\n" +
+                        "' ms (', portedDeflated size printString, ' vs. ', streamDeflated size printString, ' bytes); inflate: ',\n" +
+                        "(times at: 3) printString, ' ms vs. ', (times at: 4) printString, ' ms'");
+        assertTrue(result.toString(), result.toString().contains(" MiB, deflate: "));
+        image.getOutput().println("ZipPlugin (ported Zip code vs. streams): " + result);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.hpi.swa.graal.squeak.io.DamageRegion;
+import de.hpi.swa.graal.squeak.io.DamageRegion.Rectangle;
+
+/**
+ * Tests that the damage region of the framebuffer display coalesces rectangles without losing any
+ * damaged pixel and clips them to the framebuffer when taken.
+ */
+public class SqueakDamageRegionTest {
+    private static final int SIZE = 256;
+
+    private static void assertRectangle(final int left, final int top, final int right, final int bottom, final Rectangle rectangle) {
+        assertEquals(left, rectangle.getLeft());
+        assertEquals(top, rectangle.getTop());
+        assertEquals(right, rectangle.getRight());
+        assertEquals(bottom, rectangle.getBottom());
+    }
+
+    private static boolean covers(final Rectangle[] rectangles, final int x, final int y) {
+        for (final Rectangle rectangle : rectangles) {
+            if (rectangle.getLeft() <= x && x < rectangle.getRight() && rectangle.getTop() <= y && y < rectangle.getBottom()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testEmptyRectanglesAreIgnored() {
+        final DamageRegion damage = new DamageRegion();
+        damage.add(10, 10, 10, 20);
+        damage.add(10, 20, 20, 10);
+        assertTrue(damage.isEmpty());
+        assertNull(damage.getBounds());
+        assertEquals(0, damage.take(SIZE, SIZE).length);
+    }
+
+    @Test
+    public void testOverlappingAndTouchingRectanglesAreCoalesced() {
+        final DamageRegion damage = new DamageRegion();
+        damage.add(0, 0, 10, 10);
+        damage.add(5, 5, 15, 15);
+        damage.add(15, 0, 20, 5);
+        damage.add(100, 100, 110, 110);
+        final Rectangle[] rectangles = damage.take(SIZE, SIZE);
+        assertEquals(2, rectangles.length);
+        final boolean isFirst = rectangles[0].getLeft() == 0;
+        assertRectangle(0, 0, 20, 15, rectangles[isFirst ? 0 : 1]);
+        assertRectangle(100, 100, 110, 110, rectangles[isFirst ? 1 : 0]);
+        assertTrue(damage.isEmpty());
+    }
+
+    @Test
+    public void testUnionAbsorbsRectanglesItReaches() {
+        /* The third rectangle joins the first two, whose union then reaches the last one. */
+        final DamageRegion damage = new DamageRegion();
+        damage.add(0, 0, 10, 10);
+        damage.add(20, 0, 30, 10);
+        damage.add(40, 5, 50, 15);
+        damage.add(10, 0, 20, 5);
+        damage.add(30, 5, 40, 6);
+        final Rectangle[] rectangles = damage.take(SIZE, SIZE);
+        assertEquals(1, rectangles.length);
+        assertRectangle(0, 0, 50, 15, rectangles[0]);
+    }
+
+    @Test
+    public void testCheapestPairIsMergedBeyondLimit() {
+        final DamageRegion damage = new DamageRegion();
+        for (int i = 0; i < DamageRegion.MAX_RECTANGLES; i++) {
+            damage.add(i * 30, 0, i * 30 + 10, 10);
+        }
+        /* Just below the last rectangle, so merging with it adds less area than any other pair. */
+        final int last = (DamageRegion.MAX_RECTANGLES - 1) * 30;
+        damage.add(last, 11, last + 10, 21);
+        final Rectangle[] rectangles = damage.take(SIZE, SIZE);
+        assertEquals(DamageRegion.MAX_RECTANGLES, rectangles.length);
+        for (final Rectangle rectangle : rectangles) {
+            if (rectangle.getLeft() == last) {
+                assertRectangle(last, 0, last + 10, 21, rectangle);
+            } else {
+                assertEquals(10, rectangle.getWidth());
+                assertEquals(10, rectangle.getHeight());
+            }
+        }
+    }
+
+    @Test
+    public void testTakeClipsAndDropsRectangles() {
+        final DamageRegion damage = new DamageRegion();
+        damage.add(-5, -5, 10, 10);
+        damage.add(SIZE - 10, 50, SIZE + 10, 60);
+        damage.add(SIZE + 10, 0, SIZE + 20, 10);
+        assertRectangle(-5, -5, SIZE + 20, 60, damage.getBounds());
+        final Rectangle[] rectangles = damage.take(SIZE, SIZE);
+        assertEquals(2, rectangles.length);
+        final boolean isFirst = rectangles[0].getLeft() == 0;
+        assertRectangle(0, 0, 10, 10, rectangles[isFirst ? 0 : 1]);
+        assertRectangle(SIZE - 10, 50, SIZE, 60, rectangles[isFirst ? 1 : 0]);
+        assertTrue(damage.isEmpty());
+    }
+
+    @Test
+    public void testRandomDamageIsCovered() {
+        final Random random = new Random(11);
+        for (int run = 0; run < 200; run++) {
+            final DamageRegion damage = new DamageRegion();
+            final boolean[] damaged = new boolean[SIZE * SIZE];
+            final int numRectangles = random.nextInt(40) + 1;
+            for (int i = 0; i < numRectangles; i++) {
+                final int left = random.nextInt(SIZE);
+                final int top = random.nextInt(SIZE);
+                final int right = Math.min(left + random.nextInt(32), SIZE);
+                final int bottom = Math.min(top + random.nextInt(32), SIZE);
+                damage.add(left, top, right, bottom);
+                for (int y = top; y < bottom; y++) {
+                    for (int x = left; x < right; x++) {
+                        damaged[y * SIZE + x] = true;
+                    }
+                }
+            }
+            final Rectangle[] rectangles = damage.take(SIZE, SIZE);
+            assertTrue(rectangles.length <= DamageRegion.MAX_RECTANGLES);
+            for (int y = 0; y < SIZE; y++) {
+                for (int x = 0; x < SIZE; x++) {
+                    if (damaged[y * SIZE + x]) {
+                        assertTrue("run " + run + ": " + x + "@" + y, covers(rectangles, x, y));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.Test;
+
+import de.hpi.swa.graal.squeak.nodes.plugins.JPEGDecoder;
+
+/**
+ * Tests the JPEG decoder against the JPEG reader of the JDK on baseline and progressive images, and
+ * its scaled output against averages of the full-size output.
+ */
+public class SqueakJPEGDecoderTest {
+
+    /*
+     * Gradients and a disk, plus stripes and a sawtooth in green so that all frequencies occur. Gray
+     * is green. Color images omit the stripes, whose subsampled chroma the JDK interpolates.
+     */
+    private static BufferedImage createImage(final int width, final int height, final int type) {
+        final BufferedImage image = new BufferedImage(width, height, type);
+        final boolean isGray = type == BufferedImage.TYPE_BYTE_GRAY;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int red = x * 255 / width;
+                final int dx = x - width / 2;
+                final int dy = y - height / 3;
+                final int stripes = isGray ? (x / 2 + y / 3) % 2 * 96 : 0;
+                final int green = dx * dx + dy * dy < width * height / 8 ? 200 : stripes + (x + 2 * y) % 64 + y * 64 / height;
+                final int blue = y * 255 / height;
+                if (isGray) {
+                    image.getRaster().setSample(x, y, 0, green);
+                } else {
+                    image.setRGB(x, y, red << 16 | green << 8 | blue);
+                }
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encode(final BufferedImage image, final boolean isProgressive) throws IOException {
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        final ImageWriteParam param = writer.getDefaultWriteParam();
+        if (isProgressive) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(0.9f);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static int[] decode(final byte[] jpeg, final int scale) {
+        final JPEGDecoder decoder = new JPEGDecoder(jpeg, scale);
+        final int[] pixels = new int[decoder.getWidth() * decoder.getHeight()];
+        decoder.decodeInto(pixels);
+        return pixels;
+    }
+
+    private static int[] decodeWithImageIO(final byte[] jpeg) throws IOException {
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg));
+        final int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            /* Use the samples, as getRGB converts gray from a linear color space. */
+            final int[] samples = image.getRaster().getSamples(0, 0, image.getWidth(), image.getHeight(), 0, (int[]) null);
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = 0xFF000000 | samples[i] * 0x010101;
+            }
+        }
+        return pixels;
+    }
+
+    /* Averages each scale x scale square of pixels, per channel. */
+    private static int[] downscale(final int[] pixels, final int width, final int height, final int scale) {
+        final int[] result = new int[width / scale * (height / scale)];
+        for (int y = 0; y < height / scale; y++) {
+            for (int x = 0; x < width / scale; x++) {
+                int pixel = 0xFF000000;
+                for (int shift = 0; shift < 24; shift += 8) {
+                    int sum = 0;
+                    for (int j = 0; j < scale; j++) {
+                        for (int i = 0; i < scale; i++) {
+                            sum += pixels[(y * scale + j) * width + x * scale + i] >> shift & 0xFF;
+                        }
+                    }
+                    pixel |= (sum + scale * scale / 2) / (scale * scale) << shift;
+                }
+                result[y * (width / scale) + x] = pixel;
+            }
+        }
+        return result;
+    }
+
+    /* Asserts that channels differ by at most maxDifference and on average by at most meanDifference. */
+    private static void assertSimilar(final String message, final int[] expected, final int[] actual, final int maxDifference, final double meanDifference) {
+        assertEquals(message, expected.length, actual.length);
+        long sum = 0;
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(message, 0xFF, actual[i] >>> 24);
+            for (int shift = 0; shift < 24; shift += 8) {
+                final int difference = Math.abs((expected[i] >> shift & 0xFF) - (actual[i] >> shift & 0xFF));
+                assertTrue(message + ": pixel " + i + " differs by " + difference, difference <= maxDifference);
+                sum += difference;
+            }
+        }
+        final double mean = (double) sum / (expected.length * 3);
+        assertTrue(message + ": mean difference " + mean, mean <= meanDifference);
+    }
+
+    @Test
+    public void testBaselineGray() throws IOException {
+        final byte[] jpeg = encode(createImage(123, 77, BufferedImage.TYPE_BYTE_GRAY), false);
+        final JPEGDecoder decoder = new JPEGDecoder(jpeg, 1);
+        assertEquals(123, decoder.getWidth());
+        assertEquals(77, decoder.getHeight());
+        assertSimilar("baseline gray", decodeWithImageIO(jpeg), decode(jpeg, 1), 2, 0.5);
+    }
+
+    @Test
+    public void testBaselineColor() throws IOException {
+        final byte[] jpeg = encode(createImage(123, 77, BufferedImage.TYPE_INT_RGB), false);
+        /* The JDK interpolates subsampled chroma, the decoder replicates it. */
+        assertSimilar("baseline color", decodeWithImageIO(jpeg), decode(jpeg, 1), 48, 3);
+    }
+
+    @Test
+    public void testProgressive() throws IOException {
+        for (final int type : new int[]{BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_RGB}) {
+            final BufferedImage image = createImage(123, 77, type);
+            final byte[] progressive = encode(image, true);
+            /* Progressive scans encode the same coefficients as a baseline scan. */
+            assertArrayEquals(decode(encode(image, false), 1), decode(progressive, 1));
+            assertSimilar("progressive", decodeWithImageIO(progressive), decode(progressive, 1), type == BufferedImage.TYPE_BYTE_GRAY ? 2 : 48, 3);
+        }
+    }
+
+    @Test
+    public void testScaled() throws IOException {
+        for (final boolean isProgressive : new boolean[]{false, true}) {
+            final byte[] jpeg = encode(createImage(160, 96, BufferedImage.TYPE_BYTE_GRAY), isProgressive);
+            final int[] full = decode(jpeg, 1);
+            for (int scale = 2; scale <= 8; scale *= 2) {
+                final JPEGDecoder decoder = new JPEGDecoder(jpeg, scale);
+                assertEquals(160 / scale, decoder.getWidth());
+                assertEquals(96 / scale, decoder.getHeight());
+                assertSimilar("scale " + scale, downscale(full, 160, 96, scale), decode(jpeg, scale), 4, 0.5);
+            }
+        }
+    }
+}
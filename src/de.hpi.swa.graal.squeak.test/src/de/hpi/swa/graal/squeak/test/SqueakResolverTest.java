@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.hpi.swa.graal.squeak.nodes.plugins.network.Resolver;
+import de.hpi.swa.graal.squeak.nodes.plugins.network.Resolver.NameService;
+import de.hpi.swa.graal.squeak.nodes.plugins.network.Resolver.Status;
+
+/** Tests the SocketPlugin resolver against a hosts file instead of the system name service. */
+public class SqueakResolverTest {
+    private static final String HOSTS = String.join("\n",
+                    "# Stand-in for /etc/hosts",
+                    "127.0.0.1   localhost",
+                    "10.0.0.1    alpha.example.test alpha",
+                    "10.0.0.2    beta.example.test",
+                    "");
+    private static final int SEMAPHORE_INDEX = 7;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final HostsFile hostsFile = new HostsFile(HOSTS);
+    private final Semaphore signals = new Semaphore(0);
+    /* Failed assertions on the resolver thread would go unnoticed, so check the indices here. */
+    private final ConcurrentLinkedQueue<Integer> signaledIndices = new ConcurrentLinkedQueue<>();
+    private Resolver resolver;
+
+    private static final class HostsFile implements NameService {
+        private final Map<String, byte[]> addresses = new HashMap<>();
+        private final Map<String, String> names = new HashMap<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+        private volatile CountDownLatch gate = null;
+
+        private HostsFile(final String contents) {
+            for (final String line : contents.split("\n")) {
+                final String[] fields = line.replaceAll("#.*", "").trim().split("\\s+");
+                if (fields.length < 2) {
+                    continue;
+                }
+                try {
+                    final InetAddress address = InetAddress.getByName(fields[0]); /* Literal. */
+                    names.put(address.getHostAddress(), fields[1]);
+                    for (int i = 1; i < fields.length; i++) {
+                        addresses.put(fields[i], address.getAddress());
+                    }
+                } catch (final UnknownHostException e) {
+                    throw new IllegalArgumentException(e);
+                }
+            }
+        }
+
+        @Override
+        public byte[] lookupAddress(final String hostName) throws UnknownHostException {
+            awaitGate();
+            lookups.incrementAndGet();
+            final byte[] address = addresses.get(hostName);
+            if (address == null) {
+                throw new UnknownHostException(hostName);
+            }
+            return address;
+        }
+
+        @Override
+        public String lookupName(final byte[] address) throws UnknownHostException {
+            awaitGate();
+            lookups.incrementAndGet();
+            final String name = names.get(InetAddress.getByAddress(address).getHostAddress());
+            if (name == null) {
+                throw new UnknownHostException();
+            }
+            return name;
+        }
+
+        private void awaitGate() {
+            final CountDownLatch currentGate = gate;
+            if (currentGate != null) {
+                try {
+                    currentGate.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private Resolver createResolver(final long timeToLiveMillis) {
+        resolver = new Resolver(hostsFile, index -> {
+            signaledIndices.add(index);
+            signals.release();
+        }, timeToLiveMillis);
+        resolver.setSemaphoreIndex(SEMAPHORE_INDEX);
+        return resolver;
+    }
+
+    private void awaitSignal() throws InterruptedException {
+        assertTrue("Resolver semaphore not signaled", signals.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(SEMAPHORE_INDEX), signaledIndices.poll());
+    }
+
+    @After
+    public void shutdownResolver() {
+        if (resolver != null) {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testNameLookup() throws InterruptedException {
+        createResolver(Resolver.DEFAULT_TIME_TO_LIVE_MILLIS).startNameLookup("alpha");
+        awaitSignal();
+        assertEquals(Status.Ready, resolver.getStatus());
+        assertArrayEquals(new byte[]{10, 0, 0, 1}, resolver.getNameLookupResult());
+    }
+
+    @Test
+    public void testAddressLookup() throws InterruptedException {
+        createResolver(Resolver.DEFAULT_TIME_TO_LIVE_MILLIS).startAddressLookup(new byte[]{10, 0, 0, 2});
+        awaitSignal();
+        assertEquals(Status.Ready, resolver.getStatus());
+        assertEquals("beta.example.test", resolver.getAddressLookupResult());
+    }
+
+    @Test
+    public void testUnknownHost() throws InterruptedException {
+        createResolver(Resolver.DEFAULT_TIME_TO_LIVE_MILLIS).startNameLookup("gamma.example.test");
+        awaitSignal();
+        assertEquals(Status.Error, resolver.getStatus());
+        assertNull(resolver.getNameLookupResult());
+    }
+
+    @Test
+    public void testLookupDoesNotBlock() throws InterruptedException {
+        hostsFile.gate = new CountDownLatch(1);
+        createResolver(Resolver.DEFAULT_TIME_TO_LIVE_MILLIS).startNameLookup("alpha");
+        assertEquals(Status.Busy, resolver.getStatus());
+        assertNull(resolver.getNameLookupResult());
+        hostsFile.gate.countDown();
+        awaitSignal();
+        assertEquals(Status.Ready, resolver.getStatus());
+    }
+
+    @Test
+    public void testSupersededLookupIsDropped() throws InterruptedException {
+        hostsFile.gate = new CountDownLatch(1);
+        createResolver(Resolver.DEFAULT_TIME_TO_LIVE_MILLIS).startNameLookup("alpha");
+        resolver.startNameLookup("beta.example.test");
+        hostsFile.gate.countDown();
+        awaitSignal();
+        assertArrayEquals(new byte[]{10, 0, 0, 2}, resolver.getNameLookupResult());
+        /* The first lookup completes as well, but must neither signal nor overwrite the result. */
+        assertFalse(signals.tryAcquire(200, TimeUnit.MILLISECONDS));
+        assertArrayEquals(new byte[]{10, 0, 0, 2}, resolver.getNameLookupResult());
+    }
+
+    @Test
+    public void testCachedLookup() throws InterruptedException {
+        createResolver(Resolver.DEFAULT_TIME_TO_LIVE_MILLIS).startNameLookup("alpha.example.test");
+        awaitSignal();
+        resolver.startNameLookup("alpha.example.test");
+        awaitSignal();
+        assertArrayEquals(new byte[]{10, 0, 0, 1}, resolver.getNameLookupResult());
+        assertEquals(1, hostsFile.lookups.get());
+        /* Callers may modify the result without affecting the cache. */
+        resolver.getNameLookupResult()[0] = 0;
+        resolver.startNameLookup("alpha.example.test");
+        awaitSignal();
+        assertArrayEquals(new byte[]{10, 0, 0, 1}, resolver.getNameLookupResult());
+    }
+
+    @Test
+    public void testExpiredLookup() throws InterruptedException {
+        createResolver(0).startAddressLookup(new byte[]{127, 0, 0, 1});
+        awaitSignal();
+        resolver.startAddressLookup(new byte[]{127, 0, 0, 1});
+        awaitSignal();
+        assertEquals("localhost", resolver.getAddressLookupResult());
+        assertEquals(2, hostsFile.lookups.get());
+    }
+}
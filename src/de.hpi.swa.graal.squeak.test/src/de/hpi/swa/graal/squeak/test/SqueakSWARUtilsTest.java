@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.hpi.swa.graal.squeak.nodes.plugins.MiscPrimitivePlugin.PrimFindSubstringNode;
+import de.hpi.swa.graal.squeak.nodes.plugins.MiscPrimitivePlugin.PrimStringHashNode;
+import de.hpi.swa.graal.squeak.nodes.primitives.impl.ArithmeticPrimitives.PrimHashMultiplyNode;
+import de.hpi.swa.graal.squeak.util.SWARUtils;
+
+/**
+ * Tests the word-wise scans of SWARUtils and the string primitives built on them against byte-wise
+ * loops, on random bytes from few distinct values with unaligned starts and tails.
+ */
+public class SqueakSWARUtilsTest {
+    private static final int RUNS = 2000;
+
+    private static byte[] randomBytes(final Random random, final int length, final byte[] alphabet) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return bytes;
+    }
+
+    /* A few letters in both cases, and bytes with the high bit set, which the zero-byte test must not confuse. */
+    private static byte[] randomAlphabet(final Random random) {
+        final byte[] letters = {'a', 'b', 'A', 'B', (byte) 0x80, (byte) 0xFF, 0, 1};
+        final byte[] alphabet = new byte[random.nextInt(letters.length - 1) + 2];
+        for (int i = 0; i < alphabet.length; i++) {
+            alphabet[i] = letters[random.nextInt(letters.length)];
+        }
+        return alphabet;
+    }
+
+    /* Same as String>>#findSubstring:in:startingAt:matchTable:. */
+    private static long findSubstringLoop(final byte[] key, final byte[] body, final long start, final byte[] matchTable) {
+        for (long startIndex = Math.max(start, 1); startIndex <= body.length - key.length + 1; startIndex++) {
+            int index = 0;
+            while (matchTable[body[(int) startIndex - 1 + index] & 0xFF] == matchTable[key[index] & 0xFF]) {
+                if (++index == key.length) {
+                    return startIndex;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /* Same as ByteString class>>#stringHash:initialHash:. */
+    private static long hashLoop(final long initialHash, final byte[] bytes) {
+        long hash = initialHash & PrimHashMultiplyNode.HASH_MULTIPLY_MASK;
+        for (final byte value : bytes) {
+            hash = (hash + (value & 0xFF)) * PrimHashMultiplyNode.HASH_MULTIPLY_CONSTANT & PrimHashMultiplyNode.HASH_MULTIPLY_MASK;
+        }
+        return hash;
+    }
+
+    private static byte[] caseSensitiveTable() {
+        final byte[] table = new byte[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) i;
+        }
+        return table;
+    }
+
+    private static byte[] caseInsensitiveTable() {
+        final byte[] table = caseSensitiveTable();
+        for (int i = 'A'; i <= 'Z'; i++) {
+            table[i] = (byte) (i - 'A' + 'a');
+        }
+        return table;
+    }
+
+    @Test
+    public void testLittleEndianWords() {
+        final byte[] bytes = new byte[19];
+        for (int index = 0; index <= bytes.length - Long.BYTES; index++) {
+            SWARUtils.putLongLittleEndian(bytes, index, 0x0807060504030201L);
+            for (int i = 0; i < Long.BYTES; i++) {
+                assertEquals(i + 1, bytes[index + i]);
+            }
+            assertEquals(0x0807060504030201L, SWARUtils.getLongLittleEndian(bytes, index));
+        }
+        assertEquals(0xABABABABABABABABL, SWARUtils.broadcast(0x1AB));
+    }
+
+    @Test
+    public void testIndexOfMatchesLoop() {
+        final Random random = new Random(5);
+        for (int run = 0; run < RUNS; run++) {
+            final byte[] alphabet = randomAlphabet(random);
+            final byte[] bytes = randomBytes(random, random.nextInt(80), alphabet);
+            final int start = random.nextInt(bytes.length + 1);
+            final int end = start + random.nextInt(bytes.length - start + 1);
+            final int value1 = alphabet[random.nextInt(alphabet.length)] & 0xFF;
+            final int value2 = random.nextInt(256);
+            int expected1 = -1;
+            int expectedEither = -1;
+            for (int i = end - 1; i >= start; i--) {
+                if ((bytes[i] & 0xFF) == value1) {
+                    expected1 = i;
+                    expectedEither = i;
+                } else if ((bytes[i] & 0xFF) == value2) {
+                    expectedEither = i;
+                }
+            }
+            assertEquals("run " + run, expected1, SWARUtils.indexOf(bytes, value1, start, end));
+            assertEquals("run " + run, expectedEither, SWARUtils.indexOfEither(bytes, value1, value2, start, end));
+            assertEquals("run " + run, expectedEither, SWARUtils.indexOfEither(bytes, value2, value1, start, end));
+        }
+    }
+
+    @Test
+    public void testMismatchMatchesLoop() {
+        final Random random = new Random(6);
+        for (int run = 0; run < RUNS; run++) {
+            final byte[] bytes1 = randomBytes(random, random.nextInt(80), randomAlphabet(random));
+            final byte[] bytes2 = bytes1.clone();
+            final int length = random.nextInt(bytes1.length + 1);
+            if (bytes2.length > 0 && random.nextBoolean()) {
+                bytes2[random.nextInt(bytes2.length)] ^= 1 << random.nextInt(8);
+            }
+            int expected = 0;
+            while (expected < length && bytes1[expected] == bytes2[expected]) {
+                expected++;
+            }
+            assertEquals("run " + run, expected, SWARUtils.mismatch(bytes1, bytes2, length));
+        }
+    }
+
+    @Test
+    public void testFindSubstringMatchesLoop() {
+        /* Bodies exceed the threshold of the word-wise searches, keys of 8 or more bytes use Horspool. */
+        final Random random = new Random(7);
+        final byte[][] matchTables = {caseSensitiveTable(), caseInsensitiveTable()};
+        for (int run = 0; run < RUNS; run++) {
+            final byte[] alphabet = randomAlphabet(random);
+            final byte[] body = randomBytes(random, random.nextInt(300), alphabet);
+            final byte[] key;
+            if (body.length > 0 && random.nextBoolean()) {
+                /* A slice of the body, perhaps with some letters in the other case. */
+                final int offset = random.nextInt(body.length);
+                final byte[] slice = new byte[random.nextInt(Math.min(body.length - offset, 20)) + 1];
+                System.arraycopy(body, offset, slice, 0, slice.length);
+                for (int i = 0; i < slice.length; i++) {
+                    if (Character.isLetter(slice[i]) && random.nextInt(4) == 0) {
+                        slice[i] ^= 'a' - 'A';
+                    }
+                }
+                key = slice;
+            } else {
+                key = randomBytes(random, random.nextInt(random.nextBoolean() ? 3 : 20) + 1, alphabet);
+            }
+            final long start = random.nextInt(body.length + 3) - 1;
+            for (final byte[] matchTable : matchTables) {
+                assertEquals("run " + run, findSubstringLoop(key, body, start, matchTable), PrimFindSubstringNode.findSubstring(key, body, start, matchTable));
+            }
+        }
+        final byte[] body = randomBytes(random, 200, new byte[]{'a'});
+        assertEquals(0L, PrimFindSubstringNode.findSubstring(new byte[]{'a'}, body, Integer.MAX_VALUE + 2L, matchTables[0]));
+        assertEquals(1L, PrimFindSubstringNode.findSubstring(new byte[]{'a'}, body, Integer.MIN_VALUE - 2L, matchTables[0]));
+    }
+
+    @Test
+    public void testHashMatchesLoop() {
+        final Random random = new Random(8);
+        for (int run = 0; run < RUNS; run++) {
+            final byte[] bytes = new byte[random.nextInt(40)];
+            random.nextBytes(bytes);
+            final long initialHash = random.nextBoolean() ? random.nextInt() : random.nextLong();
+            assertEquals("run " + run, hashLoop(initialHash, bytes), PrimStringHashNode.calculateHash(initialHash, bytes));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.hpi.swa.graal.squeak.nodes.plugins.ZipStreams;
+
+/**
+ * Tests the deflate streams and checksums of the Zip plugin against the JDK and against the
+ * checksum loops of the ported DeflatePlugin.
+ */
+public class SqueakZipStreamsTest {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int GZIP_HEADER_SIZE = 10;
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final long[] CRC_TABLE = new long[256];
+
+    private final ZipStreams streams = new ZipStreams();
+
+    static {
+        for (int n = 0; n < CRC_TABLE.length; n++) {
+            long crc = n;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) != 0 ? 0xEDB88320L ^ crc >>> 1 : crc >>> 1;
+            }
+            CRC_TABLE[n] = crc;
+        }
+    }
+
+    /* Same as DeflatePlugin>>#primitiveUpdateGZipCrc32. */
+    private static long updateCrc32Loop(final long crc, final byte[] bytes, final int offset, final int length) {
+        long result = crc;
+        for (int i = offset; i < offset + length; i++) {
+            result = CRC_TABLE[(int) ((result ^ Byte.toUnsignedInt(bytes[i])) & 0xFF)] ^ result >> 8;
+        }
+        return result;
+    }
+
+    /* Same as DeflatePlugin>>#primitiveUpdateAdler32. */
+    private static long updateAdler32Loop(final long adler32, final byte[] bytes, final int offset, final int length) {
+        int s1 = (int) (adler32 & 0xFFFF);
+        int s2 = (int) (adler32 >> 16 & 0xFFFF);
+        for (int i = offset; i < offset + length; i++) {
+            s1 = (s1 + Byte.toUnsignedInt(bytes[i])) % 65521;
+            s2 = (s2 + s1) % 65521;
+        }
+        return (long) s2 << 16 | s1;
+    }
+
+    /* Text-like data that compresses to about a tenth. */
+    private static byte[] createArchiveContents(final int size) {
+        final Random random = new Random(42);
+        final String[] words = {"Squeak ", "Smalltalk ", "Monticello ", "package ", "class ", "method ", "category ", "\n"};
+        final byte[] bytes = new byte[size];
+        int i = 0;
+        while (i < size) {
+            final String word = random.nextInt(32) == 0 ? Integer.toString(random.nextInt()) : words[random.nextInt(words.length)];
+            for (int j = 0; j < word.length() && i < size; j++) {
+                bytes[i++] = (byte) word.charAt(j);
+            }
+        }
+        return bytes;
+    }
+
+    private byte[] deflate(final byte[] data, final int level) {
+        final long handle = streams.createDeflater(level);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        for (int offset = 0; offset < data.length; offset += CHUNK_SIZE) {
+            streams.setInput(handle, data, offset, Math.min(CHUNK_SIZE, data.length - offset));
+            while (streams.status(handle)[0] == 0) {
+                output.write(buffer, 0, streams.process(handle, buffer, 0, buffer.length, false));
+            }
+        }
+        while (streams.status(handle)[1] == 0) {
+            output.write(buffer, 0, streams.process(handle, buffer, 0, buffer.length, true));
+        }
+        streams.close(handle);
+        return output.toByteArray();
+    }
+
+    /* Inflates the deflate data between a GZip header and trailer, answering the trailer size. */
+    private long inflate(final byte[] gzipData, final ByteArrayOutputStream output) {
+        final long handle = streams.createInflater();
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        int offset = GZIP_HEADER_SIZE;
+        while (streams.status(handle)[1] == 0) {
+            if (streams.status(handle)[0] == 1) {
+                final int length = Math.min(CHUNK_SIZE, gzipData.length - offset);
+                streams.setInput(handle, gzipData, offset, length);
+                offset += length;
+            }
+            output.write(buffer, 0, streams.process(handle, buffer, 0, buffer.length, false));
+        }
+        final long remaining = streams.status(handle)[2] + gzipData.length - offset;
+        streams.close(handle);
+        return remaining;
+    }
+
+    private static byte[] wrapInGZip(final byte[] deflateData, final byte[] data) {
+        final long crc = ~ZipStreams.updateGZipCrc32(0xFFFFFFFFL, data, 0, data.length) & 0xFFFFFFFFL;
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(new byte[]{0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF}, 0, GZIP_HEADER_SIZE);
+        output.write(deflateData, 0, deflateData.length);
+        for (int i = 0; i < 4; i++) {
+            output.write((int) (crc >> 8 * i));
+        }
+        for (int i = 0; i < 4; i++) {
+            output.write(data.length >> 8 * i);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] readFully(final InputStream input) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        int count;
+        while ((count = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, count);
+        }
+        return output.toByteArray();
+    }
+
+    @After
+    public void shutdownStreams() {
+        streams.shutdown();
+    }
+
+    @Test
+    public void testChecksumsMatchLoops() {
+        final Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            final byte[] bytes = new byte[random.nextInt(4096) + 16];
+            random.nextBytes(bytes);
+            final int offset = random.nextInt(16);
+            final int length = random.nextInt(bytes.length - offset + 1);
+            final long crc = i == 0 ? 0xFFFFFFFFL : random.nextInt() & 0xFFFFFFFFL;
+            assertEquals(updateCrc32Loop(crc, bytes, offset, length), ZipStreams.updateGZipCrc32(crc, bytes, offset, length));
+            final long adler32 = i == 0 ? 1 : (long) random.nextInt(65521) << 16 | random.nextInt(65521);
+            assertEquals(updateAdler32Loop(adler32, bytes, offset, length), ZipStreams.updateAdler32(adler32, bytes, offset, length));
+        }
+    }
+
+    @Test
+    public void testDeflateIsReadableByGZip() throws IOException {
+        final byte[] data = createArchiveContents(4 * 1024 * 1024);
+        final byte[] gzipData = wrapInGZip(deflate(data, 6), data);
+        assertArrayEquals(data, readFully(new GZIPInputStream(new ByteArrayInputStream(gzipData))));
+    }
+
+    @Test
+    public void testInflateGZipArchive() throws IOException {
+        final byte[] data = createArchiveContents(4 * 1024 * 1024);
+        final ByteArrayOutputStream gzipData = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipData)) {
+            gzip.write(data);
+        }
+        final ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+        assertEquals(GZIP_TRAILER_SIZE, inflate(gzipData.toByteArray(), inflated));
+        assertArrayEquals(data, inflated.toByteArray());
+    }
+}
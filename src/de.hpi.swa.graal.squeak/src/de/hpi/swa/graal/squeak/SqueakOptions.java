@@ -26,12 +26,30 @@ public final class SqueakOptions {
     @Option(name = SqueakLanguageOptions.IMAGE_ARGUMENTS, category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.IMAGE_ARGUMENTS_HELP)//
     public static final OptionKey<String> ImageArguments = new OptionKey<>("");
 
+    @Option(name = SqueakLanguageOptions.BALLOON_TILES, category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.BALLOON_TILES_HELP)//
+    public static final OptionKey<Boolean> BalloonTiles = new OptionKey<>(false);
+
+    @Option(name = SqueakLanguageOptions.BITBLT_BANDS, category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.BITBLT_BANDS_HELP)//
+    public static final OptionKey<Boolean> BitBltBands = new OptionKey<>(false);
+
+    @Option(name = SqueakLanguageOptions.FRAMEBUFFER, category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.FRAMEBUFFER_HELP)//
+    public static final OptionKey<Boolean> Framebuffer = new OptionKey<>(false);
+
     @Option(name = SqueakLanguageOptions.HEADLESS, category = OptionCategory.USER, stability = OptionStability.STABLE, help = SqueakLanguageOptions.HEADLESS_HELP)//
     public static final OptionKey<Boolean> Headless = new OptionKey<>(false);
 
     @Option(name = SqueakLanguageOptions.INTERCEPT_MESSAGES, category = OptionCategory.INTERNAL, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.INTERCEPT_MESSAGES_HELP)//
     public static final OptionKey<String> InterceptMessages = new OptionKey<>("");
 
+    @Option(name = SqueakLanguageOptions.LAYOUT_STATISTICS, category = OptionCategory.INTERNAL, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.LAYOUT_STATISTICS_HELP)//
+    public static final OptionKey<String> LayoutStatistics = new OptionKey<>("");
+
+    @Option(name = SqueakLanguageOptions.MAX_FRAME_RATE, category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.MAX_FRAME_RATE_HELP)//
+    public static final OptionKey<Integer> MaxFrameRate = new OptionKey<>(60);
+
+    @Option(name = SqueakLanguageOptions.PROFILE_ALLOCATIONS, category = OptionCategory.INTERNAL, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.PROFILE_ALLOCATIONS_HELP)//
+    public static final OptionKey<Boolean> ProfileAllocations = new OptionKey<>(false);
+
     @Option(name = SqueakLanguageOptions.QUIET, category = OptionCategory.USER, stability = OptionStability.STABLE, help = SqueakLanguageOptions.QUIET_HELP)//
     public static final OptionKey<Boolean> Quiet = new OptionKey<>(false);
 
@@ -58,7 +76,11 @@ public final class SqueakOptions {
         public final String imagePath;
         public final String[] imageArguments;
         public final boolean isHeadless;
+        public final boolean useFramebuffer;
         public final boolean isQuiet;
+        public final int maxFrameRate;
+        public final boolean useBalloonTiles;
+        public final boolean useBitBltBands;
         public final boolean disableInterruptHandler;
         public final boolean enableStackDepthProtection;
         public final boolean isTesting;
@@ -69,7 +91,11 @@ public final class SqueakOptions {
             imagePath = options.get(ImagePath);
             imageArguments = options.get(ImageArguments).isEmpty() ? new String[0] : options.get(ImageArguments).split(",");
             isHeadless = options.get(Headless);
+            useFramebuffer = options.get(Framebuffer);
             isQuiet = options.get(Quiet);
+            maxFrameRate = options.get(MaxFrameRate);
+            useBalloonTiles = options.get(BalloonTiles);
+            useBitBltBands = options.get(BitBltBands);
             disableInterruptHandler = options.get(Interrupts);
             signalInputSemaphore = options.get(SignalInputSemaphore);
             enableStackDepthProtection = options.get(StackDepthProtection);
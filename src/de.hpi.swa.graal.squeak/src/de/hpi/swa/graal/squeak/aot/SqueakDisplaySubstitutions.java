@@ -68,6 +68,8 @@ final class Target_de_hpi_swa_graal_squeak_io_SqueakDisplay implements SqueakDis
     @CompilationFinal private int inputSemaphoreIndex;
     private boolean deferUpdates = false;
     private boolean textureDirty = false;
+    private final long frameIntervalMillis;
+    private long lastRenderMillis = 0;
     private int width;
     private int height;
     private int bpp = 4; // TODO: for 32bit only!
@@ -80,6 +82,7 @@ final class Target_de_hpi_swa_graal_squeak_io_SqueakDisplay implements SqueakDis
 
     Target_de_hpi_swa_graal_squeak_io_SqueakDisplay(final SqueakImageContext image) {
         this.image = image;
+        frameIntervalMillis = image.options.maxFrameRate > 0 ? 1000 / image.options.maxFrameRate : 0;
         sdlAssert(SDL.init(SDL.initVideo()) == 0);
 
         // Do not wait for vsync.
@@ -106,21 +109,30 @@ final class Target_de_hpi_swa_graal_squeak_io_SqueakDisplay implements SqueakDis
     @Override
     public void showDisplayBitsLeftTopRightBottom(final PointersObject destForm, final int left, final int top, final int right, final int bottom) {
         if (left < right && top < bottom && !deferUpdates && destForm.isDisplay()) {
-            paintImmediately(left, right, top, bottom);
+            addDamage(left, right, top, bottom);
         }
     }
 
     @Override
     public void showDisplayRect(final int left, final int right, final int top, final int bottom) {
         assert left < right && top < bottom;
-        paintImmediately(left, right, top, bottom);
+        addDamage(left, right, top, bottom);
     }
 
-    private void paintImmediately(final int left, final int right, final int top, final int bottom) {
-        copyPixels(left + top * width, right + bottom * width);
+    /*
+     * Damage is accumulated and drawn at most once per frame interval. Pending damage is drawn
+     * when the image polls for events.
+     */
+    private void addDamage(final int left, final int right, final int top, final int bottom) {
         recordDamage(left, top, right - left, bottom - top);
         textureDirty = true;
-        render(true);
+        renderIfDue();
+    }
+
+    private void renderIfDue() {
+        if (textureDirty && System.currentTimeMillis() - lastRenderMillis >= frameIntervalMillis) {
+            render(true);
+        }
     }
 
     @Override
@@ -211,6 +223,7 @@ final class Target_de_hpi_swa_graal_squeak_io_SqueakDisplay implements SqueakDis
     @Override
     @TruffleBoundary
     public void pollEvents() {
+        renderIfDue();
         while (SDL.pollEvent(event) != 0) {
             final long time = getEventTime();
             final int eventType = event.type();
@@ -334,18 +347,15 @@ final class Target_de_hpi_swa_graal_squeak_io_SqueakDisplay implements SqueakDis
         return successful;
     }
 
-    private void copyPixels(final int start, final int stop) {
-        final int offset = start * bpp;
-        assert offset >= 0;
-        final int remainingSize = width * height * bpp - offset;
-        if (remainingSize <= 0 || start >= stop) {
-            image.printToStdOut("remainingSize <= 0", remainingSize <= 0, "start >= stop", start >= stop);
+    /* Copies the damaged area of the display bitmap into the texture. */
+    private void copyPixels() {
+        if (renderRect.getw() <= 0 || renderRect.geth() <= 0) {
             return;
         }
         final int[] pixels = bitmap.getIntStorage();
         try (PinnedObject pinnedPixels = PinnedObject.create(pixels)) {
-            final VoidPointer surfaceBufferPointer = pinnedPixels.addressOfArrayElement(0);
-            SDL.updateTexture(texture, nullRect, surfaceBufferPointer, width * bpp);
+            final VoidPointer surfaceBufferPointer = pinnedPixels.addressOfArrayElement(renderRect.gety() * width + renderRect.getx());
+            SDL.updateTexture(texture, renderRect, surfaceBufferPointer, width * bpp);
         }
     }
 
@@ -354,6 +364,8 @@ final class Target_de_hpi_swa_graal_squeak_io_SqueakDisplay implements SqueakDis
             return;
         }
         textureDirty = false;
+        lastRenderMillis = System.currentTimeMillis();
+        copyPixels();
         unlock();
         if (!sdlError(SDL.renderCopy(renderer, texture, renderRect, renderRect) == 0)) {
             return;
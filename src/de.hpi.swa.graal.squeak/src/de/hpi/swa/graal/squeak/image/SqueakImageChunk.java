@@ -15,6 +15,7 @@ import de.hpi.swa.graal.squeak.model.ClassObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
 import de.hpi.swa.graal.squeak.model.EmptyObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.FloatObject;
 import de.hpi.swa.graal.squeak.model.LargeIntegerObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
@@ -105,7 +106,7 @@ public final class SqueakImageChunk {
             } else if (format == 4) { // indexable weak fields
                 object = new WeakVariablePointersObject(image, hash, squeakClass);
             } else if (format == 5) { // fixed weak fields
-                throw SqueakException.create("Ephemerons not (yet) supported");
+                object = new EphemeronObject(image, hash, squeakClass);
             } else if (format <= 8) {
                 assert false : "Should never happen (unused format)";
             } else if (format == 9) { // 64-bit integers
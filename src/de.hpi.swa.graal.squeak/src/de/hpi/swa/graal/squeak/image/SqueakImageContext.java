@@ -34,6 +34,7 @@ import de.hpi.swa.graal.squeak.interop.LookupMethodByStringNode;
 import de.hpi.swa.graal.squeak.io.DisplayPoint;
 import de.hpi.swa.graal.squeak.io.SqueakDisplay;
 import de.hpi.swa.graal.squeak.io.SqueakDisplayInterface;
+import de.hpi.swa.graal.squeak.io.SqueakFramebufferDisplay;
 import de.hpi.swa.graal.squeak.model.AbstractSqueakObject;
 import de.hpi.swa.graal.squeak.model.AbstractSqueakObjectWithClassAndHash;
 import de.hpi.swa.graal.squeak.model.ArrayObject;
@@ -46,6 +47,7 @@ import de.hpi.swa.graal.squeak.model.ContextObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.model.NilObject;
 import de.hpi.swa.graal.squeak.model.PointersObject;
+import de.hpi.swa.graal.squeak.model.WeakVariablePointersObject.SharedReferenceTable;
 import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.ASSOCIATION;
 import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.CONTEXT;
 import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.ENVIRONMENT;
@@ -58,17 +60,27 @@ import de.hpi.swa.graal.squeak.model.layout.SlotLocation;
 import de.hpi.swa.graal.squeak.nodes.ExecuteTopLevelContextNode;
 import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectReadNode;
 import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectWriteNode;
+import de.hpi.swa.graal.squeak.nodes.plugins.Aio;
 import de.hpi.swa.graal.squeak.nodes.plugins.B2D;
-import de.hpi.swa.graal.squeak.nodes.plugins.BitBlt;
+import de.hpi.swa.graal.squeak.nodes.plugins.DirectoryLookupCache;
 import de.hpi.swa.graal.squeak.nodes.plugins.JPEGReader;
+import de.hpi.swa.graal.squeak.nodes.plugins.OSProcessPipes;
+import de.hpi.swa.graal.squeak.nodes.plugins.SqueakSSL.SessionCaches;
 import de.hpi.swa.graal.squeak.nodes.plugins.SqueakSSL.SqSSL;
 import de.hpi.swa.graal.squeak.nodes.plugins.Zip;
+import de.hpi.swa.graal.squeak.nodes.plugins.ZipStreams;
+import de.hpi.swa.graal.squeak.nodes.plugins.network.Resolver;
+import de.hpi.swa.graal.squeak.nodes.plugins.network.SocketSelector;
 import de.hpi.swa.graal.squeak.nodes.plugins.network.SqueakSocket;
 import de.hpi.swa.graal.squeak.shared.SqueakImageLocator;
 import de.hpi.swa.graal.squeak.shared.SqueakLanguageConfig;
+import de.hpi.swa.graal.squeak.tools.SqueakAllocationProfiler;
+import de.hpi.swa.graal.squeak.tools.SqueakLayoutStatistics;
 import de.hpi.swa.graal.squeak.tools.SqueakMessageInterceptor;
 import de.hpi.swa.graal.squeak.util.ArrayUtils;
+import de.hpi.swa.graal.squeak.util.FinalizationHandler;
 import de.hpi.swa.graal.squeak.util.FrameAccess;
+import de.hpi.swa.graal.squeak.util.GCStatistics;
 import de.hpi.swa.graal.squeak.util.InterruptHandlerState;
 import de.hpi.swa.graal.squeak.util.MiscUtils;
 
@@ -124,11 +136,15 @@ public final class SqueakImageContext {
     private long globalClassCounter = -1;
     @CompilationFinal private SqueakDisplayInterface display;
     public final InterruptHandlerState interrupt;
+    public final FinalizationHandler finalization;
     public final long startUpMillis = System.currentTimeMillis();
     public final ReferenceQueue<Object> weakPointersQueue = new ReferenceQueue<>();
+    public final SharedReferenceTable weakReferences = new SharedReferenceTable(weakPointersQueue);
 
     /* Truffle */
     private final AllocationReporter allocationReporter;
+    public final SqueakAllocationProfiler allocationProfiler;
+    public final SqueakLayoutStatistics layoutStatistics;
     @CompilationFinal public SqueakLanguage.Env env;
     private final SqueakLanguage language;
     private Source lastParseRequestSource;
@@ -147,14 +163,20 @@ public final class SqueakImageContext {
     @CompilationFinal private ClassObject wideStringClass = null;
 
     /* Plugins */
+    public final Aio aio = new Aio(this);
     public final B2D b2d = new B2D(this);
-    public final BitBlt bitblt = new BitBlt();
+    public final DirectoryLookupCache directoryLookupCache = new DirectoryLookupCache();
     public String[] dropPluginFileList = new String[0];
     public final EconomicMap<Long, SeekableByteChannel> filePluginHandles = EconomicMap.create();
     public final JPEGReader jpegReader = new JPEGReader();
+    public final OSProcessPipes osProcessPipes = new OSProcessPipes(this);
     public final EconomicMap<Long, SqueakSocket> socketPluginHandles = EconomicMap.create();
+    public final Resolver socketPluginResolver = new Resolver(this);
+    public final SocketSelector socketPluginSelector = new SocketSelector(this);
     public final EconomicMap<Long, SqSSL> squeakSSLHandles = EconomicMap.create();
+    public final SessionCaches squeakSSLCaches = new SessionCaches();
     public final Zip zip = new Zip();
+    public final ZipStreams zipStreams = new ZipStreams();
 
     /* Error detection for headless execution */
     @CompilationFinal(dimensions = 1) public static final byte[] DEBUG_ERROR_SELECTOR_NAME = "debugError:".getBytes();
@@ -167,9 +189,14 @@ public final class SqueakImageContext {
         patch(environment);
         options = new SqueakContextOptions(env);
         isHeadless = options.isHeadless;
+        b2d.setUseTiles(options.useBalloonTiles);
         interrupt = InterruptHandlerState.create(this);
+        finalization = FinalizationHandler.create(this);
+        GCStatistics.installNotifications();
         allocationReporter = env.lookup(AllocationReporter.class);
         SqueakMessageInterceptor.enableIfRequested(environment);
+        allocationProfiler = SqueakAllocationProfiler.enableIfRequested(environment);
+        layoutStatistics = SqueakLayoutStatistics.createIfRequested(environment);
     }
 
     public void ensureLoaded() {
@@ -391,6 +418,9 @@ public final class SqueakImageContext {
     public void initializeAfterLoadingImage(final ArrayObject theHiddenRoots) {
         assert hiddenRoots == null;
         hiddenRoots = theHiddenRoots;
+        if (layoutStatistics != null) {
+            layoutStatistics.startRecording();
+        }
     }
 
     public ClassObject getForeignObjectClass() {
@@ -525,6 +555,9 @@ public final class SqueakImageContext {
         if (!isHeadless) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
             display = new SqueakDisplay(this);
+        } else if (options.useFramebuffer) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            display = new SqueakFramebufferDisplay(this);
         }
     }
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.io;
+
+import com.oracle.truffle.api.CompilerDirectives.ValueType;
+
+/**
+ * Areas of the display that have changed since they were last taken. Squeak reports damage as many
+ * small, often adjacent or overlapping rectangles. These are coalesced into at most
+ * {@link #MAX_RECTANGLES} rectangles: a new rectangle absorbs all rectangles it overlaps or
+ * touches, and if there are too many rectangles afterwards, the two whose union adds the least area
+ * are merged. Damage may be added and taken from different threads.
+ */
+public final class DamageRegion {
+    public static final int MAX_RECTANGLES = 8;
+    private static final Rectangle[] NO_RECTANGLES = new Rectangle[0];
+
+    /* One spare slot for the rectangle that exceeds the limit before merging. */
+    private final int[] lefts = new int[MAX_RECTANGLES + 1];
+    private final int[] tops = new int[MAX_RECTANGLES + 1];
+    private final int[] rights = new int[MAX_RECTANGLES + 1];
+    private final int[] bottoms = new int[MAX_RECTANGLES + 1];
+    private int count = 0;
+
+    /** Rectangle with exclusive right and bottom coordinates. */
+    @ValueType
+    public static final class Rectangle {
+        private final int left;
+        private final int top;
+        private final int right;
+        private final int bottom;
+
+        public Rectangle(final int left, final int top, final int right, final int bottom) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getTop() {
+            return top;
+        }
+
+        public int getRight() {
+            return right;
+        }
+
+        public int getBottom() {
+            return bottom;
+        }
+
+        public int getWidth() {
+            return right - left;
+        }
+
+        public int getHeight() {
+            return bottom - top;
+        }
+
+        @Override
+        public String toString() {
+            return "Rectangle(" + left + "@" + top + " corner: " + right + "@" + bottom + ")";
+        }
+    }
+
+    public synchronized void add(final int left, final int top, final int right, final int bottom) {
+        if (left >= right || top >= bottom) {
+            return;
+        }
+        int newLeft = left;
+        int newTop = top;
+        int newRight = right;
+        int newBottom = bottom;
+        int i = 0;
+        while (i < count) {
+            if (lefts[i] <= newRight && newLeft <= rights[i] && tops[i] <= newBottom && newTop <= bottoms[i]) {
+                /* Absorb the damaged rectangle and check the remaining ones against the union. */
+                newLeft = Math.min(newLeft, lefts[i]);
+                newTop = Math.min(newTop, tops[i]);
+                newRight = Math.max(newRight, rights[i]);
+                newBottom = Math.max(newBottom, bottoms[i]);
+                remove(i);
+                i = 0;
+            } else {
+                i++;
+            }
+        }
+        lefts[count] = newLeft;
+        tops[count] = newTop;
+        rights[count] = newRight;
+        bottoms[count] = newBottom;
+        count++;
+        if (count > MAX_RECTANGLES) {
+            mergeCheapestPair();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** Answers the bounds of all damage, or `null` if there is none. */
+    public synchronized Rectangle getBounds() {
+        if (count == 0) {
+            return null;
+        }
+        int left = lefts[0];
+        int top = tops[0];
+        int right = rights[0];
+        int bottom = bottoms[0];
+        for (int i = 1; i < count; i++) {
+            left = Math.min(left, lefts[i]);
+            top = Math.min(top, tops[i]);
+            right = Math.max(right, rights[i]);
+            bottom = Math.max(bottom, bottoms[i]);
+        }
+        return new Rectangle(left, top, right, bottom);
+    }
+
+    /**
+     * Answers the damaged rectangles clipped to the given size and clears the damage. Rectangles
+     * that lie outside of the given size are dropped.
+     */
+    public synchronized Rectangle[] take(final int width, final int height) {
+        if (count == 0) {
+            return NO_RECTANGLES;
+        }
+        final Rectangle[] rectangles = new Rectangle[count];
+        int numRectangles = 0;
+        for (int i = 0; i < count; i++) {
+            final int left = Math.max(lefts[i], 0);
+            final int top = Math.max(tops[i], 0);
+            final int right = Math.min(rights[i], width);
+            final int bottom = Math.min(bottoms[i], height);
+            if (left < right && top < bottom) {
+                rectangles[numRectangles++] = new Rectangle(left, top, right, bottom);
+            }
+        }
+        count = 0;
+        if (numRectangles < rectangles.length) {
+            final Rectangle[] clipped = new Rectangle[numRectangles];
+            System.arraycopy(rectangles, 0, clipped, 0, numRectangles);
+            return clipped;
+        }
+        return rectangles;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+    }
+
+    private void remove(final int index) {
+        count--;
+        lefts[index] = lefts[count];
+        tops[index] = tops[count];
+        rights[index] = rights[count];
+        bottoms[index] = bottoms[count];
+    }
+
+    private void mergeCheapestPair() {
+        int bestFirst = 0;
+        int bestSecond = 1;
+        long bestCost = Long.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                final long union = area(Math.min(lefts[i], lefts[j]), Math.min(tops[i], tops[j]), Math.max(rights[i], rights[j]), Math.max(bottoms[i], bottoms[j]));
+                final long cost = union - area(lefts[i], tops[i], rights[i], bottoms[i]) - area(lefts[j], tops[j], rights[j], bottoms[j]);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestFirst = i;
+                    bestSecond = j;
+                }
+            }
+        }
+        lefts[bestFirst] = Math.min(lefts[bestFirst], lefts[bestSecond]);
+        tops[bestFirst] = Math.min(tops[bestFirst], tops[bestSecond]);
+        rights[bestFirst] = Math.max(rights[bestFirst], rights[bestSecond]);
+        bottoms[bestFirst] = Math.max(bottoms[bestFirst], bottoms[bestSecond]);
+        remove(bestSecond);
+    }
+
+    private static long area(final int left, final int top, final int right, final int bottom) {
+        return (long) (right - left) * (bottom - top);
+    }
+}
@@ -9,6 +9,7 @@ import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.color.ColorSpace;
 import java.awt.datatransfer.Clipboard;
@@ -43,6 +44,7 @@ import java.util.concurrent.TimeUnit;
 
 import javax.swing.JComponent;
 import javax.swing.JFrame;
+import javax.swing.Timer;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -80,11 +82,14 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
     public final SqueakImageContext image;
     private final JFrame frame = new JFrame(DEFAULT_WINDOW_TITLE);
     private final Canvas canvas = new Canvas();
-    private boolean hasVisibleHardwareCursor;
     private final SqueakMouse mouse;
     private final SqueakKeyboard keyboard;
     private final ArrayDeque<long[]> deferredEvents = new ArrayDeque<>();
     private final ScheduledExecutorService repaintExecutor;
+    private final DamageRegion damage = new DamageRegion();
+    private final Timer flushTimer;
+    private final int frameIntervalMillis;
+    private volatile long lastFlushMillis = 0;
 
     @CompilationFinal private int inputSemaphoreIndex = -1;
 
@@ -105,6 +110,9 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
         frame.setResizable(true);
 
         installEventListeners();
+        frameIntervalMillis = image.options.maxFrameRate > 0 ? 1000 / image.options.maxFrameRate : 0;
+        flushTimer = new Timer(frameIntervalMillis, e -> flushDamage());
+        flushTimer.setRepeats(false);
         if (REPAINT_AUTOMATICALLY) {
             repaintExecutor = Executors.newSingleThreadScheduledExecutor();
             repaintExecutor.scheduleWithFixedDelay(() -> canvas.repaint(), 0, 20, TimeUnit.MILLISECONDS);
@@ -150,7 +158,15 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
         @Override
         public void paintComponent(final Graphics g) {
             if (bufferedImage != null) {
-                g.drawImage(bufferedImage, 0, 0, null);
+                /* Only draw the area that needs to be repainted. */
+                final Rectangle clip = g.getClipBounds();
+                if (clip == null) {
+                    g.drawImage(bufferedImage, 0, 0, null);
+                } else {
+                    final int right = clip.x + clip.width;
+                    final int bottom = clip.y + clip.height;
+                    g.drawImage(bufferedImage, clip.x, clip.y, right, bottom, clip.x, clip.y, right, bottom, null);
+                }
             }
         }
 
@@ -182,7 +198,7 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
     @TruffleBoundary
     public void showDisplayBitsLeftTopRightBottom(final PointersObject destForm, final int left, final int top, final int right, final int bottom) {
         if (left < right && top < bottom && !deferUpdates && destForm.isDisplay()) {
-            canvas.paintImmediately(left, top, right - left, bottom - top);
+            addDamage(left, top, right, bottom);
         }
     }
 
@@ -190,21 +206,37 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
     @TruffleBoundary
     public void showDisplayRect(final int left, final int right, final int top, final int bottom) {
         assert left < right && top < bottom;
-        /**
-         * {@link Canvas#repaint} informs the repaint manager that the canvas should soon be
-         * repainted which is sufficient in most cases. When the user drags content and the hardware
-         * cursor is invisible, however, it is necessary to {@link Canvas#paintImmediately} which is
-         * expensive but avoids strange visual artifacts.
-         */
-        if (hasVisibleHardwareCursor) {
-            canvas.repaint(0, left, top, right - left, bottom - top);
-        } else {
-            canvas.paintImmediately(left, top, right - left, bottom - top);
+        addDamage(left, top, right, bottom);
+    }
+
+    /*
+     * Squeak reports many small updates per frame. Instead of repainting each of them, they are
+     * accumulated and painted together at most once per frame interval on the AWT thread.
+     */
+    private void addDamage(final int left, final int top, final int right, final int bottom) {
+        damage.add(left, top, right, bottom);
+        if (!flushTimer.isRunning()) {
+            final long remainingMillis = lastFlushMillis + frameIntervalMillis - System.currentTimeMillis();
+            flushTimer.setInitialDelay((int) Math.max(0, Math.min(remainingMillis, frameIntervalMillis)));
+            flushTimer.start();
+        }
+    }
+
+    /*
+     * Paints all damage at once on the AWT thread. Painting immediately (rather than through the
+     * repaint manager) avoids visual artifacts while the user drags content and the hardware cursor
+     * is invisible.
+     */
+    private void flushDamage() {
+        lastFlushMillis = System.currentTimeMillis();
+        for (final DamageRegion.Rectangle rectangle : damage.take(canvas.getWidth(), canvas.getHeight())) {
+            canvas.paintImmediately(rectangle.getLeft(), rectangle.getTop(), rectangle.getWidth(), rectangle.getHeight());
         }
     }
 
     @Override
     public void close() {
+        flushTimer.stop();
         frame.setVisible(false);
         frame.dispose();
     }
@@ -297,14 +329,6 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
                   0        1     invert the underlying pixel
              * </pre>
              */
-            boolean allZero = true;
-            for (final int cursorWord : cursorWords) {
-                if (cursorWord != 0) {
-                    allZero = false;
-                    break;
-                }
-            }
-            hasVisibleHardwareCursor = !allZero;
             final int[] ints;
             if (mask != null) {
                 ints = mergeCursorWithMask(cursorWords, mask);
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.io;
+
+import java.nio.ByteBuffer;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import de.hpi.swa.graal.squeak.exceptions.PrimitiveExceptions.PrimitiveFailed;
+import de.hpi.swa.graal.squeak.exceptions.SqueakExceptions.SqueakException;
+import de.hpi.swa.graal.squeak.image.SqueakImageContext;
+import de.hpi.swa.graal.squeak.io.DamageRegion.Rectangle;
+import de.hpi.swa.graal.squeak.model.NativeObject;
+import de.hpi.swa.graal.squeak.model.PointersObject;
+import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.FORM;
+
+/**
+ * Display for headless execution that renders into memory instead of a window. The display bitmap
+ * is the one of the Squeak display form, and all areas that Squeak reports as changed are tracked
+ * in a {@link DamageRegion}. Hosts poll the damage and copy or encode only the changed pixels,
+ * without AWT being involved. There are no input events.
+ */
+public final class SqueakFramebufferDisplay implements SqueakDisplayInterface {
+    /* Header of an encoded frame and of each of its rectangles, in ints. */
+    private static final int FRAME_HEADER_SIZE = 3;
+    private static final int RECTANGLE_HEADER_SIZE = 4;
+
+    private final DamageRegion damage = new DamageRegion();
+
+    private volatile int[] bits;
+    private volatile int width;
+    private volatile int height;
+    private DisplayPoint windowSize;
+    private boolean isOpen = false;
+    private boolean deferUpdates = false;
+    private String windowTitle = "";
+    private String clipboardData = "";
+
+    public SqueakFramebufferDisplay(final SqueakImageContext image) {
+        windowSize = image.flags.getLastWindowSize();
+    }
+
+    @Override
+    @TruffleBoundary
+    public void showDisplayBitsLeftTopRightBottom(final PointersObject destForm, final int left, final int top, final int right, final int bottom) {
+        if (left < right && top < bottom && !deferUpdates && destForm.isDisplay()) {
+            damage.add(left, top, right, bottom);
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void showDisplayRect(final int left, final int right, final int top, final int bottom) {
+        damage.add(left, top, right, bottom);
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+    }
+
+    @Override
+    public void resizeTo(final int newWidth, final int newHeight) {
+        windowSize = new DisplayPoint(newWidth, newHeight);
+    }
+
+    @Override
+    public DisplayPoint getWindowSize() {
+        return windowSize;
+    }
+
+    @Override
+    public void setFullscreen(final boolean enable) {
+        /* There is no screen to fill. */
+    }
+
+    @Override
+    @TruffleBoundary
+    public void open(final PointersObject sqDisplay) {
+        final NativeObject bitmap = (NativeObject) sqDisplay.instVarAt0Slow(FORM.BITS);
+        if (!bitmap.isIntType()) {
+            throw SqueakException.create("Display bitmap expected to be a words object");
+        }
+        final Object depth = sqDisplay.instVarAt0Slow(FORM.DEPTH);
+        if (!(depth instanceof Long) || (long) depth != 32) {
+            /* Pixels are handed to hosts as ARGB words, so other depths cannot be displayed. */
+            throw PrimitiveFailed.andTransferToInterpreter();
+        }
+        final int newWidth = (int) (long) sqDisplay.instVarAt0Slow(FORM.WIDTH);
+        final int newHeight = (int) (long) sqDisplay.instVarAt0Slow(FORM.HEIGHT);
+        if (newWidth < 0 || newHeight < 0 || (long) newWidth * newHeight > bitmap.getIntLength()) {
+            throw PrimitiveFailed.andTransferToInterpreter();
+        }
+        synchronized (damage) {
+            bits = bitmap.getIntStorage();
+            width = newWidth;
+            height = newHeight;
+            damage.clear();
+            damage.add(0, 0, newWidth, newHeight);
+        }
+        windowSize = new DisplayPoint(newWidth, newHeight);
+        isOpen = true;
+    }
+
+    @Override
+    public boolean isVisible() {
+        return isOpen;
+    }
+
+    @Override
+    public void setCursor(final int[] cursorWords, final int[] mask, final int cursorWidth, final int cursorHeight, final int depth) {
+        /* There is no pointer to show a cursor for. */
+    }
+
+    @Override
+    public long[] getNextEvent() {
+        return null;
+    }
+
+    @Override
+    public void setDeferUpdates(final boolean flag) {
+        deferUpdates = flag;
+    }
+
+    @Override
+    public boolean getDeferUpdates() {
+        return deferUpdates;
+    }
+
+    @Override
+    public void setWindowTitle(final String title) {
+        windowTitle = title;
+    }
+
+    public String getWindowTitle() {
+        return windowTitle;
+    }
+
+    @Override
+    public void setInputSemaphoreIndex(final int interruptSemaphoreIndex) {
+        /* There are no input events to signal. */
+    }
+
+    @Override
+    public String getClipboardData() {
+        return clipboardData;
+    }
+
+    @Override
+    public void setClipboardData(final String text) {
+        clipboardData = text;
+    }
+
+    @Override
+    public void beep() {
+        /* Silence. */
+    }
+
+    @Override
+    public void pollEvents() {
+        /* There are no input events, so getNextEvent always answers none. */
+    }
+
+    /*
+     * Host interface. These methods may be called from any thread, but pixels of areas that Squeak
+     * is drawing into at the same time may be from before or after an update.
+     */
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean hasDamage() {
+        return !damage.isEmpty();
+    }
+
+    /** Answers the coalesced areas that have changed since the last poll. */
+    public Rectangle[] pollDamage() {
+        synchronized (damage) {
+            return damage.take(width, height);
+        }
+    }
+
+    /**
+     * Copies the ARGB pixels of an area into target, starting at offset, with scanlineStride ints
+     * from one row to the next.
+     */
+    public void copyPixels(final Rectangle area, final int[] target, final int offset, final int scanlineStride) {
+        final int[] currentBits;
+        final int currentWidth;
+        final int currentHeight;
+        synchronized (damage) {
+            currentBits = bits;
+            currentWidth = width;
+            currentHeight = height;
+        }
+        if (currentBits == null || area.getLeft() < 0 || area.getTop() < 0 || area.getRight() > currentWidth || area.getBottom() > currentHeight) {
+            throw new IllegalArgumentException("Area outside of framebuffer: " + area);
+        }
+        for (int y = 0; y < area.getHeight(); y++) {
+            System.arraycopy(currentBits, (area.getTop() + y) * currentWidth + area.getLeft(), target, offset + y * scanlineStride, area.getWidth());
+        }
+    }
+
+    /**
+     * Polls the damage and encodes the changed pixels. The frame consists of big-endian ints: the
+     * framebuffer width and height and the number of rectangles, followed by left, top, width, and
+     * height of each rectangle and its ARGB pixels row by row. Answers `null` if nothing changed.
+     */
+    public ByteBuffer encodeDamage() {
+        final Rectangle[] rectangles = pollDamage();
+        if (rectangles.length == 0) {
+            return null;
+        }
+        int numInts = FRAME_HEADER_SIZE;
+        for (final Rectangle rectangle : rectangles) {
+            numInts += RECTANGLE_HEADER_SIZE + rectangle.getWidth() * rectangle.getHeight();
+        }
+        final ByteBuffer frame = ByteBuffer.allocate(numInts * Integer.BYTES);
+        frame.putInt(width).putInt(height).putInt(rectangles.length);
+        int[] pixels = null;
+        for (final Rectangle rectangle : rectangles) {
+            final int numPixels = rectangle.getWidth() * rectangle.getHeight();
+            if (pixels == null || pixels.length < numPixels) {
+                pixels = new int[numPixels];
+            }
+            copyPixels(rectangle, pixels, 0, rectangle.getWidth());
+            frame.putInt(rectangle.getLeft()).putInt(rectangle.getTop()).putInt(rectangle.getWidth()).putInt(rectangle.getHeight());
+            frame.asIntBuffer().put(pixels, 0, numPixels);
+            frame.position(frame.position() + numPixels * Integer.BYTES);
+        }
+        frame.flip();
+        return frame;
+    }
+}
@@ -296,6 +296,7 @@ public final class ArrayObject extends AbstractSqueakObjectWithClassAndHash {
 
     public void transitionFromBooleansToObjects() {
         LOG.finer("transition from Booleans to Objects");
+        recordTransition("booleans", "objects");
         final byte[] booleans = getBooleanStorage();
         final Object[] objects = new Object[booleans.length];
         for (int i = 0; i < booleans.length; i++) {
@@ -306,6 +307,7 @@ public final class ArrayObject extends AbstractSqueakObjectWithClassAndHash {
 
     public void transitionFromCharsToObjects() {
         LOG.finer("transition from Chars to Objects");
+        recordTransition("chars", "objects");
         final char[] chars = getCharStorage();
         final Object[] objects = new Object[chars.length];
         for (int i = 0; i < chars.length; i++) {
@@ -316,6 +318,7 @@ public final class ArrayObject extends AbstractSqueakObjectWithClassAndHash {
 
     public void transitionFromDoublesToObjects() {
         LOG.finer("transition from Doubles to Objects");
+        recordTransition("doubles", "objects");
         final double[] doubles = getDoubleStorage();
         final Object[] objects = new Object[doubles.length];
         for (int i = 0; i < doubles.length; i++) {
@@ -325,34 +328,40 @@ public final class ArrayObject extends AbstractSqueakObjectWithClassAndHash {
     }
 
     public void transitionFromEmptyToBooleans() {
+        recordTransition("empty", "booleans");
         // Zero-initialized, no need to fill with BOOLEAN_NIL_TAG.
         storage = new byte[getEmptyStorage()];
     }
 
     public void transitionFromEmptyToChars() {
+        recordTransition("empty", "chars");
         final char[] chars = new char[getEmptyStorage()];
         Arrays.fill(chars, CHAR_NIL_TAG);
         storage = chars;
     }
 
     public void transitionFromEmptyToDoubles() {
+        recordTransition("empty", "doubles");
         final double[] doubles = new double[getEmptyStorage()];
         Arrays.fill(doubles, DOUBLE_NIL_TAG);
         storage = doubles;
     }
 
     public void transitionFromEmptyToLongs() {
+        recordTransition("empty", "longs");
         final long[] longs = new long[getEmptyStorage()];
         Arrays.fill(longs, LONG_NIL_TAG);
         storage = longs;
     }
 
     public void transitionFromEmptyToObjects() {
+        recordTransition("empty", "objects");
         storage = ArrayUtils.withAll(getEmptyLength(), NilObject.SINGLETON);
     }
 
     public void transitionFromLongsToObjects() {
         LOG.finer("transition from Longs to Objects");
+        recordTransition("longs", "objects");
         final long[] longs = getLongStorage();
         final Object[] objects = new Object[longs.length];
         for (int i = 0; i < longs.length; i++) {
@@ -361,6 +370,12 @@ public final class ArrayObject extends AbstractSqueakObjectWithClassAndHash {
         storage = objects;
     }
 
+    private void recordTransition(final String from, final String to) {
+        if (image.layoutStatistics != null) {
+            image.layoutStatistics.recordArrayTransition(getSqueakClass(), from, to);
+        }
+    }
+
     public void traceObjects(final ObjectTracer tracer) {
         if (isObjectType()) {
             for (final Object value : getObjectStorage()) {
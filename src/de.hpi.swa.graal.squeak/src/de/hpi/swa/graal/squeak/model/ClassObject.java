@@ -35,6 +35,7 @@ import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.CLASS_DESCRIPTION;
 import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.METACLASS;
 import de.hpi.swa.graal.squeak.nodes.ObjectGraphNode.ObjectTracer;
 import de.hpi.swa.graal.squeak.nodes.accessing.SqueakObjectNewNode;
+import de.hpi.swa.graal.squeak.tools.SqueakLayoutStatistics;
 import de.hpi.swa.graal.squeak.util.ArrayUtils;
 
 /*
@@ -274,6 +275,7 @@ public final class ClassObject extends AbstractSqueakObjectWithClassAndHash {
     }
 
     public void setFormat(final long format) {
+        recordInvalidation(SqueakLayoutStatistics.CLASS_FORMAT_STABLE);
         classFormatStable.invalidate();
         this.format = format;
     }
@@ -373,11 +375,13 @@ public final class ClassObject extends AbstractSqueakObjectWithClassAndHash {
     }
 
     public void setSuperclass(final ClassObject superclass) {
+        recordInvalidation(SqueakLayoutStatistics.CLASS_HIERARCHY_STABLE);
         classHierarchyStable.invalidate();
         this.superclass = superclass;
     }
 
     public void setMethodDict(final VariablePointersObject methodDict) {
+        recordInvalidation(SqueakLayoutStatistics.METHOD_DICT_STABLE);
         methodDictStable.invalidate();
         this.methodDict = methodDict;
     }
@@ -470,9 +474,16 @@ public final class ClassObject extends AbstractSqueakObjectWithClassAndHash {
     }
 
     public void invalidateMethodDictStableAssumption() {
+        recordInvalidation(SqueakLayoutStatistics.METHOD_DICT_STABLE);
         methodDictStable.invalidate();
     }
 
+    private void recordInvalidation(final String assumptionName) {
+        if (image.layoutStatistics != null) {
+            image.layoutStatistics.recordInvalidation(this, assumptionName);
+        }
+    }
+
     public Assumption getClassFormatStable() {
         return classFormatStable.getAssumption();
     }
@@ -105,9 +105,10 @@ public final class ContextObject extends AbstractSqueakObjectWithHash {
     }
 
     public static ContextObject create(final MaterializedFrame frame, final CompiledCodeObject blockOrMethod) {
+        blockOrMethod.image.reportNewAllocationRequest();
         final ContextObject context = new ContextObject(blockOrMethod.image, frame, blockOrMethod.getSqueakContextSize());
         FrameAccess.setContext(frame, blockOrMethod, context);
-        return context;
+        return blockOrMethod.image.reportNewAllocationResult(context);
     }
 
     @Override
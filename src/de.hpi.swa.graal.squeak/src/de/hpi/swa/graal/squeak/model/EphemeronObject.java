@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.model;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+import de.hpi.swa.graal.squeak.image.SqueakImageChunk;
+import de.hpi.swa.graal.squeak.image.SqueakImageContext;
+import de.hpi.swa.graal.squeak.image.SqueakImageWriter;
+import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.EPHEMERON;
+import de.hpi.swa.graal.squeak.nodes.ObjectGraphNode.ObjectTracer;
+import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectReadNode;
+import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectWriteNode;
+import de.hpi.swa.graal.squeak.nodes.accessing.SqueakObjectIdentityNode;
+import de.hpi.swa.graal.squeak.nodes.accessing.UpdateSqueakObjectHashNode;
+
+/**
+ * Ephemerons (format 5) hold their key strongly, but the key is excluded from tracing. On a full
+ * garbage collection, {@link de.hpi.swa.graal.squeak.nodes.ObjectGraphNode#executeFindMourners}
+ * traces ephemerons only once their key has been reached through something else. Ephemerons whose
+ * keys are reachable through ephemerons only are then queued as mourners by the
+ * {@link de.hpi.swa.graal.squeak.util.FinalizationHandler}, which signals the finalization
+ * semaphore. As the key is still intact, the image can fetch the mourner with primitive 172 and
+ * finalize the key.
+ */
+public final class EphemeronObject extends AbstractPointersObject {
+    private Object key = NilObject.SINGLETON;
+    /* Set while queued as a mourner, reset when the key is replaced. */
+    private boolean mourned;
+
+    public EphemeronObject(final SqueakImageContext image, final long hash, final ClassObject classObject) {
+        super(image, hash, classObject);
+        image.finalization.registerEphemeron();
+    }
+
+    public EphemeronObject(final SqueakImageContext image, final ClassObject classObject) {
+        super(image, classObject);
+        image.finalization.registerEphemeron();
+    }
+
+    private EphemeronObject(final EphemeronObject original) {
+        super(original);
+        setKey(original.getKey());
+    }
+
+    @Override
+    public void fillin(final SqueakImageChunk chunk) {
+        final AbstractPointersObjectWriteNode writeNode = AbstractPointersObjectWriteNode.getUncached();
+        final Object[] pointersObject = chunk.getPointers();
+        initializeLayoutAndExtensionsUnsafe();
+        setKey(pointersObject[EPHEMERON.KEY]);
+        for (int i = EPHEMERON.KEY + 1; i < pointersObject.length; i++) {
+            writeNode.execute(this, i, pointersObject[i]);
+        }
+        assert size() == pointersObject.length;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public void setKey(final Object value) {
+        key = value;
+        mourned = false;
+    }
+
+    public boolean isMourned() {
+        return mourned;
+    }
+
+    public void setMourned() {
+        mourned = true;
+    }
+
+    public void become(final EphemeronObject other) {
+        becomeLayout(other);
+        final Object otherKey = other.getKey();
+        other.setKey(getKey());
+        setKey(otherKey);
+    }
+
+    @Override
+    public int size() {
+        return instsize();
+    }
+
+    public void pointersBecomeOneWay(final UpdateSqueakObjectHashNode updateHashNode, final Object[] from, final Object[] to, final boolean copyHash) {
+        layoutValuesBecomeOneWay(updateHashNode, from, to, copyHash);
+        final Object currentKey = getKey();
+        for (int i = 0; i < from.length; i++) {
+            if (currentKey == from[i]) {
+                setKey(to[i]);
+                updateHashNode.executeUpdate(from[i], to[i], copyHash);
+            }
+        }
+    }
+
+    public boolean pointsTo(final SqueakObjectIdentityNode identityNode, final ConditionProfile isPrimitiveProfile, final Object thang) {
+        return layoutValuesPointTo(identityNode, isPrimitiveProfile, thang) || identityNode.execute(getKey(), thang);
+    }
+
+    public void copyFrom(final EphemeronObject anotherObject) {
+        copyLayoutValuesFrom(anotherObject);
+        setKey(anotherObject.getKey());
+    }
+
+    public EphemeronObject shallowCopy() {
+        return new EphemeronObject(this);
+    }
+
+    public void traceObjects(final ObjectTracer tracer) {
+        super.traceLayoutObjects(tracer);
+        /* Key excluded from tracing. */
+    }
+
+    @Override
+    public void write(final SqueakImageWriter writerNode) {
+        if (writeHeader(writerNode)) {
+            /*
+             * Since the key is excluded from tracing, ignore (replace with nil) it if it has not
+             * been traced somewhere else.
+             */
+            writerNode.writeObjectIfTracedElseNil(getKey());
+            final AbstractPointersObjectReadNode readNode = AbstractPointersObjectReadNode.getUncached();
+            for (int i = EPHEMERON.KEY + 1; i < instsize(); i++) {
+                writerNode.writeObject(readNode.execute(this, i));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        CompilerAsserts.neverPartOfCompilation();
+        return "[" + getKey() + (mourned ? " (mourned)" : "") + "] a " + getSqueakClassName() + " @" + Integer.toHexString(hashCode());
+    }
+}
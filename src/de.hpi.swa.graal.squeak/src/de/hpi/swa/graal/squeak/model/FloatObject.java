@@ -48,7 +48,8 @@ public final class FloatObject extends AbstractSqueakObjectWithHash {
     }
 
     public static FloatObject valueOf(final SqueakImageContext image, final double value) {
-        return new FloatObject(image, value);
+        image.reportNewAllocationRequest();
+        return image.reportNewAllocationResult(new FloatObject(image, value));
     }
 
     public static Object newFrom(final SqueakImageChunk chunk) {
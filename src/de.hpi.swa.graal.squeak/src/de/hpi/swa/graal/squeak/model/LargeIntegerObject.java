@@ -82,7 +82,7 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary
     public static LargeIntegerObject createLongMinOverflowResult(final SqueakImageContext image) {
-        return new LargeIntegerObject(image, LONG_MIN_OVERFLOW_RESULT);
+        return newFromBigInteger(image, LONG_MIN_OVERFLOW_RESULT);
     }
 
     public static byte[] getLongMinOverflowResultBytes() {
@@ -253,10 +253,15 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
         if (bitLength(value) < Long.SIZE) {
             return value.longValue();
         } else {
-            return new LargeIntegerObject(image, value);
+            return newFromBigInteger(image, value);
         }
     }
 
+    private static LargeIntegerObject newFromBigInteger(final SqueakImageContext image, final BigInteger value) {
+        image.reportNewAllocationRequest();
+        return image.reportNewAllocationResult(new LargeIntegerObject(image, value));
+    }
+
     @TruffleBoundary
     public Object reduceIfPossible() {
         if (bitLength < Long.SIZE) {
@@ -311,7 +316,7 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public static LargeIntegerObject valueOf(final SqueakImageContext image, final long a) {
-        return new LargeIntegerObject(image, BigInteger.valueOf(a));
+        return newFromBigInteger(image, BigInteger.valueOf(a));
     }
 
     public boolean isPositive() {
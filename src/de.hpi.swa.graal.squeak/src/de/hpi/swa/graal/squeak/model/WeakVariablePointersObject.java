@@ -5,11 +5,12 @@
  */
 package de.hpi.swa.graal.squeak.model;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Arrays;
 
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.profiles.BranchProfile;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 
@@ -21,11 +22,19 @@ import de.hpi.swa.graal.squeak.nodes.SqueakGuards;
 import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectWriteNode;
 import de.hpi.swa.graal.squeak.nodes.accessing.SqueakObjectIdentityNode;
 import de.hpi.swa.graal.squeak.nodes.accessing.UpdateSqueakObjectHashNode;
+import de.hpi.swa.graal.squeak.util.ArrayUtils;
 import de.hpi.swa.graal.squeak.util.UnsafeUtils;
 
+/**
+ * The variable part is stored compactly: nil and immediate values (which can never be garbage
+ * collected) are stored directly, Squeak objects are stored as the {@link WeakReference} shared by
+ * all weak slots referring to them. Shared references are looked up in the
+ * {@link SharedReferenceTable} of the image, so that objects do not need a field for them. Copying,
+ * growing, and rehashing weak collections therefore does not allocate new references, and slots of
+ * collected objects are reset to nil when they are accessed.
+ */
 public final class WeakVariablePointersObject extends AbstractPointersObject {
-    private static final WeakReference<?> NIL_REFERENCE = new WeakReference<>(NilObject.SINGLETON);
-    @CompilationFinal(dimensions = 0) private WeakReference<?>[] variablePart;
+    @CompilationFinal(dimensions = 0) private Object[] variablePart;
 
     public WeakVariablePointersObject(final SqueakImageContext image, final long hash, final ClassObject classObject) {
         super(image, hash, classObject);
@@ -33,8 +42,7 @@ public final class WeakVariablePointersObject extends AbstractPointersObject {
 
     public WeakVariablePointersObject(final SqueakImageContext image, final ClassObject classObject, final int variableSize) {
         super(image, classObject);
-        variablePart = new WeakReference<?>[variableSize];
-        Arrays.fill(variablePart, NIL_REFERENCE);
+        variablePart = ArrayUtils.withAll(variableSize, NilObject.SINGLETON);
     }
 
     private WeakVariablePointersObject(final WeakVariablePointersObject original) {
@@ -51,7 +59,7 @@ public final class WeakVariablePointersObject extends AbstractPointersObject {
         for (int i = 0; i < instSize; i++) {
             writeNode.execute(this, i, pointersObject[i]);
         }
-        variablePart = new WeakReference<?>[pointersObject.length - instSize];
+        variablePart = new Object[pointersObject.length - instSize];
         for (int i = instSize; i < pointersObject.length; i++) {
             putIntoVariablePart(i - instSize, pointersObject[i]);
         }
@@ -96,23 +104,40 @@ public final class WeakVariablePointersObject extends AbstractPointersObject {
     }
 
     public Object getFromVariablePart(final int index) {
-        return NilObject.nullToNil(UnsafeUtils.getWeakReference(variablePart, index).get());
+        return getFromVariablePart(index, ConditionProfile.getUncached());
     }
 
     public Object getFromVariablePart(final int index, final ConditionProfile nilProfile) {
-        return NilObject.nullToNil(UnsafeUtils.getWeakReference(variablePart, index).get(), nilProfile);
+        final Object value = UnsafeUtils.getObject(variablePart, index);
+        if (value instanceof WeakReference) {
+            final Object referent = ((WeakReference<?>) value).get();
+            if (nilProfile.profile(referent == null)) {
+                /* Referent has been collected, release the cleared reference. */
+                UnsafeUtils.putObject(variablePart, index, NilObject.SINGLETON);
+                return NilObject.SINGLETON;
+            }
+            return referent;
+        } else {
+            return value;
+        }
     }
 
     private void putIntoVariablePart(final int index, final Object value) {
         putIntoVariablePart(index, value, BranchProfile.getUncached(), ConditionProfile.getUncached());
     }
 
-    public void putIntoVariablePart(final int index, final Object value, final BranchProfile nilProfile, final ConditionProfile primitiveProfile) {
+    public void putIntoVariablePart(final int index, final Object value, final BranchProfile nilProfile, final ConditionProfile weakProfile) {
         if (value == NilObject.SINGLETON) {
             nilProfile.enter();
-            UnsafeUtils.putWeakReference(variablePart, index, NIL_REFERENCE);
+            UnsafeUtils.putObject(variablePart, index, NilObject.SINGLETON);
+        } else if (weakProfile.profile(value instanceof AbstractSqueakObjectWithHash)) {
+            UnsafeUtils.putObject(variablePart, index, image.weakReferences.get((AbstractSqueakObjectWithHash) value));
+        } else if (SqueakGuards.isUsedJavaPrimitive(value) || value instanceof AbstractSqueakObject) {
+            /* Immediates are never garbage collected. */
+            UnsafeUtils.putObject(variablePart, index, value);
         } else {
-            UnsafeUtils.putWeakReference(variablePart, index, new WeakReference<>(value, primitiveProfile.profile(SqueakGuards.isUsedJavaPrimitive(value)) ? null : image.weakPointersQueue));
+            /* Foreign objects cannot share a reference. */
+            UnsafeUtils.putObject(variablePart, index, new WeakReference<>(value, image.weakPointersQueue));
         }
     }
 
@@ -121,8 +146,8 @@ public final class WeakVariablePointersObject extends AbstractPointersObject {
     }
 
     private boolean variablePartPointsTo(final Object thang) {
-        for (final WeakReference<?> weakRef : variablePart) {
-            if (weakRef.get() == thang) {
+        for (int i = 0; i < variablePart.length; i++) {
+            if (getFromVariablePart(i) == thang) {
                 return true;
             }
         }
@@ -156,9 +181,9 @@ public final class WeakVariablePointersObject extends AbstractPointersObject {
         CompilerAsserts.neverPartOfCompilation();
         String prefix = "";
         if (variablePart.length > 0) {
-            final Object referent = variablePart[0].get();
+            final Object referent = variablePart[0] instanceof WeakReference ? ((WeakReference<?>) variablePart[0]).get() : variablePart[0];
             prefix = "[" + referent;
-            if (variablePart[0].isEnqueued()) {
+            if (referent == null) {
                 prefix += " (marked as garbage)";
             }
             if (variablePart.length > 1) {
@@ -169,4 +194,90 @@ public final class WeakVariablePointersObject extends AbstractPointersObject {
         return prefix + " a " + getSqueakClassName() + " @" + Integer.toHexString(hashCode()) + " of size " + variablePart.length;
     }
 
+    /**
+     * Identity hash table with linear probing that maps Squeak objects to the weak reference shared
+     * by all weak slots referring to them. References of collected objects stay in the table until
+     * it fills up, at which point they are all dropped at once before the table is resized.
+     */
+    public static final class SharedReferenceTable {
+        private static final int INITIAL_CAPACITY = 1 << 10;
+
+        private final ReferenceQueue<Object> queue;
+        private SharedReference[] table = new SharedReference[INITIAL_CAPACITY];
+        private int size;
+
+        public SharedReferenceTable(final ReferenceQueue<Object> queue) {
+            this.queue = queue;
+        }
+
+        @TruffleBoundary
+        public WeakReference<Object> get(final AbstractSqueakObjectWithHash referent) {
+            final int hash = System.identityHashCode(referent);
+            int mask = table.length - 1;
+            int index = spread(hash) & mask;
+            SharedReference reference;
+            while ((reference = table[index]) != null) {
+                if (reference.get() == referent) {
+                    return reference;
+                }
+                index = index + 1 & mask;
+            }
+            if (size + 1 > table.length >> 1) {
+                rebuild();
+                mask = table.length - 1;
+                index = spread(hash) & mask;
+                while (table[index] != null) {
+                    index = index + 1 & mask;
+                }
+            }
+            reference = new SharedReference(referent, hash, queue);
+            table[index] = reference;
+            size++;
+            return reference;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /* Drops all cleared references and grows the table if it is still half full. */
+        private void rebuild() {
+            int liveCount = 0;
+            for (final SharedReference reference : table) {
+                if (reference != null && reference.get() != null) {
+                    liveCount++;
+                }
+            }
+            int capacity = INITIAL_CAPACITY;
+            while (capacity < (liveCount + 1) * 4) {
+                capacity <<= 1;
+            }
+            final SharedReference[] newTable = new SharedReference[capacity];
+            final int mask = capacity - 1;
+            for (final SharedReference reference : table) {
+                if (reference != null && reference.get() != null) {
+                    int index = spread(reference.hash) & mask;
+                    while (newTable[index] != null) {
+                        index = index + 1 & mask;
+                    }
+                    newTable[index] = reference;
+                }
+            }
+            table = newTable;
+            size = liveCount;
+        }
+
+        private static int spread(final int hash) {
+            return (hash ^ hash >>> 16) * 0x9E3779B9;
+        }
+    }
+
+    private static final class SharedReference extends WeakReference<Object> {
+        private final int hash;
+
+        private SharedReference(final Object referent, final int hash, final ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = hash;
+        }
+    }
 }
@@ -15,6 +15,7 @@ import com.oracle.truffle.api.Truffle;
 import de.hpi.swa.graal.squeak.exceptions.SqueakExceptions.SqueakException;
 import de.hpi.swa.graal.squeak.model.ClassObject;
 import de.hpi.swa.graal.squeak.model.NilObject;
+import de.hpi.swa.graal.squeak.tools.SqueakLayoutStatistics;
 import de.hpi.swa.graal.squeak.util.ArrayUtils;
 
 public final class ObjectLayout {
@@ -74,6 +75,10 @@ public final class ObjectLayout {
 
         assert !newLocations[index].isUninitialized();
         assert slotLocationsAreConsecutive(newLocations) : "Locations are not consecutive";
+        final SqueakLayoutStatistics statistics = classObject.image.layoutStatistics;
+        if (statistics != null) {
+            statistics.recordLayoutEvolution(classObject, index, getKindName(oldLocation), getKindName(newLocations[index]));
+        }
         return new ObjectLayout(classObject, newLocations);
     }
 
@@ -81,6 +86,22 @@ public final class ObjectLayout {
         CompilerAsserts.neverPartOfCompilation("Should only happen on slow path");
     }
 
+    private static String getKindName(final SlotLocation location) {
+        if (location.isUninitialized()) {
+            return SqueakLayoutStatistics.UNINITIALIZED;
+        } else if (location.isBool()) {
+            return "bool";
+        } else if (location.isChar()) {
+            return "char";
+        } else if (location.isLong()) {
+            return "long";
+        } else if (location.isDouble()) {
+            return "double";
+        } else {
+            return "object";
+        }
+    }
+
     private static void assignGenericLocation(final SlotLocation[] newLocations, final int index) {
         for (final SlotLocation possibleLocation : SlotLocation.OBJECT_LOCATIONS.getValues()) {
             if (!inUse(newLocations, possibleLocation)) {
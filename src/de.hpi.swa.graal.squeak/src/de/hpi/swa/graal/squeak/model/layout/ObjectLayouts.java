@@ -148,6 +148,11 @@ public final class ObjectLayouts {
         public static final int OBSERVERS = 5;
     }
 
+    public static final class EPHEMERON {
+        public static final int KEY = 0;
+        public static final int VALUE = 1;
+    }
+
     public enum ERROR_TABLE {
         GENERIC_ERROR, // nil
         BAD_RECEIVER,
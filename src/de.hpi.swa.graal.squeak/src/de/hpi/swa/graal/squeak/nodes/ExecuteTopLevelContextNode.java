@@ -60,6 +60,15 @@ public final class ExecuteTopLevelContextNode extends RootNode {
             CompilerAsserts.neverPartOfCompilation();
             if (isImageResuming) {
                 image.interrupt.shutdown();
+                image.finalization.shutdown();
+                image.socketPluginResolver.shutdown();
+                image.socketPluginSelector.shutdown();
+                image.osProcessPipes.shutdown();
+                image.zipStreams.shutdown();
+                image.squeakSSLCaches.clear();
+                if (image.layoutStatistics != null) {
+                    image.layoutStatistics.dumpIfRequested();
+                }
                 if (image.hasDisplay()) {
                     image.getDisplay().close();
                 }
@@ -7,6 +7,8 @@ package de.hpi.swa.graal.squeak.nodes;
 
 import java.util.AbstractCollection;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
 
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -27,6 +29,7 @@ import de.hpi.swa.graal.squeak.model.ClassObject;
 import de.hpi.swa.graal.squeak.model.CompiledCodeObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.NilObject;
 import de.hpi.swa.graal.squeak.model.PointersObject;
 import de.hpi.swa.graal.squeak.model.VariablePointersObject;
@@ -110,6 +113,56 @@ public final class ObjectGraphNode extends AbstractNodeWithImage {
         return NilObject.SINGLETON;
     }
 
+    /**
+     * Marks all objects reachable from the roots, but traces an ephemeron only once its key has been
+     * marked through something else. Ephemerons whose keys remain unmarked are reachable through
+     * ephemerons only: they are answered as mourners and then traced like all other objects, so that
+     * ephemerons found through their keys and values are resolved as well. Ephemerons that are
+     * already mourned keep their keys alive until the image replaces them.
+     */
+    @TruffleBoundary
+    public ArrayList<EphemeronObject> executeFindMourners() {
+        final ObjectTracer pending = new ObjectTracer(image);
+        final ArrayList<EphemeronObject> unresolved = new ArrayList<>();
+        final ArrayList<EphemeronObject> mourners = new ArrayList<>();
+        while (true) {
+            AbstractSqueakObjectWithHash currentObject;
+            while ((currentObject = pending.getNextPending()) != null) {
+                if (currentObject.tryToMark(pending.getCurrentMarkingFlag())) {
+                    if (currentObject instanceof EphemeronObject && isUnresolved(pending, (EphemeronObject) currentObject)) {
+                        unresolved.add((EphemeronObject) currentObject);
+                    } else {
+                        pending.tracePointersAndKey(currentObject);
+                    }
+                }
+            }
+            if (unresolved.isEmpty()) {
+                return mourners;
+            }
+            boolean hasResolved = false;
+            for (final Iterator<EphemeronObject> iterator = unresolved.iterator(); iterator.hasNext();) {
+                final EphemeronObject ephemeron = iterator.next();
+                if (!isUnresolved(pending, ephemeron)) {
+                    iterator.remove();
+                    pending.tracePointersAndKey(ephemeron);
+                    hasResolved = true;
+                }
+            }
+            if (!hasResolved) {
+                for (final EphemeronObject ephemeron : unresolved) {
+                    mourners.add(ephemeron);
+                    pending.tracePointersAndKey(ephemeron);
+                }
+                unresolved.clear();
+            }
+        }
+    }
+
+    private static boolean isUnresolved(final ObjectTracer pending, final EphemeronObject ephemeron) {
+        final Object key = ephemeron.getKey();
+        return !ephemeron.isMourned() && key instanceof AbstractSqueakObjectWithHash && !((AbstractSqueakObjectWithHash) key).isMarked(pending.getCurrentMarkingFlag());
+    }
+
     public static final class ObjectTracer {
         /* Power of two, large enough to avoid resizing. */
         private static final int PENDING_INITIAL_SIZE = 1 << 17;
@@ -174,6 +227,13 @@ public final class ObjectGraphNode extends AbstractNodeWithImage {
             return deque.pollFirst();
         }
 
+        private void tracePointersAndKey(final AbstractSqueakObjectWithHash object) {
+            tracePointers(object);
+            if (object instanceof EphemeronObject) {
+                addIfUnmarked(((EphemeronObject) object).getKey());
+            }
+        }
+
         private void tracePointers(final AbstractSqueakObjectWithHash object) {
             addIfUnmarked(object.getSqueakClass());
             if (object instanceof ClassObject) {
@@ -192,6 +252,8 @@ public final class ObjectGraphNode extends AbstractNodeWithImage {
                 ((VariablePointersObject) object).traceObjects(this);
             } else if (object instanceof WeakVariablePointersObject) {
                 ((WeakVariablePointersObject) object).traceObjects(this);
+            } else if (object instanceof EphemeronObject) {
+                ((EphemeronObject) object).traceObjects(this);
             }
         }
     }
@@ -20,12 +20,14 @@ import com.oracle.truffle.api.profiles.ConditionProfile;
 import de.hpi.swa.graal.squeak.exceptions.SqueakExceptions.SqueakException;
 import de.hpi.swa.graal.squeak.model.AbstractPointersObject;
 import de.hpi.swa.graal.squeak.model.ArrayObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.model.NilObject;
 import de.hpi.swa.graal.squeak.model.PointersObject;
 import de.hpi.swa.graal.squeak.model.VariablePointersObject;
 import de.hpi.swa.graal.squeak.model.WeakVariablePointersObject;
 import de.hpi.swa.graal.squeak.model.layout.ObjectLayout;
+import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.EPHEMERON;
 import de.hpi.swa.graal.squeak.model.layout.SlotLocation;
 import de.hpi.swa.graal.squeak.model.layout.SlotLocation.IllegalWriteException;
 import de.hpi.swa.graal.squeak.model.layout.SlotLocation.ReadSlotLocationNode;
@@ -310,8 +312,8 @@ public class AbstractPointersObjectNodes {
                         @Cached("index") final int cachedIndex,
                         @Cached("object.getLayout()") final ObjectLayout cachedLayout,
                         @Cached final BranchProfile nilProfile,
-                        @Cached("createBinaryProfile()") final ConditionProfile primitiveProfile) {
-            object.putIntoVariablePart(cachedIndex - cachedLayout.getInstSize(), value, nilProfile, primitiveProfile);
+                        @Cached("createBinaryProfile()") final ConditionProfile weakProfile) {
+            object.putIntoVariablePart(cachedIndex - cachedLayout.getInstSize(), value, nilProfile, weakProfile);
         }
 
         @Specialization(guards = {"object.getLayout() == cachedLayout", "index >= cachedLayout.getInstSize()"}, //
@@ -319,15 +321,53 @@ public class AbstractPointersObjectNodes {
         protected static final void doWriteIntoVariablePartCachedLayout(final WeakVariablePointersObject object, final int index, final Object value,
                         @Cached("object.getLayout()") final ObjectLayout cachedLayout,
                         @Cached final BranchProfile nilProfile,
-                        @Cached("createBinaryProfile()") final ConditionProfile primitiveProfile) {
-            object.putIntoVariablePart(index - cachedLayout.getInstSize(), value, nilProfile, primitiveProfile);
+                        @Cached("createBinaryProfile()") final ConditionProfile weakProfile) {
+            object.putIntoVariablePart(index - cachedLayout.getInstSize(), value, nilProfile, weakProfile);
         }
 
         @Specialization(guards = "index >= object.instsize()", replaces = {"doWriteIntoVariablePartCachedIndex", "doWriteIntoVariablePartCachedLayout"})
         protected static final void doWriteIntoVariablePart(final WeakVariablePointersObject object, final int index, final Object value,
                         @Cached final BranchProfile nilProfile,
-                        @Cached("createBinaryProfile()") final ConditionProfile primitiveProfile) {
-            object.putIntoVariablePart(index - object.instsize(), value, nilProfile, primitiveProfile);
+                        @Cached("createBinaryProfile()") final ConditionProfile weakProfile) {
+            object.putIntoVariablePart(index - object.instsize(), value, nilProfile, weakProfile);
+        }
+    }
+
+    @GenerateUncached
+    @NodeInfo(cost = NodeCost.NONE)
+    @ImportStatic({AbstractPointersObjectNodes.class, EPHEMERON.class})
+    public abstract static class EphemeronObjectReadNode extends Node {
+
+        public abstract Object execute(EphemeronObject object, int index);
+
+        @Specialization(guards = "index == KEY")
+        protected static final Object doReadKey(final EphemeronObject object, @SuppressWarnings("unused") final int index) {
+            return object.getKey();
+        }
+
+        @Specialization(guards = "index != KEY")
+        protected static final Object doRead(final EphemeronObject object, final int index,
+                        @Cached final AbstractPointersObjectReadNode readNode) {
+            return readNode.execute(object, index);
+        }
+    }
+
+    @GenerateUncached
+    @NodeInfo(cost = NodeCost.NONE)
+    @ImportStatic({AbstractPointersObjectNodes.class, EPHEMERON.class})
+    public abstract static class EphemeronObjectWriteNode extends Node {
+
+        public abstract void execute(EphemeronObject object, int index, Object value);
+
+        @Specialization(guards = "index == KEY")
+        protected static final void doWriteKey(final EphemeronObject object, @SuppressWarnings("unused") final int index, final Object value) {
+            object.setKey(value);
+        }
+
+        @Specialization(guards = "index != KEY")
+        protected static final void doWrite(final EphemeronObject object, final int index, final Object value,
+                        @Cached final AbstractPointersObjectWriteNode writeNode) {
+            writeNode.execute(object, index, value);
         }
     }
 }
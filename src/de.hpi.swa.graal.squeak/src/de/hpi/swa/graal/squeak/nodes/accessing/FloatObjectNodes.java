@@ -35,7 +35,7 @@ public final class FloatObjectNodes {
 
         @Fallback
         protected final FloatObject doNaNOrInfinite(final double value) {
-            return new FloatObject(image, value);
+            return FloatObject.valueOf(image, value);
         }
     }
 }
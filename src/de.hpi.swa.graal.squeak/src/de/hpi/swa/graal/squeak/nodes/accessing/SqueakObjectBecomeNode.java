@@ -14,6 +14,7 @@ import de.hpi.swa.graal.squeak.model.ClassObject;
 import de.hpi.swa.graal.squeak.model.CompiledCodeObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
 import de.hpi.swa.graal.squeak.model.EmptyObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.model.PointersObject;
 import de.hpi.swa.graal.squeak.model.VariablePointersObject;
@@ -94,4 +95,10 @@ public abstract class SqueakObjectBecomeNode extends AbstractNode {
         left.become(right);
         return true;
     }
+
+    @Specialization(guards = {"left != right"})
+    protected static final boolean doEphemerons(final EphemeronObject left, final EphemeronObject right) {
+        left.become(right);
+        return true;
+    }
 }
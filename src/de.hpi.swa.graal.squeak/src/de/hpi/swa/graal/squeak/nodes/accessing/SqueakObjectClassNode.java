@@ -21,6 +21,7 @@ import de.hpi.swa.graal.squeak.model.ClassObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
 import de.hpi.swa.graal.squeak.model.EmptyObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.FloatObject;
 import de.hpi.swa.graal.squeak.model.LargeIntegerObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
@@ -94,6 +95,11 @@ public abstract class SqueakObjectClassNode extends AbstractNode {
         return value.getSqueakClass();
     }
 
+    @Specialization
+    protected static final ClassObject doEphemeron(final EphemeronObject value) {
+        return value.getSqueakClass();
+    }
+
     @Specialization
     protected static final ClassObject doArray(final ArrayObject value) {
         return value.getSqueakClass();
@@ -17,6 +17,7 @@ import de.hpi.swa.graal.squeak.model.CompiledBlockObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
 import de.hpi.swa.graal.squeak.model.EmptyObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.FloatObject;
 import de.hpi.swa.graal.squeak.model.LargeIntegerObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
@@ -81,6 +82,11 @@ public abstract class SqueakObjectHashNode extends AbstractNode {
         return obj.getSqueakHash();
     }
 
+    @Specialization
+    protected static final long doEphemeron(final EphemeronObject obj) {
+        return obj.getSqueakHash();
+    }
+
     @Specialization
     protected static final long doClosure(final BlockClosureObject obj) {
         return obj.getSqueakHash();
@@ -7,7 +7,6 @@ package de.hpi.swa.graal.squeak.nodes.accessing;
 
 import com.oracle.truffle.api.dsl.Specialization;
 
-import de.hpi.swa.graal.squeak.exceptions.SqueakExceptions.SqueakException;
 import de.hpi.swa.graal.squeak.image.SqueakImageContext;
 import de.hpi.swa.graal.squeak.model.AbstractSqueakObjectWithHash;
 import de.hpi.swa.graal.squeak.model.ArrayObject;
@@ -16,6 +15,7 @@ import de.hpi.swa.graal.squeak.model.ClassObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
 import de.hpi.swa.graal.squeak.model.EmptyObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.FloatObject;
 import de.hpi.swa.graal.squeak.model.LargeIntegerObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
@@ -102,10 +102,10 @@ public abstract class SqueakObjectNewNode extends AbstractNodeWithImage {
         return new WeakVariablePointersObject(image, classObject, extraSize);
     }
 
-    @SuppressWarnings("unused")
     @Specialization(guards = "classObject.isEphemeronClassType()")
-    protected static final WeakVariablePointersObject doEphemerons(final ClassObject classObject, final int extraSize) {
-        throw SqueakException.create("Ephemerons not (yet) supported");
+    protected final EphemeronObject doEphemerons(final ClassObject classObject, final int extraSize) {
+        assert extraSize == 0;
+        return new EphemeronObject(image, classObject);
     }
 
     @Specialization(guards = "classObject.isLongs()")
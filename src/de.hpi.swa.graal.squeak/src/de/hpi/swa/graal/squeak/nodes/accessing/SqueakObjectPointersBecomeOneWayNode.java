@@ -19,6 +19,7 @@ import de.hpi.swa.graal.squeak.model.ClassObject;
 import de.hpi.swa.graal.squeak.model.CompiledCodeObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.NilObject;
 import de.hpi.swa.graal.squeak.model.PointersObject;
 import de.hpi.swa.graal.squeak.model.VariablePointersObject;
@@ -198,6 +199,11 @@ public abstract class SqueakObjectPointersBecomeOneWayNode extends AbstractNode
         obj.pointersBecomeOneWay(updateHashNode, from, to, copyHash);
     }
 
+    @Specialization
+    protected final void doEphemeron(final EphemeronObject obj, final Object[] from, final Object[] to, final boolean copyHash) {
+        obj.pointersBecomeOneWay(updateHashNode, from, to, copyHash);
+    }
+
     private void pointersBecomeOneWay(final Object[] original, final Object[] from, final Object[] to, final boolean copyHash) {
         for (int i = 0; i < from.length; i++) {
             final Object fromPointer = from[i];
@@ -16,6 +16,7 @@ import de.hpi.swa.graal.squeak.model.CompiledBlockObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
 import de.hpi.swa.graal.squeak.model.EmptyObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.FloatObject;
 import de.hpi.swa.graal.squeak.model.LargeIntegerObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
@@ -69,6 +70,11 @@ public abstract class SqueakObjectShallowCopyNode extends AbstractNodeWithImage
         return receiver.shallowCopy();
     }
 
+    @Specialization
+    protected static final EphemeronObject doEphemeron(final EphemeronObject receiver) {
+        return receiver.shallowCopy();
+    }
+
     @Specialization
     protected static final ArrayObject doArray(final ArrayObject receiver,
                     @Cached final ArrayObjectShallowCopyNode copyNode) {
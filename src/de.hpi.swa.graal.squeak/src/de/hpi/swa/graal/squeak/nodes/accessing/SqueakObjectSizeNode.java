@@ -17,6 +17,7 @@ import de.hpi.swa.graal.squeak.model.CompiledBlockObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
 import de.hpi.swa.graal.squeak.model.EmptyObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.FloatObject;
 import de.hpi.swa.graal.squeak.model.LargeIntegerObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
@@ -72,6 +73,11 @@ public abstract class SqueakObjectSizeNode extends AbstractNode {
         return obj.size();
     }
 
+    @Specialization
+    protected static final int doEphemeron(final EphemeronObject obj) {
+        return obj.size();
+    }
+
     @Specialization
     protected static final int doClosure(final BlockClosureObject obj) {
         return obj.size();
@@ -5,11 +5,16 @@
  */
 package de.hpi.swa.graal.squeak.nodes.plugins;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Cached.Shared;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.interop.ArityException;
 import com.oracle.truffle.api.interop.InteropLibrary;
@@ -22,12 +27,16 @@ import com.oracle.truffle.api.source.Source;
 
 import de.hpi.swa.graal.squeak.exceptions.PrimitiveExceptions.PrimitiveFailed;
 import de.hpi.swa.graal.squeak.exceptions.SqueakExceptions.SqueakException;
+import de.hpi.swa.graal.squeak.model.ArrayObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.model.NilObject;
+import de.hpi.swa.graal.squeak.nodes.accessing.ArrayObjectNodes.ArrayObjectToObjectArrayCopyNode;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveFactoryHolder;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveNode;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.BinaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuinaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.TernaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.UnaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.UnaryPrimitiveWithoutFallback;
 import de.hpi.swa.graal.squeak.nodes.primitives.SqueakPrimitive;
@@ -183,4 +192,160 @@ public abstract class AbstractOSProcessPlugin extends AbstractPrimitiveFactoryHo
             sessionByteArray = method.image.asByteArray(bytes);
         }
     }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitivePipeAtEnd")
+    protected abstract static class PrimPipeAtEndNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+
+        protected PrimPipeAtEndNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /** Answers whether a stdout or stderr pipe of a child process has reached its end. */
+        @Specialization
+        protected final boolean doAtEnd(@SuppressWarnings("unused") final Object receiver, final long pipeHandle) {
+            return method.image.osProcessPipes.isAtEnd(pipeHandle);
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitivePipeClose")
+    protected abstract static class PrimPipeCloseNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+
+        protected PrimPipeCloseNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final Object doClose(final Object receiver, final long pipeHandle) {
+            try {
+                method.image.osProcessPipes.close(pipeHandle);
+            } catch (final IOException e) {
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+            return receiver;
+        }
+    }
+
+    @ImportStatic(AbstractOSProcessPlugin.class)
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitivePipeRead")
+    protected abstract static class PrimPipeReadNode extends AbstractPrimitiveNode implements QuinaryPrimitive {
+
+        protected PrimPipeReadNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /**
+         * Reads up to count bytes from a stdout or stderr pipe into the buffer, starting at the
+         * one-based start index. Never blocks: answers zero if no data is available yet.
+         */
+        @Specialization(guards = {"buffer.isByteType()", "inBounds(buffer, start, count)"})
+        protected final long doRead(@SuppressWarnings("unused") final Object receiver, final long pipeHandle, final NativeObject buffer, final long start, final long count) {
+            try {
+                return method.image.osProcessPipes.read(pipeHandle, wrap(buffer, start, count));
+            } catch (final IOException e) {
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+        }
+    }
+
+    @ImportStatic(AbstractOSProcessPlugin.class)
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitivePipeWrite")
+    protected abstract static class PrimPipeWriteNode extends AbstractPrimitiveNode implements QuinaryPrimitive {
+
+        protected PrimPipeWriteNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /**
+         * Writes up to count bytes from the buffer, starting at the one-based start index, to a
+         * stdin pipe. Never blocks: answers the number of bytes the pipe accepted.
+         */
+        @Specialization(guards = {"buffer.isByteType()", "inBounds(buffer, start, count)"})
+        protected final long doWrite(@SuppressWarnings("unused") final Object receiver, final long pipeHandle, final NativeObject buffer, final long start, final long count) {
+            try {
+                return method.image.osProcessPipes.write(pipeHandle, wrap(buffer, start, count));
+            } catch (final IOException e) {
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+        }
+    }
+
+    /** Answers whether count bytes from the one-based start index lie within the buffer. */
+    protected static final boolean inBounds(final NativeObject buffer, final long start, final long count) {
+        return start >= 1 && count >= 0 && count <= buffer.getByteLength() - (start - 1);
+    }
+
+    @TruffleBoundary
+    private static ByteBuffer wrap(final NativeObject buffer, final long start, final long count) {
+        return ByteBuffer.wrap(buffer.getByteStorage(), (int) start - 1, (int) count);
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveProcessExitStatus")
+    protected abstract static class PrimProcessExitStatusNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+
+        protected PrimProcessExitStatusNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /** Answers the exit status of a child process, or nil while it is still running. */
+        @Specialization
+        protected final Object doExitStatus(@SuppressWarnings("unused") final Object receiver, final long processHandle) {
+            final Integer status = method.image.osProcessPipes.exitStatus(processHandle);
+            return status == null ? NilObject.SINGLETON : (long) status;
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveSpawnWithPipes")
+    protected abstract static class PrimSpawnWithPipesNode extends AbstractPrimitiveNode implements TernaryPrimitive {
+
+        protected PrimSpawnWithPipesNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /**
+         * Starts a child process for a command given as Array of Strings, in the given working
+         * directory or in the current one if nil. Answers an Array with the handles of the process
+         * and of its stdin, stdout, and stderr pipes. The pipe handles are AIO descriptors, so
+         * that readiness can be signaled through the AioPlugin instead of polling.
+         */
+        @Specialization(guards = "workingDirectory.isByteType()")
+        protected final ArrayObject doSpawn(@SuppressWarnings("unused") final Object receiver, final ArrayObject command, final NativeObject workingDirectory,
+                        @Shared("copyNode") @Cached final ArrayObjectToObjectArrayCopyNode copyNode) {
+            return spawn(toStringsOrPrimFail(copyNode.execute(command)), workingDirectory.asStringUnsafe());
+        }
+
+        @Specialization
+        protected final ArrayObject doSpawnInCurrentDirectory(@SuppressWarnings("unused") final Object receiver, final ArrayObject command, @SuppressWarnings("unused") final NilObject workingDirectory,
+                        @Shared("copyNode") @Cached final ArrayObjectToObjectArrayCopyNode copyNode) {
+            return spawn(toStringsOrPrimFail(copyNode.execute(command)), null);
+        }
+
+        private ArrayObject spawn(final String[] command, final String workingDirectory) {
+            try {
+                return method.image.asArrayOfLongs(method.image.osProcessPipes.spawn(command, workingDirectory));
+            } catch (final IOException | SecurityException | IllegalArgumentException | UnsupportedOperationException e) {
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+        }
+
+        @TruffleBoundary
+        private static String[] toStringsOrPrimFail(final Object[] elements) {
+            if (elements.length == 0) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            final String[] strings = new String[elements.length];
+            for (int i = 0; i < elements.length; i++) {
+                if (!(elements[i] instanceof NativeObject) || !((NativeObject) elements[i]).isByteType()) {
+                    throw PrimitiveFailed.BAD_ARGUMENT;
+                }
+                strings[i] = ((NativeObject) elements[i]).asStringUnsafe();
+            }
+            return strings;
+        }
+    }
 }
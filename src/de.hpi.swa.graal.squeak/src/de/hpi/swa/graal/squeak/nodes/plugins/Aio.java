@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.nodes.plugins;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+
+import org.graalvm.collections.EconomicMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import de.hpi.swa.graal.squeak.exceptions.PrimitiveExceptions.PrimitiveFailed;
+import de.hpi.swa.graal.squeak.image.SqueakImageContext;
+import de.hpi.swa.graal.squeak.nodes.plugins.FilePlugin.STDIO_HANDLES;
+import de.hpi.swa.graal.squeak.nodes.plugins.network.SocketSelector;
+import de.hpi.swa.graal.squeak.nodes.plugins.network.SocketSelector.ReadinessListener;
+import de.hpi.swa.graal.squeak.nodes.plugins.network.SqueakSocket;
+
+/**
+ * Asynchronous I/O notifications for the AioPlugin (see aio.c of the OpenSmalltalk VM). Descriptors
+ * are the handles of the FilePlugin and the SocketPlugin. Selectable channels are watched by the
+ * {@link SocketSelector} shared with the SocketPlugin, which signals the semaphore registered for a
+ * descriptor once it becomes ready for one of the requested events. Like in the OpenSmalltalk VM,
+ * requests are one-shot and must be renewed with {@link #handle} after each notification. Regular
+ * files and standard output streams never block, so they are reported ready immediately. NIO has
+ * no notion of out-of-band data, so exception events are signaled once a channel is closed.
+ */
+public final class Aio {
+    public static final long AIO_X = 1 << 0;
+    public static final long AIO_R = 1 << 1;
+    public static final long AIO_W = 1 << 2;
+
+    private final SqueakImageContext image;
+    private final EconomicMap<Long, Handler> handlers = EconomicMap.create();
+    private final EconomicMap<Long, SelectableChannel> channels = EconomicMap.create();
+
+    private final class Handler implements ReadinessListener {
+        private final SelectableChannel channel;
+        private final long semaphoreIndex;
+
+        private Handler(final SelectableChannel channel, final long semaphoreIndex) {
+            this.channel = channel;
+            this.semaphoreIndex = semaphoreIndex;
+        }
+
+        @Override
+        public void onReady(final int readyOps) {
+            signal();
+        }
+
+        private void signal() {
+            image.interrupt.signalSemaphoreWithIndex((int) semaphoreIndex);
+        }
+    }
+
+    public Aio(final SqueakImageContext image) {
+        this.image = image;
+    }
+
+    /** Makes a non-blocking channel (e.g. a pipe) available as an AIO descriptor. */
+    @TruffleBoundary
+    public void registerChannel(final long descriptor, final SelectableChannel channel) {
+        assert !channel.isBlocking();
+        channels.put(descriptor, channel);
+    }
+
+    @TruffleBoundary
+    public void unregisterChannel(final long descriptor) {
+        channels.removeKey(descriptor);
+        disable(descriptor);
+    }
+
+    @TruffleBoundary
+    public boolean isValidDescriptor(final long descriptor) {
+        return channels.containsKey(descriptor) || image.socketPluginHandles.containsKey(descriptor) || image.filePluginHandles.containsKey(descriptor) ||
+                        descriptor == STDIO_HANDLES.OUT || descriptor == STDIO_HANDLES.ERROR;
+    }
+
+    @TruffleBoundary
+    public void enable(final long descriptor, final long semaphoreIndex) {
+        disable(descriptor);
+        handlers.put(descriptor, new Handler(lookupChannel(descriptor), semaphoreIndex));
+    }
+
+    /** Requests a single notification once the descriptor is ready for one of the events. */
+    @TruffleBoundary
+    public void handle(final long descriptor, final long events) throws IOException {
+        final Handler handler = getHandlerOrPrimFail(descriptor);
+        if (handler.channel == null) {
+            if ((events & (AIO_R | AIO_W)) != 0) {
+                handler.signal();
+            }
+            return;
+        }
+        final int ops = toInterestOps(handler.channel, events);
+        if (ops != 0) {
+            image.socketPluginSelector.watch(handler.channel, handler, ops);
+        }
+    }
+
+    /** Withdraws pending notification requests for the events. */
+    @TruffleBoundary
+    public void suspend(final long descriptor, final long events) {
+        final Handler handler = getHandlerOrPrimFail(descriptor);
+        if (handler.channel != null) {
+            image.socketPluginSelector.unwatch(handler.channel, handler, toInterestOps(handler.channel, events));
+        }
+    }
+
+    @TruffleBoundary
+    public void disable(final long descriptor) {
+        final Handler handler = handlers.removeKey(descriptor);
+        if (handler != null && handler.channel != null) {
+            image.socketPluginSelector.unwatch(handler.channel, handler, ~0);
+        }
+    }
+
+    private Handler getHandlerOrPrimFail(final long descriptor) {
+        final Handler handler = handlers.get(descriptor);
+        if (handler == null) {
+            throw PrimitiveFailed.GENERIC_ERROR;
+        }
+        return handler;
+    }
+
+    /* Answers the channel to watch for the descriptor, or `null` if it is always ready. */
+    private SelectableChannel lookupChannel(final long descriptor) {
+        final SelectableChannel channel = channels.get(descriptor);
+        if (channel != null) {
+            return channel;
+        }
+        final SqueakSocket socket = image.socketPluginHandles.get(descriptor);
+        if (socket != null) {
+            final SelectableChannel socketChannel = socket.getSelectableChannel();
+            if (socketChannel == null || socketChannel.isBlocking()) {
+                throw PrimitiveFailed.GENERIC_ERROR; /* Neither connected nor listening. */
+            }
+            return socketChannel;
+        }
+        if (image.filePluginHandles.containsKey(descriptor) || descriptor == STDIO_HANDLES.OUT || descriptor == STDIO_HANDLES.ERROR) {
+            return null;
+        }
+        /* Standard input cannot be selected on the JVM. */
+        throw PrimitiveFailed.GENERIC_ERROR;
+    }
+
+    private static int toInterestOps(final SelectableChannel channel, final long events) {
+        int ops = 0;
+        if ((events & AIO_R) != 0) {
+            ops |= SelectionKey.OP_READ | SelectionKey.OP_ACCEPT;
+        }
+        if ((events & AIO_W) != 0) {
+            ops |= SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;
+        }
+        return ops & channel.validOps() | ((events & AIO_X) != 0 ? SocketSelector.OP_CLOSED : 0);
+    }
+}
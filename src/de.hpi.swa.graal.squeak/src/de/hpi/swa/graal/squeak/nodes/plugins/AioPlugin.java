@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.nodes.plugins;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLogger;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+import de.hpi.swa.graal.squeak.exceptions.PrimitiveExceptions.PrimitiveFailed;
+import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
+import de.hpi.swa.graal.squeak.model.NativeObject;
+import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveFactoryHolder;
+import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveNode;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.BinaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuaternaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuinaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.UnaryPrimitiveWithoutFallback;
+import de.hpi.swa.graal.squeak.nodes.primitives.SqueakPrimitive;
+import de.hpi.swa.graal.squeak.shared.SqueakLanguageConfig;
+
+public final class AioPlugin extends AbstractPrimitiveFactoryHolder {
+    private static final TruffleLogger LOG = TruffleLogger.getLogger(SqueakLanguageConfig.ID, AioPlugin.class);
+    private static final String MODULE_NAME = "AioPlugin";
+    private static final String VERSION_STRING = "2.2.6";
+
+    protected static long toEvents(final boolean exceptionWatch, final boolean readWatch, final boolean writeWatch) {
+        return (exceptionWatch ? Aio.AIO_X : 0) | (readWatch ? Aio.AIO_R : 0) | (writeWatch ? Aio.AIO_W : 0);
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveAioDisable")
+    protected abstract static class PrimAioDisableNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+        protected PrimAioDisableNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final long doDisable(@SuppressWarnings("unused") final Object receiver, final long descriptor) {
+            method.image.aio.disable(descriptor);
+            return descriptor;
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveAioEnable")
+    protected abstract static class PrimAioEnableNode extends AbstractPrimitiveNode implements QuaternaryPrimitive {
+        protected PrimAioEnableNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /**
+         * Enable asynchronous notification for a descriptor. The semaphore at semaphoreIndex in the
+         * external objects array is signaled whenever a requested event occurs.
+         */
+        @Specialization(guards = "semaphoreIndex > 0")
+        protected final long doEnable(@SuppressWarnings("unused") final Object receiver, final long descriptor, final long semaphoreIndex,
+                        @SuppressWarnings("unused") final boolean isExternal) {
+            method.image.aio.enable(descriptor, semaphoreIndex);
+            return descriptor;
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveAioHandle")
+    protected abstract static class PrimAioHandleNode extends AbstractPrimitiveNode implements QuinaryPrimitive {
+        protected PrimAioHandleNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /** Request a single notification for the next occurrence of any of the events. */
+        @Specialization
+        protected final long doHandle(@SuppressWarnings("unused") final Object receiver, final long descriptor, final boolean exceptionWatch, final boolean readWatch,
+                        final boolean writeWatch) {
+            final long events = toEvents(exceptionWatch, readWatch, writeWatch);
+            try {
+                method.image.aio.handle(descriptor, events);
+            } catch (final IOException e) {
+                logFailure(e);
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+            return events;
+        }
+
+        @TruffleBoundary
+        private static void logFailure(final IOException e) {
+            LOG.log(Level.FINE, "Starting socket selector failed", e);
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveAioSuspend")
+    protected abstract static class PrimAioSuspendNode extends AbstractPrimitiveNode implements QuinaryPrimitive {
+        protected PrimAioSuspendNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final long doSuspend(@SuppressWarnings("unused") final Object receiver, final long descriptor, final boolean exceptionWatch, final boolean readWatch,
+                        final boolean writeWatch) {
+            final long events = toEvents(exceptionWatch, readWatch, writeWatch);
+            method.image.aio.suspend(descriptor, events);
+            return events;
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveModuleName")
+    protected abstract static class PrimModuleNameNode extends AbstractPrimitiveNode implements UnaryPrimitiveWithoutFallback {
+        protected PrimModuleNameNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final NativeObject doGet(@SuppressWarnings("unused") final Object receiver) {
+            return method.image.asByteString(MODULE_NAME);
+        }
+    }
+
+    /** File and socket handles are used as AIO descriptors as they are. */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = {"primitiveOSFileHandle", "primitiveOSSocketHandle"})
+    protected abstract static class PrimOSHandleNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+        protected PrimOSHandleNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final long doHandle(@SuppressWarnings("unused") final Object receiver, final long handle) {
+            if (!method.image.aio.isValidDescriptor(handle)) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            return handle;
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveVersionString")
+    protected abstract static class PrimVersionStringNode extends AbstractPrimitiveNode implements UnaryPrimitiveWithoutFallback {
+        protected PrimVersionStringNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final NativeObject doGet(@SuppressWarnings("unused") final Object receiver) {
+            return method.image.asByteString(VERSION_STRING);
+        }
+    }
+
+    @Override
+    public List<? extends NodeFactory<? extends AbstractPrimitiveNode>> getFactories() {
+        return AioPluginFactory.getFactories();
+    }
+}
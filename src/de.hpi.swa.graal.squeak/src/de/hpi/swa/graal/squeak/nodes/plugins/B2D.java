@@ -5,6 +5,11 @@
  */
 package de.hpi.swa.graal.squeak.nodes.plugins;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
@@ -33,6 +38,8 @@ import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.Abstr
 public final class B2D {
 
     private final SqueakImageContext image;
+    /* Displays spans, only ever used by the engine of the image (not by copies for tiles). */
+    private final BitBlt bitblt;
 
     /* Constants */
     private static final int BE_BALLOON_ENGINE_SIZE = 12;
@@ -285,13 +292,36 @@ public final class B2D {
     private int getBufferIndex;
 
     private static final String MODULE_NAME = "B2DPlugin * VMMaker.oscog-eem.2480 (GraalSqueak)";
+    private static final int TILE_MIN_ROWS = 32;
     private int objBufferIndex;
     private int objUsed;
     private int[] spanBuffer;
     private int[] workBuffer;
+    private boolean useTiles = false;
 
     public B2D(final SqueakImageContext image) {
         this.image = image;
+        /* Spans are single rows, which are never split into bands. */
+        bitblt = new BitBlt(false);
+    }
+
+    /* See the balloon-tiles option and renderImageInTiles. */
+    public void setUseTiles(final boolean enable) {
+        useTiles = enable;
+    }
+
+    /* Copy of an engine for rendering a tile, see renderImageInTiles. */
+    private B2D(final B2D original, final int[] workBufferState) {
+        image = original.image;
+        bitblt = original.bitblt;
+        engine = original.engine;
+        formArray = original.formArray;
+        objBufferIndex = original.objBufferIndex;
+        objUsed = original.objUsed;
+        getBufferIndex = original.getBufferIndex;
+        aetBufferIndex = original.aetBufferIndex;
+        workBuffer = workBufferState.clone();
+        spanBuffer = new int[original.spanBuffer.length];
     }
 
     /* BalloonEngineBase>>#aaColorMaskGet */
@@ -1357,8 +1387,8 @@ public final class B2D {
 
     /* BalloonEngineBase>>#copyBitsFrom:to:at: */
     private void copyBitsFromtoat(final int x0, final int x1, final int yValue) {
-        image.bitblt.resetSuccessFlag();
-        image.bitblt.copyBitsFromtoat(x0, x1, yValue);
+        bitblt.resetSuccessFlag();
+        bitblt.copyBitsFromtoat(x0, x1, yValue);
     }
 
     /* Create the global edge table */
@@ -3489,8 +3519,8 @@ public final class B2D {
 
     /* BalloonEngineBase>>#loadBitBltFrom: */
     private boolean loadBitBltFrom(final PointersObject bbObj) {
-        image.bitblt.resetSuccessFlag();
-        return image.bitblt.loadBitBltFrom(bbObj);
+        bitblt.resetSuccessFlag();
+        return bitblt.loadBitBltFrom(bbObj);
     }
 
     /* Load the bitmap fill. */
@@ -5503,6 +5533,9 @@ public final class B2D {
         if (failCode != 0) {
             PrimitiveFailed.andTransferToInterpreter(failCode);
         }
+        if (useTiles && stateGet() == GE_STATE_UNLOCKED && renderImageInTiles()) {
+            return storeRenderingState(edge, fill);
+        }
         proceedRenderingScanline();
         if (engineStopped) {
             return storeRenderingState(edge, fill);
@@ -7392,6 +7425,186 @@ public final class B2D {
         workBuffer = wbOop.getIntStorage();
     }
 
+    /*
+     * TILED RENDERING
+     *
+     * With the balloon-tiles option, primitiveRenderImage rasterizes an image in horizontal tiles
+     * in parallel. All state of the engine lives in its work buffer, so the global edge table is
+     * built once. A copy of the engine then steps all edges down the image without filling any
+     * spans, and takes another copy with its own work and span buffers at the first scanline of
+     * each tile. Stepping is sequential, but done only once and cheap compared to filling spans.
+     * The tile copies then fill their scanlines in parallel and record the span buffer of each
+     * display row. Afterwards, the rows are displayed in order through the same BitBlt as in the
+     * sequential path, so that the result is the same (only the unused stack area of the work
+     * buffer may differ). Images with external edges or fills and tiles that run out of work buffer
+     * space are left to the sequential path, which then renders the image from the start.
+     */
+
+    /* Span buffer of a display row, recorded instead of being displayed. */
+    private static final class RenderedRow {
+        private final int y;
+        private final int spanStart;
+        private final int spanEnd;
+        private final int firstPixel;
+        private final int[] pixels;
+
+        private RenderedRow(final int y, final int spanStart, final int spanEnd, final int firstPixel, final int[] pixels) {
+            this.y = y;
+            this.spanStart = spanStart;
+            this.spanEnd = spanEnd;
+            this.firstPixel = firstPixel;
+            this.pixels = pixels;
+        }
+    }
+
+    private static final class RenderedTile {
+        private final B2D worker;
+        private final ArrayList<RenderedRow> rows = new ArrayList<>();
+
+        private RenderedTile(final B2D worker) {
+            this.worker = worker;
+        }
+    }
+
+    /* Answer true if the image has been rendered, false if it must be rendered sequentially. */
+    private boolean renderImageInTiles() {
+        if (hasExternalObjects()) {
+            return false;
+        }
+        final B2D initial = new B2D(this, workBuffer);
+        initial.initializeGETProcessing();
+        if (initial.engineStopped) {
+            return false;
+        }
+        final int firstY = initial.currentYGet();
+        final int aaLevel = initial.aaLevelGet();
+        final int numDisplayRows = (initial.fillMaxYGet() - firstY) / aaLevel;
+        final int numTiles = Math.min(ForkJoinPool.getCommonPoolParallelism(), numDisplayRows / TILE_MIN_ROWS);
+        if (numTiles < 2) {
+            return false;
+        }
+        final int[] tileYs = new int[numTiles + 1];
+        tileYs[0] = firstY;
+        for (int i = 1; i < numTiles; i++) {
+            /* Tiles start at the first scanline of a display row. */
+            tileYs[i] = firstY + (int) ((long) numDisplayRows * i / numTiles) * aaLevel & ~initial.aaScanMaskGet();
+        }
+        /* The last tile renders until the engine has completed. */
+        tileYs[numTiles] = Integer.MAX_VALUE;
+        final B2D[] workers = new B2D[numTiles];
+        for (int i = 0; i < numTiles; i++) {
+            if (!initial.finishedProcessing() && !initial.proceedRenderingTile(tileYs[i], null)) {
+                return false;
+            }
+            workers[i] = new B2D(initial, initial.workBuffer);
+        }
+        final RenderedTile[] tiles = new RenderedTile[numTiles];
+        IntStream.range(0, numTiles).parallel().forEach(i -> tiles[i] = renderTile(workers[i], tileYs[i + 1]));
+        B2D completed = null;
+        for (final RenderedTile tile : tiles) {
+            if (tile == null) {
+                return false;
+            }
+            if (completed == null && tile.worker.finishedProcessing()) {
+                completed = tile.worker;
+            }
+        }
+        assert completed != null : "Last tile must complete the engine";
+        System.arraycopy(completed.workBuffer, 0, workBuffer, 0, workBuffer.length);
+        getBufferIndex = completed.getBufferIndex;
+        aetBufferIndex = completed.aetBufferIndex;
+        Arrays.fill(spanBuffer, 0, spanSizeGet(), 0);
+        RenderedRow previousRow = null;
+        for (final RenderedTile tile : tiles) {
+            for (final RenderedRow row : tile.rows) {
+                if (previousRow != null) {
+                    Arrays.fill(spanBuffer, previousRow.firstPixel, previousRow.firstPixel + previousRow.pixels.length, 0);
+                }
+                System.arraycopy(row.pixels, 0, spanBuffer, row.firstPixel, row.pixels.length);
+                spanStartPut(row.spanStart);
+                spanEndPut(row.spanEnd);
+                displaySpanBufferAt(row.y);
+                previousRow = row;
+            }
+            if (tile.worker == completed) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /* Answer true if rendering may stop for edges or fills to be computed by Smalltalk code. */
+    private boolean hasExternalObjects() {
+        long object = 0;
+        while (object < objUsed) {
+            if ((objectTypeOf(object) & GE_PRIMITIVE_WIDE_MASK) == GE_PRIMITIVE_EDGE || isRealFill(object) && fillTypeOf(object) <= 1) {
+                return true;
+            }
+            object += objectLengthOf(object);
+        }
+        return false;
+    }
+
+    /*
+     * Render the scanlines up to endY with a copy of the engine that has been stepped to the first
+     * scanline of the tile. Answer null if the tile cannot be rendered on its own.
+     */
+    private static RenderedTile renderTile(final B2D worker, final int endY) {
+        final RenderedTile tile = new RenderedTile(worker);
+        if (!worker.finishedProcessing() && !worker.proceedRenderingTile(endY, tile)) {
+            return null;
+        }
+        return tile;
+    }
+
+    /*
+     * Proceed like proceedRenderingImage up to scanline endY. Without a tile, only the edges are
+     * stepped and the span buffer is neither filled nor displayed. With a tile, the span buffer of
+     * each display row is recorded in the tile. Answer false if the engine had to stop.
+     */
+    private boolean proceedRenderingTile(final int endY, final RenderedTile tile) {
+        while (!finishedProcessing() && currentYGet() < endY) {
+            if (findNextExternalEntryFromGET() || engineStopped) {
+                return false;
+            }
+            aetStartPut(0);
+            wbStackClear();
+            if (tile != null) {
+                if ((currentYGet() & aaScanMaskGet()) == 0) {
+                    clearSpanBuffer();
+                }
+                if (findNextExternalFillFromAET() || engineStopped) {
+                    return false;
+                }
+                wbStackClear();
+                spanEndAAPut(0);
+            }
+            clearSpanBufferPut(0);
+            if ((currentYGet() & aaScanMaskGet()) == aaScanMaskGet()) {
+                if (tile != null) {
+                    tile.rows.add(recordSpanBuffer());
+                }
+                postDisplayAction();
+            }
+            if (finishedProcessing()) {
+                return true;
+            }
+            aetStartPut(0);
+            currentYPut(currentYGet() + 1);
+            if (findNextExternalUpdateFromAET() || engineStopped) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Copy the part of the span buffer that clearSpanBuffer would clear. */
+    private RenderedRow recordSpanBuffer() {
+        final int x0 = Math.max(shr(spanStartGet(), aaShiftGet()), 0);
+        final int x1 = Math.max(Math.min(shr(spanEndGet(), aaShiftGet()) + 1, spanSizeGet()), x0);
+        return new RenderedRow(currentYGet(), spanStartGet(), spanEndGet(), x0, Arrays.copyOfRange(spanBuffer, x0, x1));
+    }
+
     /*
      * POLYFILLS
      */
@@ -5,7 +5,9 @@
  */
 package de.hpi.swa.graal.squeak.nodes.plugins;
 
-import java.util.function.LongBinaryOperator;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -21,6 +23,7 @@ import de.hpi.swa.graal.squeak.model.PointersObject;
 import de.hpi.swa.graal.squeak.model.VariablePointersObject;
 import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.FORM;
 import de.hpi.swa.graal.squeak.nodes.SqueakGuards;
+import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectReadNode;
 import de.hpi.swa.graal.squeak.util.UnsafeUtils;
 
 /* Automatically generated by
@@ -59,6 +62,8 @@ public final class BitBlt {
     private static final int FIXED_PT1 = 0x4000;
     private static final int GREEN_INDEX = 1;
     private static final int OP_TABLE_SIZE = 43;
+    private static final int PARALLEL_MIN_BAND_ROWS = 32;
+    private static final long PARALLEL_MIN_PIXELS = 512 * 512;
     private static final int RED_INDEX = 0;
 
     /* Return the default translation table from 1..8 bit indexed colors to 32bit */
@@ -181,7 +186,7 @@ public final class BitBlt {
     private boolean noHalftone;
     private boolean noSource;
     private int nWords;
-    @CompilationFinal(dimensions = 1) private final LongBinaryOperator[] opTable = new LongBinaryOperator[43];
+    @CompilationFinal(dimensions = 1) private static final MergeFunction[] OP_TABLE = new MergeFunction[OP_TABLE_SIZE];
     private boolean preload;
     private long skew;
     private long sourceAlpha;
@@ -211,11 +216,33 @@ public final class BitBlt {
     private int width;
 
     private boolean successFlag = false;
+    private final boolean useParallelBands;
+    private final boolean useFastPaths32;
 
-    public BitBlt() {
+    /*
+     * The opTable of the simulation, with the BitBlt as first argument so that the table (like the
+     * dither lookup table) is shared by all instances and filled only once.
+     */
+    @FunctionalInterface
+    private interface MergeFunction {
+        long apply(BitBlt bitBlt, long sourceWord, long destinationWord);
+    }
+
+    static {
         initialiseModule();
     }
 
+    /* With parallel bands, large 32-bit blits are split as described in processRows32. */
+    public BitBlt(final boolean useParallelBands) {
+        this(useParallelBands, true);
+    }
+
+    /* Without fast paths, 32-bit blits go through the generic loops (see tryCopyingWords32). */
+    public BitBlt(final boolean useParallelBands, final boolean useFastPaths32) {
+        this.useParallelBands = useParallelBands;
+        this.useFastPaths32 = useFastPaths32;
+    }
+
     /* BitBltSimulation>>#addWord:with: */
     private long addWordwith(final long sourceWord, final long destinationWord) {
         return sourceWord + destinationWord;
@@ -937,7 +964,7 @@ public final class BitBlt {
         int y;
 
         /* unskew is a bitShift and MUST remain signed, while skewMask is unsigned. */
-        final LongBinaryOperator mergeFnwith = opTable[combinationRule + 1];
+        final MergeFunction mergeFnwith = OP_TABLE[combinationRule + 1];
         assert mergeFnwith != null : "Unexpected `null` value";
         assert !(preload && skew == 0);
         assert -32 <= skew && skew <= 32; // Modified (image uses 31 instead of 32).
@@ -1071,7 +1098,7 @@ public final class BitBlt {
                 skewWord = shift(prevWord & notSkewMask, unskew) | shift(thisWord & skewMask, skew);
                 prevWord = thisWord;
                 destWord = dstLongAt(destIndex);
-                mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, destWord);
+                mergeWord = mergeFnwith.apply(this, skewWord & halftoneWord, destWord);
                 destWord = destMask & mergeWord | destWord & ~destMask;
                 dstLongAtput(destIndex, destWord);
                 destIndex += hInc;
@@ -1085,7 +1112,7 @@ public final class BitBlt {
                     skewWord = (unskew < 0 ? (prevWord & notSkewMask) >>> -unskew : (prevWord & notSkewMask) << unskew) |
                                     (skew < 0 ? (thisWord & skewMask) >>> -skew : (thisWord & skewMask) << skew);
                     prevWord = thisWord;
-                    mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, dstLongAt(destIndex));
+                    mergeWord = mergeFnwith.apply(this, skewWord & halftoneWord, dstLongAt(destIndex));
                     dstLongAtput(destIndex, mergeWord);
                     destIndex += hInc;
                 }
@@ -1102,7 +1129,7 @@ public final class BitBlt {
                     skewWord = (unskew < 0 ? (prevWord & notSkewMask) >>> -unskew : (prevWord & notSkewMask) << unskew) |
                                     (skew < 0 ? (thisWord & skewMask) >>> -skew : (thisWord & skewMask) << skew);
                     destWord = dstLongAt(destIndex);
-                    mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, destWord);
+                    mergeWord = mergeFnwith.apply(this, skewWord & halftoneWord, destWord);
                     destWord = destMask & mergeWord | destWord & ~destMask;
                     dstLongAtput(destIndex, destWord);
                     destIndex += hInc;
@@ -1126,7 +1153,7 @@ public final class BitBlt {
         long word;
 
         halftoneWord = 0;
-        final LongBinaryOperator mergeFnwith = opTable[combinationRule + 1];
+        final MergeFunction mergeFnwith = OP_TABLE[combinationRule + 1];
         assert mergeFnwith != null : "Unexpected `null` value";
         if (noHalftone) {
             halftoneWord = ALL_ONES;
@@ -1138,7 +1165,7 @@ public final class BitBlt {
             }
             destMask = mask1;
             destWord = dstLongAt(destIndex);
-            mergeWord = mergeFnwith.applyAsLong(halftoneWord, destWord);
+            mergeWord = mergeFnwith.apply(this, halftoneWord, destWord);
             destWord = destMask & mergeWord | destWord & ~destMask;
             dstLongAtput(destIndex, destWord);
             destIndex += 4;
@@ -1155,7 +1182,7 @@ public final class BitBlt {
                 for (word = 2; word < nWords; word++) {
                     /* Normal inner loop does merge */
                     destWord = dstLongAt(destIndex);
-                    mergeWord = mergeFnwith.applyAsLong(halftoneWord, destWord);
+                    mergeWord = mergeFnwith.apply(this, halftoneWord, destWord);
                     dstLongAtput(destIndex, mergeWord);
                     destIndex += 4;
                 }
@@ -1163,7 +1190,7 @@ public final class BitBlt {
             if (nWords > 1) {
                 destMask = mask2;
                 destWord = dstLongAt(destIndex);
-                mergeWord = mergeFnwith.applyAsLong(halftoneWord, destWord);
+                mergeWord = mergeFnwith.apply(this, halftoneWord, destWord);
                 destWord = destMask & mergeWord | destWord & ~destMask;
                 dstLongAtput(destIndex, destWord);
                 destIndex += 4;
@@ -1207,7 +1234,7 @@ public final class BitBlt {
         long words;
 
         halftoneWord = 0;
-        final LongBinaryOperator mergeFnwith = opTable[combinationRule + 1];
+        final MergeFunction mergeFnwith = OP_TABLE[combinationRule + 1];
         assert mergeFnwith != null : "Unexpected `null` value";
         sourcePPW = div(32, sourceDepth);
         sourcePixMask = MASK_TABLE[sourceDepth];
@@ -1261,12 +1288,12 @@ public final class BitBlt {
                 dstBitShift = dstShiftLeft;
                 if (destMask == ALL_ONES) {
                     /* avoid read-modify-write */
-                    mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, dstLongAt(destIndex));
+                    mergeWord = mergeFnwith.apply(this, skewWord & halftoneWord, dstLongAt(destIndex));
                     dstLongAtput(destIndex, destMask & mergeWord);
                 } else {
                     /* General version using dest masking */
                     destWord = dstLongAt(destIndex);
-                    mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, destWord & destMask);
+                    mergeWord = mergeFnwith.apply(this, skewWord & halftoneWord, destWord & destMask);
                     destWord = destMask & mergeWord | destWord & ~destMask;
                     dstLongAtput(destIndex, destWord);
                 }
@@ -1615,55 +1642,53 @@ public final class BitBlt {
     }
 
     /* BitBltSimulation>>#initBBOpTable */
-    private void initBBOpTable() {
-        CompilerDirectives.transferToInterpreterAndInvalidate();
-        opTable[0 + 1] = BitBlt::clearWordwith;
-        opTable[1 + 1] = BitBlt::bitAndwith;
-        opTable[2 + 1] = BitBlt::bitAndInvertwith;
-        opTable[3 + 1] = this::sourceWordwith;
-        opTable[4 + 1] = BitBlt::bitInvertAndwith;
-        opTable[5 + 1] = BitBlt::destinationWordwith;
-        opTable[6 + 1] = BitBlt::bitXorwith;
-        opTable[7 + 1] = BitBlt::bitOrwith;
-        opTable[8 + 1] = BitBlt::bitInvertAndInvertwith;
-        opTable[9 + 1] = BitBlt::bitInvertXorwith;
-        opTable[10 + 1] = BitBlt::bitInvertDestinationwith;
-        opTable[11 + 1] = BitBlt::bitOrInvertwith;
-        opTable[12 + 1] = BitBlt::bitInvertSourcewith;
-        opTable[13 + 1] = BitBlt::bitInvertOrwith;
-        opTable[14 + 1] = BitBlt::bitInvertOrInvertwith;
-        opTable[15 + 1] = BitBlt::destinationWordwith;
-        opTable[16 + 1] = BitBlt::destinationWordwith;
-        opTable[17 + 1] = BitBlt::destinationWordwith;
-        opTable[18 + 1] = this::addWordwith;
-        opTable[19 + 1] = this::subWordwith;
-        opTable[20 + 1] = this::rgbAddwith;
-        opTable[21 + 1] = this::rgbSubwith;
-        opTable[22 + 1] = this::oLDrgbDiffwith;
-        opTable[23 + 1] = this::oLDtallyIntoMapwith;
-        opTable[24 + 1] = this::alphaBlendwith;
-        opTable[25 + 1] = this::pixPaintwith;
-        opTable[26 + 1] = this::pixMaskwith;
-        opTable[27 + 1] = this::rgbMaxwith;
-        opTable[28 + 1] = this::rgbMinwith;
-        opTable[29 + 1] = this::rgbMinInvertwith;
-        opTable[30 + 1] = this::alphaBlendConstwith;
-        opTable[31 + 1] = this::alphaPaintConstwith;
-        opTable[32 + 1] = this::rgbDiffwith;
-        opTable[33 + 1] = this::tallyIntoMapwith;
-        opTable[34 + 1] = this::alphaBlendScaledwith;
-        opTable[35 + 1] = this::alphaBlendScaledwith;
-        opTable[36 + 1] = this::alphaBlendScaledwith;
-        opTable[37 + 1] = this::rgbMulwith;
-        opTable[38 + 1] = this::pixSwapwith;
-        opTable[39 + 1] = this::pixClearwith;
-        opTable[40 + 1] = this::fixAlphawith;
-        opTable[41 + 1] = this::rgbComponentAlphawith;
+    private static void initBBOpTable() {
+        OP_TABLE[0 + 1] = (bitBlt, sourceWord, destinationWord) -> clearWordwith(sourceWord, destinationWord);
+        OP_TABLE[1 + 1] = (bitBlt, sourceWord, destinationWord) -> bitAndwith(sourceWord, destinationWord);
+        OP_TABLE[2 + 1] = (bitBlt, sourceWord, destinationWord) -> bitAndInvertwith(sourceWord, destinationWord);
+        OP_TABLE[3 + 1] = BitBlt::sourceWordwith;
+        OP_TABLE[4 + 1] = (bitBlt, sourceWord, destinationWord) -> bitInvertAndwith(sourceWord, destinationWord);
+        OP_TABLE[5 + 1] = (bitBlt, sourceWord, destinationWord) -> destinationWordwith(sourceWord, destinationWord);
+        OP_TABLE[6 + 1] = (bitBlt, sourceWord, destinationWord) -> bitXorwith(sourceWord, destinationWord);
+        OP_TABLE[7 + 1] = (bitBlt, sourceWord, destinationWord) -> bitOrwith(sourceWord, destinationWord);
+        OP_TABLE[8 + 1] = (bitBlt, sourceWord, destinationWord) -> bitInvertAndInvertwith(sourceWord, destinationWord);
+        OP_TABLE[9 + 1] = (bitBlt, sourceWord, destinationWord) -> bitInvertXorwith(sourceWord, destinationWord);
+        OP_TABLE[10 + 1] = (bitBlt, sourceWord, destinationWord) -> bitInvertDestinationwith(sourceWord, destinationWord);
+        OP_TABLE[11 + 1] = (bitBlt, sourceWord, destinationWord) -> bitOrInvertwith(sourceWord, destinationWord);
+        OP_TABLE[12 + 1] = (bitBlt, sourceWord, destinationWord) -> bitInvertSourcewith(sourceWord, destinationWord);
+        OP_TABLE[13 + 1] = (bitBlt, sourceWord, destinationWord) -> bitInvertOrwith(sourceWord, destinationWord);
+        OP_TABLE[14 + 1] = (bitBlt, sourceWord, destinationWord) -> bitInvertOrInvertwith(sourceWord, destinationWord);
+        OP_TABLE[15 + 1] = (bitBlt, sourceWord, destinationWord) -> destinationWordwith(sourceWord, destinationWord);
+        OP_TABLE[16 + 1] = (bitBlt, sourceWord, destinationWord) -> destinationWordwith(sourceWord, destinationWord);
+        OP_TABLE[17 + 1] = (bitBlt, sourceWord, destinationWord) -> destinationWordwith(sourceWord, destinationWord);
+        OP_TABLE[18 + 1] = BitBlt::addWordwith;
+        OP_TABLE[19 + 1] = BitBlt::subWordwith;
+        OP_TABLE[20 + 1] = BitBlt::rgbAddwith;
+        OP_TABLE[21 + 1] = BitBlt::rgbSubwith;
+        OP_TABLE[22 + 1] = BitBlt::oLDrgbDiffwith;
+        OP_TABLE[23 + 1] = BitBlt::oLDtallyIntoMapwith;
+        OP_TABLE[24 + 1] = BitBlt::alphaBlendwith;
+        OP_TABLE[25 + 1] = BitBlt::pixPaintwith;
+        OP_TABLE[26 + 1] = BitBlt::pixMaskwith;
+        OP_TABLE[27 + 1] = BitBlt::rgbMaxwith;
+        OP_TABLE[28 + 1] = BitBlt::rgbMinwith;
+        OP_TABLE[29 + 1] = BitBlt::rgbMinInvertwith;
+        OP_TABLE[30 + 1] = BitBlt::alphaBlendConstwith;
+        OP_TABLE[31 + 1] = BitBlt::alphaPaintConstwith;
+        OP_TABLE[32 + 1] = BitBlt::rgbDiffwith;
+        OP_TABLE[33 + 1] = BitBlt::tallyIntoMapwith;
+        OP_TABLE[34 + 1] = BitBlt::alphaBlendScaledwith;
+        OP_TABLE[35 + 1] = BitBlt::alphaBlendScaledwith;
+        OP_TABLE[36 + 1] = BitBlt::alphaBlendScaledwith;
+        OP_TABLE[37 + 1] = BitBlt::rgbMulwith;
+        OP_TABLE[38 + 1] = BitBlt::pixSwapwith;
+        OP_TABLE[39 + 1] = BitBlt::pixClearwith;
+        OP_TABLE[40 + 1] = BitBlt::fixAlphawith;
+        OP_TABLE[41 + 1] = BitBlt::rgbComponentAlphawith;
     }
 
     /* BitBltSimulation>>#initDither8Lookup */
     private static void initDither8Lookup() {
-        CompilerDirectives.transferToInterpreterAndInvalidate();
         long value;
 
         for (int b = 0; b <= 0xFF; b++) {
@@ -1675,7 +1700,7 @@ public final class BitBlt {
     }
 
     /* BitBltSimulation>>#initialiseModule */
-    private void initialiseModule() {
+    private static void initialiseModule() {
         initBBOpTable();
         initDither8Lookup();
     }
@@ -2370,6 +2395,9 @@ public final class BitBlt {
     /* BitBltSimulation>>#performCopyLoop */
     private void performCopyLoop() {
         destMaskAndPointerInit();
+        if (tryCopyingWords32()) {
+            return;
+        }
         if (noSource) {
             /* Simple fill loop */
             copyLoopNoSource();
@@ -2390,6 +2418,137 @@ public final class BitBlt {
         }
     }
 
+    /*
+     * Fast paths for store, paint, and alpha blend on 32-bit word forms without color map. At this
+     * depth, pixels are words, destination masks cover full words, and source words need no skew,
+     * so rows can be copied, filled, and blended directly instead of going through the generic
+     * loops and the opTable. Fills use the halftone as fill color, copies must not use a halftone.
+     * Rows and pixels are processed in the order established by checkSourceOverlap, so that the
+     * results are identical to the ones of the generic loops.
+     */
+    private boolean tryCopyingWords32() {
+        if (!useFastPaths32 || destDepth != 32 || destBits == null || !(combinationRule == 3 || combinationRule == 24 || combinationRule == 25 || combinationRule == 34)) {
+            return false;
+        }
+        final int destWordsPerRow = destPitch >>> 2;
+        if (noSource) {
+            processRows32((firstRow, endRow) -> {
+                for (int row = firstRow; row < endRow; row++) {
+                    fillRow32((dy + row) * destWordsPerRow + dx, noHalftone ? ALL_ONES : halftoneLongAt(dy + row));
+                }
+            }, true);
+            return true;
+        }
+        if (sourceDepth != 32 || !sourceBitsIsWords || cmFlags != 0 || sourceMSB != destMSB || !noHalftone) {
+            return false;
+        }
+        final int sourceWordsPerRow = sourcePitch >>> 2;
+        final boolean bottomUp = sourceForm == destForm && dy > sy;
+        final boolean rightToLeft = sourceForm == destForm && dy == sy && dx > sx;
+        processRows32((firstRow, endRow) -> {
+            for (int i = firstRow; i < endRow; i++) {
+                final int row = bottomUp ? bbH - 1 - i : i;
+                copyRow32((sy + row) * sourceWordsPerRow + sx, (dy + row) * destWordsPerRow + dx, rightToLeft);
+            }
+        }, sourceBits != destBits || !sourceOverlapsDestination());
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface RowBand {
+        void process(int firstRow, int endRow);
+    }
+
+    /*
+     * With the bitblt-bands option, large blits are split into horizontal bands, which are
+     * processed in parallel by the common fork-join pool. Each band reads and writes rows of its own
+     * only, so this is limited to blits whose source does not overlap their destination. Results are
+     * identical to processing all rows in order.
+     */
+    private void processRows32(final RowBand band, final boolean isIndependentRows) {
+        final int numBands = useParallelBands && isIndependentRows && (long) bbW * bbH >= PARALLEL_MIN_PIXELS ? Math.min(ForkJoinPool.getCommonPoolParallelism(), bbH / PARALLEL_MIN_BAND_ROWS) : 1;
+        if (numBands <= 1) {
+            band.process(0, bbH);
+            return;
+        }
+        IntStream.range(0, numBands).parallel().forEach(i -> band.process((int) ((long) bbH * i / numBands), (int) ((long) bbH * (i + 1) / numBands)));
+    }
+
+    /* Both sourceBits and destBits are known to be words here. */
+    private boolean sourceOverlapsDestination() {
+        final int sourceWordsPerRow = sourcePitch >>> 2;
+        final int destWordsPerRow = destPitch >>> 2;
+        final long sourceFirst = (long) sy * sourceWordsPerRow + sx;
+        final long sourceLast = (long) (sy + bbH - 1) * sourceWordsPerRow + sx + bbW - 1;
+        final long destFirst = (long) dy * destWordsPerRow + dx;
+        final long destLast = (long) (dy + bbH - 1) * destWordsPerRow + dx + bbW - 1;
+        if (sourceWordsPerRow != destWordsPerRow) {
+            /* Compare the word ranges spanned by the rectangles. */
+            return sourceFirst <= destLast && destFirst <= sourceLast;
+        }
+        return sy < dy + bbH && dy < sy + bbH && sx < dx + bbW && dx < sx + bbW;
+    }
+
+    private void fillRow32(final int start, final long fillWord) {
+        final int end = start + bbW;
+        switch (combinationRule) {
+            case 3:
+                Arrays.fill(destBits, start, end, (int) fillWord);
+                break;
+            case 24:
+                for (int i = start; i < end; i++) {
+                    destBits[i] = (int) alphaBlendwith(fillWord, Integer.toUnsignedLong(destBits[i]));
+                }
+                break;
+            case 25:
+                /* Transparent (zero) pixels leave the destination unchanged. */
+                if (fillWord != 0) {
+                    Arrays.fill(destBits, start, end, (int) fillWord);
+                }
+                break;
+            case 34:
+                for (int i = start; i < end; i++) {
+                    destBits[i] = (int) alphaBlendScaledwith(fillWord, Integer.toUnsignedLong(destBits[i]));
+                }
+                break;
+            default:
+                throw SqueakException.create("Unexpected combination rule", combinationRule);
+        }
+    }
+
+    private void copyRow32(final int sourceStart, final int destStart, final boolean rightToLeft) {
+        final int[] source = (int[]) sourceBits;
+        if (combinationRule == 3) {
+            /* Copies overlapping ranges as if through a temporary array. */
+            System.arraycopy(source, sourceStart, destBits, destStart, bbW);
+            return;
+        }
+        final int first = rightToLeft ? bbW - 1 : 0;
+        final int step = rightToLeft ? -1 : 1;
+        switch (combinationRule) {
+            case 24:
+                for (int i = 0, j = first; i < bbW; i++, j += step) {
+                    destBits[destStart + j] = (int) alphaBlendwith(Integer.toUnsignedLong(source[sourceStart + j]), Integer.toUnsignedLong(destBits[destStart + j]));
+                }
+                break;
+            case 25:
+                for (int i = 0, j = first; i < bbW; i++, j += step) {
+                    final int sourceWord = source[sourceStart + j];
+                    if (sourceWord != 0) {
+                        destBits[destStart + j] = sourceWord;
+                    }
+                }
+                break;
+            case 34:
+                for (int i = 0, j = first; i < bbW; i++, j += step) {
+                    destBits[destStart + j] = (int) alphaBlendScaledwith(Integer.toUnsignedLong(source[sourceStart + j]), Integer.toUnsignedLong(destBits[destStart + j]));
+                }
+                break;
+            default:
+                throw SqueakException.create("Unexpected combination rule", combinationRule);
+        }
+    }
+
     /*
      * Pick nPix pixels starting at srcBitIndex from the source, map by the color map, and justify
      * them according to dstBitIndex in the resulting destWord.
@@ -3707,7 +3866,7 @@ public final class BitBlt {
         int yDelta;
 
         halftoneWord = 0;
-        final LongBinaryOperator mergeFnwith = opTable[combinationRule + 1];
+        final MergeFunction mergeFnwith = OP_TABLE[combinationRule + 1];
         if (slotSizeOf(bitBltOop) < BB_WARP_BASE + 12) {
             PrimitiveFailed.andTransferToInterpreter();
         }
@@ -3855,14 +4014,14 @@ public final class BitBlt {
                 dstBitShift = dstShiftLeft;
                 if (destMask == ALL_ONES) {
                     /* avoid read-modify-write */
-                    mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, dstLongAt(destIndex));
+                    mergeWord = mergeFnwith.apply(this, skewWord & halftoneWord, dstLongAt(destIndex));
                     /* begin dstLongAt:put: */
                     dstLongAtput(destIndex, destMask & mergeWord);
                 } else {
                     /* General version using dest masking */
                     /* begin dstLongAt: */
                     destWord = dstLongAt(destIndex);
-                    mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, destWord & destMask);
+                    mergeWord = mergeFnwith.apply(this, skewWord & halftoneWord, destWord & destMask);
                     destWord = destMask & mergeWord | destWord & ~destMask;
                     /* begin dstLongAt:put: */
                     dstLongAtput(destIndex, destWord);
@@ -38,9 +38,24 @@ public final class BitBltPlugin extends AbstractPrimitiveFactoryHolder {
         return BitBltPluginFactory.getFactories();
     }
 
+    /**
+     * BitBlt primitives keep their state in a {@link BitBlt} of their own instead of sharing the one
+     * of the image, so that its fields only ever describe operations of a single call site. The
+     * simulation itself still loads its state into fields and runs behind a TruffleBoundary, so
+     * primitives are not specialized on combination rule, depths, or color map.
+     */
+    protected abstract static class AbstractBitBltPrimitiveNode extends AbstractPrimitiveNode {
+        protected final BitBlt bitblt;
+
+        protected AbstractBitBltPrimitiveNode(final CompiledMethodObject method) {
+            super(method);
+            bitblt = new BitBlt(method.image.options.useBitBltBands);
+        }
+    }
+
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveCopyBits")
-    protected abstract static class PrimCopyBitsNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+    protected abstract static class PrimCopyBitsNode extends AbstractBitBltPrimitiveNode implements BinaryPrimitive {
 
         protected PrimCopyBitsNode(final CompiledMethodObject method) {
             super(method);
@@ -49,22 +64,22 @@ public final class BitBltPlugin extends AbstractPrimitiveFactoryHolder {
         @Specialization
         @TruffleBoundary(transferToInterpreterOnException = false)
         protected final Object doCopy(final PointersObject receiver, @SuppressWarnings("unused") final NotProvided notProvided) {
-            method.image.bitblt.resetSuccessFlag();
+            bitblt.resetSuccessFlag();
             // Not provided represented by `-1L` factor.
-            return method.image.bitblt.primitiveCopyBits(receiver, -1L);
+            return bitblt.primitiveCopyBits(receiver, -1L);
         }
 
         @Specialization
         @TruffleBoundary(transferToInterpreterOnException = false)
         protected final Object doCopyTranslucent(final PointersObject receiver, final long factor) {
-            method.image.bitblt.resetSuccessFlag();
-            return method.image.bitblt.primitiveCopyBits(receiver, factor);
+            bitblt.resetSuccessFlag();
+            return bitblt.primitiveCopyBits(receiver, factor);
         }
     }
 
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveDisplayString")
-    protected abstract static class PrimDisplayStringNode extends AbstractPrimitiveNode implements SeptenaryPrimitive {
+    protected abstract static class PrimDisplayStringNode extends AbstractBitBltPrimitiveNode implements SeptenaryPrimitive {
 
         protected PrimDisplayStringNode(final CompiledMethodObject method) {
             super(method);
@@ -75,8 +90,8 @@ public final class BitBltPlugin extends AbstractPrimitiveFactoryHolder {
         @TruffleBoundary(transferToInterpreterOnException = false)
         protected final Object doDisplayLongArrays(final PointersObject receiver, final NativeObject aString, final long startIndex, final long stopIndex,
                         final ArrayObject glyphMap, final ArrayObject xTable, final long kernDelta) {
-            method.image.bitblt.resetSuccessFlag();
-            return method.image.bitblt.primitiveDisplayString(receiver, aString, startIndex, stopIndex, glyphMap.getLongStorage(), xTable.getLongStorage(), (int) kernDelta);
+            bitblt.resetSuccessFlag();
+            return bitblt.primitiveDisplayString(receiver, aString, startIndex, stopIndex, glyphMap.getLongStorage(), xTable.getLongStorage(), (int) kernDelta);
         }
 
         @Specialization(guards = {"startIndex >= 1", "stopIndex > 0", "aString.isByteType()", "aString.getByteLength() > 0",
@@ -86,12 +101,12 @@ public final class BitBltPlugin extends AbstractPrimitiveFactoryHolder {
                         final ArrayObject glyphMap, final ArrayObject xTable, final long kernDelta,
                         @SuppressWarnings("unused") @Cached final ArrayObjectSizeNode sizeNode,
                         @Cached final ArrayObjectToObjectArrayCopyNode toObjectArrayNode) {
-            method.image.bitblt.resetSuccessFlag();
+            bitblt.resetSuccessFlag();
             final long[] glyphMapValues = toLongArray(toObjectArrayNode.execute(glyphMap));
             glyphMap.setStorage(glyphMapValues); // re-specialize.
             final long[] xTableValues = toLongArray(toObjectArrayNode.execute(xTable));
             xTable.setStorage(xTableValues); // re-specialize.
-            return method.image.bitblt.primitiveDisplayString(receiver, aString, startIndex, stopIndex, glyphMapValues, xTableValues, (int) kernDelta);
+            return bitblt.primitiveDisplayString(receiver, aString, startIndex, stopIndex, glyphMapValues, xTableValues, (int) kernDelta);
         }
 
         // TODO: Find good replacement for `toLongArray`.
@@ -117,7 +132,7 @@ public final class BitBltPlugin extends AbstractPrimitiveFactoryHolder {
 
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveDrawLoop")
-    protected abstract static class PrimDrawLoopNode extends AbstractPrimitiveNode implements TernaryPrimitive {
+    protected abstract static class PrimDrawLoopNode extends AbstractBitBltPrimitiveNode implements TernaryPrimitive {
 
         protected PrimDrawLoopNode(final CompiledMethodObject method) {
             super(method);
@@ -126,15 +141,15 @@ public final class BitBltPlugin extends AbstractPrimitiveFactoryHolder {
         @Specialization
         @TruffleBoundary(transferToInterpreterOnException = false)
         protected final Object doDrawLoop(final PointersObject receiver, final long xDelta, final long yDelta) {
-            method.image.bitblt.resetSuccessFlag();
-            return method.image.bitblt.primitiveDrawLoop(receiver, xDelta, yDelta);
+            bitblt.resetSuccessFlag();
+            return bitblt.primitiveDrawLoop(receiver, xDelta, yDelta);
         }
     }
 
     @ImportStatic(FORM.class)
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitivePixelValueAt")
-    protected abstract static class PrimPixelValueAtNode extends AbstractPrimitiveNode implements TernaryPrimitive {
+    protected abstract static class PrimPixelValueAtNode extends AbstractBitBltPrimitiveNode implements TernaryPrimitive {
 
         public PrimPixelValueAtNode(final CompiledMethodObject method) {
             super(method);
@@ -149,14 +164,14 @@ public final class BitBltPlugin extends AbstractPrimitiveFactoryHolder {
         @Specialization(guards = {"xValue >= 0", "yValue >= 0", "receiver.size() > OFFSET"})
         @TruffleBoundary(transferToInterpreterOnException = false)
         protected final long doValueAt(final PointersObject receiver, final long xValue, final long yValue) {
-            method.image.bitblt.resetSuccessFlag();
-            return method.image.bitblt.primitivePixelValueAt(receiver, xValue, yValue);
+            bitblt.resetSuccessFlag();
+            return bitblt.primitivePixelValueAt(receiver, xValue, yValue);
         }
     }
 
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveWarpBits")
-    protected abstract static class PrimWarpBitsNode extends AbstractPrimitiveNode implements TernaryPrimitive {
+    protected abstract static class PrimWarpBitsNode extends AbstractBitBltPrimitiveNode implements TernaryPrimitive {
 
         public PrimWarpBitsNode(final CompiledMethodObject method) {
             super(method);
@@ -165,22 +180,22 @@ public final class BitBltPlugin extends AbstractPrimitiveFactoryHolder {
         @Specialization
         @TruffleBoundary(transferToInterpreterOnException = false)
         protected final Object doValueAt(final PointersObject receiver, final long n, @SuppressWarnings("unused") final NotProvided notProvided) {
-            method.image.bitblt.resetSuccessFlag();
-            return method.image.bitblt.primitiveWarpBits(receiver, n, null);
+            bitblt.resetSuccessFlag();
+            return bitblt.primitiveWarpBits(receiver, n, null);
         }
 
         @Specialization
         @TruffleBoundary(transferToInterpreterOnException = false)
         protected final Object doValueAt(final PointersObject receiver, final long n, final NilObject nil) {
-            method.image.bitblt.resetSuccessFlag();
-            return method.image.bitblt.primitiveWarpBits(receiver, n, nil);
+            bitblt.resetSuccessFlag();
+            return bitblt.primitiveWarpBits(receiver, n, nil);
         }
 
         @Specialization
         @TruffleBoundary(transferToInterpreterOnException = false)
         protected final Object doValueAt(final PointersObject receiver, final long n, final NativeObject sourceMap) {
-            method.image.bitblt.resetSuccessFlag();
-            return method.image.bitblt.primitiveWarpBits(receiver, n, sourceMap);
+            bitblt.resetSuccessFlag();
+            return bitblt.primitiveWarpBits(receiver, n, sourceMap);
         }
     }
 }
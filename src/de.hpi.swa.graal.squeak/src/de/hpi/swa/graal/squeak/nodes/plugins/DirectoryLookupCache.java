@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.nodes.plugins;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleFile;
+import com.oracle.truffle.api.TruffleFile.AttributeDescriptor;
+import com.oracle.truffle.api.TruffleFile.Attributes;
+
+import de.hpi.swa.graal.squeak.util.MiscUtils;
+
+/**
+ * Squeak enumerates directories by calling primitiveDirectoryLookup with increasing indices. To
+ * avoid listing the directory on every call, a snapshot of its readable entries (including the
+ * attributes needed for directory entries) is taken when the enumeration starts at index 1 and
+ * reused for subsequent indices. Snapshots expire after {@link #TIME_TO_LIVE_MILLIS} and are
+ * dropped once an enumeration has run past the last entry.
+ */
+public final class DirectoryLookupCache {
+    private static final long TIME_TO_LIVE_MILLIS = 2000;
+    private static final int MAX_CACHED_DIRECTORIES = 16;
+    private static final List<AttributeDescriptor<?>> ATTRIBUTES = Arrays.asList(TruffleFile.LAST_MODIFIED_TIME, TruffleFile.IS_DIRECTORY, TruffleFile.SIZE);
+
+    private final Map<String, Snapshot> snapshots = new LinkedHashMap<String, Snapshot>(MAX_CACHED_DIRECTORIES, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Snapshot> eldest) {
+            return size() > MAX_CACHED_DIRECTORIES;
+        }
+    };
+
+    public static final class Entry {
+        public final String name;
+        public final long lastModifiedSeconds;
+        public final boolean isDirectory;
+        public final long size;
+
+        private Entry(final String name, final long lastModifiedSeconds, final boolean isDirectory, final long size) {
+            this.name = name;
+            this.lastModifiedSeconds = lastModifiedSeconds;
+            this.isDirectory = isDirectory;
+            this.size = size;
+        }
+    }
+
+    private static final class Snapshot {
+        private final Entry[] entries;
+        private final long creationMillis;
+
+        private Snapshot(final Entry[] entries) {
+            this.entries = entries;
+            creationMillis = System.currentTimeMillis();
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - creationMillis > TIME_TO_LIVE_MILLIS;
+        }
+    }
+
+    /**
+     * Answers the entry at (zero-based) index in the directory, or `null` if there is none.
+     */
+    @TruffleBoundary
+    public Entry lookup(final String pathName, final TruffleFile directory, final int index) throws IOException {
+        Snapshot snapshot = snapshots.get(pathName);
+        if (index == 0 || snapshot == null || snapshot.isExpired()) {
+            snapshot = new Snapshot(list(directory));
+            snapshots.put(pathName, snapshot);
+        }
+        if (index < snapshot.entries.length) {
+            return snapshot.entries[index];
+        } else {
+            snapshots.remove(pathName); /* Enumeration complete. */
+            return null;
+        }
+    }
+
+    @TruffleBoundary
+    public void invalidate() {
+        snapshots.clear();
+    }
+
+    public static Entry readEntry(final TruffleFile file, final String fileName) throws IOException {
+        final Attributes attributes = file.getAttributes(ATTRIBUTES);
+        final long lastModifiedSeconds = MiscUtils.toSqueakSecondsLocal(attributes.get(TruffleFile.LAST_MODIFIED_TIME).to(TimeUnit.SECONDS));
+        return new Entry(fileName, lastModifiedSeconds, attributes.get(TruffleFile.IS_DIRECTORY), attributes.get(TruffleFile.SIZE));
+    }
+
+    private static Entry[] list(final TruffleFile directory) throws IOException {
+        final Collection<TruffleFile> files = directory.list();
+        final List<Entry> entries = new ArrayList<>(files.size());
+        for (final TruffleFile file : files) {
+            if (!file.isReadable()) {
+                continue;
+            }
+            try {
+                entries.add(readEntry(file, file.getName()));
+            } catch (final IOException e) {
+                continue; /* File vanished while listing the directory. */
+            }
+        }
+        return entries.toArray(new Entry[entries.size()]);
+    }
+}
@@ -8,16 +8,14 @@ package de.hpi.swa.graal.squeak.nodes.plugins;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.EnumSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -51,9 +49,7 @@ import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.TernaryPrimi
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.UnaryPrimitiveWithoutFallback;
 import de.hpi.swa.graal.squeak.nodes.primitives.SqueakPrimitive;
 import de.hpi.swa.graal.squeak.shared.SqueakLanguageConfig;
-import de.hpi.swa.graal.squeak.util.MiscUtils;
 import de.hpi.swa.graal.squeak.util.OSDetector;
-import de.hpi.swa.graal.squeak.util.UnsafeUtils;
 
 public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
     private static final TruffleLogger LOG = TruffleLogger.getLogger(SqueakLanguageConfig.ID, FilePlugin.class);
@@ -128,14 +124,17 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
 
     private static Object newFileEntry(final SqueakImageContext image, final TruffleFile file, final String fileName) {
         try {
-            final long lastModifiedSeconds = MiscUtils.toSqueakSecondsLocal(file.getLastModifiedTime().to(TimeUnit.SECONDS));
-            return image.asArrayOfObjects(image.asByteString(fileName), lastModifiedSeconds, lastModifiedSeconds,
-                            BooleanObject.wrap(file.isDirectory()), file.size());
+            return newFileEntry(image, DirectoryLookupCache.readEntry(file, fileName));
         } catch (final IOException e) {
             throw SqueakException.create("File must exist", e);
         }
     }
 
+    private static Object newFileEntry(final SqueakImageContext image, final DirectoryLookupCache.Entry entry) {
+        return image.asArrayOfObjects(image.asByteString(entry.name), entry.lastModifiedSeconds, entry.lastModifiedSeconds,
+                        BooleanObject.wrap(entry.isDirectory), entry.size);
+    }
+
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveDirectoryCreate")
     protected abstract static class PrimDirectoryCreateNode extends AbstractFilePluginPrimitiveNode implements BinaryPrimitive {
@@ -149,6 +148,7 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
         protected final Object doCreate(final Object receiver, final NativeObject fullPath) {
             try {
                 asPublicTruffleFile(fullPath).createDirectory();
+                method.image.directoryLookupCache.invalidate();
                 return receiver;
             } catch (IOException | UnsupportedOperationException | SecurityException e) {
                 throw PrimitiveFailed.GENERIC_ERROR;
@@ -169,6 +169,7 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
         protected final Object doDelete(final Object receiver, final NativeObject fullPath) {
             try {
                 asPublicTruffleFile(fullPath).delete();
+                method.image.directoryLookupCache.invalidate();
                 return receiver;
             } catch (IOException | UnsupportedOperationException | SecurityException e) {
                 throw PrimitiveFailed.GENERIC_ERROR;
@@ -259,21 +260,13 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
             if (!directory.isDirectory()) {
                 PrimitiveFailed.andTransferToInterpreter();
             }
-            final Collection<TruffleFile> files;
+            final DirectoryLookupCache.Entry entry;
             try {
-                files = directory.list();
+                entry = method.image.directoryLookupCache.lookup(pathName, directory, (int) longIndex - 1);
             } catch (final IOException e) {
                 throw SqueakException.create("A directory that exists must be listable", e);
             }
-            final int index = (int) longIndex - 1;
-            int currentIndex = 0;
-            for (final Iterator<TruffleFile> iterator = files.stream().filter(file -> file.isReadable()).iterator(); iterator.hasNext();) {
-                final TruffleFile file = iterator.next();
-                if (index == currentIndex++) {
-                    return newFileEntry(method.image, file);
-                }
-            }
-            return NilObject.SINGLETON;
+            return entry == null ? NilObject.SINGLETON : newFileEntry(method.image, entry);
         }
 
         @SuppressWarnings("unused")
@@ -361,6 +354,7 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
         protected final Object doClose(final Object receiver, final long fileDescriptor) {
             try {
                 getFileOrPrimFail(fileDescriptor).close();
+                method.image.filePluginHandles.removeKey(fileDescriptor);
                 LOG.fine(() -> "File Closed SUCCEEDED: " + fileDescriptor);
             } catch (final IOException e) {
                 LOG.fine(() -> "File Closed FAILED: " + fileDescriptor);
@@ -389,6 +383,7 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
             final TruffleFile file = asPublicTruffleFile(nativeFileName);
             try {
                 file.delete();
+                method.image.directoryLookupCache.invalidate();
                 return receiver;
             } catch (final IOException e) {
                 throw PrimitiveFailed.GENERIC_ERROR;
@@ -486,13 +481,8 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
         protected final Object doReadBytes(@SuppressWarnings("unused") final Object receiver, final long fileDescriptor, final NativeObject target,
                         final long startIndex, final long longCount,
                         @Exclusive @Cached final BranchProfile errorProfile) {
-            final int count = (int) longCount;
-            final ByteBuffer dst = allocate(count);
             try {
-                final long read = readFrom(fileDescriptor, dst);
-                for (int index = 0; index < read; index++) {
-                    target.setByte(startIndex - 1 + index, getFrom(dst, index));
-                }
+                final long read = readBytesFrom(getFileOrPrimFail(fileDescriptor), target.getByteStorage(), (int) startIndex - 1, (int) longCount);
                 return Math.max(read, 0L); // `read` can be `-1`, Squeak expects zero.
             } catch (final IOException e) {
                 errorProfile.enter();
@@ -504,19 +494,8 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
         protected final Object doReadInts(@SuppressWarnings("unused") final Object receiver, final long fileDescriptor, final NativeObject target,
                         final long startIndex, final long longCount,
                         @Exclusive @Cached final BranchProfile errorProfile) {
-            final int count = (int) longCount;
-            final ByteBuffer dst = allocate(count * Integer.BYTES);
             try {
-                final long readBytes = readFrom(fileDescriptor, dst);
-                assert readBytes % Integer.BYTES == 0;
-                final long readInts = readBytes / Integer.BYTES;
-                for (int index = 0; index < readInts; index++) {
-                    final int offset = index * Integer.BYTES;
-                    target.getIntStorage()[(int) (startIndex - 1 + index)] = getFromUnsigned(dst, offset + 3) << 24 |
-                                    getFromUnsigned(dst, offset + 2) << 16 |
-                                    getFromUnsigned(dst, offset + 1) << 8 |
-                                    getFromUnsigned(dst, offset);
-                }
+                final long readInts = readIntsFrom(getFileOrPrimFail(fileDescriptor), target.getIntStorage(), (int) startIndex - 1, (int) longCount);
                 return Math.max(readInts, 0L); // `read` can be `-1`, Squeak expects zero.
             } catch (final IOException e) {
                 errorProfile.enter();
@@ -530,23 +509,31 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
             throw PrimitiveFailed.GENERIC_ERROR;
         }
 
+        /* Reads directly into the byte storage of the target. */
         @TruffleBoundary(transferToInterpreterOnException = false)
-        private static ByteBuffer allocate(final int count) {
-            return ByteBuffer.allocate(count);
+        private static int readBytesFrom(final SeekableByteChannel file, final byte[] bytes, final int offset, final int count) throws IOException {
+            return file.read(ByteBuffer.wrap(bytes, offset, count));
         }
 
+        /*
+         * Channels can only read into byte buffers, so words are read in bulk and then transferred
+         * through a little-endian int view. Incomplete words are left in the file.
+         */
         @TruffleBoundary(transferToInterpreterOnException = false)
-        private int readFrom(final long fileDescriptor, final ByteBuffer dst) throws IOException {
-            return getFileOrPrimFail(fileDescriptor).read(dst);
-        }
-
-        @TruffleBoundary(transferToInterpreterOnException = false)
-        private static byte getFrom(final ByteBuffer dst, final int index) {
-            return dst.get(index);
-        }
-
-        private static int getFromUnsigned(final ByteBuffer dst, final int index) {
-            return Byte.toUnsignedInt(getFrom(dst, index));
+        private static int readIntsFrom(final SeekableByteChannel file, final int[] ints, final int offset, final int count) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            final int readBytes = file.read(buffer);
+            if (readBytes <= 0) {
+                return readBytes;
+            }
+            final int remainder = readBytes % Integer.BYTES;
+            if (remainder != 0) {
+                file.position(file.position() - remainder);
+            }
+            final int readInts = readBytes / Integer.BYTES;
+            buffer.flip();
+            buffer.asIntBuffer().get(ints, offset, readInts);
+            return readInts;
         }
     }
 
@@ -563,6 +550,7 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
         protected final Object doRename(final Object receiver, final NativeObject oldName, final NativeObject newName) {
             try {
                 asPublicTruffleFile(oldName).move(asPublicTruffleFile(newName));
+                method.image.directoryLookupCache.invalidate();
             } catch (final IOException e) {
                 throw PrimitiveFailed.GENERIC_ERROR;
             }
@@ -669,7 +657,6 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
         }
 
         @Specialization(guards = {"!isStdioFileDescriptor(fileDescriptor)", "content.isByteType()", "inBounds(startIndex, count, content.getByteLength())"})
-        @TruffleBoundary(transferToInterpreterOnException = false)
         protected final long doWriteByte(@SuppressWarnings("unused") final Object receiver, final long fileDescriptor, final NativeObject content, final long startIndex,
                         final long count) {
             return fileWriteFromAt(fileDescriptor, count, content.getByteStorage(), startIndex, 1);
@@ -691,14 +678,10 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
         @TruffleBoundary(transferToInterpreterOnException = false)
         protected final long doWriteInt(@SuppressWarnings("unused") final Object receiver, final long fileDescriptor, final NativeObject content, final long startIndex,
                         final long count) {
-            // TODO: use ByteBuffer or UnsafeUtils here?
-            final int[] ints = content.getIntStorage();
-            final int intsLength = ints.length;
-            final byte[] bytes = new byte[intsLength * Integer.BYTES];
-            for (int i = 0; i < intsLength; i++) {
-                UnsafeUtils.putIntReversed(bytes, i, ints[i]);
-            }
-            return fileWriteFromAt(fileDescriptor, count, bytes, startIndex, 4);
+            /* Words are written in little-endian order, matching how they are read. */
+            final ByteBuffer buffer = ByteBuffer.allocate((int) count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asIntBuffer().put(content.getIntStorage(), (int) startIndex - 1, (int) count);
+            return writeTo(fileDescriptor, buffer) / Integer.BYTES;
         }
 
         @Specialization(guards = {"!isStdioFileDescriptor(fileDescriptor)", "inBounds(startIndex, count, content.size())"})
@@ -721,19 +704,20 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
             return fileWriteFromAt(fileDescriptor, count, content.getBytes(), startIndex, 8);
         }
 
+        /* Writes directly from the given storage without copying it. */
+        @TruffleBoundary(transferToInterpreterOnException = false)
         private long fileWriteFromAt(final long fileDescriptor, final long count, final byte[] bytes, final long startIndex, final int elementSize) {
             final int byteStart = (int) (startIndex - 1) * elementSize;
-            final int byteEnd = Math.min(byteStart + (int) count, bytes.length) * elementSize;
-            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
-            buffer.position(byteStart);
-            buffer.limit(byteEnd);
-            final int written;
+            final int byteEnd = Math.min(byteStart + (int) count * elementSize, bytes.length);
+            return writeTo(fileDescriptor, ByteBuffer.wrap(bytes, byteStart, Math.max(byteEnd - byteStart, 0))) / elementSize;
+        }
+
+        private int writeTo(final long fileDescriptor, final ByteBuffer buffer) {
             try {
-                written = getFileOrPrimFail(fileDescriptor).write(buffer);
+                return getFileOrPrimFail(fileDescriptor).write(buffer);
             } catch (final IOException e) {
                 throw PrimitiveFailed.GENERIC_ERROR;
             }
-            return written / elementSize;
         }
 
         @TruffleBoundary(transferToInterpreterOnException = false)
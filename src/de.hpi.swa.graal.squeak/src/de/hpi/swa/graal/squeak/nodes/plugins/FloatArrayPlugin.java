@@ -12,6 +12,7 @@ import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 
+import de.hpi.swa.graal.squeak.exceptions.PrimitiveExceptions.PrimitiveFailed;
 import de.hpi.swa.graal.squeak.model.BooleanObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.FloatObject;
@@ -256,13 +257,30 @@ public class FloatArrayPlugin extends AbstractPrimitiveFactoryHolder {
     }
 
     @GenerateNodeFactory
-    @SqueakPrimitive(names = "primitiveNormalize") // TODO: implement primitive
-    public abstract static class PrimFloatArrayNormalizeNode extends AbstractPrimitiveNode {
+    @SqueakPrimitive(names = "primitiveNormalize")
+    public abstract static class PrimFloatArrayNormalizeNode extends AbstractPrimitiveNode implements UnaryPrimitive {
 
         public PrimFloatArrayNormalizeNode(final CompiledMethodObject method) {
             super(method);
         }
 
+        @Specialization(guards = {"receiver.isIntType()"})
+        protected static final NativeObject doNormalize(final NativeObject receiver) {
+            final int[] ints = receiver.getIntStorage();
+            double length = 0;
+            for (final int word : ints) {
+                final double value = Float.intBitsToFloat(word);
+                length += value * value;
+            }
+            if (length <= 0) {
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+            length = Math.sqrt(length);
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = Float.floatToRawIntBits((float) (Float.intBitsToFloat(ints[i]) / length));
+            }
+            return receiver;
+        }
     }
 
     @GenerateNodeFactory
@@ -12,8 +12,10 @@ import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
+import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveFactoryHolder;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveNode;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.BinaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.BinaryPrimitiveWithoutFallback;
 import de.hpi.swa.graal.squeak.nodes.primitives.SqueakPrimitive;
 
@@ -37,4 +39,38 @@ public final class GraalSqueakPlugin extends AbstractPrimitiveFactoryHolder {
             return receiver;
         }
     }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "allocationReport")
+    protected abstract static class PrimAllocationReportNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+        protected PrimAllocationReportNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = "method.image.allocationProfiler != null")
+        protected final NativeObject doReport(@SuppressWarnings("unused") final Object receiver, final boolean reset) {
+            final NativeObject report = method.image.asByteString(method.image.allocationProfiler.getReport());
+            if (reset) {
+                method.image.allocationProfiler.reset();
+            }
+            return report;
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "layoutStatistics")
+    protected abstract static class PrimLayoutStatisticsNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+        protected PrimLayoutStatisticsNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = "method.image.layoutStatistics != null")
+        protected final NativeObject doStatistics(@SuppressWarnings("unused") final Object receiver, final boolean reset) {
+            final NativeObject statistics = method.image.asByteString(method.image.layoutStatistics.toJSON());
+            if (reset) {
+                method.image.layoutStatistics.reset();
+            }
+            return statistics;
+        }
+    }
 }
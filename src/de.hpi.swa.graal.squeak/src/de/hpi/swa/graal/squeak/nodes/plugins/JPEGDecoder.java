@@ -0,0 +1,842 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.nodes.plugins;
+
+import de.hpi.swa.graal.squeak.exceptions.PrimitiveExceptions.PrimitiveFailed;
+import de.hpi.swa.graal.squeak.util.MiscUtils;
+
+/**
+ * Decoder for entire baseline and progressive JPEG images (8-bit precision, Huffman coding,
+ * grayscale or three color components), which complements the MCU primitives of the
+ * JPEGReaderPlugin. Images can be scaled down by 2, 4, or 8 during the inverse DCT: each block is
+ * transformed directly into one sample per scaled pixel, which is the average of the pixels it
+ * covers, so that thumbnails come at a fraction of the cost of a full decode. The result consists
+ * of 32-bit ARGB pixels as in a Form of depth 32. Malformed or unsupported data fails the
+ * primitive.
+ */
+public final class JPEGDecoder {
+    private static final int DCT_SIZE = 8;
+    private static final int DCT_SIZE2 = 64;
+    private static final int MAX_SAMPLE = 255;
+    private static final int SAMPLE_OFFSET = 128;
+    private static final int MAX_COMPONENTS = 3;
+    private static final int MAX_SAMPLING_FACTOR = 4;
+
+    /* Fixed-point factors (16 bits) of the YCbCr to RGB conversion as in JPEGReader. */
+    private static final int FIX_1_40200 = 91881;
+    private static final int FIX_0_34414 = 22554;
+    private static final int FIX_0_71414 = 46802;
+    private static final int FIX_1_77200 = 116130;
+    private static final int FIX_ONE_HALF = 1 << 15;
+
+    private static final int MARKER_SOF0 = 0xC0;
+    private static final int MARKER_SOF1 = 0xC1;
+    private static final int MARKER_SOF2 = 0xC2;
+    private static final int MARKER_DHT = 0xC4;
+    private static final int MARKER_RST0 = 0xD0;
+    private static final int MARKER_RST7 = 0xD7;
+    private static final int MARKER_SOI = 0xD8;
+    private static final int MARKER_EOI = 0xD9;
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_DQT = 0xDB;
+    private static final int MARKER_DRI = 0xDD;
+    private static final int MARKER_APP14 = 0xEE;
+
+    private static final int[] NATURAL_ORDER = {
+                    0, 1, 8, 16, 9, 2, 3, 10,
+                    17, 24, 32, 25, 18, 11, 4, 5,
+                    12, 19, 26, 33, 40, 48, 41, 34,
+                    27, 20, 13, 6, 7, 14, 21, 28,
+                    35, 42, 49, 56, 57, 50, 43, 36,
+                    29, 22, 15, 23, 30, 37, 44, 51,
+                    58, 59, 52, 45, 38, 31, 39, 46,
+                    53, 60, 61, 54, 47, 55, 62, 63
+    };
+
+    /*
+     * IDCT_TABLES[log2(n)][u * n + x]: weight of frequency u (of all 8) for sample x of an IDCT with
+     * n samples. Each sample is the average of s = 8 / n pixels of the full-size IDCT. Over these,
+     * the basis function of frequency u averages to its value at their center, which is the cosine
+     * at sample x of an n-point IDCT, times sin(s*u*pi/16) / (s*sin(u*pi/16)), for example
+     * cos(u*pi/16) for s = 2. Frequencies of n and above do not vanish in the average, but alias.
+     */
+    private static final float[][] IDCT_TABLES = new float[4][];
+
+    static {
+        for (int log2 = 0; log2 < IDCT_TABLES.length; log2++) {
+            final int n = 1 << log2;
+            final int s = DCT_SIZE / n;
+            final float[] table = new float[DCT_SIZE * n];
+            for (int u = 0; u < DCT_SIZE; u++) {
+                final double average = u == 0 ? 1.0 : Math.sin(s * u * Math.PI / 16) / (s * Math.sin(u * Math.PI / 16));
+                final double c = (u == 0 ? Math.sqrt(0.5) : 1.0) * average;
+                for (int x = 0; x < n; x++) {
+                    table[u * n + x] = (float) (c / 2 * Math.cos((2 * x + 1) * u * Math.PI / (2 * n)));
+                }
+            }
+            IDCT_TABLES[log2] = table;
+        }
+    }
+
+    private final byte[] data;
+    private final int blockSize;
+    private final float[] idctTable;
+    private int position;
+
+    private int width;
+    private int height;
+    private boolean isProgressive;
+    private boolean hasAdobeRGB;
+    private Component[] components;
+    private int maxH;
+    private int maxV;
+    private int mcusPerLine;
+    private int mcusPerColumn;
+    private int restartInterval;
+    private final int[][] quantizationTables = new int[4][];
+    private final HuffmanTable[] dcTables = new HuffmanTable[4];
+    private final HuffmanTable[] acTables = new HuffmanTable[4];
+
+    /* Entropy-coded data. */
+    private long bitBuffer;
+    private int bitCount;
+    private int eobRun;
+
+    /* Scratch buffers of the IDCT. */
+    private final int[] block = new int[DCT_SIZE2];
+    private final float[] dequantizedBlock = new float[DCT_SIZE2];
+    private final float[] rowSums = new float[DCT_SIZE2];
+
+    private static final class Component {
+        private final int id;
+        private final int h;
+        private final int v;
+        private final int quantizationTableIndex;
+        private final int blocksPerLine;
+        private final int blocksPerColumn;
+        private final int planeWidth;
+        private final byte[] plane;
+        /* Coefficients of all blocks in natural order, only needed for progressive images. */
+        private final short[] coefficients;
+        private HuffmanTable dcTable;
+        private HuffmanTable acTable;
+        private int dcPredictor;
+
+        private Component(final int id, final int h, final int v, final int quantizationTableIndex, final int blocksPerLine, final int blocksPerColumn, final int blockSize,
+                        final boolean isProgressive) {
+            this.id = id;
+            this.h = h;
+            this.v = v;
+            this.quantizationTableIndex = quantizationTableIndex;
+            this.blocksPerLine = blocksPerLine;
+            this.blocksPerColumn = blocksPerColumn;
+            planeWidth = blocksPerLine * blockSize;
+            plane = new byte[planeWidth * blocksPerColumn * blockSize];
+            coefficients = isProgressive ? new short[blocksPerLine * blocksPerColumn * DCT_SIZE2] : null;
+        }
+    }
+
+    /** Canonical Huffman table with a lookup table for codes of up to LOOKAHEAD_BITS bits. */
+    private static final class HuffmanTable {
+        private static final int LOOKAHEAD_BITS = 9;
+        private static final int MAX_CODE_LENGTH = 16;
+
+        /* (length << 8) | value for each code prefix, 0 if the code is longer. */
+        private final int[] lookup = new int[1 << LOOKAHEAD_BITS];
+        /* Largest code of each length, -1 if there is none. */
+        private final int[] maxCode = new int[MAX_CODE_LENGTH + 2];
+        private final int[] valueOffsets = new int[MAX_CODE_LENGTH + 1];
+        private final byte[] values;
+
+        private HuffmanTable(final int[] counts, final byte[] values) {
+            this.values = values;
+            int code = 0;
+            int index = 0;
+            for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+                valueOffsets[length] = index - code;
+                for (int i = 0; i < counts[length]; i++) {
+                    if (code >= 1 << length) {
+                        throw PrimitiveFailed.BAD_ARGUMENT; /* Too many codes of this length. */
+                    }
+                    if (length <= LOOKAHEAD_BITS) {
+                        final int shift = LOOKAHEAD_BITS - length;
+                        final int entry = length << 8 | values[index] & 0xFF;
+                        for (int j = code << shift; j < code + 1 << shift; j++) {
+                            lookup[j] = entry;
+                        }
+                    }
+                    code++;
+                    index++;
+                }
+                maxCode[length] = counts[length] == 0 ? -1 : code - 1;
+                code <<= 1;
+            }
+            maxCode[MAX_CODE_LENGTH + 1] = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Reads the header of a JPEG image.
+     *
+     * @param scale 1, 2, 4, or 8 to decode the image at full size, half size, and so on
+     */
+    public JPEGDecoder(final byte[] data, final int scale) {
+        if (scale != 1 && scale != 2 && scale != 4 && scale != 8) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        this.data = data;
+        blockSize = DCT_SIZE / scale;
+        idctTable = IDCT_TABLES[Integer.numberOfTrailingZeros(blockSize)];
+        if (readByte() != 0xFF || readByte() != MARKER_SOI) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        int marker = nextMarker();
+        while (marker != MARKER_SOF0 && marker != MARKER_SOF1 && marker != MARKER_SOF2) {
+            processMarker(marker);
+            marker = nextMarker();
+        }
+        readFrame(marker == MARKER_SOF2);
+    }
+
+    /** Answers the width of the (scaled) image. */
+    public int getWidth() {
+        return (width * blockSize + DCT_SIZE - 1) / DCT_SIZE;
+    }
+
+    /** Answers the height of the (scaled) image. */
+    public int getHeight() {
+        return (height * blockSize + DCT_SIZE - 1) / DCT_SIZE;
+    }
+
+    /** Decodes the image into pixels, which must have the (scaled) width and height. */
+    public void decodeInto(final int[] pixels) {
+        if (pixels.length != getWidth() * getHeight()) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        int marker = nextMarker();
+        while (marker != MARKER_EOI) {
+            if (marker == MARKER_SOS) {
+                readAndDecodeScan();
+            } else {
+                processMarker(marker);
+            }
+            marker = nextMarker();
+        }
+        if (isProgressive) {
+            for (final Component component : components) {
+                outputCoefficients(component);
+            }
+        }
+        convertColors(pixels);
+    }
+
+    /*
+     * Markers and segments.
+     */
+
+    private int readByte() {
+        if (position >= data.length) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        return data[position++] & 0xFF;
+    }
+
+    private int readShort() {
+        return readByte() << 8 | readByte();
+    }
+
+    private int nextMarker() {
+        while (true) {
+            /* Skip anything up to the next marker, e.g., padding after entropy-coded data. */
+            int value = readByte();
+            if (value != 0xFF) {
+                continue;
+            }
+            while (value == 0xFF) {
+                value = readByte();
+            }
+            if (value != 0) {
+                return value;
+            }
+        }
+    }
+
+    private int readSegmentEnd() {
+        final int start = position;
+        final int end = start + readShort();
+        if (end < start + 2 || end > data.length) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        return end;
+    }
+
+    private void processMarker(final int marker) {
+        switch (marker) {
+            case MARKER_DQT:
+                readQuantizationTables();
+                break;
+            case MARKER_DHT:
+                readHuffmanTables();
+                break;
+            case MARKER_DRI:
+                readRestartInterval();
+                break;
+            case MARKER_APP14:
+                readAdobeSegment();
+                break;
+            default:
+                if (marker >= MARKER_SOF0 && marker <= 0xCF && marker != MARKER_DHT && marker != 0xC8 && marker != 0xCC) {
+                    /* Another frame, or lossless, hierarchical, or arithmetic coding. */
+                    throw PrimitiveFailed.BAD_ARGUMENT;
+                }
+                if (marker == MARKER_SOI || marker == MARKER_EOI || marker == MARKER_SOS || marker >= MARKER_RST0 && marker <= MARKER_RST7) {
+                    throw PrimitiveFailed.BAD_ARGUMENT;
+                }
+                /* APPn, COM, and others. */
+                position = readSegmentEnd();
+        }
+    }
+
+    private void readQuantizationTables() {
+        final int end = readSegmentEnd();
+        while (position < end) {
+            final int precisionAndIndex = readByte();
+            final int index = precisionAndIndex & 0xF;
+            if (index >= quantizationTables.length) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            final boolean isSixteenBit = precisionAndIndex >> 4 != 0;
+            final int[] table = new int[DCT_SIZE2];
+            for (int i = 0; i < DCT_SIZE2; i++) {
+                table[NATURAL_ORDER[i]] = isSixteenBit ? readShort() : readByte();
+            }
+            quantizationTables[index] = table;
+        }
+        position = end;
+    }
+
+    private void readHuffmanTables() {
+        final int end = readSegmentEnd();
+        while (position < end) {
+            final int classAndIndex = readByte();
+            final int index = classAndIndex & 0xF;
+            if (index >= dcTables.length) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            final int[] counts = new int[HuffmanTable.MAX_CODE_LENGTH + 1];
+            int numValues = 0;
+            for (int length = 1; length <= HuffmanTable.MAX_CODE_LENGTH; length++) {
+                counts[length] = readByte();
+                numValues += counts[length];
+            }
+            if (numValues > 256 || position + numValues > end) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            final byte[] values = new byte[numValues];
+            System.arraycopy(data, position, values, 0, numValues);
+            position += numValues;
+            final HuffmanTable table = new HuffmanTable(counts, values);
+            if (classAndIndex >> 4 == 0) {
+                dcTables[index] = table;
+            } else {
+                acTables[index] = table;
+            }
+        }
+        position = end;
+    }
+
+    private void readRestartInterval() {
+        final int end = readSegmentEnd();
+        restartInterval = readShort();
+        position = end;
+    }
+
+    private void readAdobeSegment() {
+        final int end = readSegmentEnd();
+        if (end - position >= 12 && data[position] == 'A' && data[position + 1] == 'd' && data[position + 2] == 'o' && data[position + 3] == 'b' && data[position + 4] == 'e') {
+            /* Transform flag 0 means that the components are not converted from RGB. */
+            hasAdobeRGB = data[position + 11] == 0;
+        }
+        position = end;
+    }
+
+    private void readFrame(final boolean progressive) {
+        final int end = readSegmentEnd();
+        if (readByte() != 8) {
+            throw PrimitiveFailed.BAD_ARGUMENT; /* Only 8-bit samples are supported. */
+        }
+        height = readShort();
+        width = readShort();
+        final int numComponents = readByte();
+        if (width == 0 || height == 0 || numComponents != 1 && numComponents != MAX_COMPONENTS) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        isProgressive = progressive;
+        final int[] ids = new int[numComponents];
+        final int[] hs = new int[numComponents];
+        final int[] vs = new int[numComponents];
+        final int[] tqs = new int[numComponents];
+        maxH = 1;
+        maxV = 1;
+        for (int i = 0; i < numComponents; i++) {
+            ids[i] = readByte();
+            final int sampling = readByte();
+            hs[i] = sampling >> 4;
+            vs[i] = sampling & 0xF;
+            tqs[i] = readByte();
+            if (hs[i] < 1 || hs[i] > MAX_SAMPLING_FACTOR || vs[i] < 1 || vs[i] > MAX_SAMPLING_FACTOR || tqs[i] >= quantizationTables.length) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            maxH = Math.max(maxH, hs[i]);
+            maxV = Math.max(maxV, vs[i]);
+        }
+        mcusPerLine = ceilDiv(width, DCT_SIZE * maxH);
+        mcusPerColumn = ceilDiv(height, DCT_SIZE * maxV);
+        /* Planes are scaled, but progressive images keep all coefficients at full size. */
+        long numBytes = 0;
+        for (int i = 0; i < numComponents; i++) {
+            final long numBlocks = (long) mcusPerLine * hs[i] * mcusPerColumn * vs[i];
+            if (numBlocks * DCT_SIZE2 > Integer.MAX_VALUE) {
+                throw PrimitiveFailed.INSUFFICIENT_OBJECT_MEMORY;
+            }
+            numBytes += numBlocks * blockSize * blockSize + (progressive ? numBlocks * DCT_SIZE2 * Short.BYTES : 0);
+        }
+        if (numBytes > MiscUtils.runtimeMaxMemory() - MiscUtils.runtimeTotalMemory() + MiscUtils.runtimeFreeMemory()) {
+            throw PrimitiveFailed.INSUFFICIENT_OBJECT_MEMORY;
+        }
+        components = new Component[numComponents];
+        for (int i = 0; i < numComponents; i++) {
+            components[i] = new Component(ids[i], hs[i], vs[i], tqs[i], mcusPerLine * hs[i], mcusPerColumn * vs[i], blockSize, progressive);
+        }
+        position = end;
+    }
+
+    /*
+     * Scans.
+     */
+
+    private void readAndDecodeScan() {
+        final int end = readSegmentEnd();
+        final int numScanComponents = readByte();
+        if (numScanComponents < 1 || numScanComponents > components.length) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        final Component[] scanComponents = new Component[numScanComponents];
+        for (int i = 0; i < numScanComponents; i++) {
+            final int id = readByte();
+            final int tables = readByte();
+            for (final Component component : components) {
+                if (component.id == id) {
+                    scanComponents[i] = component;
+                }
+            }
+            if (scanComponents[i] == null) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            scanComponents[i].dcTable = dcTables[tables >> 4 & 3];
+            scanComponents[i].acTable = acTables[tables & 3];
+        }
+        final int spectralStart = readByte();
+        final int spectralEnd = readByte();
+        final int approximation = readByte();
+        position = end;
+        if (isProgressive && (spectralEnd > DCT_SIZE2 - 1 || spectralStart > spectralEnd || spectralStart == 0 && spectralEnd != 0 || spectralStart > 0 && numScanComponents != 1)) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        decodeScan(scanComponents, spectralStart, spectralEnd, approximation >> 4, approximation & 0xF);
+    }
+
+    private void decodeScan(final Component[] scanComponents, final int spectralStart, final int spectralEnd, final int successiveHigh, final int successiveLow) {
+        for (final Component component : scanComponents) {
+            component.dcPredictor = 0;
+            if ((spectralStart == 0 && successiveHigh == 0 || !isProgressive) && component.dcTable == null || spectralEnd > 0 && component.acTable == null) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+        }
+        resetBits();
+        eobRun = 0;
+        if (scanComponents.length == 1) {
+            /* Non-interleaved scans only cover the blocks within the component's area. */
+            final Component component = scanComponents[0];
+            final int blocksPerLine = ceilDiv(ceilDiv(width * component.h, maxH), DCT_SIZE);
+            final int blocksPerColumn = ceilDiv(ceilDiv(height * component.v, maxV), DCT_SIZE);
+            final int numBlocks = blocksPerLine * blocksPerColumn;
+            for (int n = 0; n < numBlocks; n++) {
+                if (restartInterval > 0 && n > 0 && n % restartInterval == 0) {
+                    processRestart(scanComponents);
+                }
+                decodeBlock(component, n / blocksPerLine, n % blocksPerLine, spectralStart, spectralEnd, successiveHigh, successiveLow);
+            }
+        } else {
+            final int numMCUs = mcusPerLine * mcusPerColumn;
+            for (int n = 0; n < numMCUs; n++) {
+                if (restartInterval > 0 && n > 0 && n % restartInterval == 0) {
+                    processRestart(scanComponents);
+                }
+                final int mcuRow = n / mcusPerLine;
+                final int mcuColumn = n % mcusPerLine;
+                for (final Component component : scanComponents) {
+                    for (int v = 0; v < component.v; v++) {
+                        for (int h = 0; h < component.h; h++) {
+                            decodeBlock(component, mcuRow * component.v + v, mcuColumn * component.h + h, spectralStart, spectralEnd, successiveHigh, successiveLow);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void processRestart(final Component[] scanComponents) {
+        resetBits();
+        final int marker = nextMarker();
+        if (marker < MARKER_RST0 || marker > MARKER_RST7) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        for (final Component component : scanComponents) {
+            component.dcPredictor = 0;
+        }
+        eobRun = 0;
+    }
+
+    private void decodeBlock(final Component component, final int row, final int column, final int spectralStart, final int spectralEnd, final int successiveHigh,
+                    final int successiveLow) {
+        if (!isProgressive) {
+            decodeBaselineBlock(component);
+            outputBlock(component, row, column, block);
+            return;
+        }
+        final short[] coefficients = component.coefficients;
+        final int offset = (row * component.blocksPerLine + column) * DCT_SIZE2;
+        if (spectralStart == 0) {
+            if (successiveHigh == 0) {
+                component.dcPredictor += receiveExtend(decodeHuffman(component.dcTable));
+                coefficients[offset] = (short) (component.dcPredictor << successiveLow);
+            } else if (readBit() != 0) {
+                coefficients[offset] |= 1 << successiveLow;
+            }
+        } else if (successiveHigh == 0) {
+            decodeACFirst(component.acTable, coefficients, offset, spectralStart, spectralEnd, successiveLow);
+        } else {
+            decodeACRefine(component.acTable, coefficients, offset, spectralStart, spectralEnd, successiveLow);
+        }
+    }
+
+    private void decodeBaselineBlock(final Component component) {
+        final int[] coefficients = block;
+        for (int i = 0; i < DCT_SIZE2; i++) {
+            coefficients[i] = 0;
+        }
+        component.dcPredictor += receiveExtend(decodeHuffman(component.dcTable));
+        coefficients[0] = component.dcPredictor;
+        int k = 1;
+        while (k < DCT_SIZE2) {
+            final int runAndSize = decodeHuffman(component.acTable);
+            final int size = runAndSize & 0xF;
+            final int run = runAndSize >> 4;
+            if (size == 0) {
+                if (run != 15) {
+                    break; /* End of block. */
+                }
+                k += 16;
+            } else {
+                k += run;
+                if (k >= DCT_SIZE2) {
+                    throw PrimitiveFailed.BAD_ARGUMENT;
+                }
+                coefficients[NATURAL_ORDER[k]] = receiveExtend(size);
+                k++;
+            }
+        }
+    }
+
+    private void decodeACFirst(final HuffmanTable table, final short[] coefficients, final int offset, final int spectralStart, final int spectralEnd, final int successiveLow) {
+        if (eobRun > 0) {
+            eobRun--;
+            return;
+        }
+        int k = spectralStart;
+        while (k <= spectralEnd) {
+            final int runAndSize = decodeHuffman(table);
+            final int size = runAndSize & 0xF;
+            final int run = runAndSize >> 4;
+            if (size == 0) {
+                if (run < 15) {
+                    eobRun = (1 << run) - 1 + (run > 0 ? readBits(run) : 0);
+                    break;
+                }
+                k += 16;
+            } else {
+                k += run;
+                if (k > spectralEnd) {
+                    throw PrimitiveFailed.BAD_ARGUMENT;
+                }
+                coefficients[offset + NATURAL_ORDER[k]] = (short) (receiveExtend(size) * (1 << successiveLow));
+                k++;
+            }
+        }
+    }
+
+    private void decodeACRefine(final HuffmanTable table, final short[] coefficients, final int offset, final int spectralStart, final int spectralEnd, final int successiveLow) {
+        final int positiveBit = 1 << successiveLow;
+        final int negativeBit = -1 << successiveLow;
+        int k = spectralStart;
+        if (eobRun == 0) {
+            for (; k <= spectralEnd; k++) {
+                final int runAndSize = decodeHuffman(table);
+                int run = runAndSize >> 4;
+                int value = 0;
+                if ((runAndSize & 0xF) != 0) {
+                    /* Newly nonzero coefficients are always of magnitude one. */
+                    value = readBit() != 0 ? positiveBit : negativeBit;
+                } else if (run != 15) {
+                    eobRun = (1 << run) + (run > 0 ? readBits(run) : 0);
+                    break;
+                }
+                /* Refine nonzero coefficients while skipping run zero coefficients. */
+                while (k <= spectralEnd) {
+                    final int index = offset + NATURAL_ORDER[k];
+                    if (coefficients[index] != 0) {
+                        refineCoefficient(coefficients, index, positiveBit, negativeBit);
+                    } else if (--run < 0) {
+                        break;
+                    }
+                    k++;
+                }
+                if (value != 0) {
+                    if (k > spectralEnd) {
+                        throw PrimitiveFailed.BAD_ARGUMENT;
+                    }
+                    coefficients[offset + NATURAL_ORDER[k]] = (short) value;
+                }
+            }
+        }
+        if (eobRun > 0) {
+            /* Only refine the remaining nonzero coefficients of blocks within an end-of-band run. */
+            for (; k <= spectralEnd; k++) {
+                final int index = offset + NATURAL_ORDER[k];
+                if (coefficients[index] != 0) {
+                    refineCoefficient(coefficients, index, positiveBit, negativeBit);
+                }
+            }
+            eobRun--;
+        }
+    }
+
+    private void refineCoefficient(final short[] coefficients, final int index, final int positiveBit, final int negativeBit) {
+        if (readBit() != 0 && (coefficients[index] & positiveBit) == 0) {
+            coefficients[index] += coefficients[index] >= 0 ? positiveBit : negativeBit;
+        }
+    }
+
+    /*
+     * Entropy-coded data. Markers end the data, after which only zero bits are answered. The bit
+     * buffer holds up to 64 bits, of which the lowest bitCount bits are valid.
+     */
+
+    private void resetBits() {
+        bitBuffer = 0;
+        bitCount = 0;
+    }
+
+    private void fillBits() {
+        while (bitCount <= 56) {
+            int value = 0;
+            if (position < data.length) {
+                value = data[position] & 0xFF;
+                if (value != 0xFF) {
+                    position++;
+                } else if (position + 1 < data.length && data[position + 1] == 0) {
+                    position += 2; /* Stuffed zero byte. */
+                } else {
+                    value = 0; /* Marker, stay in front of it. */
+                }
+            }
+            bitBuffer = bitBuffer << 8 | value;
+            bitCount += 8;
+        }
+    }
+
+    private int peekBits(final int numBits) {
+        if (bitCount < numBits) {
+            fillBits();
+        }
+        return (int) (bitBuffer >>> bitCount - numBits) & (1 << numBits) - 1;
+    }
+
+    private int readBits(final int numBits) {
+        final int value = peekBits(numBits);
+        bitCount -= numBits;
+        return value;
+    }
+
+    private int readBit() {
+        return readBits(1);
+    }
+
+    private int receiveExtend(final int numBits) {
+        if (numBits == 0) {
+            return 0;
+        } else if (numBits > HuffmanTable.MAX_CODE_LENGTH) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        final int value = readBits(numBits);
+        return value < 1 << numBits - 1 ? value - (1 << numBits) + 1 : value;
+    }
+
+    private int decodeHuffman(final HuffmanTable table) {
+        final int entry = table.lookup[peekBits(HuffmanTable.LOOKAHEAD_BITS)];
+        if (entry != 0) {
+            bitCount -= entry >> 8;
+            return entry & 0xFF;
+        }
+        int length = HuffmanTable.LOOKAHEAD_BITS + 1;
+        int code = peekBits(length);
+        while (code > table.maxCode[length]) {
+            length++;
+            if (length > HuffmanTable.MAX_CODE_LENGTH) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            code = peekBits(length);
+        }
+        bitCount -= length;
+        return table.values[code + table.valueOffsets[length]] & 0xFF;
+    }
+
+    /*
+     * Inverse DCT and color conversion.
+     */
+
+    private void outputCoefficients(final Component component) {
+        final short[] coefficients = component.coefficients;
+        int offset = 0;
+        for (int row = 0; row < component.blocksPerColumn; row++) {
+            for (int column = 0; column < component.blocksPerLine; column++) {
+                for (int i = 0; i < DCT_SIZE2; i++) {
+                    block[i] = coefficients[offset + i];
+                }
+                outputBlock(component, row, column, block);
+                offset += DCT_SIZE2;
+            }
+        }
+    }
+
+    /*
+     * Transform a block of coefficients (in natural order) into blockSize x blockSize samples of the
+     * component's plane. Each sample covers DCT_SIZE / blockSize pixels in each direction.
+     */
+    private void outputBlock(final Component component, final int row, final int column, final int[] coefficients) {
+        final int[] qt = quantizationTables[component.quantizationTableIndex];
+        if (qt == null) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        final int n = blockSize;
+        final float[] table = idctTable;
+        final float[] dequantized = dequantizedBlock;
+        /* Only frequencies up to the last nonzero ones contribute. */
+        int lastU = 0;
+        int lastV = 0;
+        for (int index = 0; index < DCT_SIZE2; index++) {
+            if (coefficients[index] != 0) {
+                lastU = Math.max(lastU, index % DCT_SIZE);
+                lastV = index / DCT_SIZE;
+            }
+            dequantized[index] = coefficients[index] * qt[index];
+        }
+        final byte[] plane = component.plane;
+        final int planeWidth = component.planeWidth;
+        int planeOffset = row * n * planeWidth + column * n;
+        if (lastU == 0 && lastV == 0) {
+            final byte sample = (byte) clampSample(Math.round(dequantized[0] * table[0] * table[0]) + SAMPLE_OFFSET);
+            for (int y = 0; y < n; y++) {
+                for (int x = 0; x < n; x++) {
+                    plane[planeOffset + x] = sample;
+                }
+                planeOffset += planeWidth;
+            }
+            return;
+        }
+        /* Rows: sample x for each frequency v of the columns. */
+        final float[] sums = rowSums;
+        for (int v = 0; v <= lastV; v++) {
+            for (int x = 0; x < n; x++) {
+                float sum = 0;
+                for (int u = 0; u <= lastU; u++) {
+                    sum += dequantized[v * DCT_SIZE + u] * table[u * n + x];
+                }
+                sums[v * n + x] = sum;
+            }
+        }
+        /* Columns: sample y from the frequencies v. */
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                float sum = 0;
+                for (int v = 0; v <= lastV; v++) {
+                    sum += table[v * n + y] * sums[v * n + x];
+                }
+                plane[planeOffset + x] = (byte) clampSample(Math.round(sum) + SAMPLE_OFFSET);
+            }
+            planeOffset += planeWidth;
+        }
+    }
+
+    private void convertColors(final int[] pixels) {
+        final int scaledWidth = getWidth();
+        final int scaledHeight = getHeight();
+        final int numComponents = components.length;
+        /* Upsample by replicating the samples of components with lower sampling factors. */
+        final int[][] columnOffsets = new int[numComponents][scaledWidth];
+        for (int c = 0; c < numComponents; c++) {
+            for (int x = 0; x < scaledWidth; x++) {
+                columnOffsets[c][x] = x * components[c].h / maxH;
+            }
+        }
+        final byte[][] planes = new byte[numComponents][];
+        final int[] rowOffsets = new int[numComponents];
+        final boolean isRGB = hasAdobeRGB || numComponents == MAX_COMPONENTS && components[0].id == 'R' && components[1].id == 'G' && components[2].id == 'B';
+        for (int c = 0; c < numComponents; c++) {
+            planes[c] = components[c].plane;
+        }
+        int index = 0;
+        for (int y = 0; y < scaledHeight; y++) {
+            for (int c = 0; c < numComponents; c++) {
+                rowOffsets[c] = y * components[c].v / maxV * components[c].planeWidth;
+            }
+            if (numComponents == 1) {
+                final byte[] plane = planes[0];
+                final int[] columns = columnOffsets[0];
+                for (int x = 0; x < scaledWidth; x++) {
+                    final int gray = plane[rowOffsets[0] + columns[x]] & 0xFF;
+                    pixels[index++] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+                }
+            } else if (isRGB) {
+                for (int x = 0; x < scaledWidth; x++) {
+                    final int red = planes[0][rowOffsets[0] + columnOffsets[0][x]] & 0xFF;
+                    final int green = planes[1][rowOffsets[1] + columnOffsets[1][x]] & 0xFF;
+                    final int blue = planes[2][rowOffsets[2] + columnOffsets[2][x]] & 0xFF;
+                    pixels[index++] = 0xFF000000 | red << 16 | green << 8 | blue;
+                }
+            } else {
+                for (int x = 0; x < scaledWidth; x++) {
+                    final int luma = planes[0][rowOffsets[0] + columnOffsets[0][x]] & 0xFF;
+                    final int cb = (planes[1][rowOffsets[1] + columnOffsets[1][x]] & 0xFF) - SAMPLE_OFFSET;
+                    final int cr = (planes[2][rowOffsets[2] + columnOffsets[2][x]] & 0xFF) - SAMPLE_OFFSET;
+                    final int red = clampSample(luma + (FIX_1_40200 * cr + FIX_ONE_HALF >> 16));
+                    final int green = clampSample(luma - (FIX_0_34414 * cb + FIX_0_71414 * cr - FIX_ONE_HALF >> 16));
+                    final int blue = clampSample(luma + (FIX_1_77200 * cb + FIX_ONE_HALF >> 16));
+                    pixels[index++] = 0xFF000000 | red << 16 | green << 8 | blue;
+                }
+            }
+        }
+    }
+
+    private static int clampSample(final int value) {
+        return value < 0 ? 0 : value > MAX_SAMPLE ? MAX_SAMPLE : value;
+    }
+
+    private static int ceilDiv(final int dividend, final int divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+}
@@ -13,12 +13,16 @@ import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 
+import de.hpi.swa.graal.squeak.exceptions.PrimitiveExceptions.PrimitiveFailed;
 import de.hpi.swa.graal.squeak.model.ArrayObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.model.PointersObject;
+import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.FORM;
+import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectReadNode;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveFactoryHolder;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveNode;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuaternaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuinaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.SenaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.TernaryPrimitive;
@@ -57,6 +61,40 @@ public final class JPEGReaderPlugin extends AbstractPrimitiveFactoryHolder {
         }
     }
 
+    /**
+     * Decodes an entire baseline or progressive JPEG image (a ByteArray) into a 32-bit Form, scaled
+     * down by 1, 2, 4, or 8. The Form must have the extent answered by primitiveImageExtent.
+     */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveDecodeImage")
+    protected abstract static class PrimDecodeImageNode extends AbstractPrimitiveNode implements QuaternaryPrimitive {
+        @Child private AbstractPointersObjectReadNode readNode = AbstractPointersObjectReadNode.create();
+
+        protected PrimDecodeImageNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"jpegBytes.isByteType()", "form.size() > 3"})
+        protected final Object doDecode(final Object receiver, final NativeObject jpegBytes, final PointersObject form, final long scale) {
+            final NativeObject bits = readNode.executeNative(form, FORM.BITS);
+            final int depth = form.getFormDepth(readNode);
+            if (!bits.isIntType() || depth != 32 && depth != -32) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            decode(jpegBytes.getByteStorage(), (int) scale, bits.getIntStorage(), form.getFormWidth(readNode), form.getFormHeight(readNode));
+            return receiver;
+        }
+
+        @TruffleBoundary(transferToInterpreterOnException = false)
+        private static void decode(final byte[] jpegBytes, final int scale, final int[] bits, final int width, final int height) {
+            final JPEGDecoder decoder = new JPEGDecoder(jpegBytes, scale);
+            if (decoder.getWidth() != width || decoder.getHeight() != height) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+            decoder.decodeInto(bits);
+        }
+    }
+
     @ImportStatic(JPEGReader.class)
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveDecodeMCU")
@@ -91,6 +129,23 @@ public final class JPEGReaderPlugin extends AbstractPrimitiveFactoryHolder {
         }
     }
 
+    /** Answers the width and height of a JPEG image (a ByteArray) scaled down by 1, 2, 4, or 8. */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveImageExtent")
+    protected abstract static class PrimImageExtentNode extends AbstractPrimitiveNode implements TernaryPrimitive {
+
+        protected PrimImageExtentNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = "jpegBytes.isByteType()")
+        @TruffleBoundary(transferToInterpreterOnException = false)
+        protected final ArrayObject doExtent(@SuppressWarnings("unused") final Object receiver, final NativeObject jpegBytes, final long scale) {
+            final JPEGDecoder decoder = new JPEGDecoder(jpegBytes.getByteStorage(), (int) scale);
+            return method.image.asArrayOfLongs(decoder.getWidth(), decoder.getHeight());
+        }
+    }
+
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primGetModuleName")
     public abstract static class PrimGetModuleNameNode extends AbstractPrimitiveNode implements UnaryPrimitiveWithoutFallback {
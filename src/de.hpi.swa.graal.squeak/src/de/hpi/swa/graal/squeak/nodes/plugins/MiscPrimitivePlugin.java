@@ -5,6 +5,7 @@
  */
 package de.hpi.swa.graal.squeak.nodes.plugins;
 
+import java.util.Arrays;
 import java.util.List;
 
 import com.oracle.truffle.api.CompilerDirectives;
@@ -29,6 +30,7 @@ import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.TernaryPrimi
 import de.hpi.swa.graal.squeak.nodes.primitives.SqueakPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.impl.ArithmeticPrimitives.PrimHashMultiplyNode;
 import de.hpi.swa.graal.squeak.util.NotProvided;
+import de.hpi.swa.graal.squeak.util.SWARUtils;
 import de.hpi.swa.graal.squeak.util.UnsafeUtils;
 
 public final class MiscPrimitivePlugin extends AbstractPrimitiveFactoryHolder {
@@ -59,12 +61,9 @@ public final class MiscPrimitivePlugin extends AbstractPrimitiveFactoryHolder {
             final int len1 = string1.length;
             final int len2 = string2.length;
             final int min = Math.min(len1, len2);
-            for (int i = 0; i < min; i++) {
-                final byte c1 = UnsafeUtils.getByte(string1, i);
-                final byte c2 = UnsafeUtils.getByte(string2, i);
-                if (c1 != c2) {
-                    return (c1 & 0xff) < (c2 & 0xff) ? 1L : 3L;
-                }
+            final int i = SWARUtils.mismatch(string1, string2, min);
+            if (i < min) {
+                return (UnsafeUtils.getByte(string1, i) & 0xff) < (UnsafeUtils.getByte(string2, i) & 0xff) ? 1L : 3L;
             }
             return len1 == len2 ? 2L : len1 < len2 ? 1L : 3L;
         }
@@ -103,7 +102,8 @@ public final class MiscPrimitivePlugin extends AbstractPrimitiveFactoryHolder {
             final int len1 = string1.length;
             final int len2 = string2.length;
             final int min = Math.min(len1, len2);
-            for (int i = 0; i < min; i++) {
+            /* Equal bytes are equal in any order, so skip the common prefix word by word. */
+            for (int i = SWARUtils.mismatch(string1, string2, min); i < min; i++) {
                 final byte c1 = UnsafeUtils.getByte(order, UnsafeUtils.getByte(string1, i) & 0xff);
                 final byte c2 = UnsafeUtils.getByte(order, UnsafeUtils.getByte(string2, i) & 0xff);
                 if (c1 != c2) {
@@ -379,6 +379,9 @@ public final class MiscPrimitivePlugin extends AbstractPrimitiveFactoryHolder {
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveFindSubstring")
     public abstract static class PrimFindSubstringNode extends AbstractPrimitiveNode implements QuinaryPrimitive {
+        /* Below these lengths, setting up a word-wise or Horspool search does not pay off. */
+        private static final int SWAR_MIN_BODY_LENGTH = 64;
+        private static final int HORSPOOL_MIN_KEY_LENGTH = 8;
 
         public PrimFindSubstringNode(final CompiledMethodObject method) {
             super(method);
@@ -396,23 +399,102 @@ public final class MiscPrimitivePlugin extends AbstractPrimitiveFactoryHolder {
         @Specialization(guards = {"key.isByteType()", "key.getByteLength() > 0", "body.isByteType()", "matchTable.isByteType()", "matchTable.getByteLength() >= 256"})
         protected static final long doFind(@SuppressWarnings("unused") final Object receiver, final NativeObject key, final NativeObject body, final long start,
                         final NativeObject matchTable) {
-            final byte[] keyBytes = key.getByteStorage();
+            return findSubstring(key.getByteStorage(), body.getByteStorage(), start, matchTable.getByteStorage());
+        }
+
+        /** Answers the one-based index of keyBytes in bodyBytes from start on, or 0. */
+        public static long findSubstring(final byte[] keyBytes, final byte[] bodyBytes, final long start, final byte[] matchTableBytes) {
             final int keyBytesLength = keyBytes.length;
             assert keyBytesLength != 0;
-            final byte[] bodyBytes = body.getByteStorage();
-            final int bodyBytesLength = bodyBytes.length;
-            final byte[] matchTableBytes = matchTable.getByteStorage();
-            for (int startIndex = Math.max((int) start - 1, 0); startIndex <= bodyBytesLength - keyBytesLength; startIndex++) {
-                int index = 0;
-                while (matchTableBytes[bodyBytes[startIndex + index] & 0xff] == matchTableBytes[keyBytes[index] & 0xff]) {
-                    if (index == keyBytesLength - 1) {
-                        return startIndex + 1;
+            final int lastStartIndex = bodyBytes.length - keyBytesLength;
+            if (start - 1 > lastStartIndex) {
+                return 0L;
+            }
+            final int firstStartIndex = (int) Math.max(start - 1, 0);
+            if (lastStartIndex - firstStartIndex >= SWAR_MIN_BODY_LENGTH) {
+                if (keyBytesLength >= HORSPOOL_MIN_KEY_LENGTH) {
+                    return findHorspool(keyBytes, bodyBytes, matchTableBytes, firstStartIndex, lastStartIndex) + 1;
+                } else {
+                    return findFirstByteCandidates(keyBytes, bodyBytes, matchTableBytes, firstStartIndex, lastStartIndex) + 1;
+                }
+            }
+            for (int startIndex = firstStartIndex; startIndex <= lastStartIndex; startIndex++) {
+                if (matchesAt(keyBytes, bodyBytes, matchTableBytes, startIndex)) {
+                    return startIndex + 1;
+                }
+            }
+            return 0L;
+        }
+
+        /*
+         * Looks for bytes that match the first byte of the key with SWARUtils and checks for the rest
+         * of the key only there. Falls back to trying every start index if more than two bytes match
+         * the first byte of the key.
+         */
+        private static int findFirstByteCandidates(final byte[] keyBytes, final byte[] bodyBytes, final byte[] matchTableBytes, final int firstStartIndex, final int lastStartIndex) {
+            final byte firstKeyByte = matchTableBytes[keyBytes[0] & 0xff];
+            int candidate1 = -1;
+            int candidate2 = -1;
+            int numCandidates = 0;
+            for (int value = 0; value < 256; value++) {
+                if (matchTableBytes[value] == firstKeyByte) {
+                    if (numCandidates == 0) {
+                        candidate1 = value;
                     } else {
-                        index++;
+                        candidate2 = value;
                     }
+                    numCandidates++;
                 }
             }
-            return 0L;
+            int startIndex = firstStartIndex;
+            while (startIndex <= lastStartIndex) {
+                if (numCandidates == 1) {
+                    startIndex = SWARUtils.indexOf(bodyBytes, candidate1, startIndex, lastStartIndex + 1);
+                } else if (numCandidates == 2) {
+                    startIndex = SWARUtils.indexOfEither(bodyBytes, candidate1, candidate2, startIndex, lastStartIndex + 1);
+                }
+                if (startIndex < 0) {
+                    return -1;
+                }
+                if (matchesAt(keyBytes, bodyBytes, matchTableBytes, startIndex)) {
+                    return startIndex;
+                }
+                startIndex++;
+            }
+            return -1;
+        }
+
+        /*
+         * Boyer-Moore-Horspool over the alphabet of the match table: after a mismatch, the key is
+         * shifted so that the last body byte of the current window lines up with its rightmost
+         * occurrence in the key, as seen through the match table.
+         */
+        private static int findHorspool(final byte[] keyBytes, final byte[] bodyBytes, final byte[] matchTableBytes, final int firstStartIndex, final int lastStartIndex) {
+            final int keyBytesLength = keyBytes.length;
+            final int[] shifts = new int[256];
+            Arrays.fill(shifts, keyBytesLength);
+            for (int i = 0; i < keyBytesLength - 1; i++) {
+                shifts[matchTableBytes[keyBytes[i] & 0xff] & 0xff] = keyBytesLength - 1 - i;
+            }
+            final byte lastKeyByte = matchTableBytes[keyBytes[keyBytesLength - 1] & 0xff];
+            int startIndex = firstStartIndex;
+            while (startIndex <= lastStartIndex) {
+                final byte lastBodyByte = matchTableBytes[bodyBytes[startIndex + keyBytesLength - 1] & 0xff];
+                if (lastBodyByte == lastKeyByte && matchesAt(keyBytes, bodyBytes, matchTableBytes, startIndex)) {
+                    return startIndex;
+                }
+                startIndex += shifts[lastBodyByte & 0xff];
+            }
+            return -1;
+        }
+
+        private static boolean matchesAt(final byte[] keyBytes, final byte[] bodyBytes, final byte[] matchTableBytes, final int startIndex) {
+            for (int index = 0; index < keyBytes.length; index++) {
+                if (matchTableBytes[bodyBytes[startIndex + index] & 0xff] != matchTableBytes[keyBytes[index] & 0xff]) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         @SuppressWarnings("unused")
@@ -430,21 +512,26 @@ public final class MiscPrimitivePlugin extends AbstractPrimitiveFactoryHolder {
             super(method);
         }
 
-        @Specialization(guards = {"start >= 0", "string.isByteType()"})
+        @Specialization(guards = {"start >= 1", "string.isByteType()"})
         protected static final long doNativeObject(@SuppressWarnings("unused") final Object receiver, final long value, final NativeObject string, final long start) {
             final byte[] bytes = string.getByteStorage();
-            for (int i = (int) (start - 1); i < bytes.length; i++) {
-                if ((bytes[i] & 0xff) == value) {
-                    return i + 1;
-                }
+            if (value < 0 || value > 255 || start > bytes.length) {
+                return 0L;
             }
-            return 0L;
+            return SWARUtils.indexOf(bytes, (int) value, (int) start - 1, bytes.length) + 1;
         }
     }
 
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveStringHash")
     public abstract static class PrimStringHashNode extends AbstractPrimitiveNode implements TernaryPrimitive {
+        private static final long HASH_MULTIPLY_POWER_2 = hashMultiplyPower(2);
+        private static final long HASH_MULTIPLY_POWER_3 = hashMultiplyPower(3);
+        private static final long HASH_MULTIPLY_POWER_4 = hashMultiplyPower(4);
+        private static final long HASH_MULTIPLY_POWER_5 = hashMultiplyPower(5);
+        private static final long HASH_MULTIPLY_POWER_6 = hashMultiplyPower(6);
+        private static final long HASH_MULTIPLY_POWER_7 = hashMultiplyPower(7);
+        private static final long HASH_MULTIPLY_POWER_8 = hashMultiplyPower(8);
 
         public PrimStringHashNode(final CompiledMethodObject method) {
             super(method);
@@ -484,14 +571,33 @@ public final class MiscPrimitivePlugin extends AbstractPrimitiveFactoryHolder {
             return calculateHash(initialHash, LargeIntegerObject.getLongMinOverflowResultBytes());
         }
 
-        private static long calculateHash(final long initialHash, final byte[] bytes) {
+        /*
+         * Eight steps of the hash at once: hash := hash * c^8 + b0 * c^8 + b1 * c^7 + ... + b7 * c. All
+         * arithmetic is modulo 2^28, so the products can wrap around in a long and be masked once.
+         */
+        public static long calculateHash(final long initialHash, final byte[] bytes) {
             long hash = initialHash & PrimHashMultiplyNode.HASH_MULTIPLY_MASK;
             final int length = bytes.length;
-            for (int i = 0; i < length; i++) {
+            int i = 0;
+            for (; i <= length - Long.BYTES; i += Long.BYTES) {
+                final long word = SWARUtils.getLongLittleEndian(bytes, i);
+                hash = (hash + (word & 0xff)) * HASH_MULTIPLY_POWER_8 + (word >>> 8 & 0xff) * HASH_MULTIPLY_POWER_7 + (word >>> 16 & 0xff) * HASH_MULTIPLY_POWER_6 +
+                                (word >>> 24 & 0xff) * HASH_MULTIPLY_POWER_5 + (word >>> 32 & 0xff) * HASH_MULTIPLY_POWER_4 + (word >>> 40 & 0xff) * HASH_MULTIPLY_POWER_3 +
+                                (word >>> 48 & 0xff) * HASH_MULTIPLY_POWER_2 + (word >>> 56) * PrimHashMultiplyNode.HASH_MULTIPLY_CONSTANT & PrimHashMultiplyNode.HASH_MULTIPLY_MASK;
+            }
+            for (; i < length; i++) {
                 hash = (hash + (UnsafeUtils.getByte(bytes, i) & 0xff)) * PrimHashMultiplyNode.HASH_MULTIPLY_CONSTANT & PrimHashMultiplyNode.HASH_MULTIPLY_MASK;
             }
             return hash;
         }
+
+        private static long hashMultiplyPower(final int exponent) {
+            long power = 1;
+            for (int i = 0; i < exponent; i++) {
+                power = power * PrimHashMultiplyNode.HASH_MULTIPLY_CONSTANT & PrimHashMultiplyNode.HASH_MULTIPLY_MASK;
+            }
+            return power;
+        }
     }
 
     @GenerateNodeFactory
@@ -502,27 +608,53 @@ public final class MiscPrimitivePlugin extends AbstractPrimitiveFactoryHolder {
             super(method);
         }
 
-        @Specialization(guards = {"start >= 1", "string.isByteType()", "stop <= string.getByteLength()", "table.isByteType()", "table.getByteLength() >= 256"})
+        @Specialization(guards = {"start >= 1", "start <= stop", "string.isByteType()", "stop <= string.getByteLength()", "table.isByteType()", "table.getByteLength() >= 256"})
         protected static final Object doNativeObject(final Object receiver, final NativeObject string, final long start, final long stop, final NativeObject table) {
             final byte[] stringBytes = string.getByteStorage();
             final byte[] tableBytes = table.getByteStorage();
-            for (int i = (int) start - 1; i < stop; i++) {
+            /* The lookups stay byte-wise, but the string is read and written a word at a time. */
+            int i = (int) start - 1;
+            for (; i <= stop - Long.BYTES; i += Long.BYTES) {
+                final long word = SWARUtils.getLongLittleEndian(stringBytes, i);
+                long translated = 0;
+                for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                    translated |= (UnsafeUtils.getByte(tableBytes, word >>> shift & 0xff) & 0xffL) << shift;
+                }
+                SWARUtils.putLongLittleEndian(stringBytes, i, translated);
+            }
+            for (; i < stop; i++) {
                 stringBytes[i] = UnsafeUtils.getByte(tableBytes, UnsafeUtils.getByte(stringBytes, i) & 0xff);
             }
             return receiver;
         }
 
-        @Specialization(guards = {"start >= 1", "string.isByteType()", "stop <= string.getByteLength()", "table.isIntType()", "table.getIntLength() >= 256"})
+        @Specialization(guards = {"start >= 1", "start <= stop", "string.isByteType()", "stop <= string.getByteLength()", "table.isIntType()", "table.getIntLength() >= 256"})
         protected static final Object doNativeObjectIntTable(final Object receiver, final NativeObject string, final long start, final long stop,
                         final NativeObject table) {
             final byte[] stringBytes = string.getByteStorage();
             final int[] tableBytes = table.getIntStorage();
-            for (int i = (int) start - 1; i < stop; i++) {
+            int i = (int) start - 1;
+            for (; i <= stop - Long.BYTES; i += Long.BYTES) {
+                final long word = SWARUtils.getLongLittleEndian(stringBytes, i);
+                long translated = 0;
+                for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                    translated |= (UnsafeUtils.getInt(tableBytes, word >>> shift & 0xff) & 0xffL) << shift;
+                }
+                SWARUtils.putLongLittleEndian(stringBytes, i, translated);
+            }
+            for (; i < stop; i++) {
                 stringBytes[i] = (byte) UnsafeUtils.getInt(tableBytes, UnsafeUtils.getByte(stringBytes, i) & 0xff);
             }
             return receiver;
         }
 
+        /* Translating an empty range does nothing. Otherwise, start and stop fit into ints. */
+        @SuppressWarnings("unused")
+        @Specialization(guards = {"start >= 1", "start > stop", "string.isByteType()", "stop <= string.getByteLength()"})
+        protected static final Object doEmpty(final Object receiver, final NativeObject string, final long start, final long stop, final NativeObject table) {
+            return receiver;
+        }
+
         @SuppressWarnings("unused")
         @Specialization(guards = {"start >= 1", "!string.isByteType()"})
         protected static final AbstractSqueakObject doFailBadArguments(final Object receiver, final NativeObject string, final long start, final long stop, final NativeObject table) {
@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.nodes.plugins;
+
+import java.util.List;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+import de.hpi.swa.graal.squeak.model.ClassObject;
+import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
+import de.hpi.swa.graal.squeak.model.NativeObject;
+import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveFactoryHolder;
+import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveNode;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuaternaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.SenaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.TernaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.UnaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.SqueakPrimitive;
+
+/**
+ * Bulk kernels over FloatArrays (32-bit floats in int storage) and Float64Arrays (64-bit floats in
+ * long storage). The loops are kept free of calls and side exits so that Graal can vectorize them.
+ * Like the equivalent Smalltalk loops, all arithmetic is done on doubles and results are rounded to
+ * 32-bit floats only when they are stored into a FloatArray, so both answer the same values. NaN
+ * propagates: Max and Min answer NaN and ArgMax answers the index of the first NaN.
+ */
+public final class NumericKernelsPlugin extends AbstractPrimitiveFactoryHolder {
+
+    @Override
+    public List<? extends NodeFactory<? extends AbstractPrimitiveNode>> getFactories() {
+        return NumericKernelsPluginFactory.getFactories();
+    }
+
+    /**
+     * Kernels only apply to FloatArrays and Float64Arrays, not to other arrays with the same
+     * storage. FloatArray is called Float32Array in newer images.
+     */
+    protected abstract static class AbstractNumericKernelNode extends AbstractPrimitiveNode {
+
+        protected AbstractNumericKernelNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        protected static final ClassObject float32ArrayClassOrNull(final NativeObject object) {
+            final ClassObject squeakClass = object.getSqueakClass();
+            final String className = squeakClass.getClassName();
+            return "FloatArray".equals(className) || "Float32Array".equals(className) ? squeakClass : null;
+        }
+
+        protected static final ClassObject float64ArrayClassOrNull(final NativeObject object) {
+            final ClassObject squeakClass = object.getSqueakClass();
+            return "Float64Array".equals(squeakClass.getClassName()) ? squeakClass : null;
+        }
+    }
+
+    /** Answers the index of the first largest element, or of the first NaN if there is a NaN. */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveArgMax")
+    public abstract static class PrimArgMaxNode extends AbstractNumericKernelNode implements UnaryPrimitive {
+
+        public PrimArgMaxNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isIntType()", "receiver.getIntLength() > 0"}, limit = "1")
+        protected static final long doFloat32(final NativeObject receiver,
+                        @SuppressWarnings("unused") @Cached("float32ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final int[] ints = receiver.getIntStorage();
+            float max = Float.intBitsToFloat(ints[0]);
+            int maxIndex = 0;
+            for (int i = 1; i < ints.length; i++) {
+                final float value = Float.intBitsToFloat(ints[i]);
+                if (value > max || Float.isNaN(value) && !Float.isNaN(max)) {
+                    max = value;
+                    maxIndex = i;
+                }
+            }
+            return maxIndex + 1;
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isLongType()", "receiver.getLongLength() > 0"}, limit = "1")
+        protected static final long doFloat64(final NativeObject receiver,
+                        @SuppressWarnings("unused") @Cached("float64ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final long[] longs = receiver.getLongStorage();
+            double max = Double.longBitsToDouble(longs[0]);
+            int maxIndex = 0;
+            for (int i = 1; i < longs.length; i++) {
+                final double value = Double.longBitsToDouble(longs[i]);
+                if (value > max || Double.isNaN(value) && !Double.isNaN(max)) {
+                    max = value;
+                    maxIndex = i;
+                }
+            }
+            return maxIndex + 1;
+        }
+    }
+
+    /** receiver := receiver + (alpha * x) */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveAxpy")
+    public abstract static class PrimAxpyNode extends AbstractNumericKernelNode implements TernaryPrimitive {
+
+        public PrimAxpyNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isIntType()", "x.getSqueakClass() == arrayClass", "x.isIntType()", "receiver.getIntLength() == x.getIntLength()"}, limit = "1")
+        protected static final NativeObject doFloat32(final NativeObject receiver, final double alpha, final NativeObject x,
+                        @SuppressWarnings("unused") @Cached("float32ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final int[] ys = receiver.getIntStorage();
+            final int[] xs = x.getIntStorage();
+            for (int i = 0; i < ys.length; i++) {
+                ys[i] = Float.floatToRawIntBits((float) (Float.intBitsToFloat(ys[i]) + alpha * Float.intBitsToFloat(xs[i])));
+            }
+            return receiver;
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isLongType()", "x.getSqueakClass() == arrayClass", "x.isLongType()", "receiver.getLongLength() == x.getLongLength()"}, limit = "1")
+        protected static final NativeObject doFloat64(final NativeObject receiver, final double alpha, final NativeObject x,
+                        @SuppressWarnings("unused") @Cached("float64ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final long[] ys = receiver.getLongStorage();
+            final long[] xs = x.getLongStorage();
+            for (int i = 0; i < ys.length; i++) {
+                ys[i] = Double.doubleToRawLongBits(Double.longBitsToDouble(ys[i]) + alpha * Double.longBitsToDouble(xs[i]));
+            }
+            return receiver;
+        }
+    }
+
+    /**
+     * receiver := a * b, with receiver, a, and b stored row by row as rows x columns matrices of m x
+     * n, m x k, and k x n. The receiver must not be a or b.
+     */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveMatrixMultiply")
+    public abstract static class PrimMatrixMultiplyNode extends AbstractNumericKernelNode implements SenaryPrimitive {
+
+        public PrimMatrixMultiplyNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "a.getSqueakClass() == arrayClass", "b.getSqueakClass() == arrayClass",
+                        "receiver.isIntType()", "a.isIntType()", "b.isIntType()", "receiver != a", "receiver != b",
+                        "isMatrix(receiver.getIntLength(), m, n)", "isMatrix(a.getIntLength(), m, k)", "isMatrix(b.getIntLength(), k, n)"}, limit = "1")
+        protected static final NativeObject doFloat32(final NativeObject receiver, final NativeObject a, final NativeObject b, final long m, final long k, final long n,
+                        @SuppressWarnings("unused") @Cached("float32ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final int[] cs = receiver.getIntStorage();
+            final int[] as = a.getIntStorage();
+            final int[] bs = b.getIntStorage();
+            final int columns = (int) n;
+            final int inner = (int) k;
+            /* Accumulate a whole row at once so that the innermost loop runs along rows of b. */
+            final double[] row = new double[columns];
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < columns; j++) {
+                    row[j] = 0;
+                }
+                for (int p = 0; p < inner; p++) {
+                    final double aip = Float.intBitsToFloat(as[i * inner + p]);
+                    final int bOffset = p * columns;
+                    for (int j = 0; j < columns; j++) {
+                        row[j] += aip * Float.intBitsToFloat(bs[bOffset + j]);
+                    }
+                }
+                final int cOffset = i * columns;
+                for (int j = 0; j < columns; j++) {
+                    cs[cOffset + j] = Float.floatToRawIntBits((float) row[j]);
+                }
+            }
+            return receiver;
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "a.getSqueakClass() == arrayClass", "b.getSqueakClass() == arrayClass",
+                        "receiver.isLongType()", "a.isLongType()", "b.isLongType()", "receiver != a", "receiver != b",
+                        "isMatrix(receiver.getLongLength(), m, n)", "isMatrix(a.getLongLength(), m, k)", "isMatrix(b.getLongLength(), k, n)"}, limit = "1")
+        protected static final NativeObject doFloat64(final NativeObject receiver, final NativeObject a, final NativeObject b, final long m, final long k, final long n,
+                        @SuppressWarnings("unused") @Cached("float64ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final long[] cs = receiver.getLongStorage();
+            final long[] as = a.getLongStorage();
+            final long[] bs = b.getLongStorage();
+            final int columns = (int) n;
+            final int inner = (int) k;
+            final double[] row = new double[columns];
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < columns; j++) {
+                    row[j] = 0;
+                }
+                for (int p = 0; p < inner; p++) {
+                    final double aip = Double.longBitsToDouble(as[i * inner + p]);
+                    final int bOffset = p * columns;
+                    for (int j = 0; j < columns; j++) {
+                        row[j] += aip * Double.longBitsToDouble(bs[bOffset + j]);
+                    }
+                }
+                final int cOffset = i * columns;
+                for (int j = 0; j < columns; j++) {
+                    cs[cOffset + j] = Double.doubleToRawLongBits(row[j]);
+                }
+            }
+            return receiver;
+        }
+
+        protected static final boolean isMatrix(final int length, final long rows, final long columns) {
+            return rows >= 0 && columns >= 0 && length == rows * columns;
+        }
+    }
+
+    /** Answers the largest element, or NaN if there is a NaN. */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveMax")
+    public abstract static class PrimMaxNode extends AbstractNumericKernelNode implements UnaryPrimitive {
+
+        public PrimMaxNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isIntType()", "receiver.getIntLength() > 0"}, limit = "1")
+        protected static final double doFloat32(final NativeObject receiver,
+                        @SuppressWarnings("unused") @Cached("float32ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final int[] ints = receiver.getIntStorage();
+            float max = Float.intBitsToFloat(ints[0]);
+            for (int i = 1; i < ints.length; i++) {
+                max = Math.max(max, Float.intBitsToFloat(ints[i]));
+            }
+            return max;
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isLongType()", "receiver.getLongLength() > 0"}, limit = "1")
+        protected static final double doFloat64(final NativeObject receiver,
+                        @SuppressWarnings("unused") @Cached("float64ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final long[] longs = receiver.getLongStorage();
+            double max = Double.longBitsToDouble(longs[0]);
+            for (int i = 1; i < longs.length; i++) {
+                max = Math.max(max, Double.longBitsToDouble(longs[i]));
+            }
+            return max;
+        }
+    }
+
+    /** Answers the smallest element, or NaN if there is a NaN. */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveMin")
+    public abstract static class PrimMinNode extends AbstractNumericKernelNode implements UnaryPrimitive {
+
+        public PrimMinNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isIntType()", "receiver.getIntLength() > 0"}, limit = "1")
+        protected static final double doFloat32(final NativeObject receiver,
+                        @SuppressWarnings("unused") @Cached("float32ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final int[] ints = receiver.getIntStorage();
+            float min = Float.intBitsToFloat(ints[0]);
+            for (int i = 1; i < ints.length; i++) {
+                min = Math.min(min, Float.intBitsToFloat(ints[i]));
+            }
+            return min;
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isLongType()", "receiver.getLongLength() > 0"}, limit = "1")
+        protected static final double doFloat64(final NativeObject receiver,
+                        @SuppressWarnings("unused") @Cached("float64ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final long[] longs = receiver.getLongStorage();
+            double min = Double.longBitsToDouble(longs[0]);
+            for (int i = 1; i < longs.length; i++) {
+                min = Math.min(min, Double.longBitsToDouble(longs[i]));
+            }
+            return min;
+        }
+    }
+
+    /** Replaces each element with the sum of itself and all elements before it. */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitivePrefixSum")
+    public abstract static class PrimPrefixSumNode extends AbstractNumericKernelNode implements UnaryPrimitive {
+
+        public PrimPrefixSumNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isIntType()"}, limit = "1")
+        protected static final NativeObject doFloat32(final NativeObject receiver,
+                        @SuppressWarnings("unused") @Cached("float32ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final int[] ints = receiver.getIntStorage();
+            double sum = 0;
+            for (int i = 0; i < ints.length; i++) {
+                sum += Float.intBitsToFloat(ints[i]);
+                ints[i] = Float.floatToRawIntBits((float) sum);
+            }
+            return receiver;
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isLongType()"}, limit = "1")
+        protected static final NativeObject doFloat64(final NativeObject receiver,
+                        @SuppressWarnings("unused") @Cached("float64ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final long[] longs = receiver.getLongStorage();
+            double sum = 0;
+            for (int i = 0; i < longs.length; i++) {
+                sum += Double.longBitsToDouble(longs[i]);
+                longs[i] = Double.doubleToRawLongBits(sum);
+            }
+            return receiver;
+        }
+    }
+
+    /** receiver := (alpha * x) + (beta * receiver) */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveScaledAccumulate")
+    public abstract static class PrimScaledAccumulateNode extends AbstractNumericKernelNode implements QuaternaryPrimitive {
+
+        public PrimScaledAccumulateNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isIntType()", "x.getSqueakClass() == arrayClass", "x.isIntType()", "receiver.getIntLength() == x.getIntLength()"}, limit = "1")
+        protected static final NativeObject doFloat32(final NativeObject receiver, final double alpha, final NativeObject x, final double beta,
+                        @SuppressWarnings("unused") @Cached("float32ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final int[] ys = receiver.getIntStorage();
+            final int[] xs = x.getIntStorage();
+            for (int i = 0; i < ys.length; i++) {
+                ys[i] = Float.floatToRawIntBits((float) (alpha * Float.intBitsToFloat(xs[i]) + beta * Float.intBitsToFloat(ys[i])));
+            }
+            return receiver;
+        }
+
+        @Specialization(guards = {"receiver.getSqueakClass() == arrayClass", "receiver.isLongType()", "x.getSqueakClass() == arrayClass", "x.isLongType()", "receiver.getLongLength() == x.getLongLength()"}, limit = "1")
+        protected static final NativeObject doFloat64(final NativeObject receiver, final double alpha, final NativeObject x, final double beta,
+                        @SuppressWarnings("unused") @Cached("float64ArrayClassOrNull(receiver)") final ClassObject arrayClass) {
+            final long[] ys = receiver.getLongStorage();
+            final long[] xs = x.getLongStorage();
+            for (int i = 0; i < ys.length; i++) {
+                ys[i] = Double.doubleToRawLongBits(alpha * Double.longBitsToDouble(xs[i]) + beta * Double.longBitsToDouble(ys[i]));
+            }
+            return receiver;
+        }
+    }
+}
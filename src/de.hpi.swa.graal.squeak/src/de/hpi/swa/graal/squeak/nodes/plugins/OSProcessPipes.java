@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.nodes.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectableChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.graalvm.collections.EconomicMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLogger;
+import com.oracle.truffle.api.io.TruffleProcessBuilder;
+
+import de.hpi.swa.graal.squeak.exceptions.PrimitiveExceptions.PrimitiveFailed;
+import de.hpi.swa.graal.squeak.image.SqueakImageContext;
+import de.hpi.swa.graal.squeak.shared.SqueakLanguageConfig;
+
+/**
+ * Child processes with non-blocking standard streams for the OSProcess plugin. The streams of a JVM
+ * process cannot be selected, so each of them is connected to a {@link Pipe}. The image only ever
+ * sees the non-blocking end of such a pipe, which is registered as an AIO descriptor. The
+ * AioPlugin then signals a semaphore once a pipe has data to read (or has reached its end) or has
+ * room for more data to write.
+ *
+ * A single poller thread moves the stdout and stderr of all processes into their pipes, reading
+ * only what is available so that it never blocks. Writing to the stdin of a process may block, so
+ * each stdin pipe gets a pump thread of its own, but only once the image has written to it.
+ *
+ * A process is forgotten once the image has read its exit status and has closed all of its pipes.
+ */
+public final class OSProcessPipes {
+    private static final TruffleLogger LOG = TruffleLogger.getLogger(SqueakLanguageConfig.ID, OSProcessPipes.class);
+    private static final String POLLER_THREAD_NAME = "GraalSqueak OSProcess Output";
+    private static final String PUMP_THREAD_NAME = "GraalSqueak OSProcess Input";
+    private static final int PUMP_BUFFER_SIZE = 8192;
+    private static final long MAX_POLL_INTERVAL_MILLIS = 10;
+
+    private final SqueakImageContext image;
+    private final EconomicMap<Long, ChildProcess> processes = EconomicMap.create();
+    private final EconomicMap<Long, SelectableChannel> pipes = EconomicMap.create();
+    private final EconomicMap<Long, Long> pipeProcesses = EconomicMap.create();
+    private final EconomicMap<Long, Boolean> pipesAtEnd = EconomicMap.create();
+    private final EconomicMap<Long, InputPump> inputPumps = EconomicMap.create();
+    private final ConcurrentLinkedQueue<OutputPump> outputPumps = new ConcurrentLinkedQueue<>();
+    private Thread poller;
+    private ExecutorService pumps;
+
+    /* A child process and the handles of its stdin, stdout, and stderr pipes. */
+    private static final class ChildProcess {
+        private final Process process;
+        private final long[] pipeHandles;
+        private boolean exitStatusRead;
+
+        private ChildProcess(final Process process, final long[] pipeHandles) {
+            this.process = process;
+            this.pipeHandles = pipeHandles;
+        }
+    }
+
+    /* Moves data written by the image into the stdin of a process, once started. */
+    private static final class InputPump {
+        private final Pipe pipe;
+        private final OutputStream processInput;
+        private boolean started;
+
+        private InputPump(final Pipe pipe, final OutputStream processInput) {
+            this.pipe = pipe;
+            this.processInput = processInput;
+        }
+    }
+
+    /* Moves the stdout or stderr of a process into a pipe, without ever blocking. */
+    private static final class OutputPump {
+        private final Process process;
+        private final InputStream processOutput;
+        private final Pipe.SinkChannel sink;
+        private final ByteBuffer buffer = ByteBuffer.allocate(PUMP_BUFFER_SIZE);
+
+        private OutputPump(final Process process, final InputStream processOutput, final Pipe.SinkChannel sink) {
+            this.process = process;
+            this.processOutput = processOutput;
+            this.sink = sink;
+            buffer.limit(0);
+        }
+
+        /**
+         * Moves available data, and closes the pipe once the process has exited and all of its
+         * output has been moved.
+         *
+         * @return `true` if data has been moved
+         */
+        private boolean pump() throws IOException {
+            if (buffer.hasRemaining()) {
+                /* The image has not read everything yet. */
+                final boolean moved = sink.write(buffer) > 0;
+                if (buffer.hasRemaining()) {
+                    return moved;
+                }
+            }
+            /* Check the process first, so that no output written before its exit is missed. */
+            final boolean isAlive = process.isAlive();
+            final int available = processOutput.available();
+            if (available > 0) {
+                buffer.clear();
+                final int count = processOutput.read(buffer.array(), 0, Math.min(available, buffer.capacity()));
+                buffer.limit(Math.max(count, 0));
+                sink.write(buffer);
+                return true;
+            }
+            if (!isAlive) {
+                close();
+            }
+            return false;
+        }
+
+        private boolean isClosed() {
+            return !sink.isOpen();
+        }
+
+        private void close() throws IOException {
+            try {
+                processOutput.close();
+            } finally {
+                sink.close();
+            }
+        }
+    }
+
+    public OSProcessPipes(final SqueakImageContext image) {
+        this.image = image;
+    }
+
+    /**
+     * Starts a child process. The process is destroyed again if its pipes cannot be set up.
+     *
+     * @return the handles of the process and of its stdin, stdout, and stderr pipes
+     */
+    @TruffleBoundary
+    public long[] spawn(final String[] command, final String workingDirectory) throws IOException {
+        final TruffleProcessBuilder builder = image.env.newProcessBuilder(command);
+        if (workingDirectory != null) {
+            builder.directory(image.env.getPublicTruffleFile(workingDirectory));
+        }
+        final Process process = builder.start();
+        final long[] handles = new long[4];
+        int created = 0;
+        try {
+            handles[1] = createInputPipe(process.getOutputStream());
+            created++;
+            handles[2] = createOutputPipe(process, process.getInputStream());
+            created++;
+            handles[3] = createOutputPipe(process, process.getErrorStream());
+            created++;
+        } catch (final IOException | RuntimeException e) {
+            process.destroy();
+            for (int i = 1; i <= created; i++) {
+                closeQuietly(handles[i]);
+            }
+            throw e;
+        }
+        handles[0] = System.identityHashCode(process);
+        processes.put(handles[0], new ChildProcess(process, new long[]{handles[1], handles[2], handles[3]}));
+        for (int i = 1; i < handles.length; i++) {
+            pipeProcesses.put(handles[i], handles[0]);
+        }
+        return handles;
+    }
+
+    /**
+     * Answers the exit status of the process, or `null` if it is still running. Fails for processes
+     * that have already been released.
+     */
+    @TruffleBoundary
+    public Integer exitStatus(final long processHandle) {
+        final ChildProcess child = processes.get(processHandle);
+        if (child == null) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        if (child.process.isAlive()) {
+            return null;
+        }
+        child.exitStatusRead = true;
+        releaseIfDone(processHandle);
+        return child.process.exitValue();
+    }
+
+    /**
+     * Reads from a stdout or stderr pipe without blocking.
+     *
+     * @return the number of bytes read, zero if no data is available (yet)
+     */
+    @TruffleBoundary
+    public long read(final long pipeHandle, final ByteBuffer buffer) throws IOException {
+        final SelectableChannel pipe = getPipeOrPrimFail(pipeHandle);
+        if (!(pipe instanceof Pipe.SourceChannel)) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        final int count = ((Pipe.SourceChannel) pipe).read(buffer);
+        if (count < 0) {
+            pipesAtEnd.put(pipeHandle, Boolean.TRUE);
+            return 0;
+        }
+        return count;
+    }
+
+    /**
+     * Writes to a stdin pipe without blocking.
+     *
+     * @return the number of bytes written, zero if the pipe is full
+     */
+    @TruffleBoundary
+    public long write(final long pipeHandle, final ByteBuffer buffer) throws IOException {
+        final SelectableChannel pipe = getPipeOrPrimFail(pipeHandle);
+        if (!(pipe instanceof Pipe.SinkChannel)) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        final long written = ((Pipe.SinkChannel) pipe).write(buffer);
+        final InputPump pump = inputPumps.get(pipeHandle);
+        if (written > 0 && !pump.started) {
+            pump.started = true;
+            startInputPump(pump);
+        }
+        return written;
+    }
+
+    @TruffleBoundary
+    public boolean isAtEnd(final long pipeHandle) {
+        getPipeOrPrimFail(pipeHandle);
+        return pipesAtEnd.containsKey(pipeHandle);
+    }
+
+    /** Closes a pipe. Closing the stdin pipe signals end of input to the child process. */
+    @TruffleBoundary
+    public void close(final long pipeHandle) throws IOException {
+        final SelectableChannel pipe = getPipeOrPrimFail(pipeHandle);
+        pipes.removeKey(pipeHandle);
+        pipesAtEnd.removeKey(pipeHandle);
+        final Long processHandle = pipeProcesses.removeKey(pipeHandle);
+        if (processHandle != null) {
+            releaseIfDone(processHandle);
+        }
+        image.aio.unregisterChannel(pipeHandle);
+        final InputPump pump = inputPumps.removeKey(pipeHandle);
+        try {
+            pipe.close();
+            if (pump != null && !pump.started) {
+                pump.processInput.close(); /* Nothing to pump, signal end of input directly. */
+            }
+        } finally {
+            image.socketPluginSelector.closed();
+        }
+    }
+
+    @TruffleBoundary
+    public synchronized void shutdown() {
+        if (poller != null) {
+            poller.interrupt();
+            poller = null;
+        }
+        outputPumps.clear();
+        if (pumps != null) {
+            pumps.shutdownNow();
+            pumps = null;
+        }
+    }
+
+    private void closeQuietly(final long pipeHandle) {
+        try {
+            close(pipeHandle);
+        } catch (final IOException e) {
+            LOG.fine(() -> "Closing pipe failed: " + e.getMessage());
+        }
+    }
+
+    private void releaseIfDone(final long processHandle) {
+        final ChildProcess child = processes.get(processHandle);
+        if (child == null || !child.exitStatusRead) {
+            return;
+        }
+        for (final long pipeHandle : child.pipeHandles) {
+            if (pipes.containsKey(pipeHandle)) {
+                return;
+            }
+        }
+        processes.removeKey(processHandle);
+    }
+
+    private SelectableChannel getPipeOrPrimFail(final long pipeHandle) {
+        final SelectableChannel pipe = pipes.get(pipeHandle);
+        if (pipe == null) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        return pipe;
+    }
+
+    private long createInputPipe(final OutputStream processInput) throws IOException {
+        final Pipe pipe = Pipe.open();
+        pipe.sink().configureBlocking(false);
+        final long pipeHandle = register(pipe.sink());
+        inputPumps.put(pipeHandle, new InputPump(pipe, processInput));
+        return pipeHandle;
+    }
+
+    private long createOutputPipe(final Process process, final InputStream processOutput) throws IOException {
+        final Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        pipe.sink().configureBlocking(false);
+        final long pipeHandle = register(pipe.source());
+        outputPumps.add(new OutputPump(process, processOutput, pipe.sink()));
+        ensurePollerStarted();
+        return pipeHandle;
+    }
+
+    private long register(final SelectableChannel channel) {
+        final long pipeHandle = System.identityHashCode(channel);
+        pipes.put(pipeHandle, channel);
+        image.aio.registerChannel(pipeHandle, channel);
+        return pipeHandle;
+    }
+
+    private synchronized void ensurePollerStarted() {
+        if (poller == null) {
+            poller = new Thread(this::pollOutputs, POLLER_THREAD_NAME);
+            poller.setDaemon(true);
+            poller.start();
+        }
+    }
+
+    /* Polls more rarely while no process produces output. */
+    private void pollOutputs() {
+        long intervalMillis = 1;
+        while (!Thread.currentThread().isInterrupted()) {
+            boolean moved = false;
+            final Iterator<OutputPump> iterator = outputPumps.iterator();
+            while (iterator.hasNext()) {
+                final OutputPump pump = iterator.next();
+                try {
+                    moved |= pump.pump();
+                } catch (final IOException e) {
+                    LOG.fine(() -> "Pipe closed: " + e.getMessage());
+                    try {
+                        pump.close();
+                    } catch (final IOException e2) {
+                        LOG.fine(() -> "Closing pipe failed: " + e2.getMessage());
+                    }
+                }
+                if (pump.isClosed()) {
+                    iterator.remove();
+                }
+            }
+            if (moved) {
+                intervalMillis = 1;
+                continue;
+            }
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (final InterruptedException e) {
+                return;
+            }
+            intervalMillis = Math.min(intervalMillis * 2, MAX_POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    private synchronized void startInputPump(final InputPump pump) {
+        if (pumps == null) {
+            /* Pumps block until their process reads, so each needs its own thread. */
+            pumps = Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, PUMP_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pumps.execute(() -> {
+            try (Pipe.SourceChannel source = pump.pipe.source(); OutputStream out = pump.processInput) {
+                final ByteBuffer buffer = ByteBuffer.allocate(PUMP_BUFFER_SIZE);
+                while (source.read(buffer) >= 0) {
+                    out.write(buffer.array(), 0, buffer.position());
+                    out.flush();
+                    buffer.clear();
+                }
+            } catch (final IOException e) {
+                LOG.fine(() -> "Pipe closed: " + e.getMessage());
+            }
+        });
+    }
+}
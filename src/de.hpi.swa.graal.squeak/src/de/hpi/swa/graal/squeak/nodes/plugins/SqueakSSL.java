@@ -12,7 +12,9 @@ import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import javax.net.ssl.SSLContext;
@@ -23,6 +25,8 @@ import javax.net.ssl.SSLEngineResult.Status;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSession;
 
+import org.graalvm.collections.EconomicMap;
+
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
@@ -219,7 +223,38 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         return ByteBuffer.allocate(0).asReadOnlyBuffer();
     }
 
+    private static final int MAX_FREE_BUFFERS = 32;
+
+    /**
+     * SSL contexts and engine buffers of an image. Contexts are shared by all of its sessions, so
+     * that their session caches allow resuming earlier sessions instead of performing full
+     * handshakes. Keys are certificate names, or the empty string for the default certificates. A
+     * context is created again once its certificate file has been modified.
+     */
+    public static final class SessionCaches {
+        private final EconomicMap<String, CachedContext> contexts = EconomicMap.create();
+        /* Engine buffers of destroyed sessions, ready to be reused by new sessions. */
+        private final ArrayDeque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+
+        @TruffleBoundary
+        public synchronized void clear() {
+            contexts.clear();
+            freeBuffers.clear();
+        }
+    }
+
+    private static final class CachedContext {
+        private final SSLContext context;
+        private final long lastModified;
+
+        private CachedContext(final SSLContext context, final long lastModified) {
+            this.context = context;
+            this.lastModified = lastModified;
+        }
+    }
+
     public static final class SqSSL {
+        private final SessionCaches caches;
         private State state = State.UNUSED;
         private SSLContext context;
         private SSLEngine engine;
@@ -228,8 +263,19 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         private String serverName;
 
         private ByteBuffer buffer;
+        /* Holds engine output which does not fit into the target object. */
+        private ByteBuffer scratchBuffer;
 
         @SuppressWarnings("unused" /* TODO */) private long logLevel;
+
+        private SqSSL(final SessionCaches caches) {
+            this.caches = caches;
+        }
+
+        /** Answers the current session of the engine, or `null` before the handshake. */
+        public SSLSession getSession() {
+            return engine == null ? null : engine.getSession();
+        }
     }
 
     @TruffleBoundary
@@ -248,7 +294,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
     }
 
     private static SSLEngineResult wrap(final SqSSL ssl, final ByteBuffer sourceBuffer, final ByteBuffer targetBuffer) throws SSLException {
-        return encode(ssl, ssl.engine::wrap, sourceBuffer, targetBuffer);
+        return encode(ssl, ssl.engine::wrap, sourceBuffer, targetBuffer, ssl.engine.getSession().getPacketBufferSize());
     }
 
     /**
@@ -256,34 +302,50 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
      * read-only.
      */
     private static SSLEngineResult unwrap(final SqSSL ssl, final ByteBuffer sourceBuffer, final ByteBuffer targetBuffer) throws SSLException {
-        return encode(ssl, ssl.engine::unwrap, sourceBuffer, targetBuffer);
+        return encode(ssl, ssl.engine::unwrap, sourceBuffer, targetBuffer, ssl.engine.getSession().getApplicationBufferSize());
     }
 
+    /**
+     * Let the engine write straight into the byte storage of the target object whenever it has room
+     * for the largest possible output. Otherwise, the output goes through the scratch buffer of the
+     * session, which is reused across calls.
+     */
     @TruffleBoundary
-    private static SSLEngineResult encode(final SqSSL ssl, final Encoder encoder, final ByteBuffer sourceBuffer, final ByteBuffer targetBuffer) throws SSLException {
-        final int bufferSize = getBufferSize(ssl);
-        ByteBuffer intermediateTarget = ByteBuffer.allocate(bufferSize);
+    private static SSLEngineResult encode(final SqSSL ssl, final Encoder encoder, final ByteBuffer sourceBuffer, final ByteBuffer targetBuffer, final int requiredSize)
+                    throws SSLException {
+        if (!targetBuffer.isReadOnly() && targetBuffer.remaining() >= requiredSize) {
+            final SSLEngineResult result = encoder.encode(sourceBuffer, targetBuffer);
+            if (result.getStatus() != Status.BUFFER_OVERFLOW) {
+                return result;
+            }
+        }
+
+        if (ssl.scratchBuffer == null || ssl.scratchBuffer.capacity() < requiredSize) {
+            releaseBuffer(ssl.caches, ssl.scratchBuffer);
+            ssl.scratchBuffer = acquireBuffer(ssl.caches, requiredSize);
+        }
+        ssl.scratchBuffer.clear();
 
         while (true) {
-            final SSLEngineResult result = encoder.encode(sourceBuffer, intermediateTarget);
+            final SSLEngineResult result = encoder.encode(sourceBuffer, ssl.scratchBuffer);
             switch (result.getStatus()) {
                 case BUFFER_UNDERFLOW:
                     return result;
 
                 case BUFFER_OVERFLOW:
-                    intermediateTarget = enlargeBufferFrom(intermediateTarget, bufferSize);
+                    ssl.scratchBuffer = enlargeBufferFrom(ssl.scratchBuffer, requiredSize);
                     continue;
 
                 case OK:
-                    intermediateTarget.flip();
-                    if (intermediateTarget.remaining() > 0) {
-                        targetBuffer.put(intermediateTarget);
+                    ssl.scratchBuffer.flip();
+                    if (ssl.scratchBuffer.remaining() > 0) {
+                        targetBuffer.put(ssl.scratchBuffer);
                     }
                     return result;
 
                 case CLOSED:
-                    intermediateTarget.flip();
-                    targetBuffer.put(intermediateTarget);
+                    ssl.scratchBuffer.flip();
+                    targetBuffer.put(ssl.scratchBuffer);
                     return result;
 
                 default:
@@ -300,14 +362,52 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         return newBuffer;
     }
 
+    private static ByteBuffer acquireBuffer(final SessionCaches caches, final int size) {
+        synchronized (caches) {
+            final Iterator<ByteBuffer> buffers = caches.freeBuffers.iterator();
+            while (buffers.hasNext()) {
+                final ByteBuffer buffer = buffers.next();
+                if (buffer.capacity() >= size) {
+                    buffers.remove();
+                    buffer.clear();
+                    return buffer;
+                }
+            }
+        }
+        return ByteBuffer.allocate(size);
+    }
+
+    private static void releaseBuffer(final SessionCaches caches, final ByteBuffer buffer) {
+        synchronized (caches) {
+            if (buffer != null && caches.freeBuffers.size() < MAX_FREE_BUFFERS) {
+                caches.freeBuffers.push(buffer);
+            }
+        }
+    }
+
+    /** Append incoming net data to the session buffer, growing it if necessary. */
+    private static void appendToBuffer(final SqSSL ssl, final ByteBuffer source) {
+        if (ssl.buffer.remaining() < source.remaining()) {
+            final ByteBuffer newBuffer = acquireBuffer(ssl.caches, ssl.buffer.position() + source.remaining());
+            ssl.buffer.flip();
+            newBuffer.put(ssl.buffer);
+            releaseBuffer(ssl.caches, ssl.buffer);
+            ssl.buffer = newBuffer;
+        }
+        ssl.buffer.put(source);
+    }
+
     /**
+     * The engine never writes to the source buffer. In contrast to a read-only view, the buffer
+     * exposes its backing array, so that the engine can work on the byte storage directly.
+     *
      * @param buffer the Squeak buffer object (byte type)
      * @param start the <b>one-based</b> start index
      * @param length the length to interpret
-     * @return a read-only byte buffer
+     * @return a byte buffer backed by the storage of the buffer object
      */
     private static ByteBuffer asReadBuffer(final NativeObject buffer, final long start, final long length) {
-        return ByteBuffer.wrap(buffer.getByteStorage(), (int) start - 1, (int) length).asReadOnlyBuffer();
+        return ByteBuffer.wrap(buffer.getByteStorage(), (int) start - 1, (int) length);
     }
 
     /**
@@ -416,7 +516,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
             }
 
             if (ssl.state == State.ACCEPTING) {
-                ssl.buffer.put(source);
+                appendToBuffer(ssl, source);
                 unwrapEagerly(ssl);
                 wrapEagerly(ssl, target);
                 return target.position();
@@ -519,7 +619,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
                 beginHandshake(ssl, target);
                 return target.position();
             } else if (ssl.state == State.CONNECTING) {
-                ssl.buffer.put(source);
+                appendToBuffer(ssl, source);
                 readHandshakeResponse(ssl);
                 writeHandshakeResponse(ssl, target);
                 return target.position();
@@ -602,8 +702,19 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
 
     private static void initializeWithCertificate(final SqSSL ssl, final String certificate) {
         final Path certificatePath = Paths.get(certificate);
+        final long lastModified = certificatePath.toFile().lastModified();
+        synchronized (ssl.caches) {
+            final CachedContext cached = ssl.caches.contexts.get(certificate);
+            if (cached != null && cached.lastModified == lastModified) {
+                ssl.context = cached.context;
+                return;
+            }
+        }
         try {
             ssl.context = SSLContextInitializer.createSSLContext(certificatePath);
+            synchronized (ssl.caches) {
+                ssl.caches.contexts.put(certificate, new CachedContext(ssl.context, lastModified));
+            }
         } catch (final IOException e) {
             throw SqueakException.create("Failed to load certificate " + certificate + ". Does the file exist?", e);
         } catch (final GeneralSecurityException e) {
@@ -612,15 +723,26 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
     }
 
     private static void initializeWithDefaultCertificates(final SqSSL ssl) {
+        synchronized (ssl.caches) {
+            final CachedContext cached = ssl.caches.contexts.get("");
+            if (cached != null) {
+                ssl.context = cached.context;
+                return;
+            }
+        }
         try {
             ssl.context = SSLContext.getInstance("TLS");
             ssl.context.init(null, null, null);
+            synchronized (ssl.caches) {
+                ssl.caches.contexts.put("", new CachedContext(ssl.context, 0));
+            }
         } catch (final GeneralSecurityException e) {
             throw SqueakException.create("Failed to initialize default certificate store", e);
         }
     }
 
     private static void ensureEngine(final SqSSL ssl) {
+        /* Clients can only resume sessions with peers they know by name. */
         if (ssl.serverName != null && !ssl.serverName.trim().isEmpty()) {
             ssl.engine = ssl.context.createSSLEngine(ssl.serverName, -1);
         } else {
@@ -634,7 +756,13 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         // however, both engines refuse to produce new data.
         // TLS 1.3 details: https://tls13.ulfheim.net/
         ssl.engine.setEnabledProtocols(new String[]{"TLSv1.2"});
-        ssl.buffer = ByteBuffer.allocate(getBufferSize(ssl));
+        final int bufferSize = getBufferSize(ssl);
+        if (ssl.buffer == null || ssl.buffer.capacity() < bufferSize) {
+            releaseBuffer(ssl.caches, ssl.buffer);
+            ssl.buffer = acquireBuffer(ssl.caches, bufferSize);
+        } else {
+            ssl.buffer.clear();
+        }
     }
 
     @GenerateNodeFactory
@@ -683,7 +811,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
             final ByteBuffer target = asWriteBuffer(targetBuffer);
 
             try {
-                ssl.buffer.put(source);
+                appendToBuffer(ssl, source);
                 decryptOne(ssl, target);
                 return target.position();
             } catch (final SSLException e) {
@@ -940,7 +1068,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         @Specialization
         @TruffleBoundary
         protected long doCreate(@SuppressWarnings("unused") final Object receiver) {
-            final SqSSL ssl = new SqSSL();
+            final SqSSL ssl = new SqSSL(method.image.squeakSSLCaches);
             final long handle = ssl.hashCode();
             method.image.squeakSSLHandles.put(handle, ssl);
             return handle;
@@ -968,6 +1096,10 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
             if (ssl == null) {
                 return 0L;
             } else {
+                releaseBuffer(ssl.caches, ssl.buffer);
+                releaseBuffer(ssl.caches, ssl.scratchBuffer);
+                ssl.buffer = null;
+                ssl.scratchBuffer = null;
                 return 1L;
             }
         }
@@ -570,6 +570,9 @@ public final class Zip {
         final int result;
 
         final byte[] bytes = collection.getByteStorage();
+        if (stopIndex - startIndex >= ZipStreams.MIN_BULK_CHECKSUM_SIZE && ZipStreams.isValidAdler32(adler32)) {
+            return ZipStreams.updateAdler32(adler32, bytes, startIndex - 1, stopIndex - startIndex + 1);
+        }
         s1 = (int) (adler32 & 0xFFFF);
         s2 = (int) (adler32 >> 16 & 0xFFFF);
         for (int i = startIndex - 1; i <= stopIndex - 1; i++) {
@@ -588,6 +591,9 @@ public final class Zip {
         long result = crc;
 
         final byte[] bytes = collection.getByteStorage();
+        if (stopIndex - startIndex >= ZipStreams.MIN_BULK_CHECKSUM_SIZE && crc >>> 32 == 0) {
+            return ZipStreams.updateGZipCrc32(crc, bytes, startIndex - 1, stopIndex - startIndex + 1);
+        }
         for (int i = startIndex - 1; i <= stopIndex - 1; i++) {
             result = zipCrcTable[(int) ((result ^ Byte.toUnsignedInt(bytes[i])) & 0xFF)] ^ result >> 8;
         }
@@ -12,14 +12,18 @@ import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 
+import de.hpi.swa.graal.squeak.model.ArrayObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.model.PointersObject;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveFactoryHolder;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveNode;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.BinaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuaternaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuinaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.SenaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.TernaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.UnaryPrimitiveWithoutFallback;
 import de.hpi.swa.graal.squeak.nodes.primitives.SqueakPrimitive;
 
 public final class ZipPlugin extends AbstractPrimitiveFactoryHolder {
@@ -38,6 +42,26 @@ public final class ZipPlugin extends AbstractPrimitiveFactoryHolder {
         }
     }
 
+    /** Creates a raw deflate stream, see {@link ZipStreams}. */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveDeflaterCreate")
+    protected abstract static class PrimDeflaterCreateNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+
+        protected PrimDeflaterCreateNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"isValidLevel(level)"})
+        protected final long doCreate(@SuppressWarnings("unused") final Object receiver, final long level) {
+            return method.image.zipStreams.createDeflater((int) level);
+        }
+
+        /* -1 selects the default compression level. */
+        protected static final boolean isValidLevel(final long level) {
+            return level >= -1 && level <= 9;
+        }
+    }
+
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveDeflateUpdateHashTable")
     protected abstract static class PrimDeflateUpdateHashTableNode extends AbstractPrimitiveNode implements TernaryPrimitive {
@@ -69,6 +93,21 @@ public final class ZipPlugin extends AbstractPrimitiveFactoryHolder {
         }
     }
 
+    /** Creates a raw inflate stream, see {@link ZipStreams}. */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveInflaterCreate")
+    protected abstract static class PrimInflaterCreateNode extends AbstractPrimitiveNode implements UnaryPrimitiveWithoutFallback {
+
+        protected PrimInflaterCreateNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final long doCreate(@SuppressWarnings("unused") final Object receiver) {
+            return method.image.zipStreams.createInflater();
+        }
+    }
+
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveUpdateAdler32")
     protected abstract static class PrimUpdateAdler32Node extends AbstractPrimitiveNode implements QuinaryPrimitive {
@@ -115,6 +154,75 @@ public final class ZipPlugin extends AbstractPrimitiveFactoryHolder {
         }
     }
 
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveZipStreamClose")
+    protected abstract static class PrimZipStreamCloseNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+
+        protected PrimZipStreamCloseNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final Object doClose(final Object receiver, final long handle) {
+            method.image.zipStreams.close(handle);
+            return receiver;
+        }
+    }
+
+    /**
+     * Deflates or inflates pending input into bytes from startIndex to stopIndex and answers the
+     * number of bytes written.
+     */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveZipStreamProcess")
+    protected abstract static class PrimZipStreamProcessNode extends AbstractPrimitiveNode implements SenaryPrimitive {
+
+        protected PrimZipStreamProcessNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"stopIndex >= startIndex", "startIndex > 0", "bytes.isByteType()", "stopIndex <= bytes.getByteLength()"})
+        protected final long doProcess(@SuppressWarnings("unused") final Object receiver, final long handle, final NativeObject bytes, final long startIndex, final long stopIndex,
+                        final boolean finish) {
+            return method.image.zipStreams.process(handle, bytes.getByteStorage(), (int) startIndex - 1, (int) (stopIndex - startIndex + 1), finish);
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveZipStreamSetInput")
+    protected abstract static class PrimZipStreamSetInputNode extends AbstractPrimitiveNode implements QuinaryPrimitive {
+
+        protected PrimZipStreamSetInputNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization(guards = {"bytes.isByteType()", "isValidRange(startIndex, stopIndex, bytes)"})
+        protected final Object doSetInput(final Object receiver, final long handle, final NativeObject bytes, final long startIndex, final long stopIndex) {
+            method.image.zipStreams.setInput(handle, bytes.getByteStorage(), (int) startIndex - 1, (int) (stopIndex - startIndex + 1));
+            return receiver;
+        }
+
+        /* The range may be empty, with stopIndex = startIndex - 1. */
+        protected static final boolean isValidRange(final long startIndex, final long stopIndex, final NativeObject bytes) {
+            return startIndex > 0 && stopIndex >= startIndex - 1 && stopIndex <= bytes.getByteLength();
+        }
+    }
+
+    /** Answers an Array with the status of a stream, see {@link ZipStreams#status(long)}. */
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveZipStreamStatus")
+    protected abstract static class PrimZipStreamStatusNode extends AbstractPrimitiveNode implements BinaryPrimitive {
+
+        protected PrimZipStreamStatusNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final ArrayObject doStatus(@SuppressWarnings("unused") final Object receiver, final long handle) {
+            return method.image.asArrayOfLongs(method.image.zipStreams.status(handle));
+        }
+    }
+
     @Override
     public List<? extends NodeFactory<? extends AbstractPrimitiveNode>> getFactories() {
         return ZipPluginFactory.getFactories();
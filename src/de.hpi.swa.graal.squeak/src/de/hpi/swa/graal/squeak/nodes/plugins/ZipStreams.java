@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.nodes.plugins;
+
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.MapCursor;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import de.hpi.swa.graal.squeak.exceptions.PrimitiveExceptions.PrimitiveFailed;
+
+/**
+ * Raw deflate streams (RFC 1951) backed by {@link Deflater} and {@link Inflater} for the Zip
+ * plugin. Unlike the ported DeflatePlugin and InflatePlugin code in {@link Zip}, which works on the
+ * state of a ZipWriteStream or InflateStream block by block, these streams keep their entire state
+ * on the Java side and are fed with input and drained of output in chunks of any size. GZip and
+ * ZLib headers and trailers are left to the image, which computes their checksums with
+ * {@link #updateGZipCrc32} and {@link #updateAdler32}.
+ */
+public final class ZipStreams {
+    /* Below this many bytes, the table-driven checksum loops of Zip are faster. */
+    public static final int MIN_BULK_CHECKSUM_SIZE = 64;
+
+    private static final int CRC32_POLYNOMIAL = 0xEDB88320;
+    private static final int ADLER32_BASE = 65521;
+    /* x^(2^n) modulo the CRC-32 polynomial, for shifting a CRC over n zero bits. */
+    private static final int[] CRC32_X2N_TABLE = createCrc32X2NTable();
+
+    private final EconomicMap<Long, Deflater> deflaters = EconomicMap.create();
+    private final EconomicMap<Long, Inflater> inflaters = EconomicMap.create();
+    /* Handles are never reused, and deflaters and inflaters never share one. */
+    private long nextHandle = 1;
+
+    @TruffleBoundary
+    public long createDeflater(final int level) {
+        final Deflater deflater = new Deflater(level, true);
+        final long handle = nextHandle++;
+        deflaters.put(handle, deflater);
+        return handle;
+    }
+
+    @TruffleBoundary
+    public long createInflater() {
+        final Inflater inflater = new Inflater(true);
+        final long handle = nextHandle++;
+        inflaters.put(handle, inflater);
+        return handle;
+    }
+
+    /**
+     * Hands the next chunk of input to a stream. The bytes are copied, so the image may reuse its
+     * buffer right away. Fails unless the stream has consumed all previous input.
+     */
+    @TruffleBoundary
+    public void setInput(final long handle, final byte[] bytes, final int offset, final int length) {
+        final byte[] input = Arrays.copyOfRange(bytes, offset, offset + length);
+        final Deflater deflater = deflaters.get(handle);
+        if (deflater != null) {
+            if (!deflater.needsInput() || deflater.finished()) {
+                throw PrimitiveFailed.INAPPROPRIATE_OPERATION;
+            }
+            deflater.setInput(input);
+        } else {
+            final Inflater inflater = getInflaterOrPrimFail(handle);
+            if (!inflater.needsInput() || inflater.finished()) {
+                throw PrimitiveFailed.INAPPROPRIATE_OPERATION;
+            }
+            inflater.setInput(input);
+        }
+    }
+
+    /**
+     * Compresses or decompresses as much input as possible into the given range of bytes. For a
+     * deflate stream, finish signals that there is no more input, so that the final block can be
+     * written.
+     *
+     * @return the number of bytes written, which may be zero if more input is needed
+     */
+    @TruffleBoundary
+    public int process(final long handle, final byte[] bytes, final int offset, final int length, final boolean finish) {
+        final Deflater deflater = deflaters.get(handle);
+        if (deflater != null) {
+            if (finish) {
+                deflater.finish();
+            }
+            return deflater.deflate(bytes, offset, length);
+        } else {
+            try {
+                return getInflaterOrPrimFail(handle).inflate(bytes, offset, length);
+            } catch (final DataFormatException e) {
+                throw PrimitiveFailed.BAD_ARGUMENT;
+            }
+        }
+    }
+
+    /**
+     * Answers whether the stream needs input (0 or 1), whether it has finished (0 or 1), the number
+     * of input bytes not consumed yet, and the total number of bytes consumed and produced. The
+     * input remaining after an inflate stream has finished is the start of the GZip or ZLib trailer.
+     */
+    @TruffleBoundary
+    public long[] status(final long handle) {
+        final Deflater deflater = deflaters.get(handle);
+        if (deflater != null) {
+            return new long[]{deflater.needsInput() ? 1 : 0, deflater.finished() ? 1 : 0, 0, deflater.getBytesRead(), deflater.getBytesWritten()};
+        } else {
+            final Inflater inflater = getInflaterOrPrimFail(handle);
+            return new long[]{inflater.needsInput() ? 1 : 0, inflater.finished() ? 1 : 0, inflater.getRemaining(), inflater.getBytesRead(), inflater.getBytesWritten()};
+        }
+    }
+
+    /** Releases the native memory of a stream. */
+    @TruffleBoundary
+    public void close(final long handle) {
+        final Deflater deflater = deflaters.removeKey(handle);
+        if (deflater != null) {
+            deflater.end();
+        } else {
+            final Inflater inflater = getInflaterOrPrimFail(handle);
+            inflaters.removeKey(handle);
+            inflater.end();
+        }
+    }
+
+    @TruffleBoundary
+    public void shutdown() {
+        final MapCursor<Long, Deflater> deflaterCursor = deflaters.getEntries();
+        while (deflaterCursor.advance()) {
+            deflaterCursor.getValue().end();
+        }
+        deflaters.clear();
+        final MapCursor<Long, Inflater> inflaterCursor = inflaters.getEntries();
+        while (inflaterCursor.advance()) {
+            inflaterCursor.getValue().end();
+        }
+        inflaters.clear();
+    }
+
+    private Inflater getInflaterOrPrimFail(final long handle) {
+        final Inflater inflater = inflaters.get(handle);
+        if (inflater == null) {
+            throw PrimitiveFailed.BAD_ARGUMENT;
+        }
+        return inflater;
+    }
+
+    /*
+     * Checksums. The JDK computes CRC-32 and Adler-32 with intrinsics, but its checksums cannot be
+     * seeded with the value the image passes in. Instead, the checksum of the new bytes is computed
+     * on its own and combined with the given one as in zlib's crc32_combine and adler32_combine.
+     */
+
+    /**
+     * Updates a GZip CRC-32 register (the inverted CRC, as kept by GZipWriteStream and
+     * GZipReadStream) with length bytes starting at offset.
+     */
+    @TruffleBoundary
+    public static long updateGZipCrc32(final long crc, final byte[] bytes, final int offset, final int length) {
+        final CRC32 checksum = new CRC32();
+        checksum.update(bytes, offset, length);
+        final int combined = multiplyModuloCrc32Polynomial(crc32X2NModulo(length, 3), ~(int) crc) ^ (int) checksum.getValue();
+        return Integer.toUnsignedLong(~combined);
+    }
+
+    /**
+     * Updates an Adler-32 checksum with length bytes starting at offset. Both halves of adler32 must
+     * be less than 65521.
+     */
+    @TruffleBoundary
+    public static long updateAdler32(final long adler32, final byte[] bytes, final int offset, final int length) {
+        final Adler32 checksum = new Adler32();
+        checksum.update(bytes, offset, length);
+        final long adler32OfBytes = checksum.getValue();
+        final long remainder = length % ADLER32_BASE;
+        long sum1 = adler32 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER32_BASE;
+        sum1 += (adler32OfBytes & 0xFFFF) + ADLER32_BASE - 1;
+        sum2 += (adler32 >> 16 & 0xFFFF) + (adler32OfBytes >> 16 & 0xFFFF) + ADLER32_BASE - remainder;
+        if (sum1 >= ADLER32_BASE) {
+            sum1 -= ADLER32_BASE;
+        }
+        if (sum1 >= ADLER32_BASE) {
+            sum1 -= ADLER32_BASE;
+        }
+        if (sum2 >= ADLER32_BASE << 1) {
+            sum2 -= ADLER32_BASE << 1;
+        }
+        if (sum2 >= ADLER32_BASE) {
+            sum2 -= ADLER32_BASE;
+        }
+        return sum2 << 16 | sum1;
+    }
+
+    public static boolean isValidAdler32(final long adler32) {
+        return (adler32 & 0xFFFF) < ADLER32_BASE && (adler32 >> 16 & 0xFFFF) < ADLER32_BASE;
+    }
+
+    /* Multiplies two polynomials in the reflected bit order of CRC-32. */
+    private static int multiplyModuloCrc32Polynomial(final int a, final int b) {
+        int product = 0;
+        int multiplicand = b;
+        for (int mask = 1 << 31; mask != 0; mask >>>= 1) {
+            if ((a & mask) != 0) {
+                product ^= multiplicand;
+                if ((a & mask - 1) == 0) {
+                    break;
+                }
+            }
+            multiplicand = (multiplicand & 1) != 0 ? multiplicand >>> 1 ^ CRC32_POLYNOMIAL : multiplicand >>> 1;
+        }
+        return product;
+    }
+
+    /* Answers x^(n * 2^k) modulo the CRC-32 polynomial. */
+    private static int crc32X2NModulo(final long n, final int k) {
+        int power = 1 << 31; /* x^0 */
+        int index = k;
+        for (long remaining = n; remaining != 0; remaining >>>= 1) {
+            if ((remaining & 1) != 0) {
+                power = multiplyModuloCrc32Polynomial(CRC32_X2N_TABLE[index & 31], power);
+            }
+            index++;
+        }
+        return power;
+    }
+
+    private static int[] createCrc32X2NTable() {
+        final int[] table = new int[32];
+        int power = 1 << 30; /* x^1 */
+        table[0] = power;
+        for (int n = 1; n < table.length; n++) {
+            power = multiplyModuloCrc32Polynomial(power, power);
+            table[n] = power;
+        }
+        return table;
+    }
+}
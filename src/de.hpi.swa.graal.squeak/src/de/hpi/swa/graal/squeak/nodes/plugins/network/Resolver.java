@@ -8,10 +8,34 @@ package de.hpi.swa.graal.squeak.nodes.plugins.network;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
 
-final class Resolver {
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLogger;
 
-    enum Status {
+import de.hpi.swa.graal.squeak.image.SqueakImageContext;
+import de.hpi.swa.graal.squeak.shared.SqueakLanguageConfig;
+
+/**
+ * Host name and address lookups of the SocketPlugin. Lookups run on background threads, so that
+ * slow name servers do not stall the interpreter, and the resolver semaphore is signaled once a
+ * lookup has completed. Each lookup has its own {@link Request}: results of a lookup that has been
+ * superseded by a newer one are dropped instead of overwriting the newer results. Successful
+ * lookups are kept in a bounded cache for {@link #DEFAULT_TIME_TO_LIVE_MILLIS}, which matches the
+ * default of the JVM's own address cache.
+ */
+public final class Resolver {
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 30_000;
+    private static final int MAX_CACHE_ENTRIES = 256;
+    private static final String THREAD_NAME = "GraalSqueak Resolver";
+
+    private static final TruffleLogger LOG = TruffleLogger.getLogger(SqueakLanguageConfig.ID, Resolver.class);
+
+    public enum Status {
         Uninitialized(0),
         Ready(1),
         Busy(2),
@@ -23,18 +47,167 @@ final class Resolver {
             this.id = id;
         }
 
-        long id() {
+        public long id() {
             return id;
         }
     }
 
+    /** Source of lookup results (e.g. the system name service or a hosts file). */
+    public interface NameService {
+        byte[] lookupAddress(String hostName) throws UnknownHostException;
+
+        String lookupName(byte[] address) throws UnknownHostException;
+    }
+
+    private static final NameService SYSTEM_NAME_SERVICE = new NameService() {
+        @Override
+        public byte[] lookupAddress(final String hostName) throws UnknownHostException {
+            if ("localhost".equals(hostName)) {
+                return getLoopbackAddress();
+            }
+            return InetAddress.getByName(hostName).getAddress();
+        }
+
+        @Override
+        public String lookupName(final byte[] address) throws UnknownHostException {
+            return InetAddress.getByAddress(address).getHostName();
+        }
+    };
+
     private static InetAddress anyLocalAddress = null;
     private static InetAddress loopbackAddress = null;
 
-    private static byte[] lastNameLookup;
-    private static String lastAddressLookup;
+    private final NameService nameService;
+    private final IntConsumer semaphoreSignaler;
+    private final long timeToLiveMillis;
+    private final Cache<String, byte[]> addressCache = new Cache<>();
+    private final Cache<String, String> nameCache = new Cache<>();
+    private ExecutorService executor;
+    private volatile int semaphoreIndex = 0;
+
+    private volatile Request currentRequest = null;
+
+    private static final class Request {
+        private volatile Status status = Status.Busy;
+        private volatile byte[] address;
+        private volatile String name;
+    }
+
+    public Resolver(final SqueakImageContext image) {
+        this(SYSTEM_NAME_SERVICE, index -> image.interrupt.signalSemaphoreWithIndex(index), DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    public Resolver(final NameService nameService, final IntConsumer semaphoreSignaler, final long timeToLiveMillis) {
+        this.nameService = nameService;
+        this.semaphoreSignaler = semaphoreSignaler;
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    public void setSemaphoreIndex(final int index) {
+        semaphoreIndex = index;
+    }
+
+    public Status getStatus() {
+        final Request request = currentRequest;
+        return request == null ? Status.Ready : request.status;
+    }
+
+    /**
+     * Answers a copy of the address found by the last name lookup, or `null` if there is none (yet).
+     * The address itself may be shared with the cache.
+     */
+    public byte[] getNameLookupResult() {
+        final Request request = currentRequest;
+        final byte[] address = request == null ? null : request.address;
+        return address == null ? null : address.clone();
+    }
 
-    private Resolver() {
+    /** Answers the name found by the last address lookup, or `null` if there is none (yet). */
+    public String getAddressLookupResult() {
+        final Request request = currentRequest;
+        return request == null ? null : request.name;
+    }
+
+    @TruffleBoundary
+    public void startNameLookup(final String hostName) {
+        final Request request = new Request();
+        currentRequest = request;
+        final byte[] cached = addressCache.get(hostName, timeToLiveMillis);
+        if (cached != null) {
+            request.address = cached;
+            complete(request, Status.Ready);
+            return;
+        }
+        submit(() -> {
+            try {
+                final byte[] address = nameService.lookupAddress(hostName);
+                addressCache.put(hostName, address);
+                request.address = address;
+                complete(request, Status.Ready);
+            } catch (final UnknownHostException e) {
+                LOG.fine(() -> "Host name lookup failed: " + e.getMessage());
+                complete(request, Status.Error);
+            }
+        });
+    }
+
+    @TruffleBoundary
+    public void startAddressLookup(final byte[] address) {
+        final Request request = new Request();
+        currentRequest = request;
+        final String key = addressBytesToString(address);
+        final String cached = key == null ? null : nameCache.get(key, timeToLiveMillis);
+        if (cached != null) {
+            request.name = cached;
+            complete(request, Status.Ready);
+            return;
+        }
+        submit(() -> {
+            try {
+                final String name = nameService.lookupName(address);
+                if (key != null) {
+                    nameCache.put(key, name);
+                }
+                request.name = name;
+                complete(request, Status.Ready);
+            } catch (final UnknownHostException e) {
+                LOG.fine(() -> "Address lookup failed: " + e.getMessage());
+                complete(request, Status.Error);
+            }
+        });
+    }
+
+    /** Aborts the current lookup, its result will be dropped. */
+    public void abortLookup() {
+        currentRequest = null;
+    }
+
+    @TruffleBoundary
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private synchronized void submit(final Runnable lookup) {
+        if (executor == null) {
+            /* Lookups may hang for a long time, so do not queue them behind each other. */
+            executor = Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        executor.execute(lookup);
+    }
+
+    private void complete(final Request request, final Status status) {
+        request.status = status;
+        final int index = semaphoreIndex;
+        if (request == currentRequest && index > 0) {
+            semaphoreSignaler.accept(index);
+        }
     }
 
     protected static byte[] getAnyLocalAddress() {
@@ -51,43 +224,49 @@ final class Resolver {
         return loopbackAddress.getAddress();
     }
 
-    protected static void startHostNameLookUp(final String hostName) throws UnknownHostException {
+    protected static String addressBytesToString(final byte[] address) {
         try {
-            if ("localhost".equals(hostName)) {
-                lastNameLookup = Resolver.getLoopbackAddress();
-                return;
-            }
-
-            final InetAddress address = InetAddress.getByName(hostName);
-            lastNameLookup = address.getAddress();
+            return InetAddress.getByAddress(address).getHostAddress();
         } catch (final UnknownHostException e) {
-            lastNameLookup = null;
-            throw e;
+            return null;
         }
     }
 
-    protected static byte[] lastHostNameLookupResult() {
-        return lastNameLookup;
-    }
+    /** Bounded LRU cache whose entries expire after a given time. */
+    private static final class Cache<K, V> {
+        private final Map<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
 
-    protected static void startAddressLookUp(final byte[] address) throws UnknownHostException {
-        try {
-            lastAddressLookup = InetAddress.getByAddress(address).getHostName();
-        } catch (final UnknownHostException e) {
-            lastAddressLookup = null;
-            throw e;
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                return size() > MAX_CACHE_ENTRIES;
+            }
+        };
+
+        private static final class Entry<V> {
+            private final V value;
+            private final long creationMillis;
+
+            private Entry(final V value) {
+                this.value = value;
+                creationMillis = System.currentTimeMillis();
+            }
         }
-    }
 
-    protected static String lastAddressLookUpResult() {
-        return lastAddressLookup;
-    }
+        private synchronized V get(final K key, final long timeToLiveMillis) {
+            final Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            } else if (System.currentTimeMillis() - entry.creationMillis >= timeToLiveMillis) {
+                entries.remove(key);
+                return null;
+            } else {
+                return entry.value;
+            }
+        }
 
-    protected static String addressBytesToString(final byte[] address) {
-        try {
-            return InetAddress.getByAddress(address).getHostAddress();
-        } catch (final UnknownHostException e) {
-            return null;
+        private synchronized void put(final K key, final V value) {
+            entries.put(key, new Entry<>(value));
         }
     }
 }
@@ -7,6 +7,7 @@ package de.hpi.swa.graal.squeak.nodes.plugins.network;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.util.List;
@@ -14,6 +15,7 @@ import java.util.logging.Level;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.TruffleLogger;
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.NodeFactory;
@@ -29,9 +31,13 @@ import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.model.NilObject;
 import de.hpi.swa.graal.squeak.model.PointersObject;
+import de.hpi.swa.graal.squeak.nodes.accessing.ArrayObjectNodes.ArrayObjectReadNode;
+import de.hpi.swa.graal.squeak.nodes.accessing.ArrayObjectNodes.ArrayObjectSizeNode;
+import de.hpi.swa.graal.squeak.nodes.accessing.ArrayObjectNodes.ArrayObjectWriteNode;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveFactoryHolder;
 import de.hpi.swa.graal.squeak.nodes.primitives.AbstractPrimitiveNode;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.BinaryPrimitive;
+import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.BinaryPrimitiveWithoutFallback;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuaternaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.QuinaryPrimitive;
 import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveInterfaces.SenaryPrimitive;
@@ -64,21 +70,42 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
         }
 
         @Specialization
-        protected static long doWork(@SuppressWarnings("unused") final Object receiver) {
-            return Resolver.Status.Ready.id();
+        protected final long doWork(@SuppressWarnings("unused") final Object receiver) {
+            return method.image.socketPluginResolver.getStatus().id();
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveResolverAbortLookup")
+    protected abstract static class PrimResolverAbortLookupNode extends AbstractPrimitiveNode implements UnaryPrimitiveWithoutFallback {
+        protected PrimResolverAbortLookupNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final Object doWork(final Object receiver) {
+            method.image.socketPluginResolver.abortLookup();
+            return receiver;
         }
     }
 
     @GenerateNodeFactory
     @NodeInfo(cost = NodeCost.NONE)
     @SqueakPrimitive(names = "primitiveInitializeNetwork")
-    protected abstract static class PrimInitializeNetworkNode extends AbstractPrimitiveNode implements UnaryPrimitiveWithoutFallback {
+    protected abstract static class PrimInitializeNetworkNode extends AbstractPrimitiveNode implements BinaryPrimitiveWithoutFallback {
         protected PrimInitializeNetworkNode(final CompiledMethodObject method) {
             super(method);
         }
 
+        /** Initialize the network, the resolver semaphore is signaled when lookups complete. */
         @Specialization
-        protected static Object doWork(final Object receiver) {
+        protected final Object doWork(final Object receiver, final long resolverSemaphoreIndex) {
+            method.image.socketPluginResolver.setSemaphoreIndex((int) resolverSemaphoreIndex);
+            return receiver;
+        }
+
+        @Specialization
+        protected static Object doWork(final Object receiver, @SuppressWarnings("unused") final NotProvided resolverSemaphoreIndex) {
             return receiver;
         }
     }
@@ -106,13 +133,9 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
          */
         @Specialization(guards = "hostName.isByteType()")
         @TruffleBoundary
-        protected static Object doWork(final Object receiver, final NativeObject hostName) {
-            try {
-                LOG.finer(() -> "Starting lookup for host name " + hostName);
-                Resolver.startHostNameLookUp(hostName.asStringUnsafe());
-            } catch (final UnknownHostException e) {
-                LOG.log(Level.FINE, "Host name lookup failed", e);
-            }
+        protected final Object doWork(final Object receiver, final NativeObject hostName) {
+            LOG.finer(() -> "Starting lookup for host name " + hostName);
+            method.image.socketPluginResolver.startNameLookup(hostName.asStringUnsafe());
             return receiver;
         }
     }
@@ -132,13 +155,9 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
          */
         @Specialization(guards = "address.isByteType()")
         @TruffleBoundary
-        protected static Object doWork(final Object receiver, final NativeObject address) {
-            try {
-                LOG.finer(() -> "Starting lookup for address " + address);
-                Resolver.startAddressLookUp(address.getByteStorage());
-            } catch (final UnknownHostException e) {
-                LOG.log(Level.FINE, "Address lookup failed", e);
-            }
+        protected final Object doWork(final Object receiver, final NativeObject address) {
+            LOG.finer(() -> "Starting lookup for address " + address);
+            method.image.socketPluginResolver.startAddressLookup(address.getByteStorage().clone());
             return receiver;
         }
     }
@@ -153,12 +172,12 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
 
         /**
          * Return the host address found by the last host name lookup. Returns nil if the last
-         * lookup was unsuccessful.
+         * lookup was unsuccessful or has not completed yet.
          */
         @Specialization
         @TruffleBoundary
         protected final AbstractSqueakObject doWork(@SuppressWarnings("unused") final Object receiver) {
-            final byte[] lastNameLookup = Resolver.lastHostNameLookupResult();
+            final byte[] lastNameLookup = method.image.socketPluginResolver.getNameLookupResult();
             LOG.finer(() -> "Name Lookup Result: " + Resolver.addressBytesToString(lastNameLookup));
             return lastNameLookup == null ? NilObject.SINGLETON : method.image.asByteArray(lastNameLookup);
         }
@@ -173,11 +192,12 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
 
         /**
          * Return the host name found by the last host address lookup. Returns nil if the last
-         * lookup was unsuccessful.
+         * lookup was unsuccessful or has not completed yet.
          */
         @Specialization
+        @TruffleBoundary
         protected final AbstractSqueakObject doWork(@SuppressWarnings("unused") final Object receiver) {
-            final String lastAddressLookup = Resolver.lastAddressLookUpResult();
+            final String lastAddressLookup = method.image.socketPluginResolver.getAddressLookupResult();
             LOG.finer(() -> ">> Address Lookup Result: " + lastAddressLookup);
             return lastAddressLookup == null ? NilObject.SINGLETON : method.image.asByteString(lastAddressLookup);
         }
@@ -550,6 +570,199 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
         }
     }
 
+    /** Wraps the ByteArrays of an Array as buffers, failing for any other element. */
+    private static ByteBuffer[] toSegmentsOrPrimFail(final ArrayObject segments) {
+        final Object[] elements = segments.getObjectStorage();
+        final ByteBuffer[] buffers = new ByteBuffer[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            if (!(elements[i] instanceof NativeObject) || !((NativeObject) elements[i]).isByteType()) {
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+            buffers[i] = ByteBuffer.wrap(((NativeObject) elements[i]).getByteStorage());
+        }
+        return buffers;
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveSocketSendDataSegments")
+    protected abstract static class PrimSocketSendDataSegmentsNode extends AbstractPrimitiveNode implements TernaryPrimitive {
+        protected PrimSocketSendDataSegmentsNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /**
+         * Send the contents of an Array of ByteArrays in order with a single gathering write. Return
+         * the total number of bytes sent; like with primitiveSocketSendDataBufCount, any remaining
+         * data should be re-submitted once the send operation has completed.
+         */
+        @Specialization(guards = "segments.isObjectType()")
+        @TruffleBoundary
+        protected long doSend(@SuppressWarnings("unused") final Object receiver, final long socketID, final ArrayObject segments) {
+            try {
+                return getSocketOrPrimFail(method, socketID).sendData(toSegmentsOrPrimFail(segments));
+            } catch (final IOException e) {
+                LOG.log(Level.FINE, "Sending data failed", e);
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveSocketReceiveDataSegments")
+    protected abstract static class PrimSocketReceiveDataSegmentsNode extends AbstractPrimitiveNode implements TernaryPrimitive {
+        protected PrimSocketReceiveDataSegmentsNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /**
+         * Receive data into an Array of ByteArrays with a single scattering read, filling one
+         * ByteArray after the other. Return the total number of bytes read or zero if no data is
+         * available.
+         */
+        @Specialization(guards = "segments.isObjectType()")
+        @TruffleBoundary
+        protected long doReceive(@SuppressWarnings("unused") final Object receiver, final long socketID, final ArrayObject segments) {
+            try {
+                return getSocketOrPrimFail(method, socketID).receiveData(toSegmentsOrPrimFail(segments));
+            } catch (final IOException e) {
+                LOG.log(Level.FINE, "Receiving data failed", e);
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+        }
+    }
+
+    /* Number of table slots per datagram: start index, length, address, and port. */
+    private static final int DATAGRAM_TABLE_ENTRY_SIZE = 4;
+
+    @TruffleBoundary
+    private static SqueakUDPSocket getUDPSocketOrPrimFail(final CompiledMethodObject method, final long socketHandle) {
+        final SqueakSocket socket = getSocketOrPrimFail(method, socketHandle);
+        if (!(socket instanceof SqueakUDPSocket)) {
+            throw PrimitiveFailed.andTransferToInterpreter();
+        }
+        return (SqueakUDPSocket) socket;
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveSocketSendDatagrams")
+    protected abstract static class PrimSocketSendDatagramsNode extends AbstractPrimitiveNode implements QuinaryPrimitive {
+        protected PrimSocketSendDatagramsNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /**
+         * Send count datagrams from the given buffer through the given UDP socket. For each
+         * datagram, the table holds four consecutive entries: the one-based start index in the
+         * buffer, the length, the address as ByteArray, and the port. A nil address sends to the
+         * connected peer and fails on unconnected sockets. Return the number of datagrams sent; any
+         * remaining datagrams should be re-submitted once the send operation has completed.
+         */
+        @Specialization(guards = "buffer.isByteType()")
+        protected final long doSend(@SuppressWarnings("unused") final Object receiver, final long socketID, final NativeObject buffer, final ArrayObject table,
+                        final long count,
+                        @Cached final ArrayObjectSizeNode sizeNode,
+                        @Cached final ArrayObjectReadNode readNode) {
+            if (count < 0 || count * DATAGRAM_TABLE_ENTRY_SIZE > sizeNode.execute(table)) {
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+            final byte[] bytes = buffer.getByteStorage();
+            final ByteBuffer[] datagrams = new ByteBuffer[(int) count];
+            final Object[] addresses = new Object[(int) count];
+            final long[] ports = new long[(int) count];
+            for (int i = 0; i < count; i++) {
+                final long base = i * DATAGRAM_TABLE_ENTRY_SIZE;
+                final Object start = readNode.execute(table, base);
+                final Object length = readNode.execute(table, base + 1);
+                final Object port = readNode.execute(table, base + 3);
+                if (!(start instanceof Long && length instanceof Long && port instanceof Long)) {
+                    throw PrimitiveFailed.andTransferToInterpreter();
+                }
+                if ((long) start < 1 || (long) length < 0 || (long) start - 1 + (long) length > bytes.length) {
+                    throw PrimitiveFailed.andTransferToInterpreter();
+                }
+                datagrams[i] = ByteBuffer.wrap(bytes, (int) (long) start - 1, (int) (long) length);
+                addresses[i] = readNode.execute(table, base + 2);
+                ports[i] = (long) port;
+            }
+            return sendDatagrams(getUDPSocketOrPrimFail(method, socketID), datagrams, addresses, ports);
+        }
+
+        @TruffleBoundary
+        private static long sendDatagrams(final SqueakUDPSocket socket, final ByteBuffer[] datagrams, final Object[] addresses, final long[] ports) {
+            final InetSocketAddress[] targets = new InetSocketAddress[datagrams.length];
+            try {
+                for (int i = 0; i < targets.length; i++) {
+                    if (addresses[i] instanceof NativeObject && ((NativeObject) addresses[i]).isByteType()) {
+                        targets[i] = new InetSocketAddress(InetAddress.getByAddress(((NativeObject) addresses[i]).getByteStorage()), (int) ports[i]);
+                    } else if (addresses[i] != NilObject.SINGLETON) {
+                        throw PrimitiveFailed.andTransferToInterpreter();
+                    }
+                }
+                return socket.sendDatagrams(datagrams, targets);
+            } catch (final IOException | IllegalArgumentException e) {
+                LOG.log(Level.FINE, "Sending datagrams failed", e);
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveSocketReceiveDatagrams")
+    protected abstract static class PrimSocketReceiveDatagramsNode extends AbstractPrimitiveNode implements QuaternaryPrimitive {
+        protected PrimSocketReceiveDatagramsNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        /**
+         * Receive as many datagrams from the given UDP socket as fit into the given buffer and
+         * table. Datagrams are stored back to back in the buffer. For each datagram, the table
+         * receives four consecutive entries: the one-based start index in the buffer, the length,
+         * the sender's address as ByteArray, and the sender's port. Return the number of datagrams
+         * received or zero if none are available. Fails for an empty buffer or table.
+         */
+        @Specialization(guards = "buffer.isByteType()")
+        protected final long doReceive(@SuppressWarnings("unused") final Object receiver, final long socketID, final NativeObject buffer, final ArrayObject table,
+                        @Cached final ArrayObjectSizeNode sizeNode,
+                        @Cached final ArrayObjectWriteNode writeNode) {
+            final int maxCount = sizeNode.execute(table) / DATAGRAM_TABLE_ENTRY_SIZE;
+            if (maxCount == 0 || buffer.getByteLength() == 0) {
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+            final int[] offsets = new int[maxCount];
+            final int[] lengths = new int[maxCount];
+            final InetSocketAddress[] senders = new InetSocketAddress[maxCount];
+            final int count = receiveDatagrams(getUDPSocketOrPrimFail(method, socketID), buffer, offsets, lengths, senders);
+            for (int i = 0; i < count; i++) {
+                final long base = i * DATAGRAM_TABLE_ENTRY_SIZE;
+                writeNode.execute(table, base, (long) offsets[i] + 1);
+                writeNode.execute(table, base + 1, (long) lengths[i]);
+                writeNode.execute(table, base + 2, method.image.asByteArray(getAddressBytes(senders[i])));
+                writeNode.execute(table, base + 3, (long) getPort(senders[i]));
+            }
+            return count;
+        }
+
+        @TruffleBoundary
+        private static int receiveDatagrams(final SqueakUDPSocket socket, final NativeObject buffer, final int[] offsets, final int[] lengths, final InetSocketAddress[] senders) {
+            try {
+                return socket.receiveDatagrams(ByteBuffer.wrap(buffer.getByteStorage()), offsets, lengths, senders);
+            } catch (final IOException e) {
+                LOG.log(Level.FINE, "Receiving datagrams failed", e);
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+        }
+
+        @TruffleBoundary
+        private static byte[] getAddressBytes(final InetSocketAddress address) {
+            return address.getAddress().getAddress();
+        }
+
+        @TruffleBoundary
+        private static int getPort(final InetSocketAddress address) {
+            return address.getPort();
+        }
+    }
+
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveSocketCloseConnection")
     protected abstract static class PrimSocketCloseConnectionNode extends AbstractPrimitiveNode implements BinaryPrimitive {
@@ -678,7 +891,8 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
 
             try {
                 final SqueakSocket.Type type = SqueakSocket.Type.fromId(socketType);
-                final SqueakSocket socket = SqueakSocket.create(type);
+                final SqueakSocket socket = SqueakSocket.create(method.image.socketPluginSelector, type);
+                socket.setSemaphores(semaphoreIndex, aReadSemaphore, aWriteSemaphore);
                 method.image.socketPluginHandles.put(socket.handle(), socket);
                 return socket.handle();
             } catch (final IOException e) {
@@ -707,6 +921,11 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
             try {
                 final SqueakSocket socket = getSocketOrPrimFail(method, socketID);
                 final SqueakSocket accepted = socket.accept();
+                if (accepted == null) {
+                    throw PrimitiveFailed.andTransferToInterpreter();
+                }
+                accepted.setSemaphores(semaphoreIndex, readSemaphoreIndex, writeSemaphoreIndex);
+                accepted.watchForData();
                 method.image.socketPluginHandles.put(accepted.handle(), accepted);
                 return accepted.handle();
             } catch (final IOException e) {
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.nodes.plugins.network;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLogger;
+
+import de.hpi.swa.graal.squeak.image.SqueakImageContext;
+import de.hpi.swa.graal.squeak.nodes.plugins.Aio;
+import de.hpi.swa.graal.squeak.shared.SqueakLanguageConfig;
+
+/**
+ * A single NIO selector shared by all sockets of the SocketPlugin and by the AioPlugin. Its thread
+ * waits for readiness of the registered channels and signals the connection, read, and write
+ * semaphores of the corresponding {@link SqueakSocket} through the
+ * {@link SqueakImageContext#interrupt interrupt handler}. Other parties (e.g. {@link Aio}) can
+ * watch the same channels with a {@link ReadinessListener}.
+ *
+ * Interests are one-shot: once an operation is ready, it is removed from the interest set of its
+ * key and must be armed again by the socket (e.g. after a receive has drained all available data).
+ * This avoids signaling semaphores over and over again for level-triggered readiness. Registrations
+ * and interest changes are queued and performed by the selector thread, because they may block
+ * while the selector is waiting.
+ */
+public final class SocketSelector {
+    private static final TruffleLogger LOG = TruffleLogger.getLogger(SqueakLanguageConfig.ID, SocketSelector.class);
+    private static final String THREAD_NAME = "GraalSqueak Sockets";
+    private static final int ALL_OPS = SelectionKey.OP_ACCEPT | SelectionKey.OP_CONNECT | SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+
+    /** Pseudo ready op reported to listeners once a watched channel has been closed. */
+    public static final int OP_CLOSED = 1 << 31;
+
+    private final SqueakImageContext image;
+    private final ConcurrentLinkedQueue<Runnable> pendingChanges = new ConcurrentLinkedQueue<>();
+    /* Survives the deregistration of closed channels, so that listeners can be notified. */
+    private final Map<SelectableChannel, Watchers> watchedChannels = new IdentityHashMap<>();
+    private volatile Selector selector;
+    private Thread selectThread;
+    /* Used by the image thread to check readiness of channels that are not armed yet. */
+    private Selector probeSelector;
+
+    /** Called by the selector thread once the channel is ready for some of the watched ops. */
+    public interface ReadinessListener {
+        void onReady(int readyOps);
+    }
+
+    /*
+     * Attachment of each selection key. Interests are tracked per party, so that a socket and a
+     * listener can watch the same channel. Only accessed by the selector thread.
+     */
+    private static final class Watchers {
+        private SqueakSocket socket;
+        private int socketOps;
+        private ReadinessListener listener;
+        private int listenerOps;
+
+        private int interestOps() {
+            return (socketOps | listenerOps) & ~OP_CLOSED;
+        }
+    }
+
+    public SocketSelector(final SqueakImageContext image) {
+        this.image = image;
+    }
+
+    /** Adds ops to the interests of the socket, unless they are already armed. */
+    void arm(final SqueakSocket socket, final int ops) throws IOException {
+        if (!socket.markArmed(ops)) {
+            return;
+        }
+        final Selector currentSelector = ensureStarted();
+        pendingChanges.add(() -> register(currentSelector, socket, ops));
+        currentSelector.wakeup();
+    }
+
+    /** Adds one-shot interests in ops (and possibly {@link #OP_CLOSED}) for the listener. */
+    @TruffleBoundary
+    public void watch(final SelectableChannel channel, final ReadinessListener listener, final int ops) throws IOException {
+        final Selector currentSelector = ensureStarted();
+        pendingChanges.add(() -> watch(currentSelector, channel, listener, ops));
+        currentSelector.wakeup();
+    }
+
+    /** Withdraws interests of the listener, and detaches it if no interests remain. */
+    @TruffleBoundary
+    public void unwatch(final SelectableChannel channel, final ReadinessListener listener, final int ops) {
+        final Selector currentSelector = selector;
+        if (currentSelector == null) {
+            return;
+        }
+        pendingChanges.add(() -> {
+            final SelectionKey key = channel.keyFor(currentSelector);
+            if (key != null && key.isValid()) {
+                final Watchers watchers = (Watchers) key.attachment();
+                if (watchers.listener == listener) {
+                    watchers.listenerOps &= ~ops;
+                    if (watchers.listenerOps == 0) {
+                        watchers.listener = null;
+                    }
+                    key.interestOps(watchers.interestOps());
+                }
+            }
+        });
+        currentSelector.wakeup();
+    }
+
+    /** Hands pending readiness of an accepted channel over from the listening socket. */
+    void transfer(final SelectableChannel channel, final SqueakSocket from, final SqueakSocket to) {
+        final Selector currentSelector = selector;
+        if (currentSelector == null) {
+            return;
+        }
+        pendingChanges.add(() -> {
+            final SelectionKey key = channel.keyFor(currentSelector);
+            if (key != null && key.isValid()) {
+                final Watchers watchers = (Watchers) key.attachment();
+                if (watchers.socket == from) {
+                    watchers.socket = to;
+                    to.markArmed(watchers.socketOps);
+                }
+            }
+        });
+        currentSelector.wakeup();
+    }
+
+    /**
+     * Wakes up the selector thread, which notifies listeners of closed channels and deregisters
+     * them.
+     */
+    @TruffleBoundary
+    public void closed() {
+        final Selector currentSelector = selector;
+        if (currentSelector != null) {
+            pendingChanges.add(this::notifyClosed);
+            currentSelector.wakeup();
+        }
+    }
+
+    /** Checks without blocking whether the channel is ready for the given ops. */
+    boolean isReadyNow(final SelectableChannel channel, final int ops) throws IOException {
+        if (probeSelector == null) {
+            probeSelector = Selector.open();
+        }
+        try {
+            final SelectionKey existingKey = channel.keyFor(probeSelector);
+            final SelectionKey key = existingKey == null ? channel.register(probeSelector, ops) : existingKey.interestOps(ops);
+            probeSelector.selectNow();
+            return probeSelector.selectedKeys().remove(key) && (key.readyOps() & ops) != 0;
+        } catch (final ClosedChannelException | CancelledKeyException e) {
+            return false; /* Key is deregistered on the next probe. */
+        }
+    }
+
+    void signal(final long semaphoreIndex) {
+        if (semaphoreIndex > 0) {
+            image.interrupt.signalSemaphoreWithIndex((int) semaphoreIndex);
+        }
+    }
+
+    @TruffleBoundary
+    public synchronized void shutdown() {
+        if (selectThread != null) {
+            selectThread.interrupt();
+            selectThread = null;
+            selector = null; /* Closed by the exiting thread. */
+        }
+        if (probeSelector != null) {
+            try {
+                probeSelector.close();
+            } catch (final IOException e) {
+                LOG.fine("Closing probe selector failed: " + e.getMessage());
+            }
+            probeSelector = null;
+        }
+    }
+
+    /* Lets the next arm start a new selector thread, unless a new one has been started already. */
+    private synchronized void stopped(final Selector stoppedSelector) {
+        if (selector == stoppedSelector) {
+            selector = null;
+            selectThread = null;
+        }
+    }
+
+    private synchronized Selector ensureStarted() throws IOException {
+        if (selectThread == null) {
+            final Selector newSelector = Selector.open();
+            selector = newSelector;
+            selectThread = new Thread(() -> selectLoop(newSelector), THREAD_NAME);
+            selectThread.setDaemon(true);
+            selectThread.start();
+        }
+        return selector;
+    }
+
+    private void selectLoop(final Selector currentSelector) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Runnable change;
+                while ((change = pendingChanges.poll()) != null) {
+                    try {
+                        change.run();
+                    } catch (final RuntimeException e) {
+                        LOG.warning("Socket selector failed to apply change: " + e);
+                    }
+                }
+                currentSelector.select();
+                final Iterator<SelectionKey> keys = currentSelector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        final int readyOps = key.readyOps();
+                        final Watchers watchers = (Watchers) key.attachment();
+                        final int socketReadyOps = readyOps & watchers.socketOps;
+                        final int listenerReadyOps = readyOps & watchers.listenerOps;
+                        watchers.socketOps &= ~socketReadyOps;
+                        watchers.listenerOps &= ~listenerReadyOps;
+                        key.interestOps(watchers.interestOps());
+                        if (socketReadyOps != 0) {
+                            watchers.socket.markDisarmed(socketReadyOps);
+                            watchers.socket.onReady(socketReadyOps);
+                        }
+                        if (listenerReadyOps != 0) {
+                            watchers.listener.onReady(listenerReadyOps);
+                        }
+                    } catch (final CancelledKeyException e) {
+                        continue; /* Socket closed in the meantime. */
+                    } catch (final RuntimeException e) {
+                        LOG.warning("Socket selector failed to handle " + key.attachment() + ": " + e);
+                    }
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            LOG.warning("Socket selector failed: " + e);
+        } finally {
+            /* Sockets armed on this selector need to be armed again on the next one. */
+            try {
+                for (final SelectionKey key : currentSelector.keys()) {
+                    final SqueakSocket socket = ((Watchers) key.attachment()).socket;
+                    if (socket != null) {
+                        socket.markDisarmed(ALL_OPS);
+                    }
+                }
+            } catch (final ClosedSelectorException e) {
+                /* Nothing to disarm. */
+            }
+            try {
+                currentSelector.close();
+            } catch (final IOException e) {
+                LOG.fine("Closing socket selector failed: " + e.getMessage());
+            }
+            watchedChannels.clear();
+            stopped(currentSelector);
+        }
+    }
+
+    private Watchers watchersFor(final Selector selector, final SelectableChannel channel) throws ClosedChannelException {
+        final SelectionKey key = channel.keyFor(selector);
+        if (key == null) {
+            final Watchers watchers = new Watchers();
+            channel.register(selector, 0, watchers);
+            watchedChannels.put(channel, watchers);
+            return watchers;
+        }
+        return (Watchers) key.attachment();
+    }
+
+    private void register(final Selector selector, final SqueakSocket socket, final int ops) {
+        final SelectableChannel channel = socket.selectableChannelFor(ops);
+        if (channel == null || !channel.isOpen()) {
+            socket.markDisarmed(ops);
+            return;
+        }
+        try {
+            final Watchers watchers = watchersFor(selector, channel);
+            watchers.socket = socket;
+            watchers.socketOps |= ops;
+            channel.keyFor(selector).interestOps(watchers.interestOps());
+        } catch (final ClosedChannelException | CancelledKeyException | ClosedSelectorException e) {
+            socket.markDisarmed(ops);
+        }
+    }
+
+    private void watch(final Selector selector, final SelectableChannel channel, final ReadinessListener listener, final int ops) {
+        try {
+            final Watchers watchers = watchersFor(selector, channel);
+            if (watchers.listener != listener) {
+                watchers.listener = listener;
+                watchers.listenerOps = 0;
+            }
+            watchers.listenerOps |= ops;
+            channel.keyFor(selector).interestOps(watchers.interestOps());
+        } catch (final ClosedChannelException | CancelledKeyException | ClosedSelectorException e) {
+            if ((ops & OP_CLOSED) != 0) {
+                listener.onReady(OP_CLOSED);
+            }
+        }
+    }
+
+    private void notifyClosed() {
+        final Iterator<Map.Entry<SelectableChannel, Watchers>> entries = watchedChannels.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<SelectableChannel, Watchers> entry = entries.next();
+            if (!entry.getKey().isOpen()) {
+                entries.remove();
+                final Watchers watchers = entry.getValue();
+                if ((watchers.listenerOps & OP_CLOSED) != 0) {
+                    watchers.listenerOps = 0;
+                    watchers.listener.onReady(OP_CLOSED);
+                }
+            }
+        }
+    }
+}
@@ -11,10 +11,10 @@ import java.net.SocketAddress;
 import java.net.SocketOption;
 import java.nio.ByteBuffer;
 import java.nio.channels.NetworkChannel;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.oracle.truffle.api.TruffleLogger;
 
@@ -63,15 +63,29 @@ public abstract class SqueakSocket {
     }
 
     private static final TruffleLogger LOG = TruffleLogger.getLogger(SqueakLanguageConfig.ID, SqueakSocket.class);
+    /*
+     * Channels copy heap buffers into temporary direct buffers of the same size, so transfers are
+     * limited to keep those small. Callers resubmit any remaining data.
+     */
+    static final int MAX_TRANSFER = 1024 * 1024;
 
     protected final long handle;
-    protected final Selector selector;
+    protected final SocketSelector selector;
+    private final AtomicInteger armedOps = new AtomicInteger();
+
+    private long connectionSemaphoreIndex = 0;
+    private long readSemaphoreIndex = 0;
+    private long writeSemaphoreIndex = 0;
+
+    /* Readiness as last reported by the selector thread. */
+    private volatile boolean readable = false;
+    private volatile boolean writable = true;
 
     protected boolean listening;
 
-    protected SqueakSocket() throws IOException {
+    protected SqueakSocket(final SocketSelector selector) {
         handle = System.identityHashCode(this);
-        selector = Selector.open();
+        this.selector = selector;
         listening = false;
     }
 
@@ -79,8 +93,23 @@ public abstract class SqueakSocket {
         return handle;
     }
 
+    protected final void setSemaphores(final long connectionIndex, final long readIndex, final long writeIndex) {
+        connectionSemaphoreIndex = connectionIndex;
+        readSemaphoreIndex = readIndex;
+        writeSemaphoreIndex = writeIndex;
+    }
+
     protected abstract NetworkChannel asNetworkChannel();
 
+    /** Answers the channel on which the given interest ops need to be registered. */
+    protected abstract SelectableChannel selectableChannelFor(int ops);
+
+    /** Answers the channel that currently carries the traffic of this socket (see AioPlugin). */
+    public final SelectableChannel getSelectableChannel() {
+        final SelectableChannel channel = selectableChannelFor(SelectionKey.OP_READ);
+        return channel != null ? channel : selectableChannelFor(SelectionKey.OP_ACCEPT);
+    }
+
     protected abstract byte[] getLocalAddress() throws IOException;
 
     protected abstract long getLocalPort() throws IOException;
@@ -100,54 +129,142 @@ public abstract class SqueakSocket {
     protected abstract boolean isSendDone() throws IOException;
 
     protected final long sendData(final ByteBuffer buffer) throws IOException {
-        selector.selectNow();
-        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-        while (keys.hasNext()) {
-            final SelectionKey key = keys.next();
-            if (key.isWritable()) {
-                final long written = sendDataTo(buffer, key);
-                LOG.finer(() -> handle + " written: " + written);
-                keys.remove();
-                return written;
-            }
-        }
+        return sendData(new ByteBuffer[]{buffer});
+    }
 
-        throw new IOException("No writable key found");
+    /** Sends the segments in order with a single gathering write. */
+    protected final long sendData(final ByteBuffer[] segments) throws IOException {
+        final ByteBuffer[] data = limitTransfer(segments);
+        final long requested = remaining(data);
+        final long written = sendDataTo(data);
+        LOG.finer(() -> handle + " written: " + written);
+        if (written < requested) {
+            sendBufferFull();
+        }
+        return written;
     }
 
-    protected abstract long sendDataTo(ByteBuffer data, SelectionKey key) throws IOException;
+    protected abstract long sendDataTo(ByteBuffer[] data) throws IOException;
 
     protected final boolean isDataAvailable() throws IOException {
-        selector.selectNow();
-        final Set<SelectionKey> keys = selector.selectedKeys();
-        for (final SelectionKey key : keys) {
-            if (key.isReadable()) {
-                LOG.finer(() -> handle + " data available");
-                return true;
+        if (!readable) {
+            if (!isArmed(SelectionKey.OP_READ)) {
+                /* Not watched by the selector yet (e.g., first poll), so check directly. */
+                final SelectableChannel channel = selectableChannelFor(SelectionKey.OP_READ);
+                if (channel != null && selector.isReadyNow(channel, SelectionKey.OP_READ)) {
+                    readable = true;
+                }
+            }
+            if (!readable) {
+                watchForData();
             }
         }
-
-        LOG.finer(() -> handle + " no data available");
-        return false;
+        LOG.finer(() -> handle + (readable ? " data available" : " no data available"));
+        return readable;
     }
 
     protected final long receiveData(final ByteBuffer buffer) throws IOException {
-        selector.selectNow();
-        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-        while (keys.hasNext()) {
-            final SelectionKey key = keys.next();
-
-            if (key.isReadable()) {
-                final long received = receiveDataFrom(key, buffer);
-                LOG.finer(() -> handle + " received: " + received);
-                keys.remove();
-                return received;
+        return receiveData(new ByteBuffer[]{buffer});
+    }
+
+    /** Fills the segments in order with a single scattering read. */
+    protected final long receiveData(final ByteBuffer[] segments) throws IOException {
+        final ByteBuffer[] data = limitTransfer(segments);
+        final long requested = remaining(data);
+        final long received = receiveDataFrom(data);
+        LOG.finer(() -> handle + " received: " + received);
+        if (received < 0) {
+            /* End of stream reached, the connection status has changed. */
+            readable = false;
+            selector.signal(connectionSemaphoreIndex);
+            return 0;
+        }
+        if (received < requested) {
+            allDataConsumed();
+        }
+        return received;
+    }
+
+    /**
+     * Receives data into the buffers without blocking.
+     *
+     * @return number of bytes received, or -1 if the other end has closed the connection.
+     */
+    protected abstract long receiveDataFrom(ByteBuffer[] data) throws IOException;
+
+    static long remaining(final ByteBuffer[] buffers) {
+        long total = 0;
+        for (final ByteBuffer buffer : buffers) {
+            total += buffer.remaining();
+        }
+        return total;
+    }
+
+    /* Answers views of the segments that cover at most MAX_TRANSFER bytes. */
+    private static ByteBuffer[] limitTransfer(final ByteBuffer[] segments) {
+        if (remaining(segments) <= MAX_TRANSFER) {
+            return segments;
+        }
+        final ArrayList<ByteBuffer> limited = new ArrayList<>();
+        int room = MAX_TRANSFER;
+        for (int i = 0; i < segments.length && room > 0; i++) {
+            final ByteBuffer segment = segments[i].duplicate();
+            if (segment.remaining() > room) {
+                segment.limit(segment.position() + room);
             }
+            room -= segment.remaining();
+            limited.add(segment);
         }
-        return 0;
+        return limited.toArray(new ByteBuffer[limited.size()]);
+    }
+
+    protected final boolean isWritable() {
+        return writable;
+    }
+
+    protected final void watchForData() throws IOException {
+        selector.arm(this, SelectionKey.OP_READ);
+    }
+
+    /** Signals the read semaphore once more data arrives. */
+    protected final void allDataConsumed() throws IOException {
+        readable = false;
+        watchForData();
+    }
+
+    /** Signals the write semaphore once there is room in the send buffer again. */
+    protected final void sendBufferFull() throws IOException {
+        writable = false;
+        selector.arm(this, SelectionKey.OP_WRITE);
     }
 
-    protected abstract long receiveDataFrom(SelectionKey key, ByteBuffer data) throws IOException;
+    /* Called by the selector thread. */
+    final void onReady(final int readyOps) {
+        if ((readyOps & (SelectionKey.OP_ACCEPT | SelectionKey.OP_CONNECT)) != 0) {
+            selector.signal(connectionSemaphoreIndex);
+        }
+        if ((readyOps & SelectionKey.OP_READ) != 0) {
+            readable = true;
+            selector.signal(readSemaphoreIndex);
+        }
+        if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+            writable = true;
+            selector.signal(writeSemaphoreIndex);
+        }
+    }
+
+    /** Answers `true` if at least one of the ops was not armed yet. */
+    final boolean markArmed(final int ops) {
+        return (armedOps.getAndUpdate(armed -> armed | ops) & ops) != ops;
+    }
+
+    final boolean isArmed(final int ops) {
+        return (armedOps.get() & ops) == ops;
+    }
+
+    final void markDisarmed(final int ops) {
+        armedOps.getAndUpdate(armed -> armed & ~ops);
+    }
 
     protected final boolean supportsOption(final String name) {
         return asNetworkChannel().supportedOptions().stream().anyMatch(o -> o.name().equals(name));
@@ -178,7 +295,7 @@ public abstract class SqueakSocket {
     }
 
     protected void close() throws IOException {
-        selector.close();
+        selector.closed();
     }
 
     protected static InetSocketAddress castAddress(final SocketAddress address) {
@@ -192,12 +309,12 @@ public abstract class SqueakSocket {
         throw SqueakException.create("Unknown address type");
     }
 
-    protected static SqueakSocket create(final SqueakSocket.Type socketType) throws IOException {
+    protected static SqueakSocket create(final SocketSelector selector, final SqueakSocket.Type socketType) throws IOException {
         switch (socketType) {
             case TCP:
-                return new SqueakTCPSocket();
+                return new SqueakTCPSocket(selector);
             case UDP:
-                return new SqueakUDPSocket();
+                return new SqueakUDPSocket(selector);
             default:
                 throw SqueakException.create("Unknown SocketType");
         }
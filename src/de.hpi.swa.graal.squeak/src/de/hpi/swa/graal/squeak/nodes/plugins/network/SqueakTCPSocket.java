@@ -11,10 +11,10 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.NetworkChannel;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.Iterator;
 
 import com.oracle.truffle.api.TruffleLogger;
 
@@ -27,15 +27,13 @@ final class SqueakTCPSocket extends SqueakSocket {
     private SocketChannel clientChannel;
     private ServerSocketChannel serverChannel;
 
-    protected SqueakTCPSocket() throws IOException {
-        super();
+    protected SqueakTCPSocket(final SocketSelector selector) {
+        super(selector);
     }
 
-    private SqueakTCPSocket(final SocketChannel clientChannel) throws IOException {
-        super();
+    private SqueakTCPSocket(final SocketSelector selector, final SocketChannel clientChannel) {
+        super(selector);
         this.clientChannel = clientChannel;
-        this.clientChannel.configureBlocking(false);
-        this.clientChannel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
     }
 
     @Override
@@ -43,6 +41,11 @@ final class SqueakTCPSocket extends SqueakSocket {
         return listening ? serverChannel : clientChannel;
     }
 
+    @Override
+    protected SelectableChannel selectableChannelFor(final int ops) {
+        return ops == SelectionKey.OP_ACCEPT ? serverChannel : clientChannel;
+    }
+
     @Override
     protected byte[] getLocalAddress() throws IOException {
         if (listening) {
@@ -86,10 +89,6 @@ final class SqueakTCPSocket extends SqueakSocket {
 
     @Override
     protected Status getStatus() throws IOException {
-        if (selector.isOpen()) {
-            selector.selectNow();
-        }
-
         final Status status = listening ? serverStatus() : clientStatus();
         LOG.finer(() -> handle + " " + status);
         return status;
@@ -100,17 +99,15 @@ final class SqueakTCPSocket extends SqueakSocket {
             return Status.Connected;
         }
 
-        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-        while (keys.hasNext()) {
-            if (keys.next().isAcceptable()) {
-                clientChannel = serverChannel.accept();
-                clientChannel.configureBlocking(false);
-                clientChannel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-                keys.remove();
-                return Status.Connected;
-            }
+        final SocketChannel acceptedChannel = serverChannel.accept();
+        if (acceptedChannel != null) {
+            acceptedChannel.configureBlocking(false);
+            clientChannel = acceptedChannel;
+            return Status.Connected;
         }
 
+        /* Signal connection semaphore once a connection is pending. */
+        selector.arm(this, SelectionKey.OP_ACCEPT);
         return Status.WaitingForConnection;
     }
 
@@ -119,7 +116,15 @@ final class SqueakTCPSocket extends SqueakSocket {
             return Status.Unconnected;
         }
 
-        maybeCompleteConnection();
+        if (clientChannel.isConnectionPending()) {
+            if (clientChannel.finishConnect()) {
+                watchForData();
+            } else {
+                /* Signal connection semaphore once the connection can be completed. */
+                selector.arm(this, SelectionKey.OP_CONNECT);
+                return Status.WaitingForConnection;
+            }
+        }
         final Socket socket = clientChannel.socket();
 
         if (socket.isInputShutdown()) {
@@ -141,18 +146,15 @@ final class SqueakTCPSocket extends SqueakSocket {
         return Status.Connected;
     }
 
-    private void maybeCompleteConnection() throws IOException {
-        while (clientChannel.isConnectionPending()) {
-            clientChannel.finishConnect();
-        }
-    }
-
     @Override
     protected void connectTo(final String address, final long port) throws IOException {
         clientChannel = SocketChannel.open();
         clientChannel.configureBlocking(false);
-        clientChannel.register(selector, SelectionKey.OP_CONNECT | SelectionKey.OP_WRITE | SelectionKey.OP_READ);
-        clientChannel.connect(new InetSocketAddress(address, (int) port));
+        if (clientChannel.connect(new InetSocketAddress(address, (int) port))) {
+            watchForData();
+        } else {
+            selector.arm(this, SelectionKey.OP_CONNECT);
+        }
     }
 
     @Override
@@ -161,14 +163,14 @@ final class SqueakTCPSocket extends SqueakSocket {
         serverChannel = ServerSocketChannel.open();
         serverChannel.configureBlocking(false);
         serverChannel.bind(new InetSocketAddress((int) port), (int) backlogSize);
-        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        selector.arm(this, SelectionKey.OP_ACCEPT);
     }
 
     @Override
     protected SqueakSocket accept() throws IOException {
         if (listening && clientChannel != null) {
-            clientChannel.keyFor(selector).cancel();
-            final SqueakSocket created = new SqueakTCPSocket(clientChannel);
+            final SqueakSocket created = new SqueakTCPSocket(selector, clientChannel);
+            selector.transfer(clientChannel, this, created);
             clientChannel = null;
             return created;
         }
@@ -177,29 +179,30 @@ final class SqueakTCPSocket extends SqueakSocket {
     }
 
     @Override
-    protected boolean isSendDone() throws IOException {
-        selector.selectNow();
-        return selector.selectedKeys().stream().anyMatch(SelectionKey::isWritable);
+    protected boolean isSendDone() {
+        return isWritable();
     }
 
     @Override
-    protected long sendDataTo(final ByteBuffer data, final SelectionKey key) throws IOException {
-        final SocketChannel channel = (SocketChannel) key.channel();
-        if (!channel.isConnected()) {
+    protected long sendDataTo(final ByteBuffer[] data) throws IOException {
+        if (clientChannel == null || !clientChannel.isConnected()) {
             throw new IOException("Client not connected");
         }
-        return channel.write(data);
+        return clientChannel.write(data);
     }
 
     @Override
-    protected long receiveDataFrom(final SelectionKey key, final ByteBuffer data) throws IOException {
-        final SocketChannel channel = (SocketChannel) key.channel();
-        final long read = channel.read(data);
+    protected long receiveDataFrom(final ByteBuffer[] data) throws IOException {
+        if (clientChannel == null) {
+            return 0;
+        }
+        if (clientChannel.socket().isInputShutdown()) {
+            return -1;
+        }
+        final long read = clientChannel.read(data);
 
         if (read == -1) {
-            channel.shutdownInput();
-            key.cancel();
-            return 0;
+            clientChannel.shutdownInput();
         }
 
         return read;
@@ -207,12 +210,12 @@ final class SqueakTCPSocket extends SqueakSocket {
 
     @Override
     protected void close() throws IOException {
-        super.close();
         if (serverChannel != null) {
             serverChannel.close();
         }
         if (clientChannel != null) {
             clientChannel.close();
         }
+        super.close();
     }
 }
@@ -11,14 +11,21 @@ import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.NetworkChannel;
-import java.nio.channels.SelectionKey;
+import java.nio.channels.SelectableChannel;
 
 final class SqueakUDPSocket extends SqueakSocket {
+    private static final int MAX_DATAGRAM_SIZE = 65_507;
 
     private final DatagramChannel channel;
 
-    SqueakUDPSocket() throws IOException {
-        super();
+    /* Datagram that did not fit into the buffer of the last batched receive. */
+    private ByteBuffer datagramBuffer;
+    private InetSocketAddress pendingSender;
+    /* Like in the OpenSmalltalk VM, unconnected sockets send to the last sender received from. */
+    private InetSocketAddress peer;
+
+    SqueakUDPSocket(final SocketSelector selector) throws IOException {
+        super(selector);
         channel = DatagramChannel.open();
         channel.configureBlocking(false);
     }
@@ -28,6 +35,11 @@ final class SqueakUDPSocket extends SqueakSocket {
         return channel;
     }
 
+    @Override
+    protected SelectableChannel selectableChannelFor(final int ops) {
+        return channel;
+    }
+
     @Override
     protected byte[] getLocalAddress() throws IOException {
         if (listening) {
@@ -80,15 +92,15 @@ final class SqueakUDPSocket extends SqueakSocket {
 
     @Override
     protected void connectTo(final String address, final long port) throws IOException {
-        channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
         channel.connect(new InetSocketAddress(address, (int) port));
+        watchForData();
     }
 
     @Override
     protected void listenOn(final long port, final long backlogSize) throws IOException {
         listening = true;
         channel.bind(new InetSocketAddress((int) port));
-        channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        watchForData();
     }
 
     @Override
@@ -102,21 +114,138 @@ final class SqueakUDPSocket extends SqueakSocket {
     }
 
     @Override
-    protected long sendDataTo(final ByteBuffer data, final SelectionKey key) throws IOException {
-        final DatagramChannel to = (DatagramChannel) key.channel();
-        return to.send(data, to.getRemoteAddress());
+    protected long sendDataTo(final ByteBuffer[] data) throws IOException {
+        if (channel.isConnected()) {
+            /* Gathering writes send all buffers as one datagram. */
+            return channel.write(data);
+        }
+        if (peer == null) {
+            throw new IOException("No peer to send to");
+        }
+        return channel.send(data.length == 1 ? data[0] : gather(data), peer);
     }
 
     @Override
-    protected long receiveDataFrom(final SelectionKey key, final ByteBuffer data) throws IOException {
-        final DatagramChannel from = (DatagramChannel) key.channel();
-        from.receive(data);
-        return data.position();
+    protected long receiveDataFrom(final ByteBuffer[] data) throws IOException {
+        if (pendingSender != null) {
+            /* Truncated like any other datagram that exceeds the buffer. */
+            peer = pendingSender;
+            pendingSender = null;
+            return scatter(datagramBuffer, data);
+        }
+        if (channel.isConnected()) {
+            return channel.read(data);
+        }
+        if (data.length == 1) {
+            final int start = data[0].position();
+            receiveFrom(data[0]);
+            return data[0].position() - start;
+        }
+        final ByteBuffer datagram = ByteBuffer.allocate((int) Math.min(remaining(data), MAX_DATAGRAM_SIZE));
+        receiveFrom(datagram);
+        datagram.flip();
+        return scatter(datagram, data);
+    }
+
+    private void receiveFrom(final ByteBuffer buffer) throws IOException {
+        final SocketAddress sender = channel.receive(buffer);
+        if (sender != null) {
+            peer = castAddress(sender);
+        }
+    }
+
+    private static ByteBuffer gather(final ByteBuffer[] segments) {
+        final ByteBuffer datagram = ByteBuffer.allocate((int) remaining(segments));
+        for (final ByteBuffer segment : segments) {
+            datagram.put(segment);
+        }
+        datagram.flip();
+        return datagram;
+    }
+
+    /* Copies as much of the source as fits into the segments, dropping the rest. */
+    private static long scatter(final ByteBuffer source, final ByteBuffer[] segments) {
+        long count = 0;
+        for (final ByteBuffer segment : segments) {
+            final int length = Math.min(source.remaining(), segment.remaining());
+            final ByteBuffer part = source.duplicate();
+            part.limit(part.position() + length);
+            segment.put(part);
+            source.position(source.position() + length);
+            count += length;
+        }
+        return count;
+    }
+
+    /**
+     * Sends one datagram per buffer until the send buffer is full.
+     *
+     * @param targets the destination of each datagram, or `null` for the connected peer
+     * @return the number of datagrams sent
+     */
+    int sendDatagrams(final ByteBuffer[] datagrams, final InetSocketAddress[] targets) throws IOException {
+        if (!channel.isConnected()) {
+            for (final InetSocketAddress target : targets) {
+                if (target == null) {
+                    throw new IOException("No target for datagram on unconnected socket");
+                }
+            }
+        }
+        for (int i = 0; i < datagrams.length; i++) {
+            final ByteBuffer datagram = datagrams[i];
+            final int sent = targets[i] == null ? channel.write(datagram) : channel.send(datagram, targets[i]);
+            if (sent == 0 && datagram.hasRemaining()) {
+                sendBufferFull();
+                return i;
+            }
+        }
+        return datagrams.length;
+    }
+
+    /**
+     * Receives datagrams back to back into the buffer, until there are no more datagrams, the
+     * tables are full, or the next datagram does not fit. Such a datagram is kept for the next
+     * receive, unless it is the first one, in which case it is truncated. Nothing is received into
+     * a buffer without room.
+     *
+     * @return the number of datagrams received; their offsets into the buffer, lengths and senders
+     *         are stored in the tables
+     */
+    int receiveDatagrams(final ByteBuffer buffer, final int[] offsets, final int[] lengths, final InetSocketAddress[] senders) throws IOException {
+        int count = 0;
+        while (count < offsets.length && buffer.hasRemaining()) {
+            if (pendingSender == null) {
+                if (datagramBuffer == null) {
+                    datagramBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+                }
+                datagramBuffer.clear();
+                final SocketAddress sender = channel.receive(datagramBuffer);
+                if (sender == null) {
+                    allDataConsumed();
+                    break;
+                }
+                datagramBuffer.flip();
+                pendingSender = castAddress(sender);
+            }
+            if (datagramBuffer.remaining() > buffer.remaining()) {
+                if (count > 0) {
+                    break;
+                }
+                datagramBuffer.limit(datagramBuffer.position() + buffer.remaining());
+            }
+            offsets[count] = buffer.position();
+            lengths[count] = datagramBuffer.remaining();
+            senders[count] = pendingSender;
+            buffer.put(datagramBuffer);
+            pendingSender = null;
+            count++;
+        }
+        return count;
     }
 
     @Override
     protected void close() throws IOException {
-        super.close();
         channel.close();
+        super.close();
     }
 }
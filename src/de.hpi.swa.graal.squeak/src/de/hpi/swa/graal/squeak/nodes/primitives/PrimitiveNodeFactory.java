@@ -22,6 +22,7 @@ import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.model.NilObject;
 import de.hpi.swa.graal.squeak.nodes.context.ArgumentNodes.AbstractArgumentNode;
 import de.hpi.swa.graal.squeak.nodes.context.ArgumentNodes.ArgumentNode;
+import de.hpi.swa.graal.squeak.nodes.plugins.AioPlugin;
 import de.hpi.swa.graal.squeak.nodes.plugins.B2DPlugin;
 import de.hpi.swa.graal.squeak.nodes.plugins.BMPReadWriterPlugin;
 import de.hpi.swa.graal.squeak.nodes.plugins.BitBltPlugin;
@@ -39,6 +40,7 @@ import de.hpi.swa.graal.squeak.nodes.plugins.LocalePlugin;
 import de.hpi.swa.graal.squeak.nodes.plugins.Matrix2x3Plugin;
 import de.hpi.swa.graal.squeak.nodes.plugins.MiscPrimitivePlugin;
 import de.hpi.swa.graal.squeak.nodes.plugins.NullPlugin;
+import de.hpi.swa.graal.squeak.nodes.plugins.NumericKernelsPlugin;
 import de.hpi.swa.graal.squeak.nodes.plugins.PolyglotPlugin;
 import de.hpi.swa.graal.squeak.nodes.plugins.SecurityPlugin;
 import de.hpi.swa.graal.squeak.nodes.plugins.SoundCodecPrims;
@@ -85,6 +87,7 @@ public final class PrimitiveNodeFactory {
         fillPrimitiveTable(indexPrimitives);
 
         final AbstractPrimitiveFactoryHolder[] plugins = new AbstractPrimitiveFactoryHolder[]{
+                        new AioPlugin(),
                         new B2DPlugin(),
                         new BitBltPlugin(),
                         new BMPReadWriterPlugin(),
@@ -102,6 +105,7 @@ public final class PrimitiveNodeFactory {
                         new Matrix2x3Plugin(),
                         new MiscPrimitivePlugin(),
                         new NullPlugin(),
+                        new NumericKernelsPlugin(),
                         new PolyglotPlugin(),
                         new SecurityPlugin(),
                         new SocketPlugin(),
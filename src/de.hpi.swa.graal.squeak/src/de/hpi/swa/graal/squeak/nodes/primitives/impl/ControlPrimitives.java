@@ -6,10 +6,7 @@
 package de.hpi.swa.graal.squeak.nodes.primitives.impl;
 
 import java.lang.management.ManagementFactory;
-import java.lang.ref.Reference;
-import java.lang.ref.ReferenceQueue;
 import java.util.List;
-import java.util.logging.Level;
 
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanException;
@@ -52,6 +49,7 @@ import de.hpi.swa.graal.squeak.nodes.DispatchEagerlyNode;
 import de.hpi.swa.graal.squeak.nodes.DispatchSendNode;
 import de.hpi.swa.graal.squeak.nodes.InheritsFromNode;
 import de.hpi.swa.graal.squeak.nodes.LookupMethodNode;
+import de.hpi.swa.graal.squeak.nodes.ObjectGraphNode;
 import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectReadNode;
 import de.hpi.swa.graal.squeak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectWriteNode;
 import de.hpi.swa.graal.squeak.nodes.accessing.ArrayObjectNodes.ArrayObjectReadNode;
@@ -84,7 +82,6 @@ import de.hpi.swa.graal.squeak.nodes.process.SignalSemaphoreNode;
 import de.hpi.swa.graal.squeak.nodes.process.WakeHighestPriorityNode;
 import de.hpi.swa.graal.squeak.nodes.process.YieldProcessNode;
 import de.hpi.swa.graal.squeak.util.InterruptHandlerNode;
-import de.hpi.swa.graal.squeak.util.LogUtils;
 import de.hpi.swa.graal.squeak.util.MiscUtils;
 import de.hpi.swa.graal.squeak.util.NotProvided;
 
@@ -564,6 +561,8 @@ public final class ControlPrimitives extends AbstractPrimitiveFactoryHolder {
         private static final String[] SIGNATURE = new String[]{String[].class.getName()};
         private static final ObjectName OBJECT_NAME;
 
+        @Child private ObjectGraphNode objectGraphNode;
+
         static {
             if (TruffleOptions.AOT) {
                 OBJECT_NAME = null;
@@ -578,6 +577,7 @@ public final class ControlPrimitives extends AbstractPrimitiveFactoryHolder {
 
         protected PrimFullGCNode(final CompiledMethodObject method) {
             super(method);
+            objectGraphNode = ObjectGraphNode.create(method.image);
         }
 
         @Specialization
@@ -588,7 +588,10 @@ public final class ControlPrimitives extends AbstractPrimitiveFactoryHolder {
             } else {
                 forceFullGC();
             }
-            if (hasPendingFinalizations()) {
+            if (method.image.finalization.hasEphemerons()) {
+                method.image.finalization.addMourners(objectGraphNode.executeFindMourners());
+            }
+            if (method.image.finalization.drainReferenceQueue()) {
                 method.image.interrupt.setPendingFinalizations(true);
             }
             return MiscUtils.runtimeFreeMemory();
@@ -605,19 +608,6 @@ public final class ControlPrimitives extends AbstractPrimitiveFactoryHolder {
                 throw SqueakException.illegalState(e);
             }
         }
-
-        @TruffleBoundary
-        private boolean hasPendingFinalizations() {
-            final ReferenceQueue<Object> queue = method.image.weakPointersQueue;
-            Reference<? extends Object> element = queue.poll();
-            int count = 0;
-            while (element != null) {
-                count++;
-                element = queue.poll();
-            }
-            LogUtils.GC.log(Level.FINE, "Number of garbage collected WeakPointersObjects: {0}", count);
-            return count > 0;
-        }
     }
 
     @GenerateNodeFactory
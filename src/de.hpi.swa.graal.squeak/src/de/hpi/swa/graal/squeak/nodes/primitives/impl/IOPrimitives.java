@@ -263,8 +263,9 @@ public final class IOPrimitives extends AbstractPrimitiveFactoryHolder {
 
         @Specialization(guards = {"method.image.hasDisplay()", "receiver.size() >= 4"})
         protected final boolean doDisplay(final PointersObject receiver) {
-            method.image.setSpecialObject(SPECIAL_OBJECT.THE_DISPLAY, receiver);
+            /* Open first, so that the display is left as it was if it cannot show the receiver. */
             method.image.getDisplay().open(receiver);
+            method.image.setSpecialObject(SPECIAL_OBJECT.THE_DISPLAY, receiver);
             return BooleanObject.TRUE;
         }
 
@@ -41,6 +41,7 @@ import de.hpi.swa.graal.squeak.model.ClassObject;
 import de.hpi.swa.graal.squeak.model.CompiledCodeObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
 import de.hpi.swa.graal.squeak.model.LargeIntegerObject;
 import de.hpi.swa.graal.squeak.model.NativeObject;
 import de.hpi.swa.graal.squeak.model.NilObject;
@@ -64,6 +65,7 @@ import de.hpi.swa.graal.squeak.nodes.primitives.PrimitiveNodeFactory;
 import de.hpi.swa.graal.squeak.nodes.primitives.SqueakPrimitive;
 import de.hpi.swa.graal.squeak.shared.SqueakLanguageConfig;
 import de.hpi.swa.graal.squeak.util.ArrayUtils;
+import de.hpi.swa.graal.squeak.util.GCStatistics;
 import de.hpi.swa.graal.squeak.util.InterruptHandlerState;
 import de.hpi.swa.graal.squeak.util.MiscUtils;
 import de.hpi.swa.graal.squeak.util.NotProvided;
@@ -307,6 +309,13 @@ public final class MiscellaneousPrimitives extends AbstractPrimitiveFactoryHolde
                         @Shared("isPrimitiveProfile") @Cached("createBinaryProfile()") final ConditionProfile isPrimitiveProfile) {
             return BooleanObject.wrap(receiver.pointsTo(identityNode, isPrimitiveProfile, thang));
         }
+
+        @Specialization
+        protected static final boolean doEphemeron(final EphemeronObject receiver, final Object thang,
+                        @Shared("identityNode") @Cached final SqueakObjectIdentityNode identityNode,
+                        @Shared("isPrimitiveProfile") @Cached("createBinaryProfile()") final ConditionProfile isPrimitiveProfile) {
+            return BooleanObject.wrap(receiver.pointsTo(identityNode, isPrimitiveProfile, thang));
+        }
     }
 
     @GenerateNodeFactory
@@ -627,6 +636,12 @@ public final class MiscellaneousPrimitives extends AbstractPrimitiveFactoryHolde
             return receiver;
         }
 
+        @Specialization(guards = "receiver.getSqueakClass() == anotherObject.getSqueakClass()")
+        protected static final AbstractPointersObject doCopyEphemeron(final EphemeronObject receiver, final EphemeronObject anotherObject) {
+            receiver.copyFrom(anotherObject);
+            return receiver;
+        }
+
         @Specialization(guards = {"receiver.getSqueakClass() == anotherObject.getSqueakClass()",
                         "receiver.isByteType()", "anotherObject.isByteType()", "receiver.getByteLength() == anotherObject.getByteLength()"})
         protected static final NativeObject doCopyNativeByte(final NativeObject receiver, final NativeObject anotherObject) {
@@ -860,17 +875,17 @@ public final class MiscellaneousPrimitives extends AbstractPrimitiveFactoryHolde
         private Object vmParameterAt(final int index) {
             //@formatter:off
             switch (index) {
-                case 1: return 1L; // end (v3)/size(Spur) of old-space (0-based, read-only)
-                case 2: return 1L; // end (v3)/size(Spur) of young/new-space (read-only)
-                case 3: return MiscUtils.runtimeTotalMemory(); // end (v3)/size(Spur) of heap (read-only)
+                case 1: return GCStatistics.getOldSpaceSize(); // end (v3)/size(Spur) of old-space (0-based, read-only)
+                case 2: return GCStatistics.getYoungSpaceSize(); // end (v3)/size(Spur) of young/new-space (read-only)
+                case 3: return GCStatistics.getHeapSize(); // end (v3)/size(Spur) of heap (read-only)
                 case 4: return NilObject.SINGLETON; // nil (was allocationCount (read-only))
                 case 5: return NilObject.SINGLETON; // nil (was allocations between GCs (read-write)
                 case 6: return 0L; // survivor count tenuring threshold (read-write)
-                case 7: return MiscUtils.getCollectionCount(); // full GCs since startup (read-only)
-                case 8: return MiscUtils.getCollectionTime(); // total milliseconds in full GCs since startup (read-only)
-                case 9: return 1L; // incremental GCs (SqueakV3) or scavenges (Spur) since startup (read-only)
-                case 10: return 1L; // total milliseconds in incremental GCs (SqueakV3) or scavenges (Spur) since startup (read-only)
-                case 11: return 1L; // tenures of surving objects since startup (read-only)
+                case 7: return GCStatistics.getOldCollectionCount(); // full GCs since startup (read-only)
+                case 8: return GCStatistics.getOldCollectionTime(); // total milliseconds in full GCs since startup (read-only)
+                case 9: return GCStatistics.getYoungCollectionCount(); // incremental GCs (SqueakV3) or scavenges (Spur) since startup (read-only)
+                case 10: return GCStatistics.getYoungCollectionTime(); // total milliseconds in incremental GCs (SqueakV3) or scavenges (Spur) since startup (read-only)
+                case 11: return GCStatistics.getTenureCount(); // tenures of surving objects since startup (read-only)
                 case 12: case 13: case 14: case 15: case 16: case 17: case 18: case 19: return 0L; // case 12-20 were specific to ikp's JITTER VM, now 12-19 are open for use
                 case 20: return MiscUtils.toSqueakMicrosecondsUTC(method.image.startUpMillis * 1000L); // utc microseconds at VM start-up (actually at time initialization, which precedes image load).
                 case 21: return 0L; // root table size (read-only)
@@ -888,15 +903,15 @@ public final class MiscellaneousPrimitives extends AbstractPrimitiveFactoryHolde
                 case 33: return 0L; // number of root table entries used for current IGC/FGC (read-only)
                 case 34: return 0L; // number of allocations done before current IGC/FGC (read-only)
                 case 35: return 0L; // number of survivor objects after current IGC/FGC (read-only)
-                case 36: return 0L; // millisecond clock when current IGC/FGC completed (read-only)
+                case 36: return lastGCMillisecondClock(); // millisecond clock when current IGC/FGC completed (read-only)
                 case 37: return 0L; // number of marked objects for Roots of the world, not including Root Table entries for current IGC/FGC (read-only)
-                case 38: return 0L; // milliseconds taken by current IGC (read-only)
+                case 38: return GCStatistics.getLastGCDurationMillis(); // milliseconds taken by current IGC (read-only)
                 case 39: return MiscUtils.getObjectPendingFinalizationCount(); // Number of finalization signals for Weak Objects pending when current IGC/FGC completed (read-only)
                 case 40: return 8L; // BytesPerOop for this image
                 case 41: return (long) SqueakImageConstants.IMAGE_FORMAT; // imageFormatVersion for the VM
                 case 42: return 50L; // number of stack pages in use (see SmalltalkImage>>isRunningCog)
                 case 43: return 0L; // desired number of stack pages (stored in image file header, max 65535)
-                case 44: return 0L; // size of eden, in bytes
+                case 44: return GCStatistics.getEdenSize(); // size of eden, in bytes
                 case 45: return 0L; // desired size of eden, in bytes (stored in image file header)
                 case 46: return NilObject.SINGLETON; // machine code zone size, in bytes (Cog only; otherwise nil)
                 case 47: return NilObject.SINGLETON; // desired machine code zone size (stored in image file header; Cog only; otherwise nil)
@@ -905,7 +920,7 @@ public final class MiscellaneousPrimitives extends AbstractPrimitiveFactoryHolde
                 case 50: case 51: return NilObject.SINGLETON; // nil; reserved for VM parameters that persist in the image (such as eden above)
                 case 52: return 65536L; // root table capacity
                 case 53: return 2L; // number of segments (Spur only; otherwise nil)
-                case 54: return MiscUtils.runtimeFreeMemory(); // total size of free old space (Spur only, otherwise nil)
+                case 54: return GCStatistics.getOldSpaceFree(); // total size of free old space (Spur only, otherwise nil)
                 case 55: return 0L; // ratio of growth and image size at or above which a GC will be performed post scavenge
                 case 56: return NilObject.SINGLETON; // number of process switches since startup (read-only)
                 case 57: return 0L; // number of ioProcessEvents calls since startup (read-only)
@@ -929,6 +944,11 @@ public final class MiscellaneousPrimitives extends AbstractPrimitiveFactoryHolde
             }
             //@formatter:on
         }
+
+        private long lastGCMillisecondClock() {
+            final long lastGCEndMillis = GCStatistics.getLastGCEndMillis();
+            return lastGCEndMillis == 0 ? 0L : lastGCEndMillis - method.image.startUpMillis;
+        }
     }
 
     @GenerateNodeFactory
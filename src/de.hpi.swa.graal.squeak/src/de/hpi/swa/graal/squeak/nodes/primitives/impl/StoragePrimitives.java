@@ -37,6 +37,8 @@ import de.hpi.swa.graal.squeak.model.ClassObject;
 import de.hpi.swa.graal.squeak.model.CompiledCodeObject;
 import de.hpi.swa.graal.squeak.model.CompiledMethodObject;
 import de.hpi.swa.graal.squeak.model.ContextObject;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
+import de.hpi.swa.graal.squeak.model.layout.ObjectLayouts.ERROR_TABLE;
 import de.hpi.swa.graal.squeak.nodes.ObjectGraphNode;
 import de.hpi.swa.graal.squeak.nodes.accessing.ArrayObjectNodes.ArrayObjectReadNode;
 import de.hpi.swa.graal.squeak.nodes.accessing.ArrayObjectNodes.ArrayObjectSizeNode;
@@ -560,6 +562,25 @@ public final class StoragePrimitives extends AbstractPrimitiveFactoryHolder {
         }
     }
 
+    @GenerateNodeFactory
+    @SqueakPrimitive(indices = 172)
+    protected abstract static class PrimFetchMournerNode extends AbstractPrimitiveNode implements UnaryPrimitiveWithoutFallback {
+
+        protected PrimFetchMournerNode(final CompiledMethodObject method) {
+            super(method);
+        }
+
+        @Specialization
+        protected final EphemeronObject doFetch(@SuppressWarnings("unused") final Object receiver) {
+            final EphemeronObject mourner = method.image.finalization.nextMourner();
+            if (mourner != null) {
+                return mourner;
+            } else {
+                throw PrimitiveFailed.andTransferToInterpreter(ERROR_TABLE.NOT_FOUND.ordinal());
+            }
+        }
+    }
+
     @GenerateNodeFactory
     @NodeInfo(cost = NodeCost.NONE)
     @SqueakPrimitive(indices = 173)
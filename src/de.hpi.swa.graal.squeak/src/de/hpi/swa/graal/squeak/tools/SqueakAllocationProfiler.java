@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.tools;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.graalvm.options.OptionCategory;
+import org.graalvm.options.OptionDescriptors;
+import org.graalvm.options.OptionKey;
+import org.graalvm.options.OptionStability;
+import org.graalvm.polyglot.Context;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Option;
+import com.oracle.truffle.api.instrumentation.AllocationEvent;
+import com.oracle.truffle.api.instrumentation.AllocationEventFilter;
+import com.oracle.truffle.api.instrumentation.AllocationListener;
+import com.oracle.truffle.api.instrumentation.TruffleInstrument;
+
+import de.hpi.swa.graal.squeak.SqueakLanguage;
+import de.hpi.swa.graal.squeak.SqueakOptions;
+import de.hpi.swa.graal.squeak.image.SqueakImageConstants;
+import de.hpi.swa.graal.squeak.model.AbstractSqueakObjectWithHash;
+import de.hpi.swa.graal.squeak.model.ClassObject;
+
+/**
+ * Aggregates allocation counts and estimated sizes per Squeak class. Allocations are observed
+ * through the {@link com.oracle.truffle.api.instrumentation.AllocationReporter} of the image, which
+ * covers instantiation, shallow copies, closures, contexts, and boxed floats and large integers.
+ * Only every n-th allocation is recorded (see {@link #SamplingInterval}), so counts and sizes in the
+ * report are extrapolated. The report is printed when the engine is closed and can
+ * be requested through the GraalSqueakPlugin.
+ */
+@Option.Group(SqueakAllocationProfiler.ID)
+@TruffleInstrument.Registration(id = SqueakAllocationProfiler.ID, services = SqueakAllocationProfiler.class)
+public final class SqueakAllocationProfiler extends TruffleInstrument {
+    public static final String ID = "squeak-allocation-profiler";
+    private static final int REPORT_LIMIT = 50;
+
+    @Option(name = "SamplingInterval", category = OptionCategory.INTERNAL, stability = OptionStability.EXPERIMENTAL, help = "Record every n-th allocation")//
+    public static final OptionKey<Integer> SamplingInterval = new OptionKey<>(1);
+
+    private final Map<ClassObject, ClassStatistics> statistics = new HashMap<>();
+    private int samplingInterval;
+    private int allocationsUntilNextSample;
+    private long totalAllocations;
+
+    public static SqueakAllocationProfiler enableIfRequested(final SqueakLanguage.Env env) {
+        if (env.getOptions().get(SqueakOptions.ProfileAllocations)) {
+            /* Looking up instrument to activate it. */
+            return Context.getCurrent().getEngine().getInstruments().get(ID).lookup(SqueakAllocationProfiler.class);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    protected OptionDescriptors getOptionDescriptors() {
+        return new SqueakAllocationProfilerOptionDescriptors();
+    }
+
+    @Override
+    protected void onCreate(final Env env) {
+        samplingInterval = Math.max(1, env.getOptions().get(SamplingInterval));
+        allocationsUntilNextSample = samplingInterval;
+        env.registerService(this);
+        env.getInstrumenter().attachAllocationListener(AllocationEventFilter.ANY, new AllocationListener() {
+            @Override
+            public void onEnter(final AllocationEvent event) {
+                /* Nothing to do. */
+            }
+
+            @Override
+            public void onReturnValue(final AllocationEvent event) {
+                if (--allocationsUntilNextSample <= 0) {
+                    allocationsUntilNextSample = samplingInterval;
+                    record(event.getValue());
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onDispose(final Env env) {
+        printReport(new PrintStream(env.out(), true));
+    }
+
+    @TruffleBoundary
+    private synchronized void record(final Object value) {
+        if (!(value instanceof AbstractSqueakObjectWithHash)) {
+            return;
+        }
+        final AbstractSqueakObjectWithHash object = (AbstractSqueakObjectWithHash) value;
+        final ClassObject classObject = object.getSqueakClass();
+        if (classObject == null) {
+            return; /* Class not yet filled in. */
+        }
+        ClassStatistics entry = statistics.get(classObject);
+        if (entry == null) {
+            entry = new ClassStatistics(classObject);
+            statistics.put(classObject, entry);
+        }
+        entry.count += samplingInterval;
+        entry.bytes += samplingInterval * estimateBytes(object);
+        totalAllocations += samplingInterval;
+    }
+
+    /* Size the object would have in a Spur image (see SqueakImageWriter). */
+    private static long estimateBytes(final AbstractSqueakObjectWithHash object) {
+        final int numSlots = object.getNumSlots();
+        final int headerSlots = numSlots < SqueakImageConstants.OVERFLOW_SLOTS ? 1 : 2;
+        return (headerSlots + Math.max(numSlots, 1)) * (long) SqueakImageConstants.WORD_SIZE;
+    }
+
+    @TruffleBoundary
+    public synchronized void reset() {
+        statistics.clear();
+        totalAllocations = 0;
+    }
+
+    @TruffleBoundary
+    public synchronized String getReport() {
+        final List<ClassStatistics> entries = new ArrayList<>(statistics.values());
+        entries.sort((a, b) -> Long.compare(b.bytes, a.bytes));
+        long totalBytes = 0;
+        for (final ClassStatistics entry : entries) {
+            totalBytes += entry.bytes;
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Allocations by class (every %d. allocation sampled, %d allocations, %d bytes in total)%n", samplingInterval, totalAllocations, totalBytes));
+        sb.append(String.format("%12s %14s %7s  %s%n", "Count", "Bytes", "%", "Class"));
+        for (int i = 0; i < Math.min(entries.size(), REPORT_LIMIT); i++) {
+            final ClassStatistics entry = entries.get(i);
+            sb.append(String.format("%12d %14d %6.2f%%  %s%n", entry.count, entry.bytes, totalBytes == 0 ? 0.0 : 100.0 * entry.bytes / totalBytes, entry.className));
+        }
+        if (entries.size() > REPORT_LIMIT) {
+            sb.append(String.format("... and %d more classes%n", entries.size() - REPORT_LIMIT));
+        }
+        return sb.toString();
+    }
+
+    @TruffleBoundary
+    private void printReport(final PrintStream out) {
+        out.print(getReport());
+    }
+
+    private static final class ClassStatistics {
+        private final String className;
+        private long count;
+        private long bytes;
+
+        private ClassStatistics(final ClassObject classObject) {
+            className = classObject.getClassName();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.tools;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameInstance;
+
+import de.hpi.swa.graal.squeak.SqueakLanguage;
+import de.hpi.swa.graal.squeak.SqueakOptions;
+import de.hpi.swa.graal.squeak.model.ClassObject;
+import de.hpi.swa.graal.squeak.util.LogUtils;
+
+/**
+ * Diagnostics for layout and storage strategy churn. When enabled (see
+ * {@link SqueakOptions#LayoutStatistics}), this records evolutions of object layouts (including
+ * demotions of primitive slots to generic ones), generalizations of array storage strategies, and
+ * invalidations of class assumptions. Each event is attributed to its class and to the Squeak
+ * method that triggered it. Events are recorded per image context and only once the image has been
+ * loaded, so that filling in objects and classes from the snapshot is not counted. The statistics
+ * are written as JSON when the image shuts down and can be requested through the
+ * GraalSqueakPlugin.
+ */
+public final class SqueakLayoutStatistics {
+    public static final String CLASS_FORMAT_STABLE = "classFormatStable";
+    public static final String CLASS_HIERARCHY_STABLE = "classHierarchyStable";
+    public static final String METHOD_DICT_STABLE = "methodDictStable";
+    public static final String UNINITIALIZED = "uninitialized";
+
+    private static final String UNKNOWN_SITE = "<vm>";
+
+    private final String dumpPath;
+    private final Map<Event, long[]> layoutEvolutions = new LinkedHashMap<>();
+    private final Map<Event, long[]> arrayTransitions = new LinkedHashMap<>();
+    private final Map<Event, long[]> invalidations = new LinkedHashMap<>();
+    private volatile boolean isRecording;
+
+    private SqueakLayoutStatistics(final String dumpPath) {
+        this.dumpPath = dumpPath;
+    }
+
+    public static SqueakLayoutStatistics createIfRequested(final SqueakLanguage.Env env) {
+        if (env.getOptions().hasBeenSet(SqueakOptions.LayoutStatistics)) {
+            return new SqueakLayoutStatistics(env.getOptions().get(SqueakOptions.LayoutStatistics));
+        } else {
+            return null;
+        }
+    }
+
+    /** Starts recording events, once the image has been loaded. */
+    public void startRecording() {
+        isRecording = true;
+    }
+
+    @TruffleBoundary
+    public synchronized void recordLayoutEvolution(final ClassObject classObject, final int index, final String from, final String to) {
+        if (isRecording) {
+            increment(layoutEvolutions, new Event(classObject, index, from, to, getSite()));
+        }
+    }
+
+    @TruffleBoundary
+    public synchronized void recordArrayTransition(final ClassObject classObject, final String from, final String to) {
+        if (isRecording) {
+            increment(arrayTransitions, new Event(classObject, -1, from, to, getSite()));
+        }
+    }
+
+    @TruffleBoundary
+    public synchronized void recordInvalidation(final ClassObject classObject, final String assumptionName) {
+        if (isRecording) {
+            increment(invalidations, new Event(classObject, -1, assumptionName, null, getSite()));
+        }
+    }
+
+    @TruffleBoundary
+    public synchronized void reset() {
+        layoutEvolutions.clear();
+        arrayTransitions.clear();
+        invalidations.clear();
+    }
+
+    /** Writes the statistics to the file given with the option, if any. */
+    @TruffleBoundary
+    public void dumpIfRequested() {
+        if (dumpPath.isEmpty()) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(Paths.get(dumpPath), StandardCharsets.UTF_8)) {
+            writer.write(toJSON());
+        } catch (final IOException e) {
+            LogUtils.PRIMITIVES.warning("Failed to write layout statistics to " + dumpPath + ": " + e.getMessage());
+        }
+    }
+
+    @TruffleBoundary
+    public synchronized String toJSON() {
+        final StringBuilder sb = new StringBuilder("{\n");
+        appendEvents(sb, "layoutEvolutions", layoutEvolutions);
+        sb.append(",\n");
+        appendEvents(sb, "arrayTransitions", arrayTransitions);
+        sb.append(",\n");
+        appendEvents(sb, "invalidations", invalidations);
+        return sb.append("\n}\n").toString();
+    }
+
+    private static void appendEvents(final StringBuilder sb, final String name, final Map<Event, long[]> events) {
+        final List<Map.Entry<Event, long[]>> entries = new ArrayList<>(events.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        sb.append("  \"").append(name).append("\": [");
+        for (int i = 0; i < entries.size(); i++) {
+            final Event event = entries.get(i).getKey();
+            sb.append(i == 0 ? "\n" : ",\n").append("    {\"class\": ");
+            appendString(sb, event.classObject.getClassName());
+            if (event.index >= 0) {
+                sb.append(", \"slot\": ").append(event.index);
+            }
+            if (event.to == null) {
+                sb.append(", \"assumption\": ");
+                appendString(sb, event.from);
+            } else {
+                sb.append(", \"from\": ");
+                appendString(sb, event.from);
+                sb.append(", \"to\": ");
+                appendString(sb, event.to);
+                if (event.index >= 0) {
+                    /* Initialized slots only ever evolve from primitive to generic locations. */
+                    sb.append(", \"demotion\": ").append(!UNINITIALIZED.equals(event.from));
+                }
+            }
+            sb.append(", \"site\": ");
+            appendString(sb, event.site);
+            sb.append(", \"count\": ").append(entries.get(i).getValue()[0]).append('}');
+        }
+        sb.append(entries.isEmpty() ? "]" : "\n  ]");
+    }
+
+    private static void appendString(final StringBuilder sb, final String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < ' ') {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void increment(final Map<Event, long[]> events, final Event event) {
+        final long[] counter = events.get(event);
+        if (counter == null) {
+            events.put(event, new long[]{1});
+        } else {
+            counter[0]++;
+        }
+    }
+
+    /* Name of the innermost Squeak method on the stack. */
+    private static String getSite() {
+        final FrameInstance currentFrame = Truffle.getRuntime().getCurrentFrame();
+        if (currentFrame != null && currentFrame.getCallTarget() instanceof RootCallTarget) {
+            return ((RootCallTarget) currentFrame.getCallTarget()).getRootNode().getName();
+        }
+        return UNKNOWN_SITE;
+    }
+
+    private static final class Event {
+        private final ClassObject classObject;
+        private final int index;
+        private final String from;
+        private final String to;
+        private final String site;
+
+        private Event(final ClassObject classObject, final int index, final String from, final String to, final String site) {
+            this.classObject = classObject;
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.site = site == null ? UNKNOWN_SITE : site;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Event)) {
+                return false;
+            }
+            final Event other = (Event) obj;
+            return classObject == other.classObject && index == other.index && from.equals(other.from) && Objects.equals(to, other.to) && site.equals(other.site);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(classObject), index, from, to, site);
+        }
+    }
+}
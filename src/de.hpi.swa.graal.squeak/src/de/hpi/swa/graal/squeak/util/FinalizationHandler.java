@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import de.hpi.swa.graal.squeak.image.SqueakImageContext;
+import de.hpi.swa.graal.squeak.model.EphemeronObject;
+
+/**
+ * Drains {@link SqueakImageContext#weakPointersQueue} on a background thread. Whenever the JVM
+ * clears weak slots, pending finalizations are reported to the {@link InterruptHandlerState}, which
+ * then signals the finalization semaphore. Ephemerons whose keys are only reachable through
+ * ephemerons are found by the full GC primitive and queued here as mourners, which can be fetched
+ * with primitive 172.
+ */
+public final class FinalizationHandler {
+    private static final String THREAD_NAME = "GraalSqueak Finalization";
+
+    private final SqueakImageContext image;
+    private final ConcurrentLinkedQueue<EphemeronObject> mourners = new ConcurrentLinkedQueue<>();
+    private Thread drainThread;
+    /* Set once the first ephemeron exists, so that images without any skip the search for mourners. */
+    private volatile boolean hasEphemerons = false;
+
+    private FinalizationHandler(final SqueakImageContext image) {
+        this.image = image;
+    }
+
+    public static FinalizationHandler create(final SqueakImageContext image) {
+        return new FinalizationHandler(image);
+    }
+
+    @TruffleBoundary
+    public void start() {
+        if (drainThread != null) {
+            return;
+        }
+        drainThread = new Thread(this::drainLoop, THREAD_NAME);
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @TruffleBoundary
+    public void shutdown() {
+        if (drainThread != null) {
+            drainThread.interrupt();
+            drainThread = null;
+        }
+    }
+
+    /**
+     * Processes all references that are currently enqueued without blocking.
+     *
+     * @return `true` if there are pending finalizations.
+     */
+    @TruffleBoundary
+    public boolean drainReferenceQueue() {
+        final ReferenceQueue<Object> queue = image.weakPointersQueue;
+        int count = 0;
+        while (queue.poll() != null) {
+            count++;
+        }
+        LogUtils.GC.log(Level.FINE, "Number of garbage collected WeakPointersObjects: {0}", count);
+        return count > 0 || !mourners.isEmpty();
+    }
+
+    public void registerEphemeron() {
+        hasEphemerons = true;
+    }
+
+    public boolean hasEphemerons() {
+        return hasEphemerons;
+    }
+
+    @TruffleBoundary
+    public void addMourners(final List<EphemeronObject> ephemerons) {
+        for (final EphemeronObject ephemeron : ephemerons) {
+            ephemeron.setMourned();
+            mourners.add(ephemeron);
+        }
+    }
+
+    /**
+     * Answers the next ephemeron to mourn, or `null`. Ephemerons whose key has been replaced since
+     * they were queued are dropped.
+     */
+    @TruffleBoundary
+    public EphemeronObject nextMourner() {
+        EphemeronObject mourner;
+        while ((mourner = mourners.poll()) != null) {
+            if (mourner.isMourned()) {
+                return mourner;
+            }
+        }
+        return null;
+    }
+
+    private void drainLoop() {
+        final ReferenceQueue<Object> queue = image.weakPointersQueue;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                /* Block until the JVM enqueues a reference, then drain all others in bulk. */
+                queue.remove();
+                drainReferenceQueue();
+                image.interrupt.setPendingFinalizations(true);
+            } catch (final InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
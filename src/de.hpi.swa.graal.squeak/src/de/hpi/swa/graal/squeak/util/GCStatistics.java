@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleOptions;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+/**
+ * Live heap and garbage collection data for the VM parameters (see
+ * SmalltalkImage>>#vmParameterAt:). Collectors and memory pools are split into young (scavenges,
+ * eden, survivor spaces) and old (full GCs, old space) ones by name, which covers all collectors of
+ * HotSpot and SubstrateVM. Data about the last GC is collected through GC notifications, which are
+ * not available in native images.
+ */
+public final class GCStatistics {
+    private static final List<GarbageCollectorMXBean> YOUNG_GC_BEANS = new ArrayList<>();
+    private static final List<GarbageCollectorMXBean> OLD_GC_BEANS = new ArrayList<>();
+    private static final List<MemoryPoolMXBean> EDEN_POOL_BEANS = new ArrayList<>();
+    private static final List<MemoryPoolMXBean> YOUNG_POOL_BEANS = new ArrayList<>();
+    private static final List<MemoryPoolMXBean> OLD_POOL_BEANS = new ArrayList<>();
+
+    private static boolean notificationsInstalled = false;
+    private static volatile long lastGCEndMillis = 0;
+    private static volatile long lastGCDurationMillis = 0;
+    /* Listeners of several collectors may be notified concurrently. */
+    private static final AtomicLong TENURE_COUNT = new AtomicLong();
+
+    static {
+        for (final GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            (isYoungCollector(gcBean.getName()) ? YOUNG_GC_BEANS : OLD_GC_BEANS).add(gcBean);
+        }
+        for (final MemoryPoolMXBean poolBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (poolBean.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            final String name = poolBean.getName().toLowerCase(Locale.ROOT);
+            if (isYoungPool(name)) {
+                YOUNG_POOL_BEANS.add(poolBean);
+                if (name.contains("eden")) {
+                    EDEN_POOL_BEANS.add(poolBean);
+                }
+            } else {
+                OLD_POOL_BEANS.add(poolBean);
+            }
+        }
+    }
+
+    private GCStatistics() {
+    }
+
+    /** Registers GC notification listeners (once). */
+    @TruffleBoundary
+    public static synchronized void installNotifications() {
+        if (notificationsInstalled || TruffleOptions.AOT) {
+            return;
+        }
+        notificationsInstalled = true;
+        final long jvmStartTime = MiscUtils.getStartTime();
+        for (final GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gcBean instanceof NotificationEmitter)) {
+                continue;
+            }
+            final boolean isYoung = YOUNG_GC_BEANS.contains(gcBean);
+            ((NotificationEmitter) gcBean).addNotificationListener((final Notification notification, final Object handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    final GcInfo gcInfo = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()).getGcInfo();
+                    lastGCEndMillis = jvmStartTime + gcInfo.getEndTime();
+                    lastGCDurationMillis = gcInfo.getDuration();
+                    if (isYoung && oldPoolsGrew(gcInfo.getMemoryUsageBeforeGc(), gcInfo.getMemoryUsageAfterGc())) {
+                        TENURE_COUNT.incrementAndGet();
+                    }
+                }
+            }, null, null);
+        }
+    }
+
+    @TruffleBoundary
+    public static long getYoungCollectionCount() {
+        return sumCollectionCounts(YOUNG_GC_BEANS);
+    }
+
+    @TruffleBoundary
+    public static long getYoungCollectionTime() {
+        return sumCollectionTimes(YOUNG_GC_BEANS);
+    }
+
+    @TruffleBoundary
+    public static long getOldCollectionCount() {
+        return sumCollectionCounts(OLD_GC_BEANS);
+    }
+
+    @TruffleBoundary
+    public static long getOldCollectionTime() {
+        return sumCollectionTimes(OLD_GC_BEANS);
+    }
+
+    @TruffleBoundary
+    public static long getOldSpaceSize() {
+        return sumCommitted(OLD_POOL_BEANS);
+    }
+
+    @TruffleBoundary
+    public static long getOldSpaceFree() {
+        long total = 0;
+        for (final MemoryPoolMXBean poolBean : OLD_POOL_BEANS) {
+            final MemoryUsage usage = poolBean.getUsage();
+            total += usage.getCommitted() - usage.getUsed();
+        }
+        return total;
+    }
+
+    @TruffleBoundary
+    public static long getYoungSpaceSize() {
+        return sumCommitted(YOUNG_POOL_BEANS);
+    }
+
+    @TruffleBoundary
+    public static long getEdenSize() {
+        return sumCommitted(EDEN_POOL_BEANS);
+    }
+
+    @TruffleBoundary
+    public static long getHeapSize() {
+        return getYoungSpaceSize() + getOldSpaceSize();
+    }
+
+    /** Answers the wall-clock time in milliseconds at which the last GC ended (0 if unknown). */
+    public static long getLastGCEndMillis() {
+        return lastGCEndMillis;
+    }
+
+    public static long getLastGCDurationMillis() {
+        return lastGCDurationMillis;
+    }
+
+    public static long getTenureCount() {
+        return TENURE_COUNT.get();
+    }
+
+    private static boolean isYoungCollector(final String name) {
+        final String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        return lowerCaseName.contains("young") || lowerCaseName.contains("scavenge") || lowerCaseName.equals("copy") || lowerCaseName.contains("parnew") ||
+                        lowerCaseName.contains("minor");
+    }
+
+    private static boolean isYoungPool(final String lowerCaseName) {
+        return lowerCaseName.contains("eden") || lowerCaseName.contains("survivor") || lowerCaseName.contains("young");
+    }
+
+    private static boolean oldPoolsGrew(final Map<String, MemoryUsage> before, final Map<String, MemoryUsage> after) {
+        for (final MemoryPoolMXBean poolBean : OLD_POOL_BEANS) {
+            final MemoryUsage usageBefore = before.get(poolBean.getName());
+            final MemoryUsage usageAfter = after.get(poolBean.getName());
+            if (usageBefore != null && usageAfter != null && usageAfter.getUsed() > usageBefore.getUsed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long sumCollectionCounts(final List<GarbageCollectorMXBean> gcBeans) {
+        long total = 0;
+        for (final GarbageCollectorMXBean gcBean : gcBeans) {
+            total += Math.max(gcBean.getCollectionCount(), 0);
+        }
+        return total;
+    }
+
+    private static long sumCollectionTimes(final List<GarbageCollectorMXBean> gcBeans) {
+        long total = 0;
+        for (final GarbageCollectorMXBean gcBean : gcBeans) {
+            total += Math.max(gcBean.getCollectionTime(), 0);
+        }
+        return total;
+    }
+
+    private static long sumCommitted(final List<MemoryPoolMXBean> poolBeans) {
+        long total = 0;
+        for (final MemoryPoolMXBean poolBean : poolBeans) {
+            total += poolBean.getUsage().getCommitted();
+        }
+        return total;
+    }
+}
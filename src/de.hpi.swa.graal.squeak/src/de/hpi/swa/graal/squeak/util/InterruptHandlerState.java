@@ -5,7 +5,7 @@
  */
 package de.hpi.swa.graal.squeak.util;
 
-import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -24,7 +24,8 @@ public final class InterruptHandlerState {
 
     private final SqueakImageContext image;
     private ScheduledThreadPoolExecutor executor;
-    private final ArrayDeque<Integer> semaphoresToSignal = new ArrayDeque<>();
+    /* Semaphores may be signaled from other threads (e.g. by the socket selector). */
+    private final ConcurrentLinkedDeque<Integer> semaphoresToSignal = new ConcurrentLinkedDeque<>();
 
     private boolean isActive = true;
     protected long nextWakeupTick = 0;
@@ -143,7 +144,7 @@ public final class InterruptHandlerState {
         pendingFinalizationSignals = value;
     }
 
-    protected boolean pendingFinalizationSignals() {
+    boolean pendingFinalizationSignals() {
         return pendingFinalizationSignals;
     }
 
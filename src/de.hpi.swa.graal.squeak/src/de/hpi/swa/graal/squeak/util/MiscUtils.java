@@ -7,14 +7,12 @@ package de.hpi.swa.graal.squeak.util;
 
 import java.io.File;
 import java.lang.management.CompilationMXBean;
-import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.RuntimeMXBean;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.List;
 import java.util.Properties;
 import java.util.Random;
 
@@ -26,7 +24,6 @@ public final class MiscUtils {
     private static final CompilationMXBean COMPILATION_BEAN = ManagementFactory.getCompilationMXBean();
     private static final MemoryMXBean MEMORY_BEAN = ManagementFactory.getMemoryMXBean();
     private static final RuntimeMXBean RUNTIME_BEAN = ManagementFactory.getRuntimeMXBean();
-    private static final List<GarbageCollectorMXBean> GC_BEANS = ManagementFactory.getGarbageCollectorMXBeans();
 
     // The delta between Squeak Epoch (January 1st 1901) and POSIX Epoch (January 1st 1970)
     public static final long EPOCH_DELTA_SECONDS = (69L * 365 + 17) * 24 * 3600;
@@ -63,24 +60,6 @@ public final class MiscUtils {
         return String.format(format, args);
     }
 
-    @TruffleBoundary
-    public static long getCollectionCount() {
-        long totalCollectionCount = 0;
-        for (final GarbageCollectorMXBean gcBean : GC_BEANS) {
-            totalCollectionCount += Math.max(gcBean.getCollectionCount(), 0);
-        }
-        return totalCollectionCount;
-    }
-
-    @TruffleBoundary
-    public static long getCollectionTime() {
-        long totalCollectionTime = 0;
-        for (final GarbageCollectorMXBean gcBean : GC_BEANS) {
-            totalCollectionTime += Math.max(gcBean.getCollectionTime(), 0);
-        }
-        return totalCollectionTime;
-    }
-
     @TruffleBoundary
     public static String getGraalVMInformation() {
         final String graalVMVersion = System.getProperty("graalvm.version", "");
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017-2020 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.graal.squeak.util;
+
+import java.nio.ByteOrder;
+
+/**
+ * SIMD within a register: scans over byte arrays that process eight bytes at a time in a long.
+ * Words are always read with the byte at the lowest index in the least significant position, so
+ * that the first byte of interest in a word is found with {@link Long#numberOfTrailingZeros}.
+ */
+public final class SWARUtils {
+    private static final boolean IS_LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private SWARUtils() {
+    }
+
+    public static long getLongLittleEndian(final byte[] bytes, final int index) {
+        final long word = UnsafeUtils.getLongAtByteIndex(bytes, index);
+        return IS_LITTLE_ENDIAN ? word : Long.reverseBytes(word);
+    }
+
+    public static void putLongLittleEndian(final byte[] bytes, final int index, final long word) {
+        UnsafeUtils.putLongIntoBytes(bytes, index, IS_LITTLE_ENDIAN ? word : Long.reverseBytes(word));
+    }
+
+    /** Answers a word with all bytes set to value. */
+    public static long broadcast(final int value) {
+        return (value & 0xFF) * ONES;
+    }
+
+    /**
+     * Sets the high bit of every zero byte in word. Bytes above a zero byte may be marked as well
+     * because of the borrow, but the lowest marked byte is always the first zero byte.
+     */
+    private static long markZeroBytes(final long word) {
+        return word - ONES & ~word & HIGH_BITS;
+    }
+
+    /** Answers the index of the lowest byte marked in a nonzero result of markZeroBytes. */
+    private static int firstMarkedByte(final long marks) {
+        return Long.numberOfTrailingZeros(marks) >>> 3;
+    }
+
+    /** Answers the first index from start (inclusive) to end (exclusive) of value, or -1. */
+    public static int indexOf(final byte[] bytes, final int value, final int start, final int end) {
+        final long pattern = broadcast(value);
+        int index = start;
+        for (; index <= end - Long.BYTES; index += Long.BYTES) {
+            final long marks = markZeroBytes(getLongLittleEndian(bytes, index) ^ pattern);
+            if (marks != 0) {
+                return index + firstMarkedByte(marks);
+            }
+        }
+        for (; index < end; index++) {
+            if (bytes[index] == (byte) value) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /** Answers the first index from start (inclusive) to end (exclusive) of value1 or value2, or -1. */
+    public static int indexOfEither(final byte[] bytes, final int value1, final int value2, final int start, final int end) {
+        final long pattern1 = broadcast(value1);
+        final long pattern2 = broadcast(value2);
+        int index = start;
+        for (; index <= end - Long.BYTES; index += Long.BYTES) {
+            final long word = getLongLittleEndian(bytes, index);
+            final long marks = markZeroBytes(word ^ pattern1) | markZeroBytes(word ^ pattern2);
+            if (marks != 0) {
+                return index + firstMarkedByte(marks);
+            }
+        }
+        for (; index < end; index++) {
+            if (bytes[index] == (byte) value1 || bytes[index] == (byte) value2) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /** Answers the first index below length at which bytes1 and bytes2 differ, or length. */
+    public static int mismatch(final byte[] bytes1, final byte[] bytes2, final int length) {
+        int index = 0;
+        for (; index <= length - Long.BYTES; index += Long.BYTES) {
+            final long difference = getLongLittleEndian(bytes1, index) ^ getLongLittleEndian(bytes2, index);
+            if (difference != 0) {
+                return index + firstMarkedByte(difference);
+            }
+        }
+        for (; index < length; index++) {
+            if (bytes1[index] != bytes2[index]) {
+                return index;
+            }
+        }
+        return length;
+    }
+}
@@ -5,7 +5,6 @@
  */
 package de.hpi.swa.graal.squeak.util;
 
-import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 
 import de.hpi.swa.graal.squeak.model.AbstractPointersObject;
@@ -15,14 +14,6 @@ public final class UnsafeUtils {
 
     private static final Unsafe UNSAFE = initUnsafe();
 
-    private static final long ARRAY_WEAK_REFERENCE_BASE_OFFSET;
-    private static final long ARRAY_WEAK_REFERENCE_INDEX_SCALE;
-
-    static {
-        ARRAY_WEAK_REFERENCE_BASE_OFFSET = UNSAFE.arrayBaseOffset(WeakReference[].class);
-        ARRAY_WEAK_REFERENCE_INDEX_SCALE = UNSAFE.arrayIndexScale(WeakReference[].class);
-    }
-
     private UnsafeUtils() {
     }
 
@@ -115,7 +106,7 @@ public final class UnsafeUtils {
     }
 
     public static long getLongAtByteIndex(final byte[] bytes, final long index) {
-        assert 0 <= index && index < bytes.length - Long.BYTES;
+        assert 0 <= index && index <= bytes.length - Long.BYTES;
         return UNSAFE.getLong(bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET + index * Unsafe.ARRAY_BYTE_INDEX_SCALE);
     }
 
@@ -156,11 +147,6 @@ public final class UnsafeUtils {
         return Short.reverseBytes(getShort(bytes, index));
     }
 
-    public static WeakReference<?> getWeakReference(final WeakReference<?>[] storage, final long index) {
-        assert 0 <= index && index < storage.length;
-        return (WeakReference<?>) UNSAFE.getObject(storage, ARRAY_WEAK_REFERENCE_BASE_OFFSET + index * ARRAY_WEAK_REFERENCE_INDEX_SCALE);
-    }
-
     public static Unsafe initUnsafe() {
         try {
             // Fast path when we are trusted.
@@ -237,10 +223,6 @@ public final class UnsafeUtils {
         UNSAFE.putInt(bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET + index * Unsafe.ARRAY_BYTE_INDEX_SCALE, value);
     }
 
-    public static void putIntReversed(final byte[] bytes, final long index, final int value) {
-        putInt(bytes, index, Integer.reverseBytes(value));
-    }
-
     public static void putLong(final byte[] bytes, final long index, final long value) {
         assert 0 <= index && index * Integer.BYTES < bytes.length;
         UNSAFE.putLong(bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET + index * Long.BYTES * Unsafe.ARRAY_BYTE_INDEX_SCALE, value);
@@ -297,11 +279,6 @@ public final class UnsafeUtils {
         putShort(bytes, index, Short.reverseBytes(value));
     }
 
-    public static void putWeakReference(final WeakReference<?>[] storage, final long index, final WeakReference<?> value) {
-        assert 0 <= index && index < storage.length;
-        UNSAFE.putObject(storage, ARRAY_WEAK_REFERENCE_BASE_OFFSET + index * ARRAY_WEAK_REFERENCE_INDEX_SCALE, value);
-    }
-
     public static byte[] toBytes(final int[] ints) {
         final int numBytes = ints.length * Integer.BYTES;
         final byte[] bytes = new byte[numBytes];